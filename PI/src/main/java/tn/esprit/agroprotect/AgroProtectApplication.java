@@ -5,6 +5,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * AgroProtect Unified Application
@@ -16,11 +17,13 @@ import org.springframework.scheduling.annotation.EnableAsync;
  * Both services run under a single Spring Boot application on port 8080
  */
 @SpringBootApplication(scanBasePackages = {
+    "tn.esprit.agroprotect.common",
     "tn.esprit.agroprotect.identity",
     "tn.esprit.agroprotect.microassurance"
 })
 @EnableJpaAuditing
 @EnableAsync
+@EnableScheduling
 public class AgroProtectApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,66 @@
+package tn.esprit.agroprotect.common.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * RFC 4180 writer: fields containing the delimiter, a quote or a line break are quoted,
+ * {@code null} is written as an empty field. Records end with CRLF.
+ *
+ * Text fields starting with {@code = + - @}, a tab or a carriage return are prefixed with
+ * {@code '} so that spreadsheets show them as text instead of evaluating a formula.
+ * Numbers are written as is.
+ */
+public class CsvWriter {
+
+    private final Writer writer;
+    private final char delimiter;
+
+    public CsvWriter(Writer writer, char delimiter) {
+        this.writer = writer;
+        this.delimiter = delimiter;
+    }
+
+    public void write(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(delimiter);
+            }
+            if (fields[i] instanceof Number) {
+                writeField(fields[i].toString());
+            } else if (fields[i] != null) {
+                writeField(escapeFormula(fields[i].toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private static String escapeFormula(String value) {
+        if (value.isEmpty()) {
+            return value;
+        }
+        char first = value.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r'
+                ? "'" + value
+                : value;
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,77 @@
+package tn.esprit.agroprotect.common.geo;
+
+import java.util.List;
+
+/**
+ * Latitude/longitude rectangle in degrees, edges included. A box whose {@code west} edge is
+ * east of its {@code east} edge crosses the antimeridian.
+ */
+public record BoundingBox(double south, double west, double north, double east) {
+
+    // Mean earth radius (IUGG)
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    public BoundingBox {
+        if (!(south >= -90 && north <= 90 && south <= north)) {
+            throw new IllegalArgumentException("Invalid latitude range: " + south + " to " + north);
+        }
+        if (!(west >= -180 && west <= 180 && east >= -180 && east <= 180)) {
+            throw new IllegalArgumentException("Invalid longitude range: " + west + " to " + east);
+        }
+    }
+
+    /**
+     * Smallest box containing the circle of {@code radiusKm} around a point; spans every
+     * longitude when the circle reaches a pole.
+     */
+    public static BoundingBox around(double latitude, double longitude, double radiusKm) {
+        double deltaLat = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double south = latitude - deltaLat;
+        double north = latitude + deltaLat;
+        if (south <= -90 || north >= 90) {
+            return new BoundingBox(Math.max(south, -90), -180, Math.min(north, 90), 180);
+        }
+        double deltaLon = Math.toDegrees(Math.asin(Math.sin(radiusKm / EARTH_RADIUS_KM)
+                / Math.cos(Math.toRadians(latitude))));
+        if (deltaLon >= 180) {
+            return new BoundingBox(south, -180, north, 180);
+        }
+        return new BoundingBox(south, normalizeLongitude(longitude - deltaLon),
+                north, normalizeLongitude(longitude + deltaLon));
+    }
+
+    /**
+     * Great-circle (haversine) distance in kilometres.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public boolean crossesAntimeridian() {
+        return west > east;
+    }
+
+    public boolean contains(double latitude, double longitude) {
+        return latitude >= south && latitude <= north
+                && (crossesAntimeridian()
+                        ? longitude >= west || longitude <= east
+                        : longitude >= west && longitude <= east);
+    }
+
+    /**
+     * The box itself, or its two halves on either side of the antimeridian.
+     */
+    public List<BoundingBox> split() {
+        return crossesAntimeridian()
+                ? List.of(new BoundingBox(south, west, north, 180), new BoundingBox(south, -180, north, east))
+                : List.of(this);
+    }
+
+    private static double normalizeLongitude(double longitude) {
+        return longitude > 180 ? longitude - 360 : longitude < -180 ? longitude + 360 : longitude;
+    }
+}
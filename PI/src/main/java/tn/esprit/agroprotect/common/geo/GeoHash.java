@@ -0,0 +1,205 @@
+package tn.esprit.agroprotect.common.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Geohash cells: base32 strings interleaving longitude and latitude bits, so that a cell's
+ * hash is a prefix of the hashes of every point inside it and nearby cells share prefixes.
+ *
+ * Points stored with their full-precision hash in an indexed column can be found by cell:
+ * the points of cell {@code c} are the index range {@code [c, successor(c))}. A rectangle
+ * is covered by a few cells of a suitable precision, and adjacent cells merge into a
+ * single range (see {@link #cover} and {@link #ranges}).
+ */
+public final class GeoHash {
+
+    public static final int MAX_PRECISION = 12;
+
+    // Ascending in ASCII order, so string order follows cell order
+    private static final String ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    /**
+     * Range {@code [from, to)} of hashes; {@code to} is null when the range is open-ended.
+     */
+    public record Range(String from, String to) {
+    }
+
+    private GeoHash() {
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        checkPrecision(precision);
+        return hash(row(latitude, precision), column(longitude, precision), precision);
+    }
+
+    /**
+     * Rectangle covered by a cell.
+     */
+    public static BoundingBox bounds(String hash) {
+        int precision = hash.length();
+        checkPrecision(precision);
+        long column = 0;
+        long row = 0;
+        int bit = 0;
+        for (int i = 0; i < precision; i++) {
+            int value = ALPHABET.indexOf(hash.charAt(i));
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid geohash: " + hash);
+            }
+            for (int shift = 4; shift >= 0; shift--, bit++) {
+                int b = (value >> shift) & 1;
+                if (bit % 2 == 0) {
+                    column = column << 1 | b;
+                } else {
+                    row = row << 1 | b;
+                }
+            }
+        }
+        double width = 360.0 / (1L << longitudeBits(precision));
+        double height = 180.0 / (1L << latitudeBits(precision));
+        return new BoundingBox(-90 + row * height, -180 + column * width,
+                -90 + (row + 1) * height, -180 + (column + 1) * width);
+    }
+
+    /**
+     * Number of cells of a precision intersecting the box.
+     */
+    public static long cellCount(BoundingBox box, int precision) {
+        checkPrecision(precision);
+        long count = 0;
+        for (BoundingBox part : box.split()) {
+            count += (column(part.east(), precision) - column(part.west(), precision) + 1)
+                    * (row(part.north(), precision) - row(part.south(), precision) + 1);
+        }
+        return count;
+    }
+
+    /**
+     * Finest precision at which at most {@code maxCells} cells cover the box (1 at least).
+     */
+    public static int precisionFor(BoundingBox box, int maxCells) {
+        int precision = 1;
+        while (precision < MAX_PRECISION && cellCount(box, precision + 1) <= maxCells) {
+            precision++;
+        }
+        return precision;
+    }
+
+    /**
+     * Sorted cells of a precision intersecting the box.
+     */
+    public static List<String> cover(BoundingBox box, int precision) {
+        checkPrecision(precision);
+        TreeSet<String> cells = new TreeSet<>();
+        for (BoundingBox part : box.split()) {
+            long west = column(part.west(), precision);
+            long east = column(part.east(), precision);
+            for (long row = row(part.south(), precision); row <= row(part.north(), precision); row++) {
+                for (long column = west; column <= east; column++) {
+                    cells.add(hash(row, column, precision));
+                }
+            }
+        }
+        return new ArrayList<>(cells);
+    }
+
+    /**
+     * Hash ranges of sorted cells of one precision, consecutive cells merged into one range
+     * (including across parent cells: {@code sz} and {@code t0} give {@code [sz, t1)}).
+     */
+    public static List<Range> ranges(List<String> cells) {
+        List<Range> ranges = new ArrayList<>();
+        String from = null;
+        String to = null;
+        for (String cell : cells) {
+            if (from != null && isFirstCell(cell, to)) {
+                to = successor(cell);
+                continue;
+            }
+            if (from != null) {
+                ranges.add(new Range(from, to));
+            }
+            from = cell;
+            to = successor(cell);
+        }
+        if (from != null) {
+            ranges.add(new Range(from, to));
+        }
+        return ranges;
+    }
+
+    /**
+     * Smallest hash greater than every hash starting with {@code prefix}, or null if there is none.
+     */
+    public static String successor(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == ALPHABET.charAt(ALPHABET.length() - 1)) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        char next = ALPHABET.charAt(ALPHABET.indexOf(prefix.charAt(end - 1)) + 1);
+        return prefix.substring(0, end - 1) + next;
+    }
+
+    /**
+     * Whether {@code cell} is the first cell of the prefix {@code prefix} ({@code t0} of {@code t})
+     */
+    private static boolean isFirstCell(String cell, String prefix) {
+        if (prefix == null || !cell.startsWith(prefix)) {
+            return false;
+        }
+        for (int i = prefix.length(); i < cell.length(); i++) {
+            if (cell.charAt(i) != ALPHABET.charAt(0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String hash(long row, long column, int precision) {
+        int lonBits = longitudeBits(precision);
+        int latBits = latitudeBits(precision);
+        char[] chars = new char[precision];
+        int bit = 0;
+        for (int i = 0; i < precision; i++) {
+            int value = 0;
+            for (int j = 0; j < 5; j++, bit++) {
+                long b = bit % 2 == 0
+                        ? column >> (lonBits - 1 - bit / 2)
+                        : row >> (latBits - 1 - bit / 2);
+                value = value << 1 | (int) (b & 1);
+            }
+            chars[i] = ALPHABET.charAt(value);
+        }
+        return new String(chars);
+    }
+
+    private static long column(double longitude, int precision) {
+        long cells = 1L << longitudeBits(precision);
+        return Math.min(cells - 1, (long) Math.floor((longitude + 180) / 360 * cells));
+    }
+
+    private static long row(double latitude, int precision) {
+        long cells = 1L << latitudeBits(precision);
+        return Math.min(cells - 1, (long) Math.floor((latitude + 90) / 180 * cells));
+    }
+
+    // Longitude takes the even bits, and the extra one of an odd total
+    private static int longitudeBits(int precision) {
+        return (5 * precision + 1) / 2;
+    }
+
+    private static int latitudeBits(int precision) {
+        return 5 * precision / 2;
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION + ": " + precision);
+        }
+    }
+}
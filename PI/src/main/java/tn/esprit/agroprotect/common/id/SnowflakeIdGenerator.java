@@ -0,0 +1,101 @@
+package tn.esprit.agroprotect.common.id;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free, time-ordered 64-bit ids: 41 bits of milliseconds since 2024-01-01 UTC,
+ * 10 bits of node id, 12 bits of sequence (4096 ids per millisecond and node).
+ *
+ * Ids are strictly increasing on a node. When the sequence of a millisecond is exhausted,
+ * or the clock moves backwards, generation continues on a logical clock slightly ahead of
+ * the wall clock; it fails if that lead exceeds {@code max-clock-drift}. Uniqueness across
+ * nodes relies on each node having its own {@code node-id}.
+ */
+@Component
+public class SnowflakeIdGenerator {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Crockford base32: no I, L, O, U; 13 characters encode 64 bits and sort like the ids
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private final long nodeId;
+    private final long maxDriftMillis;
+    // Wall clock in epoch milliseconds
+    private final LongSupplier clock;
+    // Last issued (milliseconds since EPOCH << SEQUENCE_BITS | sequence)
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public SnowflakeIdGenerator(@Value("${id-generator.node-id:0}") long nodeId,
+            @Value("${id-generator.max-clock-drift:PT5S}") Duration maxClockDrift) {
+        this(nodeId, maxClockDrift, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long nodeId, Duration maxClockDrift, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("id-generator.node-id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.maxDriftMillis = maxClockDrift.toMillis();
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long now = clock.getAsLong() - EPOCH;
+            long next;
+            if (now > current >>> SEQUENCE_BITS) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // Same millisecond or clock behind: next sequence, overflowing into the next millisecond
+                next = current + 1;
+                long drift = (next >>> SEQUENCE_BITS) - now;
+                if (drift > maxDriftMillis) {
+                    throw new IllegalStateException("Clock is " + drift + " ms behind the last generated id");
+                }
+            }
+            if (state.compareAndSet(current, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                        | nodeId << SEQUENCE_BITS
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Next id as {@code prefix-XXXXXXXXXXXXX} (fixed-width base32, sortable as text)
+     */
+    public String nextReference(String prefix) {
+        return prefix + "-" + encode(nextId());
+    }
+
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Generation time of an id (to the millisecond, logical clock included)
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH);
+    }
+}
@@ -0,0 +1,36 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Registers the {@link Idempotent} advisor. It is an infrastructure advisor, picked up by
+ * the auto-proxy creator that method security already uses, and runs innermost so that
+ * authorization is checked before a key is claimed.
+ */
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor idempotencyAdvisor(@Lazy IdempotencyStore store,
+            @Lazy PlatformTransactionManager transactionManager,
+            @Lazy ObjectMapper objectMapper) {
+        IdempotencyInterceptor interceptor = new IdempotencyInterceptor(
+                store, new TransactionTemplate(transactionManager), objectMapper);
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(Idempotent.class), interceptor);
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return advisor;
+    }
+}
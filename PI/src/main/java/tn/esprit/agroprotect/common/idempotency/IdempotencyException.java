@@ -0,0 +1,19 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when an idempotency key cannot be honoured: malformed, reused for another
+ * request, or still held by a request in flight.
+ */
+@Getter
+public class IdempotencyException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public IdempotencyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,139 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Applies {@link Idempotent} around controller methods: claims the key, replays a
+ * completed response, or runs the handler in a transaction that also stores its response,
+ * renewing the key's lease meanwhile. A failed handler releases the key, so a retry runs again.
+ */
+public class IdempotencyInterceptor implements MethodInterceptor {
+
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyStore store;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyInterceptor(IdempotencyStore store, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper) {
+        this.store = store;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Idempotent idempotent = AnnotatedElementUtils.findMergedAnnotation(method, Idempotent.class);
+        HttpServletRequest request = currentRequest();
+        String key = request != null ? request.getHeader(idempotent.header()) : null;
+        if (key == null || key.isBlank()) {
+            return invocation.proceed();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyException(HttpStatus.BAD_REQUEST,
+                    "Idempotency key must not exceed " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String scope = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        IdempotencyStore.Claim claim = store.claim(owner(), scope, key, hash(scope, invocation.getArguments()));
+        if (claim.isReplay()) {
+            return replay(claim.replay());
+        }
+
+        try (IdempotencyStore.Renewal renewal = store.keepAlive(claim)) {
+            return transactionTemplate.execute(status -> {
+                Object result = proceed(invocation);
+                ResponseEntity<?> response = (ResponseEntity<?>) result;
+                store.complete(claim, response.getStatusCode().value(), serialize(response.getBody()));
+                return result;
+            });
+        } catch (RuntimeException | Error e) {
+            store.release(claim);
+            throw e instanceof UndeclaredThrowableException wrapped ? wrapped.getUndeclaredThrowable() : e;
+        }
+    }
+
+    private static ResponseEntity<Object> replay(IdempotencyRecordRepository.KeyState state) {
+        // Stored JSON written back byte for byte: re-parsing would turn 100.00 into 100.0
+        Object body = state.getResponseBody() != null
+                ? state.getResponseBody().getBytes(StandardCharsets.UTF_8)
+                : null;
+        return ResponseEntity.status(state.getResponseStatus())
+                .header(REPLAYED_HEADER, "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private static Object proceed(MethodInvocation invocation) {
+        try {
+            return invocation.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    private String serialize(Object body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response cannot be stored for idempotent replay", e);
+        }
+    }
+
+    private String hash(String scope, Object[] arguments) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(arguments);
+        } catch (JsonProcessingException e) {
+            payload = Arrays.deepToString(arguments).getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(payload));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String owner() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : "anonymous";
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet.getRequest() : null;
+    }
+}
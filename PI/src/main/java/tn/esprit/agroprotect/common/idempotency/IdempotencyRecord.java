@@ -0,0 +1,63 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+
+/**
+ * Idempotency key claimed by a request, with the response to replay once completed.
+ * Keys are scoped by caller and endpoint; {@code lockedUntil} is the lease of the request
+ * in flight and {@code expiresAt} the end of the replay window. {@code fencingToken} is
+ * bumped on each takeover, so a request that lost its lease can no longer complete or
+ * release the key.
+ */
+@Entity
+@Table(name = "idempotency_keys",
+    uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_key", columnNames = {"owner", "scope", "idempotencyKey"}),
+    indexes = @Index(name = "idx_idempotency_expires", columnList = "expiresAt"))
+@Data
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String owner;
+
+    @Column(nullable = false, length = 150)
+    private String scope;
+
+    @Column(nullable = false, length = 100)
+    private String idempotencyKey;
+
+    // SHA-256 of the handler arguments, to reject a key reused for another request
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private IdempotencyStatus status = IdempotencyStatus.IN_PROGRESS;
+
+    private Integer responseStatus;
+
+    @Lob
+    private String responseBody;
+
+    @Column(nullable = false)
+    private Instant lockedUntil;
+
+    @ColumnDefault("1")
+    @Column(nullable = false)
+    private Long fencingToken = 1L;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    private Instant completedAt;
+}
@@ -0,0 +1,74 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    /**
+     * Current state of a key. Read as a projection rather than an entity, so that polling
+     * under open-session-in-view never returns a stale managed instance.
+     */
+    @Query("SELECT r.id AS id, r.requestHash AS requestHash, r.status AS status, " +
+           "r.responseStatus AS responseStatus, r.responseBody AS responseBody, " +
+           "r.lockedUntil AS lockedUntil, r.fencingToken AS fencingToken, r.expiresAt AS expiresAt " +
+           "FROM IdempotencyRecord r " +
+           "WHERE r.owner = :owner AND r.scope = :scope AND r.idempotencyKey = :key")
+    Optional<KeyState> findState(@Param("owner") String owner, @Param("scope") String scope, @Param("key") String key);
+
+    /**
+     * Takes over a key whose request in flight let its lease expire (e.g. the node died),
+     * moving it to the next fencing token.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.lockedUntil = :lockedUntil, r.fencingToken = r.fencingToken + 1 " +
+           "WHERE r.id = :id AND r.fencingToken = :token AND r.status = 'IN_PROGRESS' AND r.lockedUntil < :now")
+    int takeOver(@Param("id") Long id, @Param("token") long token, @Param("now") Instant now,
+                 @Param("lockedUntil") Instant lockedUntil);
+
+    /**
+     * Extends the lease of a key still held with this fencing token.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.lockedUntil = :lockedUntil " +
+           "WHERE r.id = :id AND r.fencingToken = :token AND r.status = 'IN_PROGRESS'")
+    int renew(@Param("id") Long id, @Param("token") long token, @Param("lockedUntil") Instant lockedUntil);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.responseStatus = :responseStatus, " +
+           "r.responseBody = :responseBody, r.completedAt = :now " +
+           "WHERE r.id = :id AND r.fencingToken = :token AND r.status = 'IN_PROGRESS'")
+    int complete(@Param("id") Long id, @Param("token") long token, @Param("responseStatus") int responseStatus,
+                 @Param("responseBody") String responseBody, @Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r " +
+           "WHERE r.id = :id AND r.fencingToken = :token AND r.status = 'IN_PROGRESS'")
+    int release(@Param("id") Long id, @Param("token") long token);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("id") Long id, @Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+
+    interface KeyState {
+        Long getId();
+        String getRequestHash();
+        IdempotencyStatus getStatus();
+        Integer getResponseStatus();
+        String getResponseBody();
+        Instant getLockedUntil();
+        Long getFencingToken();
+        Instant getExpiresAt();
+    }
+}
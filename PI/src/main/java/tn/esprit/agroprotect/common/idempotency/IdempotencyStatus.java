@@ -0,0 +1,11 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+/**
+ * State of an {@link IdempotencyRecord}.
+ */
+public enum IdempotencyStatus {
+    /** Claimed by a request that has not finished yet; duplicates wait. */
+    IN_PROGRESS,
+    /** Work committed; the stored response is replayed to retries. */
+    COMPLETED
+}
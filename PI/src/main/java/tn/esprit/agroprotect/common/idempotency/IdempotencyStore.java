@@ -0,0 +1,212 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.common.idempotency.IdempotencyRecordRepository.KeyState;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key store behind {@link Idempotent}.
+ *
+ * A retry costs one lookup on the unique (owner, scope, key) index. A new key is claimed
+ * by inserting an IN_PROGRESS row in its own transaction, so the unique index elects a
+ * single winner among concurrent duplicates; the others poll until the winner completes
+ * (replay), releases the key (they compete again) or lets its lease expire (take over).
+ *
+ * The holder renews its lease while the request runs ({@link #keepAlive}), so only a
+ * holder that stopped (e.g. its node died) loses the key. Each takeover bumps the key's
+ * fencing token; completing or releasing with an older token fails, so a request that
+ * lost its lease cannot overwrite or free the key of the request that took it over.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore implements DisposableBean {
+
+    private static final long MIN_POLL_MILLIS = 25;
+    private static final long MAX_POLL_MILLIS = 400;
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate newTransaction;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Duration waitTimeout;
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-lease-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IdempotencyStore(IdempotencyRecordRepository repository,
+            PlatformTransactionManager transactionManager,
+            @Value("${idempotency.ttl:PT24H}") Duration ttl,
+            @Value("${idempotency.lease:PT30S}") Duration lease,
+            @Value("${idempotency.wait-timeout:PT10S}") Duration waitTimeout) {
+        this.repository = repository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = ttl;
+        this.lease = lease;
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * Outcome of {@link #claim}: either the key now belongs to the caller ({@code recordId}
+     * under {@code fencingToken}), or a completed response must be replayed ({@code replay}).
+     */
+    public record Claim(Long recordId, long fencingToken, KeyState replay) {
+
+        public boolean isReplay() {
+            return replay != null;
+        }
+    }
+
+    /**
+     * Lease renewal of a claimed key; closed when the request ends.
+     */
+    public interface Renewal extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    public Claim claim(String owner, String scope, String key, String requestHash) {
+        Instant deadline = Instant.now().plus(waitTimeout);
+        long pollMillis = MIN_POLL_MILLIS;
+        while (true) {
+            Instant now = Instant.now();
+            Optional<KeyState> existing = repository.findState(owner, scope, key);
+
+            if (existing.isEmpty()) {
+                Optional<Long> claimed = insert(owner, scope, key, requestHash, now);
+                if (claimed.isPresent()) {
+                    return new Claim(claimed.get(), 1L, null);
+                }
+                continue;
+            }
+
+            KeyState state = existing.get();
+            if (state.getExpiresAt().isBefore(now)) {
+                newTransaction.execute(status -> repository.deleteIfExpired(state.getId(), now));
+                continue;
+            }
+            if (!state.getRequestHash().equals(requestHash)) {
+                throw new IdempotencyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency key already used for a different request");
+            }
+            if (state.getStatus() == IdempotencyStatus.COMPLETED) {
+                return new Claim(state.getId(), state.getFencingToken(), state);
+            }
+            long token = state.getFencingToken();
+            if (state.getLockedUntil().isBefore(now) && newTransaction.execute(
+                    status -> repository.takeOver(state.getId(), token, now, now.plus(lease))) == 1) {
+                log.warn("Took over idempotency key {} after its lease expired", key);
+                return new Claim(state.getId(), token + 1, null);
+            }
+
+            if (now.isAfter(deadline)) {
+                throw new IdempotencyException(HttpStatus.CONFLICT,
+                        "A request with this idempotency key is still in progress");
+            }
+            sleep(pollMillis);
+            pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Renews the lease of a claimed key every third of the lease until closed.
+     */
+    public Renewal keepAlive(Claim claim) {
+        long periodMillis = Math.max(lease.toMillis() / 3, 1);
+        ScheduledFuture<?> task = renewer.scheduleWithFixedDelay(() -> renew(claim),
+                periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return () -> task.cancel(false);
+    }
+
+    /**
+     * Stores the response; must run in the transaction of the work it describes, which
+     * is rolled back if the key was taken over in the meantime.
+     */
+    public void complete(Claim claim, int responseStatus, String responseBody) {
+        if (repository.complete(claim.recordId(), claim.fencingToken(), responseStatus, responseBody,
+                Instant.now()) == 0) {
+            throw new IdempotencyException(HttpStatus.CONFLICT,
+                    "The idempotency key was taken over by another request");
+        }
+    }
+
+    /**
+     * Frees the key after a failed request so that a retry executes again; no-op once
+     * the key was taken over.
+     */
+    public void release(Claim claim) {
+        newTransaction.executeWithoutResult(status -> repository.release(claim.recordId(), claim.fencingToken()));
+    }
+
+    @Scheduled(initialDelayString = "${idempotency.purge-interval:PT1H}",
+            fixedDelayString = "${idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = newTransaction.execute(status -> repository.deleteExpired(Instant.now()));
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        renewer.shutdownNow();
+    }
+
+    private void renew(Claim claim) {
+        try {
+            Instant lockedUntil = Instant.now().plus(lease);
+            if (newTransaction.execute(status ->
+                    repository.renew(claim.recordId(), claim.fencingToken(), lockedUntil)) == 0) {
+                log.warn("Idempotency key {} is no longer held, lease not renewed", claim.recordId());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Lease renewal of idempotency key {} failed: {}", claim.recordId(), e.getMessage());
+        }
+    }
+
+    private Optional<Long> insert(String owner, String scope, String key, String requestHash, Instant now) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setOwner(owner);
+        record.setScope(scope);
+        record.setIdempotencyKey(key);
+        record.setRequestHash(requestHash);
+        record.setLockedUntil(now.plus(lease));
+        record.setExpiresAt(now.plus(ttl));
+        record.setCreatedAt(now);
+        try {
+            return Optional.of(newTransaction.execute(status -> repository.saveAndFlush(record).getId()));
+        } catch (DataIntegrityViolationException e) {
+            // Claimed concurrently: look it up again
+            return Optional.empty();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyException(HttpStatus.CONFLICT,
+                    "A request with this idempotency key is still in progress");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Makes a controller method idempotent for requests carrying an idempotency key header.
+ *
+ * The first request with a given key executes; retries with the same key and the same
+ * arguments replay the stored response, and concurrent duplicates wait for the first one
+ * to finish instead of executing again. Requests without the header run as usual.
+ *
+ * The method must return a {@code ResponseEntity} and do its work in a single transaction:
+ * the handler runs inside a transaction that also records the response, so the response
+ * is stored if and only if the work is committed.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Idempotent {
+
+    /**
+     * Request header holding the client-generated key.
+     */
+    String header() default "Idempotency-Key";
+}
@@ -0,0 +1,50 @@
+package tn.esprit.agroprotect.common.outbox;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Domain event written in the transaction of the change it describes, then pushed to the
+ * {@link OutboxSink}s by the {@link OutboxRelay}. {@code publishedAt} stays null until every
+ * sink has accepted it; {@code attempts} and {@code lastError} track failed deliveries.
+ */
+@Entity
+@Table(name = "outbox_events",
+    indexes = {
+        @Index(name = "idx_outbox_pending", columnList = "publishedAt, id"),
+        @Index(name = "idx_outbox_aggregate", columnList = "aggregateType, aggregateId")
+    })
+@Data
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    private String aggregateType;
+
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    @Column(nullable = false, length = 50)
+    private String eventType;
+
+    // JSON
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    private Instant publishedAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 500)
+    private String lastError;
+}
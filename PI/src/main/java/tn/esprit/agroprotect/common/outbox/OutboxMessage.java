@@ -0,0 +1,11 @@
+package tn.esprit.agroprotect.common.outbox;
+
+import java.time.Instant;
+
+/**
+ * Outbox event as handed to the sinks. {@code id} increases with insertion order and
+ * identifies redeliveries: delivery is at least once, so consumers deduplicate on it.
+ */
+public record OutboxMessage(long id, String aggregateType, long aggregateId, String eventType,
+        String payload, Instant createdAt) {
+}
@@ -0,0 +1,154 @@
+package tn.esprit.agroprotect.common.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pushes unpublished outbox events to every {@link OutboxSink}, in id order, batch by batch.
+ *
+ * A batch is read with {@code FOR UPDATE} and marked published in the same transaction once
+ * all sinks accepted it, so relays running on several nodes take turns instead of sending
+ * events twice. Any sink failure rolls the batch back: it is retried with exponential
+ * backoff, and later events wait behind it (delivery is at least once and in order).
+ * Events of one aggregate are committed under its row lock, so their id order is their
+ * commit order; across aggregates, ids only approximate commit order.
+ *
+ * Runs when both {@code outbox.enabled} and {@code outbox.relay.enabled} are set, and then
+ * requires at least one {@link OutboxSink} bean: startup fails otherwise, rather than letting
+ * {@code outbox_events} grow with events nobody reads. Set {@code outbox.relay.enabled=false}
+ * on nodes that only write events while another node relays them.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final RowMapper<OutboxMessage> MESSAGE_MAPPER = (rs, rowNum) -> new OutboxMessage(
+            rs.getLong("id"), rs.getString("aggregate_type"), rs.getLong("aggregate_id"),
+            rs.getString("event_type"), rs.getString("payload"), rs.getTimestamp("created_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<OutboxSink> sinks;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration maxBackoff;
+    private final Duration retention;
+    private int consecutiveFailures;
+    private Instant retryAt = Instant.MIN;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectProvider<OutboxSink> sinks,
+            @Value("${outbox.enabled:false}") boolean outboxEnabled,
+            @Value("${outbox.relay.enabled:true}") boolean relayEnabled,
+            @Value("${outbox.relay.batch-size:500}") int batchSize,
+            @Value("${outbox.relay.poll-interval:PT1S}") Duration pollInterval,
+            @Value("${outbox.relay.max-backoff:PT1M}") Duration maxBackoff,
+            @Value("${outbox.retention:P7D}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sinks = sinks.orderedStream().toList();
+        this.enabled = outboxEnabled && relayEnabled;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+        if (this.enabled && this.sinks.isEmpty()) {
+            throw new IllegalStateException("Outbox relay enabled without any OutboxSink bean: declare a sink "
+                    + "(outbox.in-memory-sink.enabled=true for local runs) or set outbox.enabled=false");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval:PT1S}")
+    public synchronized void relay() {
+        if (!enabled || Instant.now().isBefore(retryAt)) {
+            return;
+        }
+        int published;
+        do {
+            published = relayBatch();
+        } while (published == batchSize);
+    }
+
+    @Scheduled(initialDelayString = "${outbox.purge-interval:PT1H}",
+            fixedDelayString = "${outbox.purge-interval:PT1H}")
+    public void purgePublished() {
+        int deleted = jdbcTemplate.update("DELETE FROM outbox_events WHERE published_at < ?",
+                Timestamp.from(Instant.now().minus(retention)));
+        if (deleted > 0) {
+            log.info("Purged {} published outbox events", deleted);
+        }
+    }
+
+    /**
+     * Publishes the next batch; returns its size, or 0 when empty or failed
+     */
+    private int relayBatch() {
+        List<OutboxMessage> batch = new ArrayList<>();
+        try {
+            return transactionTemplate.execute(status -> {
+                batch.addAll(jdbcTemplate.query("SELECT id, aggregate_type, aggregate_id, event_type, payload, created_at "
+                                + "FROM outbox_events WHERE published_at IS NULL ORDER BY id LIMIT ? FOR UPDATE",
+                        MESSAGE_MAPPER, batchSize));
+                if (batch.isEmpty()) {
+                    return 0;
+                }
+                for (OutboxSink sink : sinks) {
+                    publish(sink, batch);
+                }
+                Timestamp now = Timestamp.from(Instant.now());
+                jdbcTemplate.batchUpdate("UPDATE outbox_events SET published_at = ?, attempts = attempts + 1 WHERE id = ?",
+                        batch, batch.size(), (ps, message) -> {
+                            ps.setTimestamp(1, now);
+                            ps.setLong(2, message.id());
+                        });
+                consecutiveFailures = 0;
+                return batch.size();
+            });
+        } catch (DeliveryException e) {
+            recordFailure(batch, e);
+            return 0;
+        }
+    }
+
+    private static void publish(OutboxSink sink, List<OutboxMessage> batch) {
+        try {
+            sink.publish(batch);
+        } catch (Exception e) {
+            throw new DeliveryException(sink.getName(), e);
+        }
+    }
+
+    private void recordFailure(List<OutboxMessage> batch, DeliveryException e) {
+        consecutiveFailures++;
+        Duration backoff = pollInterval.multipliedBy(1L << Math.min(consecutiveFailures, 16));
+        retryAt = Instant.now().plus(backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff);
+        String error = e.getMessage().length() > 500 ? e.getMessage().substring(0, 500) : e.getMessage();
+        jdbcTemplate.update("UPDATE outbox_events SET attempts = attempts + 1, last_error = ? "
+                        + "WHERE id BETWEEN ? AND ? AND published_at IS NULL",
+                error, batch.get(0).id(), batch.get(batch.size() - 1).id());
+        log.warn("Outbox batch {}..{} not delivered (attempt {}), retrying at {}: {}",
+                batch.get(0).id(), batch.get(batch.size() - 1).id(), consecutiveFailures, retryAt, error);
+    }
+
+    private static class DeliveryException extends RuntimeException {
+
+        DeliveryException(String sink, Exception cause) {
+            super("Sink " + sink + ": " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package tn.esprit.agroprotect.common.outbox;
+
+import java.util.List;
+
+/**
+ * Destination of outbox events (broker, webhook, in-memory...). Every sink bean receives
+ * every batch, in id order.
+ */
+public interface OutboxSink {
+
+    String getName();
+
+    /**
+     * Publishes a batch; returns normally only once the whole batch is accepted. On failure
+     * the batch is delivered again, to every sink, so part of it may be received twice.
+     */
+    void publish(List<OutboxMessage> messages) throws Exception;
+}
@@ -0,0 +1,73 @@
+package tn.esprit.agroprotect.common.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Appends events to the outbox. Must run in the transaction of the change being described,
+ * so that an event exists if and only if its change is committed.
+ *
+ * Writes nothing unless {@code outbox.enabled} is set: without an {@link OutboxSink} to
+ * relay them to, events would only pile up in {@code outbox_events}.
+ */
+@Component
+public class OutboxWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events "
+            + "(aggregate_type, aggregate_id, event_type, payload, created_at, attempts) VALUES (?, ?, ?, ?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public OutboxWriter(JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            @Value("${outbox.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Event to append; {@code payload} is serialized to JSON
+     */
+    public record Event(String aggregateType, long aggregateId, String eventType, Object payload) {
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String aggregateType, long aggregateId, String eventType, Object payload) {
+        append(List.of(new Event(aggregateType, aggregateId, eventType, payload)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(List<Event> events) {
+        if (!enabled || events.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.aggregateType());
+            ps.setLong(2, event.aggregateId());
+            ps.setString(3, event.eventType());
+            ps.setString(4, toJson(event.payload()));
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox payload is not serializable: " + payload.getClass().getName(), e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package tn.esprit.agroprotect.common.pagination;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener invalidating {@link CountStrategy} counts of the written entity
+ * once the transaction commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class CountInvalidationListener {
+
+    private final ObjectProvider<CountStrategy> countStrategy;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        Class<?> entityType = Hibernate.getClass(entity);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            countStrategy.getObject().invalidate(entityType);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                countStrategy.getObject().invalidate(entityType);
+            }
+        });
+    }
+}
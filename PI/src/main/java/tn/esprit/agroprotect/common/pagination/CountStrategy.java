@@ -0,0 +1,189 @@
+package tn.esprit.agroprotect.common.pagination;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count strategy for paged list endpoints.
+ *
+ * The page content is fetched as a {@link Slice} (no COUNT), then the total is:
+ * <ul>
+ *   <li>derived for free when the slice is the last page ({@link CountType#EXACT});</li>
+ *   <li>served from a short-lived cache keyed by entity and filter values, as long as
+ *       no write to that entity has been committed since ({@link CountType#CACHED});</li>
+ *   <li>counted exactly when an id probe capped at {@code exact-threshold} rows shows
+ *       the result is small ({@link CountType#EXACT});</li>
+ *   <li>otherwise reported as a lower bound while one background query per filter
+ *       signature fills the cache ({@link CountType#AT_LEAST}).</li>
+ * </ul>
+ * Writers call {@link #invalidate(Class)} (directly or through
+ * {@link CountInvalidationListener}) after commit to bump the entity's generation.
+ */
+@Component
+@Slf4j
+public class CountStrategy implements DisposableBean {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final int exactThreshold;
+    private final Cache<CountKey, CachedCount> cache;
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Set<CountKey> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "count-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CountStrategy(PlatformTransactionManager transactionManager,
+            @Value("${pagination.count.exact-threshold:1000}") int exactThreshold,
+            @Value("${pagination.count.cache-ttl:30s}") Duration cacheTtl,
+            @Value("${pagination.count.cache-size:10000}") long cacheSize) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.exactThreshold = exactThreshold;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * Turn a slice into a page, counting {@code spec} over {@code entityType} as described above.
+     *
+     * @param signature filter values identifying the query, e.g. {@code List.of(statut, userId, ...)}
+     */
+    public <T, R> CountedPage<R> page(Slice<R> slice, Pageable pageable, Class<T> entityType,
+            Specification<T> spec, List<?> signature) {
+        List<R> content = slice.getContent();
+        long seen = pageable.getOffset() + content.size();
+
+        if (!slice.hasNext() && (!content.isEmpty() || pageable.getOffset() == 0)) {
+            store(entityType, signature, seen);
+            return new CountedPage<>(content, pageable, seen, CountType.EXACT);
+        }
+
+        long minimum = seen + (slice.hasNext() ? 1 : 0);
+        CountKey key = new CountKey(entityType, signature);
+        CachedCount cached = cache.getIfPresent(key);
+        if (cached != null && cached.generation() == generation(entityType) && cached.count() >= minimum) {
+            return new CountedPage<>(content, pageable, cached.count(), CountType.CACHED);
+        }
+
+        long probed = cappedCount(entityType, spec, exactThreshold + 1);
+        if (probed <= exactThreshold) {
+            long exact = Math.max(probed, minimum);
+            store(entityType, signature, exact);
+            return new CountedPage<>(content, pageable, exact, CountType.EXACT);
+        }
+
+        refreshInBackground(key, entityType, spec);
+        return new CountedPage<>(content, pageable, Math.max(probed, minimum), CountType.AT_LEAST);
+    }
+
+    /**
+     * Record an exact total computed elsewhere (e.g. by an in-memory index).
+     */
+    public <R> CountedPage<R> exact(List<R> content, Pageable pageable, long total) {
+        return new CountedPage<>(content, pageable, total, CountType.EXACT);
+    }
+
+    /**
+     * Invalidate cached counts of an entity; call after the write has committed.
+     */
+    public void invalidate(Class<?> entityType) {
+        generations.computeIfAbsent(entityType, type -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    private long generation(Class<?> entityType) {
+        AtomicLong generation = generations.get(entityType);
+        return generation == null ? 0 : generation.get();
+    }
+
+    private void store(Class<?> entityType, List<?> signature, long count) {
+        cache.put(new CountKey(entityType, signature), new CachedCount(count, generation(entityType)));
+    }
+
+    /**
+     * Number of matching rows, stopping at {@code limit}: reads at most that many ids.
+     */
+    private <T> long cappedCount(Class<T> entityType, Specification<T> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object> query = cb.createQuery(Object.class);
+        Root<T> root = query.from(entityType);
+        query.select(root.get("id"));
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList().size();
+    }
+
+    private <T> void refreshInBackground(CountKey key, Class<T> entityType, Specification<T> spec) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        long generation = generation(entityType);
+        refresher.execute(() -> {
+            try {
+                Long count = readOnlyTransaction.execute(status -> exactCount(entityType, spec));
+                if (count != null && generation == generation(entityType)) {
+                    cache.put(key, new CachedCount(count, generation));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Background count failed for {}: {}", entityType.getSimpleName(), e.getMessage());
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    private <T> long exactCount(Class<T> entityType, Specification<T> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(entityType);
+        query.select(cb.count(root));
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private record CountKey(Class<?> entityType, List<?> signature) {
+    }
+
+    private record CachedCount(long count, long generation) {
+    }
+}
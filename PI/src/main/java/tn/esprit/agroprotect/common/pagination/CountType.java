@@ -0,0 +1,16 @@
+package tn.esprit.agroprotect.common.pagination;
+
+/**
+ * How the total of a {@link CountedPage} was obtained.
+ */
+public enum CountType {
+    /** Counted for this request, or derived from a last page. */
+    EXACT,
+    /** Exact count computed by a previous request with the same filters, not invalidated since. */
+    CACHED,
+    /**
+     * Lower bound for a very large result (rows seen by a capped probe), not an estimate
+     * of the total; an exact count is computed in the background for later requests.
+     */
+    AT_LEAST
+}
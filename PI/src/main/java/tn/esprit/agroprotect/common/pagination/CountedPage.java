@@ -0,0 +1,23 @@
+package tn.esprit.agroprotect.common.pagination;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Page whose total comes from {@link CountStrategy}; exposes how it was counted.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final CountType countType;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, CountType countType) {
+        super(content, pageable, total);
+        this.countType = countType;
+    }
+
+    public CountType getCountType() {
+        return countType;
+    }
+}
@@ -0,0 +1,17 @@
+package tn.esprit.agroprotect.common.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page of a keyset (cursor) listing.
+ * Carries no total count; {@code nextCursor} is an opaque token to pass back
+ * as {@code cursor} for the following page, {@code null} on the last page.
+ */
+public record CursorPage<T>(List<T> content, int size, boolean hasNext, String nextCursor) {
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = content.stream().<R>map(mapper).toList();
+        return new CursorPage<>(mapped, size, hasNext, nextCursor);
+    }
+}
@@ -0,0 +1,15 @@
+package tn.esprit.agroprotect.common.pagination;
+
+/**
+ * Thrown when a cursor token is malformed or was issued for another sort.
+ */
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
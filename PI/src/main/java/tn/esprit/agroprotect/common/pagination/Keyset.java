@@ -0,0 +1,174 @@
+package tn.esprit.agroprotect.common.pagination;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Keyset pagination over {@code (sortField, id)}.
+ *
+ * Instead of OFFSET, the next page is selected with a seek predicate
+ * {@code sortKey > v OR (sortKey = v AND id > lastId)} (reversed for DESC),
+ * so every page costs the same whatever its depth. The sort field must be
+ * non-null and the entity must expose an {@code id} attribute.
+ *
+ * Cursor tokens are Base64url of {@code field|direction|id|value}; they are
+ * opaque to clients and rejected when replayed against another sort.
+ */
+public final class Keyset<T> {
+
+    public static final int MAX_SIZE = 100;
+
+    private static final String ID = "id";
+
+    private final String sortField;
+    private final Sort.Direction direction;
+
+    private Keyset(String sortField, Sort.Direction direction) {
+        this.sortField = sortField;
+        this.direction = direction;
+    }
+
+    public static <T> Keyset<T> of(String sortField, Sort.Direction direction) {
+        return new Keyset<>(sortField, direction);
+    }
+
+    /**
+     * Sort on the key then on the id as tie-breaker.
+     */
+    public Sort sort() {
+        if (ID.equals(sortField)) {
+            return Sort.by(direction, ID);
+        }
+        return Sort.by(direction, sortField).and(Sort.by(direction, ID));
+    }
+
+    /**
+     * Seek predicate for the page following {@code cursor}; no restriction when
+     * the cursor is null or blank (first page).
+     */
+    public Specification<T> after(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return (root, query, cb) -> cb.conjunction();
+        }
+        String[] parts = decodeToken(cursor, 4);
+        if (!parts[0].equals(sortField) || !parts[1].equals(direction.name())) {
+            throw new InvalidCursorException("Cursor was issued for another sort order");
+        }
+        long lastId = parseId(parts[2]);
+        String rawValue = parts[3];
+
+        return (root, query, cb) -> {
+            Path<Long> id = root.get(ID);
+            if (ID.equals(sortField)) {
+                return direction.isAscending() ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+            }
+            Path<Comparable<Object>> key = root.get(sortField);
+            Comparable<Object> value = convert(rawValue, key.getJavaType());
+            return direction.isAscending()
+                    ? cb.or(cb.greaterThan(key, value), tieBreak(cb, key, value, cb.greaterThan(id, lastId)))
+                    : cb.or(cb.lessThan(key, value), tieBreak(cb, key, value, cb.lessThan(id, lastId)));
+        };
+    }
+
+    /**
+     * Build the page from a result fetched with {@code limit(size + 1)}:
+     * the extra row only signals that another page exists. Rows may be entities or
+     * projections exposing the sort field and {@code id} as bean properties.
+     */
+    public <R> CursorPage<R> page(List<R> rows, int size) {
+        boolean hasNext = rows.size() > size;
+        List<R> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorFor(content.get(content.size() - 1)) : null;
+        return new CursorPage<>(List.copyOf(content), size, hasNext, nextCursor);
+    }
+
+    private String cursorFor(Object row) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(row);
+        Object id = wrapper.getPropertyValue(ID);
+        Object value = wrapper.getPropertyValue(sortField);
+        String raw = value instanceof Enum<?> e ? e.name() : String.valueOf(value);
+        return encodeToken(sortField, direction.name(), String.valueOf(id), raw);
+    }
+
+    /**
+     * Clamp a requested page size to {@code [1, MAX_SIZE]}.
+     */
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Encode cursor parts into an opaque token; the last part may contain '|'.
+     */
+    public static String encodeToken(String... parts) {
+        String token = String.join("|", parts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encodeToken} into exactly {@code parts} parts.
+     */
+    public static String[] decodeToken(String cursor, int parts) {
+        String token;
+        try {
+            token = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor", e);
+        }
+        String[] split = token.split("\\|", parts);
+        if (split.length != parts) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        return split;
+    }
+
+    public static long parseId(String raw) {
+        try {
+            return Long.parseLong(raw);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Malformed cursor", e);
+        }
+    }
+
+    private static Predicate tieBreak(CriteriaBuilder cb, Path<Comparable<Object>> key,
+            Comparable<Object> value, Predicate idPredicate) {
+        return cb.and(cb.equal(key, value), idPredicate);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Comparable<Object> convert(String raw, Class<?> type) {
+        try {
+            Object value;
+            if (type == Instant.class) {
+                value = Instant.parse(raw);
+            } else if (type == Long.class || type == long.class) {
+                value = Long.valueOf(raw);
+            } else if (type == Integer.class || type == int.class) {
+                value = Integer.valueOf(raw);
+            } else if (type == BigDecimal.class) {
+                value = new BigDecimal(raw);
+            } else if (type == LocalDate.class) {
+                value = LocalDate.parse(raw);
+            } else if (type.isEnum()) {
+                value = Enum.valueOf((Class<Enum>) type, raw);
+            } else {
+                value = raw;
+            }
+            return (Comparable<Object>) value;
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Malformed cursor", e);
+        }
+    }
+}
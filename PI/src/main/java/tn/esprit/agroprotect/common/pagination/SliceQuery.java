@@ -0,0 +1,133 @@
+package tn.esprit.agroprotect.common.pagination;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.Query;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@link Specification} and returns a projection of the matching rows.
+ *
+ * Pages are fetched as a {@link Slice}: one extra row is read to know whether a
+ * next page exists, and no COUNT query is issued (totals are left to
+ * {@link CountStrategy}). Only the predicates of the filters actually set end up
+ * in the SQL, so the database can pick a matching composite index.
+ */
+@Component
+public class SliceQuery {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Selection built on the query root, typically a {@code cb.construct(...)} of the
+     * columns a response needs.
+     */
+    @FunctionalInterface
+    public interface Projection<T, R> {
+        Selection<R> select(Root<T> root, CriteriaBuilder cb);
+    }
+
+    public <T, R> Slice<R> find(Class<T> entityType, Specification<T> spec, Pageable pageable,
+            Class<R> resultType, Projection<T, R> projection) {
+        TypedQuery<R> query = createQuery(entityType, spec, pageable.getSort(), resultType, projection);
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(query.getResultList(), pageable, false);
+        }
+
+        int pageSize = pageable.getPageSize();
+        List<R> rows = query
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(pageSize + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > pageSize;
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageSize) : rows, pageable, hasNext);
+    }
+
+    /**
+     * First {@code limit} rows in {@code sort} order.
+     */
+    public <T, R> List<R> list(Class<T> entityType, Specification<T> spec, Sort sort, int limit,
+            Class<R> resultType, Projection<T, R> projection) {
+        return createQuery(entityType, spec, sort, resultType, projection)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Streams every matching row to {@code action} from a forward-only cursor, reading
+     * {@code fetchSize} rows per round trip; returns the number of rows. Must run in a
+     * transaction. With a DTO projection nothing is kept in the persistence context, so
+     * memory does not grow with the result size.
+     *
+     * On MySQL, Connector/J buffers the whole result unless the fetch size is
+     * {@link Integer#MIN_VALUE}, which streams it row by row; the connection then serves
+     * no other statement until the cursor is closed, so {@code action} must not query.
+     */
+    public <T, R> long scroll(Class<T> entityType, Specification<T> spec, Sort sort, int fetchSize,
+            Class<R> resultType, Projection<T, R> projection, Consumer<R> action) {
+        Query<R> query = createQuery(entityType, spec, sort, resultType, projection)
+                .unwrap(Query.class)
+                .setFetchSize(streamingFetchSize(fetchSize))
+                .setReadOnly(true);
+        long count = 0;
+        try (ScrollableResults<R> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                action.accept(rows.get());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Fetch size that streams a forward-only result: {@link Integer#MIN_VALUE} on MySQL
+     * (same constraint as {@link #scroll}: no other statement on the connection until
+     * the result is closed), {@code fetchSize} elsewhere.
+     */
+    public int streamingFetchSize(int fetchSize) {
+        return isMySql() ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    private boolean isMySql() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof MySQLDialect;
+    }
+
+    private <T, R> TypedQuery<R> createQuery(Class<T> entityType, Specification<T> spec, Sort sort,
+            Class<R> resultType, Projection<T, R> projection) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<R> query = cb.createQuery(resultType);
+        Root<T> root = query.from(entityType);
+        query.select(projection.select(root, cb));
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return entityManager.createQuery(query);
+    }
+}
@@ -0,0 +1,103 @@
+package tn.esprit.agroprotect.common.similarity;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+/**
+ * MinHash signatures of short texts, for locality-sensitive hashing (LSH).
+ *
+ * A text is reduced to its set of 4-character shingles (lower case, accents and punctuation
+ * removed). Each of the {@code bands * rows} signature values is the minimum of a distinct
+ * hash function over that set, so two signatures agree on a value with probability equal to
+ * the Jaccard similarity of the sets. Signatures whose values agree on every row of at least
+ * one band share that band's key: texts of similarity {@code s} collide in some band with
+ * probability {@code 1 - (1 - s^rows)^bands}.
+ */
+public final class MinHash {
+
+    private static final int SHINGLE_LENGTH = 4;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+
+    public MinHash(int bands, int rows) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("bands and rows must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        // Fixed seed: signatures are comparable across instances and restarts
+        SplittableRandom random = new SplittableRandom(0x5EED_CAFEL);
+        this.seeds = random.longs(bands * rows).toArray();
+    }
+
+    public long[] signature(String text) {
+        String normalized = normalize(text);
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        int last = Math.max(0, normalized.length() - SHINGLE_LENGTH);
+        for (int start = 0; start <= last; start++) {
+            long shingle = 0;
+            for (int i = start; i < Math.min(start + SHINGLE_LENGTH, normalized.length()); i++) {
+                shingle = shingle << 16 | normalized.charAt(i);
+            }
+            for (int h = 0; h < seeds.length; h++) {
+                signature[h] = Math.min(signature[h], mix(shingle ^ seeds[h]));
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * One key per band; {@code salt} partitions the keys (e.g. by owner), equal salts and
+     * equal band values giving equal keys.
+     */
+    public long[] bandKeys(long salt, long[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = mix(salt + band);
+            for (int row = 0; row < rows; row++) {
+                key = mix(key ^ signature[band * rows + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Estimated Jaccard similarity: fraction of equal signature values.
+     */
+    public static double similarity(long[] left, long[] right) {
+        int equal = 0;
+        for (int i = 0; i < left.length; i++) {
+            if (left[i] == right[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / left.length;
+    }
+
+    /**
+     * 64-bit finalizer of MurmurHash3.
+     */
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFD);
+        String stripped = MARKS.matcher(decomposed).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
@@ -2,6 +2,7 @@ package tn.esprit.agroprotect.identity.config;
 
 import tn.esprit.agroprotect.identity.entity.Role;
 import tn.esprit.agroprotect.identity.repository.RoleRepository;
+import tn.esprit.agroprotect.identity.security.RbacSnapshotHolder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationRunner;
@@ -18,6 +19,7 @@ import org.springframework.context.annotation.Configuration;
 public class DataInitializer {
 
     private final RoleRepository roleRepository;
+    private final RbacSnapshotHolder rbacSnapshotHolder;
 
     @Bean
     public ApplicationRunner initializeData() {
@@ -35,6 +37,9 @@ public class DataInitializer {
             createRoleIfNotExists("USER", "Basic authenticated user", true);
 
             log.info("Default roles initialization completed successfully");
+
+            // Publish the roles (including any just created) to the RBAC snapshot
+            rbacSnapshotHolder.reload();
         };
     }
 
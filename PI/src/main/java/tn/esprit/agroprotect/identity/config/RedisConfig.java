@@ -1,20 +1,40 @@
 package tn.esprit.agroprotect.identity.config;
 
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import tn.esprit.agroprotect.identity.store.KeyValueStore;
+import tn.esprit.agroprotect.identity.store.RedisNearCache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Redis configuration for OTP storage, rate limiting, and session tracking.
+ * Connects to a single node by default, or to a Redis Cluster when
+ * {@code spring.data.redis.cluster.nodes} is set.
+ * Skipped when the embedded key-value store profile is active.
  */
 @Configuration
+@Slf4j
+@Profile("!" + KeyValueStore.EMBEDDED_PROFILE)
 public class RedisConfig {
 
     @Value("${spring.data.redis.host}")
@@ -26,15 +46,82 @@ public class RedisConfig {
     @Value("${spring.data.redis.password:}")
     private String redisPassword;
 
+    @Value("${spring.data.redis.timeout:2000ms}")
+    private Duration commandTimeout;
+
+    @Value("${spring.data.redis.cluster.nodes:}")
+    private List<String> clusterNodes;
+
+    @Value("${spring.data.redis.cluster.max-redirects:3}")
+    private int maxRedirects;
+
+    @Value("${spring.data.redis.lettuce.cluster.refresh.period:30s}")
+    private Duration topologyRefreshPeriod;
+
+    @Value("${spring.data.redis.lettuce.cluster.refresh.adaptive:true}")
+    private boolean adaptiveTopologyRefresh;
+
+    /**
+     * Lettuce {@link ReadFrom} setting, e.g. upstream, replicaPreferred,
+     * lowestLatency (REPLICA_PREFERRED style is accepted too). Empty means
+     * reads go to the master. Replica reads may return stale OTP counters.
+     */
+    @Value("${spring.data.redis.lettuce.read-from:}")
+    private String readFrom;
+
     @Bean
     public LettuceConnectionFactory redisConnectionFactory() {
+        if (isClusterMode()) {
+            RedisClusterConfiguration config = new RedisClusterConfiguration(clusterNodes);
+            config.setMaxRedirects(maxRedirects);
+            if (redisPassword != null && !redisPassword.isEmpty()) {
+                config.setPassword(redisPassword);
+            }
+            log.info("Redis cluster mode with seed nodes {}", clusterNodes);
+            return new LettuceConnectionFactory(config, clientConfiguration());
+        }
+
         RedisStandaloneConfiguration config = new RedisStandaloneConfiguration();
         config.setHostName(redisHost);
         config.setPort(redisPort);
         if (redisPassword != null && !redisPassword.isEmpty()) {
             config.setPassword(redisPassword);
         }
-        return new LettuceConnectionFactory(config);
+        return new LettuceConnectionFactory(config, clientConfiguration());
+    }
+
+    private LettuceClientConfiguration clientConfiguration() {
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder =
+                LettuceClientConfiguration.builder().commandTimeout(commandTimeout);
+
+        if (readFrom != null && !readFrom.isBlank()) {
+            builder.readFrom(parseReadFrom(readFrom));
+        }
+
+        if (isClusterMode()) {
+            // Periodic refresh picks up resharding; adaptive triggers react to
+            // MOVED/ASK redirects and reconnects without waiting for the period.
+            ClusterTopologyRefreshOptions.Builder refresh = ClusterTopologyRefreshOptions.builder()
+                    .enablePeriodicRefresh(topologyRefreshPeriod);
+            if (adaptiveTopologyRefresh) {
+                refresh.enableAllAdaptiveRefreshTriggers();
+            }
+            builder.clientOptions(ClusterClientOptions.builder()
+                    .topologyRefreshOptions(refresh.build())
+                    .build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Resolve a read-from name, ignoring case and underscores.
+     */
+    static ReadFrom parseReadFrom(String name) {
+        return ReadFrom.valueOf(name.trim().replace("_", ""));
+    }
+
+    private boolean isClusterMode() {
+        return clusterNodes != null && clusterNodes.stream().anyMatch(node -> !node.isBlank());
     }
 
     @Bean
@@ -53,4 +140,29 @@ public class RedisConfig {
     public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
         return new StringRedisTemplate(connectionFactory);
     }
+
+    /**
+     * Optional near cache for read-mostly keys (OTP rate counters, attempt
+     * counters...), kept consistent through RESP3 server-assisted invalidation.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "redis.near-cache.enabled", havingValue = "true")
+    public RedisNearCache redisNearCache(
+            @Value("${redis.near-cache.key-prefixes:otp_rate:,otp_attempts:}") String[] keyPrefixes,
+            @Value("${redis.near-cache.max-entries:10000}") long maxEntries,
+            @Value("${redis.near-cache.ttl:60s}") Duration ttl) {
+        if (isClusterMode()) {
+            // Client tracking is per connection; a single tracked connection
+            // would only receive invalidations for the slots of one node.
+            throw new IllegalStateException(
+                    "redis.near-cache.enabled is only supported with a standalone Redis node");
+        }
+        RedisURI.Builder uri = RedisURI.builder()
+                .withHost(redisHost)
+                .withPort(redisPort);
+        if (redisPassword != null && !redisPassword.isEmpty()) {
+            uri.withPassword(redisPassword.toCharArray());
+        }
+        return new RedisNearCache(uri.build(), Arrays.asList(keyPrefixes), maxEntries, ttl);
+    }
 }
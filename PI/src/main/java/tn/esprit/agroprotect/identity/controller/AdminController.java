@@ -1,5 +1,6 @@
 package tn.esprit.agroprotect.identity.controller;
 
+import tn.esprit.agroprotect.common.pagination.CursorPage;
 import tn.esprit.agroprotect.identity.dto.response.ApiResponse;
 import tn.esprit.agroprotect.identity.dto.response.TokenValidationResponse;
 import tn.esprit.agroprotect.identity.dto.response.UserProfileResponse;
@@ -12,6 +13,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -51,9 +53,28 @@ public class AdminController {
     public ResponseEntity<ApiResponse<Page<UserProfileResponse>>> searchUsers(
             @RequestParam(required = false) UserStatus status,
             @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "true") boolean includePermissions,
             @PageableDefault(size = 20) Pageable pageable) {
 
-        Page<UserProfileResponse> users = userService.searchUsers(status, search, pageable);
+        Page<UserProfileResponse> users = userService.searchUsers(status, search, pageable, includePermissions);
+        return ResponseEntity.ok(ApiResponse.success(users));
+    }
+
+    @GetMapping("/users/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Search users (cursor)",
+            description = "Admin: Keyset-paginated user search without total count; pass nextCursor as cursor")
+    public ResponseEntity<ApiResponse<CursorPage<UserProfileResponse>>> scrollUsers(
+            @RequestParam(required = false) UserStatus status,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(defaultValue = "true") boolean includePermissions) {
+
+        CursorPage<UserProfileResponse> users = userService.scrollUsers(status, search, sort,
+                Sort.Direction.fromString(direction), cursor, size, includePermissions);
         return ResponseEntity.ok(ApiResponse.success(users));
     }
 
@@ -1,5 +1,7 @@
 package tn.esprit.agroprotect.identity.entity;
 
+import tn.esprit.agroprotect.common.pagination.CountInvalidationListener;
+import tn.esprit.agroprotect.identity.search.UserSearchIndexListener;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -20,6 +22,7 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "users")
+@EntityListeners({UserSearchIndexListener.class, CountInvalidationListener.class})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -131,8 +134,8 @@ public class User {
     @Builder.Default
     private Set<DeviceSession> deviceSessions = new HashSet<>();
 
-    @OneToOne(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
-    private BiometricData biometricData;
+    // No inverse side for BiometricData: a mappedBy @OneToOne cannot be lazy without
+    // bytecode enhancement and would cost one select per listed user.
 
     // Helper methods
     public String getFullName() {
@@ -174,13 +177,14 @@ public class User {
         return roles.stream().anyMatch(r -> r.getName().equals(roleName));
     }
 
-    public Set<String> getPermissionNames() {
-        Set<String> permissions = new HashSet<>();
+    /**
+     * Role ids only; does not initialize the role entities themselves.
+     */
+    public Set<Long> getRoleIds() {
+        Set<Long> roleIds = new HashSet<>();
         for (Role role : roles) {
-            for (Permission permission : role.getPermissions()) {
-                permissions.add(permission.getName());
-            }
+            roleIds.add(role.getId());
         }
-        return permissions;
+        return roleIds;
     }
 }
@@ -1,5 +1,7 @@
 package tn.esprit.agroprotect.identity.exception;
 
+import tn.esprit.agroprotect.common.idempotency.IdempotencyException;
+import tn.esprit.agroprotect.common.pagination.InvalidCursorException;
 import tn.esprit.agroprotect.identity.dto.response.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -76,6 +78,22 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ApiResponse<Void>> handleInvalidCursor(InvalidCursorException ex) {
+        log.debug("Invalid cursor: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyException.class)
+    public ResponseEntity<ApiResponse<Void>> handleIdempotency(IdempotencyException ex) {
+        log.debug("Idempotency key rejected: {}", ex.getMessage());
+        return ResponseEntity
+                .status(ex.getStatus())
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Map<String, String>>> handleValidation(
             MethodArgumentNotValidException ex) {
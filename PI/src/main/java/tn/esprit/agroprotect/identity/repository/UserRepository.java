@@ -4,17 +4,22 @@ import tn.esprit.agroprotect.identity.entity.User;
 import tn.esprit.agroprotect.identity.entity.UserStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
 
     Optional<User> findByUuid(String uuid);
 
@@ -39,6 +44,65 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.uuid = :uuid AND u.deletedAt IS NULL")
     Optional<User> findActiveByUuid(@Param("uuid") String uuid);
 
+    @Query("SELECT u.id FROM User u WHERE u.uuid = :uuid AND u.deletedAt IS NULL")
+    Optional<Long> findActiveIdByUuid(@Param("uuid") String uuid);
+
+    @Query("SELECT u.uuid AS uuid, u.id AS id FROM User u WHERE u.uuid IN :uuids AND u.deletedAt IS NULL")
+    List<UuidAndId> findActiveIdsByUuidIn(@Param("uuids") Collection<String> uuids);
+
+    /**
+     * Id-only projection for UUID to id resolution.
+     */
+    interface UuidAndId {
+        String getUuid();
+
+        Long getId();
+    }
+
+    @Query("SELECT u.id AS id, u.email AS email, u.firstName AS firstName, u.lastName AS lastName, " +
+            "u.phone AS phone, u.status AS status FROM User u WHERE u.deletedAt IS NULL AND u.id > :lastId")
+    List<SearchDocument> findSearchDocumentsAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT u FROM User u WHERE u.id IN :ids")
+    List<User> findAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "roles")
+    @Query("SELECT u FROM User u WHERE u.uuid = :uuid")
+    Optional<User> findByUuidWithRoles(@Param("uuid") String uuid);
+
+    /**
+     * Role ids of several users in one query, for listings that must not
+     * initialize each user's roles collection.
+     */
+    @Query("SELECT u.id AS userId, r.id AS roleId FROM User u JOIN u.roles r WHERE u.id IN :userIds")
+    List<UserRoleId> findRoleIdsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * User to role link, by id.
+     */
+    interface UserRoleId {
+        Long getUserId();
+
+        Long getRoleId();
+    }
+
+    /**
+     * Searchable fields loaded into the user search index.
+     */
+    interface SearchDocument {
+        Long getId();
+
+        String getEmail();
+
+        String getFirstName();
+
+        String getLastName();
+
+        String getPhone();
+
+        UserStatus getStatus();
+    }
+
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.email = :email AND u.deletedAt IS NULL")
     Optional<User> findActiveByEmailWithRoles(@Param("email") String email);
 
@@ -52,7 +116,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
             "(LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
             "LOWER(u.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
             "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :search, '%')) OR :search IS NULL)")
-    Page<User> searchUsers(@Param("status") UserStatus status, @Param("search") String search, Pageable pageable);
+    Slice<User> searchUsers(@Param("status") UserStatus status, @Param("search") String search, Pageable pageable);
 
     @Modifying
     @Query("UPDATE User u SET u.failedLoginAttempts = u.failedLoginAttempts + 1 WHERE u.id = :userId")
@@ -0,0 +1,40 @@
+package tn.esprit.agroprotect.identity.repository;
+
+import tn.esprit.agroprotect.identity.entity.User;
+import tn.esprit.agroprotect.identity.entity.UserStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Locale;
+
+/**
+ * Specifications for admin user listings.
+ * Only the filters that are set produce a predicate.
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> withFilters(UserStatus status, String search) {
+        return Specification.allOf(notDeleted(), hasStatus(status), matches(search));
+    }
+
+    private static Specification<User> notDeleted() {
+        return (root, query, cb) -> cb.isNull(root.get("deletedAt"));
+    }
+
+    private static Specification<User> hasStatus(UserStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    private static Specification<User> matches(String search) {
+        if (search == null || search.isBlank()) {
+            return null;
+        }
+        String pattern = "%" + search.trim().toLowerCase(Locale.ROOT) + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("email")), pattern),
+                cb.like(cb.lower(root.get("firstName")), pattern),
+                cb.like(cb.lower(root.get("lastName")), pattern));
+    }
+}
@@ -0,0 +1,396 @@
+package tn.esprit.agroprotect.identity.search;
+
+import tn.esprit.agroprotect.identity.entity.UserStatus;
+import tn.esprit.agroprotect.identity.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over user email, first name, last name and phone
+ * for admin search.
+ *
+ * Documents get an append-only ordinal, so every posting list stays sorted
+ * without re-sorting: an update retires the old ordinal and appends a new one.
+ * A query intersects the postings of its trigrams (smallest first), verifies
+ * the substring on the candidates and ranks exact > prefix > substring matches.
+ * Two-character queries use the bigram postings; single characters scan the
+ * stored fields. Only the best offset + limit matches are kept, in a bounded
+ * heap, so a page never sorts the whole match set.
+ *
+ * Loaded once the application is ready; until then {@link #isReady()} is false
+ * and callers fall back to the database query.
+ *
+ * The index is per application instance: it only sees the user changes committed
+ * through this instance's JPA listener. Changes made on other nodes, or by SQL
+ * outside JPA, never reach it until the next restart reloads it.
+ */
+@Component
+@Slf4j
+public class UserSearchIndex {
+
+    private static final int LOAD_BATCH_SIZE = 5000;
+    private static final int COMPACT_MIN_DEAD = 10_000;
+    private static final Comparator<Match> RANK_ORDER = Comparator.comparingInt(Match::score).reversed()
+            .thenComparing(Comparator.comparingLong(Match::userId).reversed());
+
+    private final UserRepository userRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private long[] userIds = new long[1024];
+    private String[][] fields = new String[1024][];
+    private UserStatus[] statuses = new UserStatus[1024];
+    private int size;
+    private final BitSet dead = new BitSet();
+    private int deadCount;
+    private final Map<Long, Integer> ordinalByUserId = new HashMap<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final Set<Long> removedDuringLoad = new HashSet<>();
+    private boolean loading;
+
+    private volatile boolean ready;
+
+    public UserSearchIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Load all active users in id order, in batches.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        withWriteLock(() -> loading = true);
+        try {
+            long lastId = 0;
+            int loaded = 0;
+            List<UserRepository.SearchDocument> batch;
+            do {
+                batch = userRepository.findSearchDocumentsAfter(lastId,
+                        PageRequest.of(0, LOAD_BATCH_SIZE, Sort.by("id")));
+                List<UserRepository.SearchDocument> rows = batch;
+                withWriteLock(() -> {
+                    for (UserRepository.SearchDocument row : rows) {
+                        // Live updates that arrived during the load are newer than the batch
+                        if (!ordinalByUserId.containsKey(row.getId()) && !removedDuringLoad.contains(row.getId())) {
+                            add(row.getId(), row.getEmail(), row.getFirstName(), row.getLastName(),
+                                    row.getPhone(), row.getStatus());
+                        }
+                    }
+                });
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                    loaded += batch.size();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+
+            ready = true;
+            log.info("User search index loaded with {} users in {} ms", loaded, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("User search index load failed, admin search stays on the database", e);
+        } finally {
+            withWriteLock(() -> {
+                loading = false;
+                removedDuringLoad.clear();
+            });
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Add or replace a user; no-op when the indexed fields are unchanged.
+     */
+    public void upsert(long userId, String email, String firstName, String lastName, String phone,
+            UserStatus status) {
+        withWriteLock(() -> {
+            Integer ordinal = ordinalByUserId.get(userId);
+            if (ordinal != null) {
+                if (statuses[ordinal] == status
+                        && Arrays.equals(fields[ordinal], normalize(email, firstName, lastName, phone))) {
+                    return;
+                }
+                retire(ordinal);
+            }
+            add(userId, email, firstName, lastName, phone, status);
+        });
+    }
+
+    public void remove(long userId) {
+        withWriteLock(() -> {
+            Integer ordinal = ordinalByUserId.remove(userId);
+            if (ordinal != null) {
+                retire(ordinal);
+            }
+            if (loading) {
+                removedDuringLoad.add(userId);
+            }
+        });
+    }
+
+    /**
+     * Ranked search.
+     *
+     * @param status optional status filter
+     * @return user ids of the requested page, and the total number of matches
+     */
+    public Result search(String query, UserStatus status, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Ranked ranked = topMatches(query, status, null, (int) Math.min(offset + limit, Integer.MAX_VALUE));
+            List<Long> page = new ArrayList<>(limit);
+            for (long i = offset; i < ranked.matches().size(); i++) {
+                page.add(ranked.matches().get((int) i).userId());
+            }
+            return new Result(page, ranked.total());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked search continuing after the {@code (score, userId)} of the last
+     * match of the previous page; no total is computed for the caller.
+     *
+     * @param after last match of the previous page, null for the first page
+     */
+    public List<Match> seek(String query, UserStatus status, Match after, int limit) {
+        lock.readLock().lock();
+        try {
+            return topMatches(query, status, after, limit).matches();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The best {@code k} matches ranking after {@code after} (when given), in rank
+     * order, and how many matches there are in total.
+     */
+    private Ranked topMatches(String query, UserStatus status, Match after, int k) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        int[] ordinals = needle.length() < 2 ? null : candidates(needle);
+        int count = ordinals == null ? size : ordinals.length;
+
+        // Head is the worst match kept
+        PriorityQueue<Match> heap = new PriorityQueue<>(Math.min(k, 1024) + 1, RANK_ORDER.reversed());
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            Match match = match(ordinals == null ? i : ordinals[i], needle, status);
+            if (match == null || (after != null && !match.isAfter(after))) {
+                continue;
+            }
+            total++;
+            if (heap.size() < k) {
+                heap.add(match);
+            } else if (k > 0 && RANK_ORDER.compare(match, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(match);
+            }
+        }
+        List<Match> matches = new ArrayList<>(heap);
+        matches.sort(RANK_ORDER);
+        return new Ranked(matches, total);
+    }
+
+    private int[] candidates(String needle) {
+        Set<Long> grams = needle.length() == 2 ? Set.of(bigram(needle, 0)) : trigrams(needle);
+        List<IntList> lists = new ArrayList<>(grams.size());
+        for (long gram : grams) {
+            IntList list = postings.get(gram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).values, lists.get(0).size);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private Match match(int ordinal, String needle, UserStatus status) {
+        if (dead.get(ordinal) || (status != null && statuses[ordinal] != status)) {
+            return null;
+        }
+        int score = 0;
+        for (String field : fields[ordinal]) {
+            if (field == null) {
+                continue;
+            }
+            if (field.equals(needle)) {
+                score = Math.max(score, 3);
+            } else if (field.startsWith(needle)) {
+                score = Math.max(score, 2);
+            } else if (field.contains(needle)) {
+                score = Math.max(score, 1);
+            }
+        }
+        return score > 0 ? new Match(userIds[ordinal], score) : null;
+    }
+
+    private void add(long userId, String email, String firstName, String lastName, String phone,
+            UserStatus status) {
+        if (size == userIds.length) {
+            int capacity = size * 2;
+            userIds = Arrays.copyOf(userIds, capacity);
+            fields = Arrays.copyOf(fields, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+        int ordinal = size++;
+        String[] normalized = normalize(email, firstName, lastName, phone);
+        userIds[ordinal] = userId;
+        fields[ordinal] = normalized;
+        statuses[ordinal] = status;
+        ordinalByUserId.put(userId, ordinal);
+
+        Set<Long> grams = new HashSet<>();
+        for (String field : normalized) {
+            if (field != null) {
+                grams.addAll(trigrams(field));
+                for (int i = 0; i + 2 <= field.length(); i++) {
+                    grams.add(bigram(field, i));
+                }
+            }
+        }
+        for (long gram : grams) {
+            postings.computeIfAbsent(gram, key -> new IntList()).add(ordinal);
+        }
+    }
+
+    private void retire(int ordinal) {
+        dead.set(ordinal);
+        fields[ordinal] = null;
+        deadCount++;
+        if (deadCount >= COMPACT_MIN_DEAD && deadCount > size - deadCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuild the ordinals and postings without retired documents.
+     */
+    private void compact() {
+        long[] oldIds = userIds;
+        String[][] oldFields = fields;
+        UserStatus[] oldStatuses = statuses;
+        int oldSize = size;
+
+        userIds = new long[Math.max(1024, oldSize - deadCount)];
+        fields = new String[userIds.length][];
+        statuses = new UserStatus[userIds.length];
+        size = 0;
+        ordinalByUserId.clear();
+        postings.clear();
+
+        for (int ordinal = 0; ordinal < oldSize; ordinal++) {
+            if (!dead.get(ordinal)) {
+                String[] f = oldFields[ordinal];
+                add(oldIds[ordinal], f[0], f[1], f[2], f[3], oldStatuses[ordinal]);
+            }
+        }
+        dead.clear();
+        deadCount = 0;
+        log.debug("User search index compacted to {} documents", size);
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String[] normalize(String email, String firstName, String lastName, String phone) {
+        return new String[] { lower(email), lower(firstName), lower(lastName), lower(phone) };
+    }
+
+    private static String lower(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Bigram key; bit 48 keeps it apart from the trigram keys.
+     */
+    private static long bigram(String text, int i) {
+        return (1L << 48) | ((long) text.charAt(i) << 16) | text.charAt(i + 1);
+    }
+
+    private static int[] intersect(int[] left, IntList right) {
+        int[] out = new int[Math.min(left.length, right.size)];
+        int i = 0, j = 0, n = 0;
+        while (i < left.length && j < right.size) {
+            int a = left[i];
+            int b = right.values[j];
+            if (a == b) {
+                out[n++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Page of matching user ids in rank order, with the total match count.
+     */
+    public record Result(List<Long> userIds, long total) {
+    }
+
+    private record Ranked(List<Match> matches, long total) {
+    }
+
+    /**
+     * Matching user with its rank score (3 exact, 2 prefix, 1 substring).
+     */
+    public record Match(long userId, int score) {
+
+        /**
+         * Whether this match ranks strictly after {@code other}.
+         */
+        boolean isAfter(Match other) {
+            return RANK_ORDER.compare(this, other) > 0;
+        }
+    }
+
+    /**
+     * Growable posting list; ordinals are appended in increasing order.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
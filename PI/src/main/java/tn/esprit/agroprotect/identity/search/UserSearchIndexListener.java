@@ -0,0 +1,60 @@
+package tn.esprit.agroprotect.identity.search;
+
+import tn.esprit.agroprotect.identity.entity.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener keeping {@link UserSearchIndex} in sync with user writes
+ * (registration, profile update, status change, deletion).
+ * Changes are applied after commit so rolled-back writes never reach the index.
+ * The index is looked up lazily: Hibernate instantiates this listener while the
+ * entity manager factory, which the index's repository needs, is still being built.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserSearchIndexListener {
+
+    private final ObjectProvider<UserSearchIndex> userSearchIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(User user) {
+        long userId = user.getId();
+        if (user.isDeleted()) {
+            afterCommit(() -> userSearchIndex.getObject().remove(userId));
+            return;
+        }
+        String email = user.getEmail();
+        String firstName = user.getFirstName();
+        String lastName = user.getLastName();
+        String phone = user.getPhone();
+        var status = user.getStatus();
+        afterCommit(() -> userSearchIndex.getObject().upsert(userId, email, firstName, lastName, phone, status));
+    }
+
+    @PostRemove
+    public void onRemove(User user) {
+        long userId = user.getId();
+        afterCommit(() -> userSearchIndex.getObject().remove(userId));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -3,16 +3,12 @@ package tn.esprit.agroprotect.identity.security;
 import tn.esprit.agroprotect.identity.entity.User;
 import tn.esprit.agroprotect.identity.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
 /**
  * Custom UserDetailsService implementation.
  * Loads user by UUID (used as subject in JWT).
@@ -22,6 +18,7 @@ import java.util.stream.Stream;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final RbacSnapshotHolder rbacSnapshotHolder;
 
     @Override
     @Transactional(readOnly = true)
@@ -29,12 +26,7 @@ public class CustomUserDetailsService implements UserDetailsService {
         User user = userRepository.findActiveByUuidWithRoles(userUuid)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userUuid));
 
-        var authorities = Stream.concat(
-                user.getRoles().stream()
-                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getName())),
-                user.getPermissionNames().stream()
-                        .map(SimpleGrantedAuthority::new))
-                .collect(Collectors.toList());
+        var authorities = rbacSnapshotHolder.current().authorities(user.getRoleIds());
 
         return new org.springframework.security.core.userdetails.User(
                 user.getUuid(),
@@ -54,12 +46,7 @@ public class CustomUserDetailsService implements UserDetailsService {
         User user = userRepository.findActiveByEmailWithRoles(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
 
-        var authorities = Stream.concat(
-                user.getRoles().stream()
-                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getName())),
-                user.getPermissionNames().stream()
-                        .map(SimpleGrantedAuthority::new))
-                .collect(Collectors.toList());
+        var authorities = rbacSnapshotHolder.current().authorities(user.getRoleIds());
 
         return new org.springframework.security.core.userdetails.User(
                 user.getUuid(), // Use UUID as username for consistency
@@ -7,18 +7,17 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import tn.esprit.agroprotect.identity.store.KeyValueStore;
 
 import java.io.IOException;
 import java.time.Duration;
-import java.util.concurrent.TimeUnit;
 
 /**
- * Rate Limiting Filter using Redis.
+ * Rate Limiting Filter using the configured {@link KeyValueStore}.
  * 
  * Implements sliding window rate limiting per IP address.
  * Different limits for different endpoint types.
@@ -31,7 +30,7 @@ public class RateLimitingFilter extends OncePerRequestFilter {
     private static final String RATE_LIMIT_PREFIX = "rate_limit:";
     private static final String LOGIN_RATE_PREFIX = "rate_limit:login:";
 
-    private final StringRedisTemplate redisTemplate;
+    private final KeyValueStore keyValueStore;
 
     @Value("${security.rate-limit.requests-per-minute:100}")
     private int generalRateLimit;
@@ -63,19 +62,19 @@ public class RateLimitingFilter extends OncePerRequestFilter {
         }
 
         try {
-            Long currentCount = redisTemplate.opsForValue().increment(key);
+            long currentCount = keyValueStore.increment(key);
 
-            if (currentCount != null && currentCount == 1) {
+            if (currentCount == 1) {
                 // First request, set expiry
-                redisTemplate.expire(key, Duration.ofMinutes(1));
+                keyValueStore.expire(key, Duration.ofMinutes(1));
             }
 
             // Set rate limit headers
             response.setHeader("X-RateLimit-Limit", String.valueOf(limit));
             response.setHeader("X-RateLimit-Remaining",
-                    String.valueOf(Math.max(0, limit - (currentCount != null ? currentCount : 0))));
+                    String.valueOf(Math.max(0, limit - currentCount)));
 
-            if (currentCount != null && currentCount > limit) {
+            if (currentCount > limit) {
                 log.warn("Rate limit exceeded for IP: {} on path: {}", clientIp, path);
                 response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
                 response.setContentType("application/json");
@@ -90,7 +89,7 @@ public class RateLimitingFilter extends OncePerRequestFilter {
             }
 
         } catch (Exception e) {
-            // If Redis is unavailable, allow request but log warning
+            // If the store is unavailable, allow request but log warning
             log.warn("Rate limiting unavailable: {}", e.getMessage());
         }
 
@@ -0,0 +1,162 @@
+package tn.esprit.agroprotect.identity.security;
+
+import tn.esprit.agroprotect.identity.entity.Permission;
+import tn.esprit.agroprotect.identity.entity.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.*;
+
+/**
+ * Immutable view of roles and permissions.
+ * Each role gets a dense slot; its permissions are stored as a bitset over
+ * the permission slots and its authorities (ROLE_x + permission names) are
+ * precomputed, so lookups are array reads instead of ORM traversal.
+ */
+public final class RbacSnapshot {
+
+    private final Map<Long, Integer> slotByRoleId;
+    private final Map<String, Long> roleIdByName;
+    private final String[] roleNames;
+    private final long[][] permissionBits;
+    private final String[] permissionNames;
+    private final List<GrantedAuthority>[] authorities;
+
+    private RbacSnapshot(Map<Long, Integer> slotByRoleId, Map<String, Long> roleIdByName,
+            String[] roleNames, long[][] permissionBits, String[] permissionNames,
+            List<GrantedAuthority>[] authorities) {
+        this.slotByRoleId = slotByRoleId;
+        this.roleIdByName = roleIdByName;
+        this.roleNames = roleNames;
+        this.permissionBits = permissionBits;
+        this.permissionNames = permissionNames;
+        this.authorities = authorities;
+    }
+
+    /**
+     * Build a snapshot from roles whose permissions are already initialized.
+     */
+    @SuppressWarnings("unchecked")
+    public static RbacSnapshot of(Collection<Role> roles) {
+        Map<String, Integer> permissionSlots = new TreeMap<>();
+        for (Role role : roles) {
+            for (Permission permission : role.getPermissions()) {
+                permissionSlots.putIfAbsent(permission.getName(), 0);
+            }
+        }
+        String[] permissionNames = permissionSlots.keySet().toArray(new String[0]);
+        for (int i = 0; i < permissionNames.length; i++) {
+            permissionSlots.put(permissionNames[i], i);
+        }
+
+        int words = (permissionNames.length + 63) >>> 6;
+        Map<Long, Integer> slotByRoleId = new HashMap<>();
+        Map<String, Long> roleIdByName = new HashMap<>();
+        String[] roleNames = new String[roles.size()];
+        long[][] permissionBits = new long[roles.size()][];
+        List<GrantedAuthority>[] authorities = new List[roles.size()];
+
+        int slot = 0;
+        for (Role role : roles) {
+            long[] bits = new long[words];
+            List<GrantedAuthority> granted = new ArrayList<>();
+            granted.add(new SimpleGrantedAuthority("ROLE_" + role.getName()));
+            for (Permission permission : role.getPermissions()) {
+                int bit = permissionSlots.get(permission.getName());
+                bits[bit >>> 6] |= 1L << bit;
+            }
+            for (int bit = 0; bit < permissionNames.length; bit++) {
+                if ((bits[bit >>> 6] & (1L << bit)) != 0) {
+                    granted.add(new SimpleGrantedAuthority(permissionNames[bit]));
+                }
+            }
+
+            slotByRoleId.put(role.getId(), slot);
+            roleIdByName.put(role.getName(), role.getId());
+            roleNames[slot] = role.getName();
+            permissionBits[slot] = bits;
+            authorities[slot] = List.copyOf(granted);
+            slot++;
+        }
+
+        return new RbacSnapshot(Map.copyOf(slotByRoleId), Map.copyOf(roleIdByName),
+                roleNames, permissionBits, permissionNames, authorities);
+    }
+
+    public Optional<Long> roleId(String roleName) {
+        return Optional.ofNullable(roleIdByName.get(roleName));
+    }
+
+    public int roleCount() {
+        return roleNames.length;
+    }
+
+    public Set<String> roleNames(Collection<Long> roleIds) {
+        Set<String> names = new HashSet<>();
+        for (Long roleId : roleIds) {
+            Integer slot = slotByRoleId.get(roleId);
+            if (slot != null) {
+                names.add(roleNames[slot]);
+            }
+        }
+        return names;
+    }
+
+    public Set<String> permissionNames(Collection<Long> roleIds) {
+        long[] bits = permissionBits(roleIds);
+        Set<String> names = new HashSet<>();
+        for (int bit = 0; bit < permissionNames.length; bit++) {
+            if ((bits[bit >>> 6] & (1L << bit)) != 0) {
+                names.add(permissionNames[bit]);
+            }
+        }
+        return names;
+    }
+
+    public boolean hasPermission(Collection<Long> roleIds, String permissionName) {
+        int bit = Arrays.binarySearch(permissionNames, permissionName);
+        if (bit < 0) {
+            return false;
+        }
+        for (Long roleId : roleIds) {
+            Integer slot = slotByRoleId.get(roleId);
+            if (slot != null && (permissionBits[slot][bit >>> 6] & (1L << bit)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Role and permission authorities for the given roles, without duplicates.
+     */
+    public List<GrantedAuthority> authorities(Collection<Long> roleIds) {
+        if (roleIds.size() == 1) {
+            Integer slot = slotByRoleId.get(roleIds.iterator().next());
+            return slot != null ? authorities[slot] : List.of();
+        }
+        Set<GrantedAuthority> merged = new LinkedHashSet<>();
+        for (Long roleId : roleIds) {
+            Integer slot = slotByRoleId.get(roleId);
+            if (slot != null) {
+                merged.addAll(authorities[slot]);
+            }
+        }
+        return List.copyOf(merged);
+    }
+
+    private long[] permissionBits(Collection<Long> roleIds) {
+        long[] bits = new long[(permissionNames.length + 63) >>> 6];
+        for (Long roleId : roleIds) {
+            Integer slot = slotByRoleId.get(roleId);
+            if (slot == null) {
+                continue;
+            }
+            long[] roleBits = permissionBits[slot];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] |= roleBits[i];
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,37 @@
+package tn.esprit.agroprotect.identity.security;
+
+import tn.esprit.agroprotect.identity.repository.RoleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link RbacSnapshot}.
+ * Loaded on first use and swapped atomically by {@link #reload()} whenever
+ * roles or permissions change; readers never see a partially built snapshot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RbacSnapshotHolder {
+
+    private final RoleRepository roleRepository;
+    private final AtomicReference<RbacSnapshot> current = new AtomicReference<>();
+
+    public RbacSnapshot current() {
+        RbacSnapshot snapshot = current.get();
+        return snapshot != null ? snapshot : reload();
+    }
+
+    /**
+     * Rebuild the snapshot from the database and publish it.
+     */
+    public RbacSnapshot reload() {
+        RbacSnapshot snapshot = RbacSnapshot.of(roleRepository.findAllWithPermissions());
+        current.set(snapshot);
+        log.info("RBAC snapshot loaded with {} roles", snapshot.roleCount());
+        return snapshot;
+    }
+}
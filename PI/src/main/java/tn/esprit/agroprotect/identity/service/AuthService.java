@@ -6,6 +6,8 @@ import tn.esprit.agroprotect.identity.entity.*;
 import tn.esprit.agroprotect.identity.exception.*;
 import tn.esprit.agroprotect.identity.repository.*;
 import tn.esprit.agroprotect.identity.security.JwtTokenProvider;
+import tn.esprit.agroprotect.identity.security.RbacSnapshot;
+import tn.esprit.agroprotect.identity.security.RbacSnapshotHolder;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,7 +21,6 @@ import java.security.SecureRandom;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Authentication service handling user registration, login, and token
@@ -47,6 +48,7 @@ public class AuthService {
 
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final RbacSnapshotHolder rbacSnapshotHolder;
     private final TokenService tokenService;
     private final OtpService otpService;
     private final EmailService emailService;
@@ -97,9 +99,9 @@ public class AuthService {
                 .build();
 
         // Assign default USER role
-        Role userRole = roleRepository.findByName("USER")
+        Long userRoleId = rbacSnapshotHolder.current().roleId("USER")
                 .orElseThrow(() -> new RuntimeException("Default USER role not found"));
-        user.addRole(userRole);
+        user.addRole(roleRepository.getReferenceById(userRoleId));
 
         user = userRepository.save(user);
 
@@ -376,11 +378,10 @@ public class AuthService {
     }
 
     private AuthResponse generateAuthResponse(User user, String deviceId) {
-        Set<String> roles = user.getRoles().stream()
-                .map(Role::getName)
-                .collect(Collectors.toSet());
-
-        Set<String> permissions = user.getPermissionNames();
+        RbacSnapshot rbac = rbacSnapshotHolder.current();
+        Set<Long> roleIds = user.getRoleIds();
+        Set<String> roles = rbac.roleNames(roleIds);
+        Set<String> permissions = rbac.permissionNames(roleIds);
 
         String accessToken = jwtTokenProvider.generateAccessToken(
                 null, user.getUuid(), deviceId, roles, permissions);
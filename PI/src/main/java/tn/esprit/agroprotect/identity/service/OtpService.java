@@ -3,14 +3,15 @@ package tn.esprit.agroprotect.identity.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import tn.esprit.agroprotect.identity.store.KeyValueStore;
 
 import java.security.SecureRandom;
 import java.time.Duration;
 
 /**
- * OTP (One-Time Password) service using Redis for storage.
+ * OTP (One-Time Password) service backed by the configured {@link KeyValueStore}
+ * (Redis by default, in-process with the embedded-kv profile).
  */
 @Service
 @RequiredArgsConstructor
@@ -19,8 +20,9 @@ public class OtpService {
 
     private static final String OTP_PREFIX = "otp:";
     private static final String OTP_ATTEMPTS_PREFIX = "otp_attempts:";
+    private static final String OTP_RATE_PREFIX = "otp_rate:";
 
-    private final StringRedisTemplate redisTemplate;
+    private final KeyValueStore keyValueStore;
     private final SecureRandom secureRandom = new SecureRandom();
 
     @Value("${otp.length:6}")
@@ -40,11 +42,11 @@ public class OtpService {
         String key = buildKey(phone, purpose);
 
         // Store OTP with expiry
-        redisTemplate.opsForValue().set(key, otp, Duration.ofMinutes(expiryMinutes));
+        keyValueStore.set(key, otp, Duration.ofMinutes(expiryMinutes));
 
         // Reset attempts counter
-        String attemptsKey = OTP_ATTEMPTS_PREFIX + key;
-        redisTemplate.delete(attemptsKey);
+        String attemptsKey = buildAttemptsKey(phone, purpose);
+        keyValueStore.delete(attemptsKey);
 
         log.debug("Generated OTP for phone: {} purpose: {}", maskPhone(phone), purpose);
         return otp;
@@ -55,22 +57,22 @@ public class OtpService {
      */
     public OtpVerificationResult verifyOtp(String phone, String purpose, String otp) {
         String key = buildKey(phone, purpose);
-        String attemptsKey = OTP_ATTEMPTS_PREFIX + key;
+        String attemptsKey = buildAttemptsKey(phone, purpose);
 
         // Check attempts
-        String attemptsStr = redisTemplate.opsForValue().get(attemptsKey);
+        String attemptsStr = keyValueStore.get(attemptsKey);
         int attempts = attemptsStr != null ? Integer.parseInt(attemptsStr) : 0;
 
         if (attempts >= maxAttempts) {
             // Delete OTP after max attempts
-            redisTemplate.delete(key);
-            redisTemplate.delete(attemptsKey);
+            keyValueStore.delete(key);
+            keyValueStore.delete(attemptsKey);
             log.warn("Max OTP attempts exceeded for phone: {}", maskPhone(phone));
             return OtpVerificationResult.maxAttemptsExceeded();
         }
 
         // Get stored OTP
-        String storedOtp = redisTemplate.opsForValue().get(key);
+        String storedOtp = keyValueStore.get(key);
 
         if (storedOtp == null) {
             return OtpVerificationResult.expired();
@@ -78,15 +80,17 @@ public class OtpService {
 
         if (!storedOtp.equals(otp)) {
             // Increment attempts
-            redisTemplate.opsForValue().increment(attemptsKey);
-            redisTemplate.expire(attemptsKey, Duration.ofMinutes(expiryMinutes));
+            keyValueStore.increment(attemptsKey);
+            keyValueStore.expire(attemptsKey, Duration.ofMinutes(expiryMinutes));
             log.debug("Invalid OTP attempt for phone: {}", maskPhone(phone));
             return OtpVerificationResult.invalid(maxAttempts - attempts - 1);
         }
 
-        // Success - delete OTP and attempts
-        redisTemplate.delete(key);
-        redisTemplate.delete(attemptsKey);
+        // Success - consume the OTP atomically so a concurrent request cannot reuse it
+        if (!keyValueStore.compareAndDelete(key, storedOtp)) {
+            return OtpVerificationResult.expired();
+        }
+        keyValueStore.delete(attemptsKey);
 
         log.info("OTP verified successfully for phone: {}", maskPhone(phone));
         return OtpVerificationResult.successful();
@@ -96,16 +100,16 @@ public class OtpService {
      * Check if OTP can be requested (rate limiting).
      */
     public boolean canRequestOtp(String phone) {
-        String rateLimitKey = "otp_rate:" + phone;
-        String count = redisTemplate.opsForValue().get(rateLimitKey);
+        String rateLimitKey = OTP_RATE_PREFIX + hashTag(phone);
+        String count = keyValueStore.get(rateLimitKey);
 
         if (count != null && Integer.parseInt(count) >= 3) {
             return false; // Max 3 requests per 5 minutes
         }
 
-        Long newCount = redisTemplate.opsForValue().increment(rateLimitKey);
-        if (newCount != null && newCount == 1) {
-            redisTemplate.expire(rateLimitKey, Duration.ofMinutes(5));
+        long newCount = keyValueStore.increment(rateLimitKey);
+        if (newCount == 1) {
+            keyValueStore.expire(rateLimitKey, Duration.ofMinutes(5));
         }
 
         return true;
@@ -120,7 +124,19 @@ public class OtpService {
     }
 
     private String buildKey(String phone, String purpose) {
-        return OTP_PREFIX + purpose + ":" + phone;
+        return OTP_PREFIX + hashTag(phone) + ":" + purpose;
+    }
+
+    private String buildAttemptsKey(String phone, String purpose) {
+        return OTP_ATTEMPTS_PREFIX + hashTag(phone) + ":" + purpose;
+    }
+
+    /**
+     * Wrap the phone in a Redis Cluster hash tag so every key of one phone
+     * (OTP, attempts, rate counter) lands on the same slot.
+     */
+    private String hashTag(String phone) {
+        return "{" + phone + "}";
     }
 
     private String maskPhone(String phone) {
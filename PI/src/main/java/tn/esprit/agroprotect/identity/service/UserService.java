@@ -1,5 +1,9 @@
 package tn.esprit.agroprotect.identity.service;
 
+import tn.esprit.agroprotect.common.pagination.CountStrategy;
+import tn.esprit.agroprotect.common.pagination.CursorPage;
+import tn.esprit.agroprotect.common.pagination.InvalidCursorException;
+import tn.esprit.agroprotect.common.pagination.Keyset;
 import tn.esprit.agroprotect.identity.dto.request.UpdateProfileRequest;
 import tn.esprit.agroprotect.identity.dto.request.ChangePasswordRequest;
 import tn.esprit.agroprotect.identity.dto.response.DeviceSessionResponse;
@@ -7,19 +11,32 @@ import tn.esprit.agroprotect.identity.dto.response.UserProfileResponse;
 import tn.esprit.agroprotect.identity.entity.*;
 import tn.esprit.agroprotect.identity.exception.*;
 import tn.esprit.agroprotect.identity.repository.*;
+import tn.esprit.agroprotect.identity.search.UserSearchIndex;
+import tn.esprit.agroprotect.identity.security.RbacSnapshot;
+import tn.esprit.agroprotect.identity.security.RbacSnapshotHolder;
+import tn.esprit.agroprotect.microassurance.security.UserLookupService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +47,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class UserService {
 
+    private static final Set<String> CURSOR_SORT_FIELDS = Set.of("createdAt", "id");
+    private static final String RANK_CURSOR = "rank";
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final DeviceSessionRepository deviceSessionRepository;
@@ -39,6 +59,10 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final AuditService auditService;
     private final EmailService emailService;
+    private final RbacSnapshotHolder rbacSnapshotHolder;
+    private final UserSearchIndex userSearchIndex;
+    private final CountStrategy countStrategy;
+    private final UserLookupService userLookupService;
 
     @Value("${security.password.history-count:5}")
     private int passwordHistoryCount;
@@ -60,7 +84,7 @@ public class UserService {
     @Transactional
     public UserProfileResponse updateProfile(String userUuid, UpdateProfileRequest request,
             HttpServletRequest httpRequest) {
-        User user = userRepository.findActiveByUuid(userUuid)
+        User user = userRepository.findActiveByUuidWithRoles(userUuid)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
 
         if (request.getFirstName() != null) {
@@ -192,6 +216,9 @@ public class UserService {
         refreshTokenRepository.revokeAllByUserId(user.getId(), Instant.now(), "Account deleted");
         deviceSessionRepository.revokeAllByUserId(user.getId(), Instant.now());
 
+        // Microassurance resolves this UUID to a user id from a cache
+        userLookupService.evict(userUuid);
+
         auditService.logUserAction(user.getId(), user.getId(), "REQUEST_DELETION",
                 "USER", user.getUuid(), AuditStatus.SUCCESS, null, httpRequest);
 
@@ -205,7 +232,7 @@ public class UserService {
      */
     @Transactional(readOnly = true)
     public UserProfileResponse getUserByUuid(String uuid) {
-        User user = userRepository.findByUuid(uuid)
+        User user = userRepository.findByUuidWithRoles(uuid)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
         return mapToProfileResponse(user);
     }
@@ -214,9 +241,76 @@ public class UserService {
      * Search users (admin).
      */
     @Transactional(readOnly = true)
-    public Page<UserProfileResponse> searchUsers(UserStatus status, String search, Pageable pageable) {
-        return userRepository.searchUsers(status, search, pageable)
-                .map(this::mapToProfileResponse);
+    public Page<UserProfileResponse> searchUsers(UserStatus status, String search, Pageable pageable,
+            boolean includePermissions) {
+        if (search == null || search.isBlank() || !userSearchIndex.isReady()) {
+            Slice<User> users = userRepository.searchUsers(status, search, pageable);
+            List<UserProfileResponse> content = mapToListing(users.getContent(), includePermissions);
+            return countStrategy.page(new SliceImpl<>(content, pageable, users.hasNext()), pageable,
+                    User.class, UserSpecifications.withFilters(status, search), Arrays.asList(status, search));
+        }
+
+        // Ranked by the trigram index; the pageable's sort does not apply
+        UserSearchIndex.Result result = userSearchIndex.search(search, status,
+                pageable.getOffset(), pageable.getPageSize());
+        Map<Long, User> usersById = userRepository.findAllByIdIn(result.userIds()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> users = result.userIds().stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return countStrategy.exact(mapToListing(users, includePermissions), pageable, result.total());
+    }
+
+    /**
+     * Search users with keyset pagination (admin): no total count, and the next
+     * page is selected by seek predicate instead of OFFSET. With a search term
+     * the results keep the index ranking and the cursor carries the last rank.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserProfileResponse> scrollUsers(UserStatus status, String search, String sortField,
+            Sort.Direction direction, String cursor, int size, boolean includePermissions) {
+        int pageSize = Keyset.clampSize(size);
+
+        if (search != null && !search.isBlank() && userSearchIndex.isReady()) {
+            UserSearchIndex.Match after = null;
+            if (cursor != null && !cursor.isBlank()) {
+                String[] parts = Keyset.decodeToken(cursor, 3);
+                if (!RANK_CURSOR.equals(parts[0])) {
+                    throw new InvalidCursorException("Cursor was issued for another sort order");
+                }
+                after = new UserSearchIndex.Match(Keyset.parseId(parts[2]), (int) Keyset.parseId(parts[1]));
+            }
+
+            List<UserSearchIndex.Match> matches = userSearchIndex.seek(search, status, after, pageSize + 1);
+            boolean hasNext = matches.size() > pageSize;
+            List<UserSearchIndex.Match> page = hasNext ? matches.subList(0, pageSize) : matches;
+
+            List<Long> ids = page.stream().map(UserSearchIndex.Match::userId).toList();
+            Map<Long, User> usersById = userRepository.findAllByIdIn(ids).stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+            List<User> users = ids.stream().map(usersById::get).filter(Objects::nonNull).toList();
+
+            String nextCursor = null;
+            if (hasNext) {
+                UserSearchIndex.Match last = page.get(page.size() - 1);
+                nextCursor = Keyset.encodeToken(RANK_CURSOR, String.valueOf(last.score()),
+                        String.valueOf(last.userId()));
+            }
+            return new CursorPage<>(mapToListing(users, includePermissions), pageSize, hasNext, nextCursor);
+        }
+
+        if (!CURSOR_SORT_FIELDS.contains(sortField)) {
+            throw new InvalidCursorException("Unsupported cursor sort field: " + sortField);
+        }
+        Keyset<User> keyset = Keyset.of(sortField, direction);
+        List<User> rows = userRepository.findBy(
+                UserSpecifications.withFilters(status, search).and(keyset.after(cursor)),
+                query -> query.sortBy(keyset.sort()).limit(pageSize + 1).all());
+
+        CursorPage<User> page = keyset.page(rows, pageSize);
+        return new CursorPage<>(mapToListing(page.content(), includePermissions),
+                page.size(), page.hasNext(), page.nextCursor());
     }
 
     /**
@@ -259,10 +353,11 @@ public class UserService {
         user.getRoles().clear();
 
         // Add new roles
+        RbacSnapshot rbac = rbacSnapshotHolder.current();
         for (String roleName : roleNames) {
-            Role role = roleRepository.findByName(roleName)
+            Long roleId = rbac.roleId(roleName)
                     .orElseThrow(() -> new RuntimeException("Role not found: " + roleName));
-            user.addRole(role);
+            user.addRole(roleRepository.getReferenceById(roleId));
         }
 
         userRepository.save(user);
@@ -276,9 +371,31 @@ public class UserService {
     // ==================== Helper Methods ====================
 
     private UserProfileResponse mapToProfileResponse(User user) {
-        Set<String> roles = user.getRoles().stream()
-                .map(Role::getName)
-                .collect(Collectors.toSet());
+        return mapToProfileResponse(user, user.getRoleIds(), true);
+    }
+
+    /**
+     * Map a page of users with their role ids loaded in a single query,
+     * instead of initializing each user's roles collection.
+     */
+    private List<UserProfileResponse> mapToListing(List<User> users, boolean includePermissions) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Set<Long>> roleIdsByUser = new HashMap<>();
+        List<Long> userIds = users.stream().map(User::getId).toList();
+        for (UserRepository.UserRoleId link : userRepository.findRoleIdsByUserIds(userIds)) {
+            roleIdsByUser.computeIfAbsent(link.getUserId(), id -> new HashSet<>()).add(link.getRoleId());
+        }
+        return users.stream()
+                .map(user -> mapToProfileResponse(user,
+                        roleIdsByUser.getOrDefault(user.getId(), Set.of()), includePermissions))
+                .toList();
+    }
+
+    private UserProfileResponse mapToProfileResponse(User user, Set<Long> roleIds, boolean includePermissions) {
+        RbacSnapshot rbac = rbacSnapshotHolder.current();
+        Set<String> roles = rbac.roleNames(roleIds);
 
         return UserProfileResponse.builder()
                 .uuid(user.getUuid())
@@ -293,7 +410,7 @@ public class UserService {
                 .mfaEnabled(user.getMfaEnabled())
                 .biometricEnabled(user.getBiometricEnabled())
                 .roles(roles)
-                .permissions(user.getPermissionNames())
+                .permissions(includePermissions ? rbac.permissionNames(roleIds) : null)
                 .consentMarketing(user.getConsentMarketing())
                 .consentPolicyVersion(user.getConsentPolicyVersion())
                 .consentAcceptedAt(user.getConsentAcceptedAt())
@@ -0,0 +1,146 @@
+package tn.esprit.agroprotect.identity.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process key-value store for single-node deployments without Redis.
+ *
+ * Entries live in a {@link ConcurrentHashMap}; every mutation goes through
+ * {@code compute} so increments and compare-and-delete are atomic per key.
+ * Expired entries are hidden on read and reclaimed in the background by a
+ * {@link TimingWheel}.
+ */
+@Component
+@Profile(KeyValueStore.EMBEDDED_PROFILE)
+@Slf4j
+public class InMemoryKeyValueStore implements KeyValueStore, DisposableBean {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final TimingWheel expiryWheel;
+
+    public InMemoryKeyValueStore(
+            @Value("${kv.embedded.tick-millis:100}") long tickMillis,
+            @Value("${kv.embedded.wheel-size:512}") int wheelSize) {
+        this.expiryWheel = new TimingWheel(Duration.ofMillis(tickMillis), wheelSize, this::expireIfDue);
+        log.info("Using embedded key-value store (tick={}ms, wheel size={})", tickMillis, wheelSize);
+    }
+
+    @Override
+    public String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    @Override
+    public void set(String key, String value, Duration ttl) {
+        long deadline = System.nanoTime() + ttl.toNanos();
+        entries.put(key, new Entry(value, deadline, true));
+        expiryWheel.schedule(key, deadline);
+    }
+
+    @Override
+    public long increment(String key) {
+        long now = System.nanoTime();
+        Entry updated = entries.compute(key, (k, current) -> {
+            if (current == null || current.isExpired(now)) {
+                return new Entry("1", 0L, false);
+            }
+            long next = parseCounter(k, current.value()) + 1;
+            return new Entry(Long.toString(next), current.deadline(), current.expiring());
+        });
+        return Long.parseLong(updated.value());
+    }
+
+    @Override
+    public boolean expire(String key, Duration ttl) {
+        long now = System.nanoTime();
+        long deadline = now + ttl.toNanos();
+        AtomicBoolean present = new AtomicBoolean(false);
+        entries.computeIfPresent(key, (k, current) -> {
+            if (current.isExpired(now)) {
+                return null;
+            }
+            present.set(true);
+            return new Entry(current.value(), deadline, true);
+        });
+        if (present.get()) {
+            expiryWheel.schedule(key, deadline);
+        }
+        return present.get();
+    }
+
+    @Override
+    public boolean delete(String key) {
+        Entry removed = entries.remove(key);
+        return removed != null && !removed.isExpired(System.nanoTime());
+    }
+
+    @Override
+    public boolean compareAndDelete(String key, String expectedValue) {
+        long now = System.nanoTime();
+        AtomicBoolean removed = new AtomicBoolean(false);
+        entries.computeIfPresent(key, (k, current) -> {
+            if (current.isExpired(now)) {
+                return null;
+            }
+            if (current.value().equals(expectedValue)) {
+                removed.set(true);
+                return null;
+            }
+            return current;
+        });
+        return removed.get();
+    }
+
+    /**
+     * Number of entries currently held, including expired ones not yet reclaimed.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void destroy() {
+        expiryWheel.stop();
+    }
+
+    /**
+     * Called by the timing wheel; only removes the entry if it still carries
+     * the deadline that was scheduled (a later SET/EXPIRE reschedules it).
+     */
+    private void expireIfDue(String key, long deadline) {
+        long now = System.nanoTime();
+        entries.computeIfPresent(key, (k, current) ->
+                current.expiring() && current.deadline() == deadline && current.isExpired(now) ? null : current);
+    }
+
+    private long parseCounter(String key, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Value at key " + key + " is not an integer", e);
+        }
+    }
+
+    private record Entry(String value, long deadline, boolean expiring) {
+
+        boolean isExpired(long now) {
+            return expiring && now - deadline >= 0;
+        }
+    }
+}
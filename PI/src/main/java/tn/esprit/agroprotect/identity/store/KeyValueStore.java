@@ -0,0 +1,56 @@
+package tn.esprit.agroprotect.identity.store;
+
+import java.time.Duration;
+
+/**
+ * Minimal key-value contract used for OTP storage and rate limiting.
+ *
+ * Semantics follow the Redis commands the identity service relies on
+ * (GET, SET EX, INCR, EXPIRE, DEL) so the backend can be swapped by profile:
+ * - default: Redis via {@link RedisKeyValueStore}
+ * - {@value #EMBEDDED_PROFILE}: in-process store via {@link InMemoryKeyValueStore}
+ */
+public interface KeyValueStore {
+
+    /**
+     * Profile enabling the in-process backend for single-node installs.
+     */
+    String EMBEDDED_PROFILE = "embedded-kv";
+
+    /**
+     * Get the value stored at key, or null if absent or expired.
+     */
+    String get(String key);
+
+    /**
+     * Store a value with a time-to-live.
+     */
+    void set(String key, String value, Duration ttl);
+
+    /**
+     * Atomically increment the integer stored at key (created at 0 if absent).
+     * An existing expiry is preserved.
+     */
+    long increment(String key);
+
+    /**
+     * Set a time-to-live on an existing key.
+     *
+     * @return true if the key existed
+     */
+    boolean expire(String key, Duration ttl);
+
+    /**
+     * Delete a key.
+     *
+     * @return true if a live key was removed
+     */
+    boolean delete(String key);
+
+    /**
+     * Atomically delete a key only if it still holds the expected value.
+     *
+     * @return true if the key held the expected value and was removed
+     */
+    boolean compareAndDelete(String key, String expectedValue);
+}
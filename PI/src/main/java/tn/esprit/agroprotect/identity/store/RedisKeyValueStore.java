@@ -0,0 +1,80 @@
+package tn.esprit.agroprotect.identity.store;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Redis-backed key-value store (default backend).
+ *
+ * When a {@link RedisNearCache} is configured, reads of its key prefixes are
+ * served from local memory and local writes evict the cached copy eagerly.
+ */
+@Component
+@Profile("!" + KeyValueStore.EMBEDDED_PROFILE)
+public class RedisKeyValueStore implements KeyValueStore {
+
+    private static final RedisScript<Long> COMPARE_AND_DELETE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisNearCache nearCache;
+
+    public RedisKeyValueStore(StringRedisTemplate redisTemplate, ObjectProvider<RedisNearCache> nearCache) {
+        this.redisTemplate = redisTemplate;
+        this.nearCache = nearCache.getIfAvailable();
+    }
+
+    @Override
+    public String get(String key) {
+        if (nearCache != null && nearCache.handles(key)) {
+            return nearCache.get(key, () -> redisTemplate.opsForValue().get(key));
+        }
+        return redisTemplate.opsForValue().get(key);
+    }
+
+    @Override
+    public void set(String key, String value, Duration ttl) {
+        redisTemplate.opsForValue().set(key, value, ttl);
+        evictLocal(key);
+    }
+
+    @Override
+    public long increment(String key) {
+        Long value = redisTemplate.opsForValue().increment(key);
+        evictLocal(key);
+        return value != null ? value : 0L;
+    }
+
+    @Override
+    public boolean expire(String key, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.expire(key, ttl));
+    }
+
+    @Override
+    public boolean delete(String key) {
+        boolean deleted = Boolean.TRUE.equals(redisTemplate.delete(key));
+        evictLocal(key);
+        return deleted;
+    }
+
+    @Override
+    public boolean compareAndDelete(String key, String expectedValue) {
+        Long removed = redisTemplate.execute(COMPARE_AND_DELETE, List.of(key), expectedValue);
+        evictLocal(key);
+        return removed != null && removed > 0;
+    }
+
+    private void evictLocal(String key) {
+        if (nearCache != null) {
+            nearCache.evict(key);
+        }
+    }
+}
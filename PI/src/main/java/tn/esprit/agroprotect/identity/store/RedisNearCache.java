@@ -0,0 +1,154 @@
+package tn.esprit.agroprotect.identity.store;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.event.connection.ConnectionActivatedEvent;
+import io.lettuce.core.event.connection.DisconnectedEvent;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.lettuce.core.support.caching.CacheAccessor;
+import io.lettuce.core.support.caching.CacheFrontend;
+import io.lettuce.core.support.caching.ClientSideCaching;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Client-side cache for read-mostly Redis keys using RESP3 client tracking.
+ *
+ * A dedicated RESP3 connection enables CLIENT TRACKING; every key read
+ * through it is remembered by the server, which pushes an invalidation as soon
+ * as any client modifies that key. Only keys matching the configured prefixes
+ * are served from local memory, everything else goes straight to Redis.
+ *
+ * Local entries also carry a short TTL as a safety net, and the whole cache is
+ * dropped on disconnect since invalidations may have been missed meanwhile.
+ */
+@Slf4j
+public class RedisNearCache implements AutoCloseable {
+
+    private final List<String> keyPrefixes;
+    private final Cache<String, String> localCache;
+    private final RedisClient client;
+    private final TrackingArgs trackingArgs = TrackingArgs.Builder.enabled();
+
+    private StatefulRedisConnection<String, String> connection;
+    private CacheFrontend<String, String> frontend;
+    private Disposable eventSubscription;
+
+    public RedisNearCache(RedisURI redisUri, List<String> keyPrefixes, long maxEntries, Duration ttl) {
+        this.keyPrefixes = List.copyOf(keyPrefixes);
+        this.localCache = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+        this.client = RedisClient.create(redisUri);
+        this.client.setOptions(ClientOptions.builder()
+                .protocolVersion(ProtocolVersion.RESP3)
+                .build());
+        connect();
+    }
+
+    /**
+     * Whether reads of this key should go through the near cache.
+     */
+    public boolean handles(String key) {
+        if (frontend == null) {
+            return false;
+        }
+        for (String prefix : keyPrefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read a key from local memory, loading it over the tracking connection on miss.
+     * Falls back to the given loader if the tracking connection is unusable.
+     */
+    public String get(String key, Supplier<String> fallback) {
+        if (frontend == null) {
+            return fallback.get();
+        }
+        try {
+            return frontend.get(key);
+        } catch (RuntimeException e) {
+            log.debug("Near cache read failed for {}: {}", key, e.getMessage());
+            localCache.invalidate(key);
+            return fallback.get();
+        }
+    }
+
+    /**
+     * Drop a key written by this process without waiting for the server push.
+     */
+    public void evict(String key) {
+        localCache.invalidate(key);
+    }
+
+    public long size() {
+        return localCache.size();
+    }
+
+    @Override
+    public void close() {
+        if (eventSubscription != null) {
+            eventSubscription.dispose();
+        }
+        if (frontend != null) {
+            frontend.close();
+        }
+        client.shutdown();
+    }
+
+    private void connect() {
+        try {
+            connection = client.connect();
+            frontend = ClientSideCaching.enable(new LocalCacheAccessor(), connection, trackingArgs);
+            eventSubscription = client.getResources().eventBus().get().subscribe(event -> {
+                if (event instanceof DisconnectedEvent) {
+                    localCache.invalidateAll();
+                } else if (event instanceof ConnectionActivatedEvent && connection.isOpen()) {
+                    // Tracking state is per connection and is lost on reconnect
+                    connection.async().clientTracking(trackingArgs);
+                }
+            });
+            log.info("Redis near cache enabled for key prefixes {}", keyPrefixes);
+        } catch (RuntimeException e) {
+            log.warn("Redis near cache unavailable, reads go directly to Redis: {}", e.getMessage());
+            frontend = null;
+        }
+    }
+
+    private class LocalCacheAccessor implements CacheAccessor<String, String> {
+
+        @Override
+        public String get(String key) {
+            return localCache.getIfPresent(key);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            // Absent keys are not cached (Guava rejects null values); they are read from Redis again
+            if (value == null) {
+                localCache.invalidate(key);
+                return;
+            }
+            localCache.put(key, value);
+        }
+
+        @Override
+        public void evict(String key) {
+            localCache.invalidate(key);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package tn.esprit.agroprotect.identity.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel driving background expiry of {@link InMemoryKeyValueStore} entries.
+ *
+ * Deadlines are hashed into {@code wheelSize} buckets of {@code tick} width.
+ * Each tick drains one bucket; timeouts belonging to a later revolution stay
+ * in place. Scheduling and expiry are O(1) regardless of the number of keys.
+ */
+@Slf4j
+final class TimingWheel {
+
+    @FunctionalInterface
+    interface ExpiryCallback {
+        void expire(String key, long deadline);
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Timeout>[] buckets;
+    private final ExpiryCallback callback;
+    private final long startNanos;
+    private final ScheduledExecutorService ticker;
+
+    /** Last tick fully processed; written by the ticker thread only. */
+    private volatile long processedTick = -1;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(Duration tick, int wheelSize, ExpiryCallback callback) {
+        if (tick.isZero() || tick.isNegative()) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(wheelSize, 1) * 2 - 1);
+        this.tickNanos = tick.toNanos();
+        this.mask = size - 1;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.callback = callback;
+        this.startNanos = System.nanoTime();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kv-expiry-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void schedule(String key, long deadline) {
+        long tick = Math.max((deadline - startNanos) / tickNanos, processedTick + 1);
+        buckets[(int) (tick & mask)].add(new Timeout(key, deadline));
+    }
+
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    private void advance() {
+        try {
+            long now = System.nanoTime();
+            long currentTick = (now - startNanos) / tickNanos;
+            // After a stall, one revolution is enough to visit every bucket
+            long from = Math.max(processedTick + 1, currentTick - mask);
+            for (long tick = from; tick <= currentTick; tick++) {
+                drain(buckets[(int) (tick & mask)], now);
+                processedTick = tick;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Embedded key-value expiry tick failed: {}", e.getMessage());
+        }
+    }
+
+    private void drain(Queue<Timeout> bucket, long now) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (now - timeout.deadline() >= 0) {
+                iterator.remove();
+                callback.expire(timeout.key(), timeout.deadline());
+            }
+        }
+    }
+
+    private record Timeout(String key, long deadline) {
+    }
+}
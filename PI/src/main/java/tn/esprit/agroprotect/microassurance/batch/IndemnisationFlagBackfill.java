@@ -0,0 +1,44 @@
+package tn.esprit.agroprotect.microassurance.batch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Renseigne {@code sinistres.has_indemnisation} pour les indemnisations créées avant
+ * l'ajout de la colonne (valeur par défaut FALSE sur une base existante).
+ *
+ * Exécuté à chaque démarrage : ne modifie que les sinistres encore non marqués qui ont
+ * une indemnisation, donc plus rien une fois la base à jour.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndemnisationFlagBackfill {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        int updated = backfill();
+        if (updated > 0) {
+            log.info("Indicateur has_indemnisation renseigné pour {} sinistre(s)", updated);
+        }
+    }
+
+    /**
+     * Marque les sinistres non marqués ayant une indemnisation ; retourne leur nombre
+     */
+    public int backfill() {
+        return jdbcTemplate.update("UPDATE sinistres SET has_indemnisation = TRUE, version = version + 1, "
+                        + "updated_at = ? WHERE has_indemnisation = FALSE "
+                        + "AND EXISTS (SELECT 1 FROM indemnisations i WHERE i.sinistre_id = sinistres.id)",
+                Timestamp.from(Instant.now()));
+    }
+}
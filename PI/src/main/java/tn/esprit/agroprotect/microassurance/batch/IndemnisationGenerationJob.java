@@ -0,0 +1,227 @@
+package tn.esprit.agroprotect.microassurance.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.common.outbox.OutboxWriter;
+import tn.esprit.agroprotect.common.pagination.CountStrategy;
+import tn.esprit.agroprotect.microassurance.dto.event.EvenementIndemnisation;
+import tn.esprit.agroprotect.microassurance.entity.BatchCheckpoint;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeEvenement;
+import tn.esprit.agroprotect.microassurance.repository.BatchCheckpointRepository;
+import tn.esprit.agroprotect.microassurance.service.EvenementService;
+import tn.esprit.agroprotect.microassurance.service.IndemnisationService;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Génération planifiée des indemnisations des sinistres validés qui n'en ont pas.
+ *
+ * Les sinistres sont parcourus par ordre d'ID, par lots de {@code chunk-size}, chaque lot
+ * dans sa propre transaction avec le point de reprise de la partition : un redémarrage
+ * reprend après le dernier lot validé. Le travail est partitionné par
+ * {@code MOD(id, node-count) = node-index}, chaque instance traitant sa partition.
+ *
+ * Un sinistre est d'abord réservé par une mise à jour conditionnelle
+ * ({@code has_indemnisation = FALSE}, version incrémentée) : une création manuelle
+ * concurrente échoue alors au verrou optimiste, et l'index unique sur
+ * {@code sinistreId} reste la dernière garantie contre les doublons.
+ */
+@Component
+@Slf4j
+public class IndemnisationGenerationJob {
+
+    private static final String JOB_NAME = "indemnisation-generation";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchCheckpointRepository checkpointRepository;
+    private final CountStrategy countStrategy;
+    private final EvenementService evenementService;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int nodeIndex;
+    private final int nodeCount;
+
+    public IndemnisationGenerationJob(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            BatchCheckpointRepository checkpointRepository,
+            CountStrategy countStrategy,
+            EvenementService evenementService,
+            @Value("${microassurance.indemnisation-batch.enabled:true}") boolean enabled,
+            @Value("${microassurance.indemnisation-batch.chunk-size:200}") int chunkSize,
+            @Value("${microassurance.indemnisation-batch.node-index:0}") int nodeIndex,
+            @Value("${microassurance.indemnisation-batch.node-count:1}") int nodeCount) {
+        if (nodeCount < 1 || nodeIndex < 0 || nodeIndex >= nodeCount) {
+            throw new IllegalStateException("Partition invalide: node-index=" + nodeIndex + ", node-count=" + nodeCount);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+        this.countStrategy = countStrategy;
+        this.evenementService = evenementService;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.nodeIndex = nodeIndex;
+        this.nodeCount = nodeCount;
+    }
+
+    @Scheduled(initialDelayString = "${microassurance.indemnisation-batch.initial-delay:PT1M}",
+            fixedDelayString = "${microassurance.indemnisation-batch.interval:PT5M}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        int created = 0;
+        ChunkResult result;
+        do {
+            result = transactionTemplate.execute(status -> processChunk());
+            if (result.created() > 0) {
+                // Écritures JDBC : invalider les totaux mis en cache
+                countStrategy.invalidate(Indemnisation.class);
+                countStrategy.invalidate(Sinistre.class);
+            }
+            created += result.created();
+        } while (!result.passCompleted());
+
+        if (created > 0) {
+            log.info("Génération planifiée: {} indemnisation(s) créée(s) (partition {}/{})",
+                    created, nodeIndex, nodeCount);
+        }
+    }
+
+    /**
+     * Traite le lot suivant de la partition, point de reprise verrouillé
+     */
+    private ChunkResult processChunk() {
+        BatchCheckpoint checkpoint = lockCheckpoint();
+        if (checkpoint.getLastId() == 0L) {
+            checkpoint.setPassStartedAt(Instant.now());
+        }
+
+        List<Candidate> candidates = jdbcTemplate.query(
+                "SELECT id, estimation_perte, taux_remboursement FROM sinistres "
+                        + "WHERE statut = ? AND has_indemnisation = FALSE AND id > ? AND MOD(id, ?) = ? "
+                        // Sinistre indemnisé mais pas encore marqué (données antérieures à la colonne)
+                        + "AND NOT EXISTS (SELECT 1 FROM indemnisations i WHERE i.sinistre_id = sinistres.id) "
+                        + "ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new Candidate(rs.getLong("id"),
+                        IndemnisationService.calculateIndemnisationAmount(
+                                rs.getBigDecimal("estimation_perte"), rs.getBigDecimal("taux_remboursement"))),
+                StatutSinistre.VALIDE.name(), checkpoint.getLastId(), nodeCount, nodeIndex, chunkSize);
+
+        int created = generate(candidates);
+
+        boolean passCompleted = candidates.size() < chunkSize;
+        Instant now = Instant.now();
+        if (passCompleted) {
+            // Fin de passe : la suivante repart du début (sinistres validés depuis)
+            checkpoint.setLastId(0L);
+            checkpoint.setLastPassCompletedAt(now);
+        } else {
+            checkpoint.setLastId(candidates.get(candidates.size() - 1).sinistreId());
+        }
+        checkpoint.setProcessedCount(checkpoint.getProcessedCount() + created);
+        checkpoint.setUpdatedAt(now);
+        return new ChunkResult(created, passCompleted);
+    }
+
+    /**
+     * Réserve les sinistres puis insère leurs indemnisations en batch ; renvoie le nombre créé
+     */
+    private int generate(List<Candidate> candidates) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Candidate> payable = new ArrayList<>(candidates.size());
+        List<Object[]> reserveArgs = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            // Sans estimation ou sans taux, le montant reste à saisir manuellement
+            if (candidate.montant() != null) {
+                payable.add(candidate);
+                reserveArgs.add(new Object[]{now, candidate.sinistreId(), StatutSinistre.VALIDE.name()});
+            }
+        }
+        if (payable.isEmpty()) {
+            return 0;
+        }
+
+        int[] reserved = jdbcTemplate.batchUpdate(
+                "UPDATE sinistres SET has_indemnisation = TRUE, version = version + 1, updated_at = ? "
+                        + "WHERE id = ? AND statut = ? AND has_indemnisation = FALSE",
+                reserveArgs);
+
+        List<Candidate> generated = new ArrayList<>(payable.size());
+        for (int i = 0; i < payable.size(); i++) {
+            if (reserved[i] > 0 || reserved[i] == Statement.SUCCESS_NO_INFO) {
+                generated.add(payable.get(i));
+            }
+        }
+        if (generated.isEmpty()) {
+            return 0;
+        }
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(
+                        "INSERT INTO indemnisations (sinistre_id, montant, date_creation, statut, created_at, updated_at, version) "
+                                + "VALUES (?, ?, ?, ?, ?, ?, 0)", new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Candidate candidate = generated.get(i);
+                        ps.setLong(1, candidate.sinistreId());
+                        ps.setBigDecimal(2, candidate.montant());
+                        ps.setTimestamp(3, now);
+                        ps.setString(4, StatutIndemnisation.EN_ATTENTE.name());
+                        ps.setTimestamp(5, now);
+                        ps.setTimestamp(6, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return generated.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> ids = keys.getKeyList();
+        List<OutboxWriter.Event> evenements = new ArrayList<>(generated.size());
+        for (int i = 0; i < generated.size(); i++) {
+            Candidate candidate = generated.get(i);
+            long id = ((Number) ids.get(i).values().iterator().next()).longValue();
+            evenements.add(EvenementService.indemnisation(TypeEvenement.INDEMNISATION_CREEE, EvenementIndemnisation.of(
+                    id, candidate.sinistreId(), candidate.montant(), StatutIndemnisation.EN_ATTENTE, null)));
+        }
+        evenementService.publish(evenements);
+        return generated.size();
+    }
+
+    private BatchCheckpoint lockCheckpoint() {
+        String name = JOB_NAME + ":" + nodeIndex + "/" + nodeCount;
+        // Une création concurrente sur la même partition fait échouer ce lot, repris au passage suivant
+        return checkpointRepository.findForUpdate(name)
+                .orElseGet(() -> checkpointRepository.saveAndFlush(new BatchCheckpoint(name)));
+    }
+
+    private record Candidate(long sinistreId, BigDecimal montant) {
+    }
+
+    private record ChunkResult(int created, boolean passCompleted) {
+    }
+}
@@ -15,7 +15,6 @@ public class MicroassuranceConfig {
 
     /**
      * RestTemplate bean for inter-service communication
-     * Used by UserLookupService to call the identity service
      */
     @Bean
     public RestTemplate restTemplate(RestTemplateBuilder builder) {
@@ -0,0 +1,34 @@
+package tn.esprit.agroprotect.microassurance.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration Spring MVC du module microassurance
+ */
+@Configuration
+public class MicroassuranceWebConfig implements WebMvcConfigurer {
+
+    /**
+     * Remplace l'open-in-view de Spring Boot, qui ne s'enregistre plus dès que ce bean existe
+     */
+    @Bean
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+        return new OpenEntityManagerInViewInterceptor();
+    }
+
+    /**
+     * Open-in-view partout sauf sur les exports : leur flux tourne dans un autre thread avec
+     * sa propre transaction, et l'EntityManager de la requête garderait une seconde connexion
+     * du pool jusqu'à la fin du téléchargement.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addWebRequestInterceptor(openEntityManagerInViewInterceptor())
+                .excludePathPatterns("/v1/microassurance/sinistres/export",
+                        "/v1/microassurance/indemnisations/export");
+    }
+}
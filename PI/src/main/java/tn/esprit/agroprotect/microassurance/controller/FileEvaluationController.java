@@ -0,0 +1,61 @@
+package tn.esprit.agroprotect.microassurance.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistreResponse;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.service.FileEvaluationService;
+
+import java.util.List;
+
+/**
+ * Contrôleur REST de la file d'évaluation des sinistres
+ */
+@RestController
+@RequestMapping("/v1/microassurance/evaluation-queue")
+@RequiredArgsConstructor
+@Tag(name = "File d'évaluation", description = "Réservation des sinistres déclarés par les experts")
+@PreAuthorize("hasRole('EXPERT') or hasRole('ADMIN')")
+public class FileEvaluationController {
+
+    private final FileEvaluationService fileEvaluationService;
+
+    @PostMapping("/claim")
+    @Operation(summary = "Réserver les prochains sinistres",
+               description = "Réserve les sinistres déclarés disponibles les plus anciens pour l'expert courant, "
+                       + "sans attendre ceux qu'un autre expert est en train de réserver (expert/admin uniquement)")
+    public ResponseEntity<List<SinistreResponse>> claim(
+            @Parameter(description = "Nombre de sinistres à réserver") @RequestParam(defaultValue = "10") int count,
+            @Parameter(description = "Type de sinistre") @RequestParam(required = false) TypeSinistre typeSinistre) {
+        return ResponseEntity.ok(fileEvaluationService.claim(count, typeSinistre));
+    }
+
+    @GetMapping
+    @Operation(summary = "Mes réservations",
+               description = "Sinistres réservés par l'expert courant dont la réservation est en cours")
+    public ResponseEntity<List<SinistreResponse>> getReservations() {
+        return ResponseEntity.ok(fileEvaluationService.getReservations());
+    }
+
+    @PostMapping("/{id}/renew")
+    @Operation(summary = "Prolonger une réservation",
+               description = "Repousse l'échéance de la réservation, si aucun autre expert n'a repris le sinistre")
+    public ResponseEntity<SinistreResponse> renew(
+            @Parameter(description = "ID du sinistre") @PathVariable Long id) {
+        return ResponseEntity.ok(fileEvaluationService.renew(id));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Libérer une réservation",
+               description = "Rend le sinistre à la file (un administrateur peut libérer toute réservation)")
+    public ResponseEntity<Void> release(
+            @Parameter(description = "ID du sinistre") @PathVariable Long id) {
+        fileEvaluationService.release(id);
+        return ResponseEntity.noContent().build();
+    }
+}
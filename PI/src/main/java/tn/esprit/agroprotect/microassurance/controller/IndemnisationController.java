@@ -9,14 +9,21 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.agroprotect.common.idempotency.Idempotent;
+import tn.esprit.agroprotect.common.pagination.CursorPage;
 import tn.esprit.agroprotect.microassurance.dto.request.CreateIndemnisationRequest;
 import tn.esprit.agroprotect.microassurance.dto.request.PayIndemnisationRequest;
 import tn.esprit.agroprotect.microassurance.dto.response.IndemnisationResponse;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.enums.FormatFichier;
 import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
+import tn.esprit.agroprotect.microassurance.service.ExportService;
 import tn.esprit.agroprotect.microassurance.service.IndemnisationService;
 
 import java.time.Instant;
@@ -31,11 +38,13 @@ import java.time.Instant;
 public class IndemnisationController {
 
     private final IndemnisationService indemnisationService;
+    private final ExportService exportService;
 
     @PostMapping("/sinistres/{sinistreId}/indemnisations")
     @Operation(summary = "Créer une indemnisation pour un sinistre", 
                description = "Crée une nouvelle indemnisation pour un sinistre validé (admin uniquement)")
     @PreAuthorize("hasRole('ADMIN')")
+    @Idempotent
     public ResponseEntity<IndemnisationResponse> createIndemnisation(
             @Parameter(description = "ID du sinistre") @PathVariable Long sinistreId,
             @Valid @RequestBody(required = false) CreateIndemnisationRequest request) {
@@ -79,19 +88,57 @@ public class IndemnisationController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/indemnisations/cursor")
+    @Operation(summary = "Rechercher des indemnisations par curseur", 
+               description = "Pagination keyset sans comptage total : passer nextCursor comme cursor pour la page suivante")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('EXPERT')")
+    public ResponseEntity<CursorPage<IndemnisationResponse>> scrollIndemnisations(
+            @Parameter(description = "Statut de l'indemnisation") @RequestParam(required = false) StatutIndemnisation statut,
+            @Parameter(description = "ID du sinistre") @RequestParam(required = false) Long sinistreId,
+            @Parameter(description = "ID de l'utilisateur créateur du sinistre") @RequestParam(required = false) Long createdByUserId,
+            @Parameter(description = "Date de début (ISO 8601)") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date de fin (ISO 8601)") @RequestParam(required = false) Instant to,
+            @Parameter(description = "Curseur opaque renvoyé par la page précédente") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Taille de la page (max 100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Critère de tri") @RequestParam(defaultValue = "dateCreation") String sort,
+            @Parameter(description = "Direction du tri") @RequestParam(defaultValue = "desc") String direction) {
+
+        CursorPage<IndemnisationResponse> response = indemnisationService.scrollIndemnisations(
+                statut, sinistreId, createdByUserId, from, to, sort, Sort.Direction.fromString(direction), cursor, size);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/indemnisations/export")
+    @Operation(summary = "Exporter des indemnisations",
+               description = "Export CSV ou NDJSON en flux de toutes les indemnisations correspondant aux filtres, par ordre d'ID")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('EXPERT')")
+    public ResponseEntity<StreamingResponseBody> exportIndemnisations(
+            @Parameter(description = "Statut de l'indemnisation") @RequestParam(required = false) StatutIndemnisation statut,
+            @Parameter(description = "ID du sinistre") @RequestParam(required = false) Long sinistreId,
+            @Parameter(description = "ID de l'utilisateur créateur du sinistre") @RequestParam(required = false) Long createdByUserId,
+            @Parameter(description = "Date de début (ISO 8601)") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date de fin (ISO 8601)") @RequestParam(required = false) Instant to,
+            @Parameter(description = "Format : CSV ou NDJSON") @RequestParam(defaultValue = "CSV") FormatFichier format) {
+        // Droits et filtres résolus dans le thread de la requête, avant le début du flux
+        Specification<Indemnisation> spec = indemnisationService.exportFilter(
+                statut, sinistreId, createdByUserId, from, to);
+        StreamingResponseBody body = out -> exportService.exportIndemnisations(spec, format, out);
+        return ExportResponses.attachment("indemnisations", format, body);
+    }
+
     @PatchMapping("/indemnisations/{id}/pay")
     @Operation(summary = "Effectuer le paiement d'une indemnisation", 
                description = "Marque une indemnisation comme payée (admin uniquement)")
     @PreAuthorize("hasRole('ADMIN')")
+    @Idempotent
     public ResponseEntity<IndemnisationResponse> payIndemnisation(
             @Parameter(description = "ID de l'indemnisation") @PathVariable Long id,
-            @Valid @RequestBody(required = false) PayIndemnisationRequest request,
-            @Parameter(description = "Clé d'idempotence pour éviter les paiements en double") 
-            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+            @Valid @RequestBody(required = false) PayIndemnisationRequest request) {
         if (request == null) {
             request = new PayIndemnisationRequest();
         }
-        IndemnisationResponse response = indemnisationService.payIndemnisation(id, request, idempotencyKey);
+        IndemnisationResponse response = indemnisationService.payIndemnisation(id, request);
         return ResponseEntity.ok(response);
     }
 
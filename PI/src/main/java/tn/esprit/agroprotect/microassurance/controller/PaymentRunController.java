@@ -0,0 +1,77 @@
+package tn.esprit.agroprotect.microassurance.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.agroprotect.microassurance.dto.request.CreatePaymentRunRequest;
+import tn.esprit.agroprotect.microassurance.dto.response.PaymentRunItemResponse;
+import tn.esprit.agroprotect.microassurance.dto.response.PaymentRunResponse;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRunItem;
+import tn.esprit.agroprotect.microassurance.service.PaymentRunService;
+
+/**
+ * Contrôleur REST pour les campagnes de paiement des indemnisations en attente
+ */
+@RestController
+@RequestMapping("/v1/microassurance/payment-runs")
+@RequiredArgsConstructor
+@Tag(name = "Campagnes de paiement", description = "Paiement en masse des indemnisations en attente")
+public class PaymentRunController {
+
+    private final PaymentRunService paymentRunService;
+
+    @PostMapping
+    @Operation(summary = "Lancer une campagne de paiement",
+               description = "Fige les indemnisations en attente et les paie en parallèle par partition (admin uniquement)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PaymentRunResponse> createRun(
+            @Valid @RequestBody(required = false) CreatePaymentRunRequest request) {
+        if (request == null) {
+            request = new CreatePaymentRunRequest();
+        }
+        PaymentRunResponse response = paymentRunService.createRun(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Suivre une campagne de paiement",
+               description = "Avancement, totaux payés et en échec, débit (admin uniquement)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PaymentRunResponse> getRun(
+            @Parameter(description = "ID de la campagne") @PathVariable Long id) {
+        return ResponseEntity.ok(paymentRunService.getRun(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    @Operation(summary = "Reprendre une campagne interrompue",
+               description = "Relance le traitement des lignes encore en attente (admin uniquement)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PaymentRunResponse> resumeRun(
+            @Parameter(description = "ID de la campagne") @PathVariable Long id) {
+        PaymentRunResponse response = paymentRunService.resumeRun(id);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/{id}/items")
+    @Operation(summary = "Lignes d'une campagne par statut",
+               description = "Liste paginée des lignes, par défaut celles en échec (admin uniquement)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<PaymentRunItemResponse>> getRunItems(
+            @Parameter(description = "ID de la campagne") @PathVariable Long id,
+            @Parameter(description = "Statut des lignes") @RequestParam(defaultValue = "ECHEC") StatutPaymentRunItem statut,
+            @Parameter(description = "Numéro de page (commence à 0)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Taille de la page") @RequestParam(defaultValue = "20") int size) {
+        Page<PaymentRunItemResponse> response = paymentRunService.getRunItems(
+                id, statut, PageRequest.of(page, size, Sort.by("id")));
+        return ResponseEntity.ok(response);
+    }
+}
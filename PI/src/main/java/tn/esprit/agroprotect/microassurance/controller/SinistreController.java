@@ -1,5 +1,6 @@
 package tn.esprit.agroprotect.microassurance.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -9,18 +10,40 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.agroprotect.common.idempotency.Idempotent;
+import tn.esprit.agroprotect.common.pagination.CursorPage;
+import tn.esprit.agroprotect.microassurance.dto.request.BulkSinistreTransitionRequest;
 import tn.esprit.agroprotect.microassurance.dto.request.CreateSinistreRequest;
 import tn.esprit.agroprotect.microassurance.dto.request.RefuseSinistreRequest;
 import tn.esprit.agroprotect.microassurance.dto.request.ValidateSinistreRequest;
+import tn.esprit.agroprotect.microassurance.dto.response.BulkTransitionResponse;
+import tn.esprit.agroprotect.microassurance.dto.response.GeoClustersResponse;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistreImportResponse;
 import tn.esprit.agroprotect.microassurance.dto.response.SinistreResponse;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistresGeoResponse;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.FormatFichier;
 import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TransitionSinistre;
 import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.exception.BadRequestException;
+import tn.esprit.agroprotect.microassurance.service.ExportService;
+import tn.esprit.agroprotect.microassurance.service.SinistreBulkService;
+import tn.esprit.agroprotect.microassurance.service.SinistreGeoService;
+import tn.esprit.agroprotect.microassurance.service.SinistreImportService;
 import tn.esprit.agroprotect.microassurance.service.SinistreService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 
 /**
@@ -33,16 +56,37 @@ import java.time.Instant;
 public class SinistreController {
 
     private final SinistreService sinistreService;
+    private final SinistreBulkService sinistreBulkService;
+    private final SinistreImportService sinistreImportService;
+    private final SinistreGeoService sinistreGeoService;
+    private final ExportService exportService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Operation(summary = "Créer un nouveau sinistre", 
                description = "Permet à un utilisateur de créer un sinistre")
     //@PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")  // TEMPORARY: Disabled for testing
+    @Idempotent
     public ResponseEntity<SinistreResponse> createSinistre(@Valid @RequestBody CreateSinistreRequest request) {
         SinistreResponse response = sinistreService.createSinistre(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Importer des sinistres en masse",
+               description = "Importe un fichier CSV (en-tête typeSinistre, description, contratAssuranceId, "
+                       + "estimationPerte, latitude, longitude) ou NDJSON, lu en flux, avec un rapport des lignes rejetées")
+    @PreAuthorize("hasRole('AGRICULTEUR') or hasRole('FARMER') or hasRole('ADMIN')")
+    public ResponseEntity<SinistreImportResponse> importSinistres(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        FormatFichier format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? FormatFichier.NDJSON
+                : FormatFichier.CSV;
+        SinistreImportResponse response = sinistreImportService.importSinistres(body, format);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Récupérer un sinistre par son ID", 
                description = "Récupère les détails d'un sinistre spécifique")
@@ -76,6 +120,97 @@ public class SinistreController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/cursor")
+    @Operation(summary = "Rechercher des sinistres par curseur", 
+               description = "Pagination keyset sans comptage total : passer nextCursor comme cursor pour la page suivante")
+    public ResponseEntity<CursorPage<SinistreResponse>> scrollSinistres(
+            @Parameter(description = "Statut du sinistre") @RequestParam(required = false) StatutSinistre statut,
+            @Parameter(description = "Type de sinistre") @RequestParam(required = false) TypeSinistre typeSinistre,
+            @Parameter(description = "ID du contrat d'assurance") @RequestParam(required = false) Long contratAssuranceId,
+            @Parameter(description = "ID de l'utilisateur créateur") @RequestParam(required = false) Long createdByUserId,
+            @Parameter(description = "Date de début (ISO 8601)") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date de fin (ISO 8601)") @RequestParam(required = false) Instant to,
+            @Parameter(description = "Curseur opaque renvoyé par la page précédente") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Taille de la page (max 100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Critère de tri") @RequestParam(defaultValue = "dateDeclaration") String sort,
+            @Parameter(description = "Direction du tri") @RequestParam(defaultValue = "desc") String direction) {
+
+        CursorPage<SinistreResponse> response = sinistreService.scrollSinistres(
+                statut, typeSinistre, contratAssuranceId, createdByUserId, from, to, sort, Sort.Direction.fromString(direction), cursor, size);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Exporter des sinistres",
+               description = "Export CSV ou NDJSON en flux de tous les sinistres correspondant aux filtres, par ordre d'ID")
+    public ResponseEntity<StreamingResponseBody> exportSinistres(
+            @Parameter(description = "Statut du sinistre") @RequestParam(required = false) StatutSinistre statut,
+            @Parameter(description = "Type de sinistre") @RequestParam(required = false) TypeSinistre typeSinistre,
+            @Parameter(description = "ID du contrat d'assurance") @RequestParam(required = false) Long contratAssuranceId,
+            @Parameter(description = "ID de l'utilisateur créateur") @RequestParam(required = false) Long createdByUserId,
+            @Parameter(description = "Date de début (ISO 8601)") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date de fin (ISO 8601)") @RequestParam(required = false) Instant to,
+            @Parameter(description = "Format : CSV ou NDJSON") @RequestParam(defaultValue = "CSV") FormatFichier format) {
+        // Droits et filtres résolus dans le thread de la requête, avant le début du flux
+        Specification<Sinistre> spec = sinistreService.exportFilter(
+                statut, typeSinistre, contratAssuranceId, createdByUserId, from, to);
+        StreamingResponseBody body = out -> exportService.exportSinistres(spec, format, out);
+        return ExportResponses.attachment("sinistres", format, body);
+    }
+
+    @GetMapping("/geo/bbox")
+    @Operation(summary = "Sinistres d'une zone rectangulaire",
+               description = "Sinistres localisés dans le rectangle (degrés WGS 84, ouest > est pour une zone "
+                       + "à cheval sur l'antiméridien), lus par plages de cellules geohash")
+    public ResponseEntity<SinistresGeoResponse> findInBoundingBox(
+            @Parameter(description = "Latitude sud") @RequestParam double sud,
+            @Parameter(description = "Longitude ouest") @RequestParam double ouest,
+            @Parameter(description = "Latitude nord") @RequestParam double nord,
+            @Parameter(description = "Longitude est") @RequestParam double est,
+            @Parameter(description = "Type de sinistre") @RequestParam(required = false) TypeSinistre typeSinistre,
+            @Parameter(description = "Statut du sinistre") @RequestParam(required = false) StatutSinistre statut,
+            @Parameter(description = "Date de début (ISO 8601)") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date de fin (ISO 8601)") @RequestParam(required = false) Instant to,
+            @Parameter(description = "Nombre maximal de sinistres (défaut 500, max 5000)") @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(sinistreGeoService.findInBoundingBox(sud, ouest, nord, est,
+                new SinistreGeoService.Filtres(typeSinistre, statut, from, to), limit));
+    }
+
+    @GetMapping("/geo/radius")
+    @Operation(summary = "Sinistres autour d'un point",
+               description = "Sinistres localisés à moins de rayonKm du point, du plus proche au plus éloigné")
+    public ResponseEntity<SinistresGeoResponse> findInRadius(
+            @Parameter(description = "Latitude du centre") @RequestParam double latitude,
+            @Parameter(description = "Longitude du centre") @RequestParam double longitude,
+            @Parameter(description = "Rayon en kilomètres") @RequestParam double rayonKm,
+            @Parameter(description = "Type de sinistre") @RequestParam(required = false) TypeSinistre typeSinistre,
+            @Parameter(description = "Statut du sinistre") @RequestParam(required = false) StatutSinistre statut,
+            @Parameter(description = "Date de début (ISO 8601)") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date de fin (ISO 8601)") @RequestParam(required = false) Instant to,
+            @Parameter(description = "Nombre maximal de sinistres (défaut 500, max 5000)") @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(sinistreGeoService.findInRadius(latitude, longitude, rayonKm,
+                new SinistreGeoService.Filtres(typeSinistre, statut, from, to), limit));
+    }
+
+    @GetMapping("/geo/clusters")
+    @Operation(summary = "Regroupement des sinistres d'une zone par cellule",
+               description = "Nombre de sinistres, estimation cumulée et barycentre par cellule geohash "
+                       + "dans le rectangle, pour cartographier une zone sinistrée")
+    public ResponseEntity<GeoClustersResponse> clusters(
+            @Parameter(description = "Latitude sud") @RequestParam double sud,
+            @Parameter(description = "Longitude ouest") @RequestParam double ouest,
+            @Parameter(description = "Latitude nord") @RequestParam double nord,
+            @Parameter(description = "Longitude est") @RequestParam double est,
+            @Parameter(description = "Précision des cellules (1 à 12), par défaut adaptée à la zone") @RequestParam(required = false) Integer precision,
+            @Parameter(description = "Type de sinistre") @RequestParam(required = false) TypeSinistre typeSinistre,
+            @Parameter(description = "Statut du sinistre") @RequestParam(required = false) StatutSinistre statut,
+            @Parameter(description = "Date de début (ISO 8601)") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date de fin (ISO 8601)") @RequestParam(required = false) Instant to) {
+        return ResponseEntity.ok(sinistreGeoService.clusters(sud, ouest, nord, est, precision,
+                new SinistreGeoService.Filtres(typeSinistre, statut, from, to)));
+    }
+
     @PatchMapping("/{id}/start-evaluation")
     @Operation(summary = "Commencer l'évaluation d'un sinistre", 
                description = "Met un sinistre en état d'évaluation (expert/admin uniquement)")
@@ -110,4 +245,45 @@ public class SinistreController {
         SinistreResponse response = sinistreService.refuseSinistre(id, request);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    @PostMapping(value = "/bulk/{action}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Transition de masse sur des sinistres",
+               description = "Applique start-evaluation, validate ou refuse à une liste d'IDs ou aux sinistres "
+                       + "correspondant aux critères, avec un résultat par sinistre (expert/admin uniquement)")
+    @PreAuthorize("hasRole('EXPERT') or hasRole('ADMIN')")
+    public ResponseEntity<BulkTransitionResponse> bulkTransition(
+            @Parameter(description = "Transition : start-evaluation, validate ou refuse") @PathVariable String action,
+            @Valid @RequestBody BulkSinistreTransitionRequest request) {
+        BulkTransitionResponse response = sinistreBulkService.apply(transitionFor(action), request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/bulk/{action}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Transition de masse sur des sinistres, avec progression en flux",
+               description = "Même traitement, une ligne NDJSON par lot traité puis une ligne finale (expert/admin uniquement)")
+    @PreAuthorize("hasRole('EXPERT') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamBulkTransition(
+            @Parameter(description = "Transition : start-evaluation, validate ou refuse") @PathVariable String action,
+            @Valid @RequestBody BulkSinistreTransitionRequest request) {
+        // Droits et sélection résolus dans le thread de la requête, avant le début du flux
+        SinistreBulkService.Plan plan = sinistreBulkService.plan(transitionFor(action), request);
+        StreamingResponseBody body = out -> sinistreBulkService.execute(plan, progress -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(progress));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private TransitionSinistre transitionFor(String action) {
+        TransitionSinistre transition = TransitionSinistre.fromAction(action);
+        if (transition == null) {
+            throw new BadRequestException("Transition inconnue: " + action);
+        }
+        return transition;
+    }
+}
@@ -0,0 +1,66 @@
+package tn.esprit.agroprotect.microassurance.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.agroprotect.microassurance.dto.response.ActiviteSinistresResponse;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistreStatsResponse;
+import tn.esprit.agroprotect.microassurance.enums.Granularite;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.service.SinistreActiviteService;
+import tn.esprit.agroprotect.microassurance.service.SinistreRollupService;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Contrôleur REST des statistiques de sinistres et d'indemnisations
+ */
+@RestController
+@RequestMapping("/v1/microassurance/stats")
+@RequiredArgsConstructor
+@Tag(name = "Statistiques", description = "Totaux de sinistres et de paiements lus dans les agrégats")
+public class StatistiquesController {
+
+    private final SinistreRollupService sinistreRollupService;
+    private final SinistreActiviteService sinistreActiviteService;
+
+    @GetMapping
+    @Operation(summary = "Statistiques des sinistres",
+               description = "Totaux par statut, estimations et paiements, détaillés par type de sinistre. "
+                       + "Les dates portent sur le jour de déclaration (UTC).")
+    public ResponseEntity<SinistreStatsResponse> getStats(
+            @Parameter(description = "ID de l'utilisateur créateur") @RequestParam(required = false) Long createdByUserId,
+            @Parameter(description = "ID du contrat d'assurance") @RequestParam(required = false) Long contratAssuranceId,
+            @Parameter(description = "Type de sinistre") @RequestParam(required = false) TypeSinistre typeSinistre,
+            @Parameter(description = "Jour de début inclus (AAAA-MM-JJ)") @RequestParam(required = false) LocalDate from,
+            @Parameter(description = "Jour de fin inclus (AAAA-MM-JJ)") @RequestParam(required = false) LocalDate to) {
+        return ResponseEntity.ok(sinistreRollupService.getStats(createdByUserId, contratAssuranceId, typeSinistre, from, to));
+    }
+
+    @GetMapping("/activite")
+    @Operation(summary = "Activité des sinistres dans le temps",
+               description = "Sinistres passés à chaque statut, par type et par intervalle (heure, jour, semaine), "
+                       + "lus dans les intervalles pré-agrégés (expert/admin uniquement)")
+    @PreAuthorize("hasRole('EXPERT') or hasRole('ADMIN')")
+    public ResponseEntity<ActiviteSinistresResponse> getActivite(
+            @Parameter(description = "Granularité : MINUTE, HOUR, DAY ou WEEK") @RequestParam(defaultValue = "DAY") Granularite granularite,
+            @Parameter(description = "Date de début (ISO 8601), par défaut 30 intervalles avant la fin") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date de fin exclue (ISO 8601), par défaut maintenant") @RequestParam(required = false) Instant to,
+            @Parameter(description = "Type de sinistre") @RequestParam(required = false) TypeSinistre typeSinistre) {
+        return ResponseEntity.ok(sinistreActiviteService.getActivite(granularite, from, to, typeSinistre));
+    }
+
+    @PostMapping("/rebuild")
+    @Operation(summary = "Recalculer les agrégats",
+               description = "Recalcule les agrégats depuis les sinistres et indemnisations (admin uniquement)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> rebuild() {
+        sinistreRollupService.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+}
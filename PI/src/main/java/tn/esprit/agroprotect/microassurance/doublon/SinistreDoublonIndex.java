@@ -0,0 +1,294 @@
+package tn.esprit.agroprotect.microassurance.doublon;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.agroprotect.common.similarity.MinHash;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Index en mémoire des descriptions de sinistres récents, pour signaler les déclarations
+ * en double (même agriculteur, même contrat, description à peine retouchée).
+ *
+ * Chaque description est réduite à une signature MinHash ; ses clés de bande, salées par
+ * la portée (utilisateur, contrat), désignent les seuls sinistres à comparer. Une recherche
+ * coûte quelques accès de table et comparaisons de signatures, quel que soit le volume :
+ * chaque clé de bande ne garde que ses {@link #MAX_PAR_BANDE} sinistres les plus récents,
+ * si bien que des centaines de déclarations presque identiques (lot d'une coopérative après
+ * un orage) ne rendent pas les recherches suivantes proportionnelles à leur nombre.
+ *
+ * Chargé par lots au démarrage avec les sinistres de la fenêtre ; d'ici là, aucun doublon
+ * n'est signalé. Chaque instance tient son propre index : un sinistre déclaré sur une autre
+ * instance n'y figure qu'après redémarrage.
+ */
+@Component
+@Slf4j
+public class SinistreDoublonIndex {
+
+    // 16 bandes de 4 lignes : une similarité de 0,7 est candidate dans 99 % des cas
+    private static final int BANDES = 16;
+    private static final int LIGNES = 4;
+    // Sinistres gardés par clé de bande ; les plus anciens en sont retirés
+    private static final int MAX_PAR_BANDE = 32;
+
+    private final MinHash minHash = new MinHash(BANDES, LIGNES);
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Duration window;
+    private final double threshold;
+    private final int loadBatchSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protégés par lock
+    private final Map<Long, Entree> entrees = new HashMap<>();
+    private final Map<Long, List<Membre>> buckets = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public SinistreDoublonIndex(JdbcTemplate jdbcTemplate,
+            @Value("${microassurance.doublons.enabled:true}") boolean enabled,
+            @Value("${microassurance.doublons.window:P30D}") Duration window,
+            @Value("${microassurance.doublons.similarity-threshold:0.7}") double threshold,
+            @Value("${microassurance.doublons.load-batch-size:5000}") int loadBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.window = window;
+        this.threshold = threshold;
+        this.loadBatchSize = loadBatchSize;
+    }
+
+    /**
+     * Sinistre semblable trouvé et similarité estimée (indice de Jaccard des descriptions)
+     */
+    public record Doublon(long sinistreId, double similarite) {
+    }
+
+    /**
+     * Portée de comparaison : sinistres d'un même utilisateur sur un même contrat (0 : sans contrat)
+     */
+    private record Portee(long createdByUserId, long contratAssuranceId) {
+
+        static Portee of(Long createdByUserId, Long contratAssuranceId) {
+            return new Portee(createdByUserId, contratAssuranceId != null ? contratAssuranceId : 0);
+        }
+
+        long salt() {
+            return MinHash.mix(createdByUserId) * 31 + contratAssuranceId;
+        }
+    }
+
+    private record Entree(Portee portee, Instant dateDeclaration, long[] signature, long[] cles) {
+    }
+
+    /**
+     * Sinistre indexé, partagé par ses clés de bande : une recherche lit ses candidats sans passer par {@code entrees}
+     */
+    private record Membre(long id, Entree entree) {
+    }
+
+    /**
+     * Charge les sinistres de la fenêtre par ordre d'ID, par lots
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Timestamp since = Timestamp.from(Instant.now().minus(window));
+        try {
+            long lastId = 0;
+            int loaded = 0;
+            List<Sinistre> batch;
+            do {
+                batch = jdbcTemplate.query("SELECT id, created_by_user_id, contrat_assurance_id, date_declaration, "
+                                + "description FROM sinistres WHERE id > ? AND date_declaration >= ? ORDER BY id LIMIT ?",
+                        (rs, i) -> {
+                            Sinistre sinistre = new Sinistre();
+                            sinistre.setId(rs.getLong("id"));
+                            sinistre.setCreatedByUserId(rs.getLong("created_by_user_id"));
+                            sinistre.setContratAssuranceId(rs.getObject("contrat_assurance_id", Long.class));
+                            sinistre.setDateDeclaration(rs.getTimestamp("date_declaration").toInstant());
+                            sinistre.setDescription(rs.getString("description"));
+                            return sinistre;
+                        },
+                        lastId, since, loadBatchSize);
+                for (Sinistre sinistre : batch) {
+                    // Sinistres ajoutés pendant le chargement : déjà indexés, ignorés par add
+                    Entree entree = entree(sinistre);
+                    withWriteLock(() -> add(sinistre.getId(), entree));
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                    loaded += batch.size();
+                }
+            } while (batch.size() == loadBatchSize);
+
+            ready = true;
+            log.info("Index des doublons de sinistres chargé: {} sinistre(s) en {} ms",
+                    loaded, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Chargement de l'index des doublons de sinistres en échec, doublons non signalés", e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Sinistre antérieur le plus semblable de la même portée, déclaré dans la fenêtre
+     * précédant celui-ci, ou null
+     */
+    public Doublon findDoublon(Sinistre sinistre) {
+        if (!enabled || !ready) {
+            return null;
+        }
+        Entree entree = entree(sinistre);
+        Instant since = entree.dateDeclaration().minus(window);
+        return withReadLock(() -> {
+            // Un candidat présent dans plusieurs bandes est recomparé : moins cher que de dédoublonner
+            Doublon meilleur = null;
+            for (long cle : entree.cles()) {
+                List<Membre> bucket = buckets.get(cle);
+                if (bucket == null) {
+                    continue;
+                }
+                for (Membre membre : bucket) {
+                    Entree candidat = membre.entree();
+                    if (sinistre.getId() != null && membre.id() == sinistre.getId()
+                            || !candidat.portee().equals(entree.portee())
+                            || candidat.dateDeclaration().isBefore(since)) {
+                        continue;
+                    }
+                    double similarite = MinHash.similarity(entree.signature(), candidat.signature());
+                    if (similarite >= threshold && (meilleur == null || similarite > meilleur.similarite()
+                            || similarite == meilleur.similarite() && membre.id() < meilleur.sinistreId())) {
+                        meilleur = new Doublon(membre.id(), similarite);
+                    }
+                }
+            }
+            return meilleur;
+        });
+    }
+
+    /**
+     * Indexe un sinistre enregistré, à la validation de la transaction en cours (immédiatement sans transaction)
+     */
+    public void register(Sinistre sinistre) {
+        if (!enabled) {
+            return;
+        }
+        long id = sinistre.getId();
+        Entree entree = entree(sinistre);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    withWriteLock(() -> add(id, entree));
+                }
+            });
+        } else {
+            withWriteLock(() -> add(id, entree));
+        }
+    }
+
+    /**
+     * Retire les sinistres sortis de la fenêtre
+     */
+    @Scheduled(initialDelayString = "${microassurance.doublons.purge-interval:PT1H}",
+            fixedDelayString = "${microassurance.doublons.purge-interval:PT1H}")
+    public void purge() {
+        Instant before = Instant.now().minus(window);
+        int removed = withWriteLock(() -> {
+            int count = 0;
+            Iterator<Map.Entry<Long, Entree>> it = entrees.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Entree> e = it.next();
+                if (e.getValue().dateDeclaration().isBefore(before)) {
+                    it.remove();
+                    unlink(e.getKey(), e.getValue());
+                    count++;
+                }
+            }
+            return count;
+        });
+        if (removed > 0) {
+            log.debug("Index des doublons de sinistres: {} sinistre(s) retiré(s)", removed);
+        }
+    }
+
+    private Entree entree(Sinistre sinistre) {
+        Portee portee = Portee.of(sinistre.getCreatedByUserId(), sinistre.getContratAssuranceId());
+        long[] signature = minHash.signature(sinistre.getDescription());
+        return new Entree(portee, sinistre.getDateDeclaration(), signature, minHash.bandKeys(portee.salt(), signature));
+    }
+
+    private void add(long id, Entree entree) {
+        if (entrees.putIfAbsent(id, entree) != null) {
+            return;
+        }
+        Membre membre = new Membre(id, entree);
+        for (long cle : entree.cles()) {
+            List<Membre> bucket = buckets.computeIfAbsent(cle, k -> new ArrayList<>(2));
+            bucket.add(membre);
+            if (bucket.size() > MAX_PAR_BANDE) {
+                bucket.remove(0);
+            }
+        }
+    }
+
+    private void unlink(long id, Entree entree) {
+        for (long cle : entree.cles()) {
+            List<Membre> bucket = buckets.get(cle);
+            if (bucket != null) {
+                bucket.removeIf(membre -> membre.id() == id);
+                if (bucket.isEmpty()) {
+                    buckets.remove(cle);
+                }
+            }
+        }
+    }
+
+    private <T> T withReadLock(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        withWriteLock(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T withWriteLock(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package tn.esprit.agroprotect.microassurance.dto.event;
+
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Contenu des événements d'indemnisation publiés par l'outbox
+ */
+@Data
+public class EvenementIndemnisation {
+
+    private Long indemnisationId;
+    private Long sinistreId;
+    private BigDecimal montant;
+    private StatutIndemnisation statut;
+    private String paymentReference;
+    private Instant survenuLe;
+
+    public static EvenementIndemnisation of(Long indemnisationId, Long sinistreId, BigDecimal montant,
+            StatutIndemnisation statut, String paymentReference) {
+        EvenementIndemnisation evenement = new EvenementIndemnisation();
+        evenement.setIndemnisationId(indemnisationId);
+        evenement.setSinistreId(sinistreId);
+        evenement.setMontant(montant);
+        evenement.setStatut(statut);
+        evenement.setPaymentReference(paymentReference);
+        evenement.setSurvenuLe(Instant.now());
+        return evenement;
+    }
+
+    public static EvenementIndemnisation of(Indemnisation indemnisation) {
+        return of(indemnisation.getId(), indemnisation.getSinistre().getId(), indemnisation.getMontant(),
+                indemnisation.getStatut(), indemnisation.getPaymentReference());
+    }
+}
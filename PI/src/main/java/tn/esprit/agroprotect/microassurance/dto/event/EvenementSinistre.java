@@ -0,0 +1,42 @@
+package tn.esprit.agroprotect.microassurance.dto.event;
+
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Contenu des événements de sinistre publiés par l'outbox ({@code statutPrecedent} vide à la déclaration)
+ */
+@Data
+public class EvenementSinistre {
+
+    private Long sinistreId;
+    private TypeSinistre typeSinistre;
+    private StatutSinistre statut;
+    private StatutSinistre statutPrecedent;
+    private Long contratAssuranceId;
+    private Long createdByUserId;
+    private BigDecimal estimationPerte;
+    private BigDecimal tauxRemboursement;
+    private String motifRefus;
+    private Instant survenuLe;
+
+    public static EvenementSinistre of(Sinistre sinistre, StatutSinistre statutPrecedent) {
+        EvenementSinistre evenement = new EvenementSinistre();
+        evenement.setSinistreId(sinistre.getId());
+        evenement.setTypeSinistre(sinistre.getTypeSinistre());
+        evenement.setStatut(sinistre.getStatut());
+        evenement.setStatutPrecedent(statutPrecedent);
+        evenement.setContratAssuranceId(sinistre.getContratAssuranceId());
+        evenement.setCreatedByUserId(sinistre.getCreatedByUserId());
+        evenement.setEstimationPerte(sinistre.getEstimationPerte());
+        evenement.setTauxRemboursement(sinistre.getTauxRemboursement());
+        evenement.setMotifRefus(sinistre.getMotifRefus());
+        evenement.setSurvenuLe(Instant.now());
+        return evenement;
+    }
+}
@@ -1,8 +1,10 @@
 package tn.esprit.agroprotect.microassurance.dto.mapper;
 
 import org.mapstruct.*;
+import tn.esprit.agroprotect.microassurance.dto.projection.IndemnisationView;
 import tn.esprit.agroprotect.microassurance.dto.response.IndemnisationResponse;
 import tn.esprit.agroprotect.microassurance.dto.response.IndemnisationSummaryResponse;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistreSummaryResponse;
 import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
 
 import java.util.List;
@@ -16,9 +18,30 @@ public interface IndemnisationMapper {
     @Mapping(target = "sinistreId", source = "sinistre.id")
     IndemnisationResponse toResponse(Indemnisation indemnisation);
 
+    @Mapping(target = "sinistre", source = "view")
+    IndemnisationResponse toResponse(IndemnisationView view);
+
     IndemnisationSummaryResponse toSummaryResponse(Indemnisation indemnisation);
 
     List<IndemnisationResponse> toResponseList(List<Indemnisation> indemnisations);
     
     List<IndemnisationSummaryResponse> toSummaryResponseList(List<Indemnisation> indemnisations);
+
+    /**
+     * Résumé du sinistre lu par la projection
+     */
+    default SinistreSummaryResponse toSinistreSummary(IndemnisationView view) {
+        if (view == null) {
+            return null;
+        }
+        SinistreSummaryResponse summary = new SinistreSummaryResponse();
+        summary.setId(view.getSinistreId());
+        summary.setTypeSinistre(view.getSinistreTypeSinistre());
+        summary.setDateDeclaration(view.getSinistreDateDeclaration());
+        summary.setDescription(view.getSinistreDescription());
+        summary.setContratAssuranceId(view.getSinistreContratAssuranceId());
+        summary.setStatut(view.getSinistreStatut());
+        summary.setCreatedByUserId(view.getSinistreCreatedByUserId());
+        return summary;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package tn.esprit.agroprotect.microassurance.dto.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import tn.esprit.agroprotect.microassurance.dto.response.PaymentRunItemResponse;
+import tn.esprit.agroprotect.microassurance.dto.response.PaymentRunResponse;
+import tn.esprit.agroprotect.microassurance.entity.PaymentRun;
+import tn.esprit.agroprotect.microassurance.entity.PaymentRunItem;
+
+/**
+ * Mapper pour les campagnes de paiement
+ */
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface PaymentRunMapper {
+
+    PaymentRunResponse toResponse(PaymentRun paymentRun);
+
+    PaymentRunItemResponse toItemResponse(PaymentRunItem item);
+}
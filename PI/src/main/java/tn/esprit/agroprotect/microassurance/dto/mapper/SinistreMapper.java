@@ -1,7 +1,9 @@
 package tn.esprit.agroprotect.microassurance.dto.mapper;
 
 import org.mapstruct.*;
+import tn.esprit.agroprotect.microassurance.dto.projection.SinistreView;
 import tn.esprit.agroprotect.microassurance.dto.request.CreateSinistreRequest;
+import tn.esprit.agroprotect.microassurance.dto.response.IndemnisationSummaryResponse;
 import tn.esprit.agroprotect.microassurance.dto.response.SinistreResponse;
 import tn.esprit.agroprotect.microassurance.dto.response.SinistreSummaryResponse;
 import tn.esprit.agroprotect.microassurance.entity.Sinistre;
@@ -21,19 +23,48 @@ public interface SinistreMapper {
     @Mapping(target = "motifRefus", ignore = true)
     @Mapping(target = "tauxRemboursement", ignore = true)
     @Mapping(target = "createdByUserId", ignore = true)
-    @Mapping(target = "indemnisation", ignore = true)
+    @Mapping(target = "hasIndemnisation", ignore = true)
+    @Mapping(target = "latitude", ignore = true)
+    @Mapping(target = "longitude", ignore = true)
+    @Mapping(target = "geohash", ignore = true)
+    @Mapping(target = "doublonPresumeId", ignore = true)
+    @Mapping(target = "expertAssigneId", ignore = true)
+    @Mapping(target = "assignationExpiration", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "version", ignore = true)
     Sinistre toEntity(CreateSinistreRequest request);
 
+    @AfterMapping
+    default void localiser(CreateSinistreRequest request, @MappingTarget Sinistre sinistre) {
+        sinistre.localiser(request.getLatitude(), request.getLongitude());
+    }
+
     SinistreResponse toResponse(Sinistre sinistre);
 
+    @Mapping(target = "indemnisation", source = "view")
+    SinistreResponse toResponse(SinistreView view);
+
     SinistreSummaryResponse toSummaryResponse(Sinistre sinistre);
 
     List<SinistreResponse> toResponseList(List<Sinistre> sinistres);
     
     List<SinistreSummaryResponse> toSummaryResponseList(List<Sinistre> sinistres);
 
-
+    /**
+     * Résumé de l'indemnisation jointe, null si le sinistre n'en a pas
+     */
+    default IndemnisationSummaryResponse toIndemnisationSummary(SinistreView view) {
+        if (view == null || view.getIndemnisationId() == null) {
+            return null;
+        }
+        IndemnisationSummaryResponse summary = new IndemnisationSummaryResponse();
+        summary.setId(view.getIndemnisationId());
+        summary.setMontant(view.getIndemnisationMontant());
+        summary.setDateCreation(view.getIndemnisationDateCreation());
+        summary.setDatePaiement(view.getIndemnisationDatePaiement());
+        summary.setStatut(view.getIndemnisationStatut());
+        summary.setPaymentReference(view.getIndemnisationPaymentReference());
+        return summary;
+    }
 }
\ No newline at end of file
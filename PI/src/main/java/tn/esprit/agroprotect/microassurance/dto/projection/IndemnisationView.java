@@ -0,0 +1,37 @@
+package tn.esprit.agroprotect.microassurance.dto.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Projection de lecture d'une indemnisation avec le résumé de son sinistre
+ * (colonnes {@code sinistre*}). Construite en une seule requête, voir IndemnisationProjections.
+ */
+@Getter
+@AllArgsConstructor
+public class IndemnisationView {
+
+    private final Long id;
+    private final BigDecimal montant;
+    private final Instant dateCreation;
+    private final Instant datePaiement;
+    private final StatutIndemnisation statut;
+    private final String paymentReference;
+    private final Instant createdAt;
+    private final Instant updatedAt;
+    private final Long version;
+
+    private final Long sinistreId;
+    private final TypeSinistre sinistreTypeSinistre;
+    private final Instant sinistreDateDeclaration;
+    private final String sinistreDescription;
+    private final Long sinistreContratAssuranceId;
+    private final StatutSinistre sinistreStatut;
+    private final Long sinistreCreatedByUserId;
+}
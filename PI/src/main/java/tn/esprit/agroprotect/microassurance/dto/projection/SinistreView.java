@@ -0,0 +1,48 @@
+package tn.esprit.agroprotect.microassurance.dto.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Projection de lecture d'un sinistre avec le résumé de son indemnisation
+ * (colonnes {@code indemnisation*}, nulles en l'absence d'indemnisation).
+ * Construite en une seule requête, voir SinistreProjections.
+ */
+@Getter
+@AllArgsConstructor
+public class SinistreView {
+
+    private final Long id;
+    private final TypeSinistre typeSinistre;
+    private final Instant dateDeclaration;
+    private final String description;
+    private final Long contratAssuranceId;
+    private final StatutSinistre statut;
+    private final String motifRefus;
+    private final BigDecimal tauxRemboursement;
+    private final BigDecimal estimationPerte;
+    private final Long createdByUserId;
+    private final Double latitude;
+    private final Double longitude;
+    private final String geohash;
+    private final Long doublonPresumeId;
+    private final Long expertAssigneId;
+    private final Instant assignationExpiration;
+    private final Boolean hasIndemnisation;
+    private final Instant createdAt;
+    private final Instant updatedAt;
+    private final Long version;
+
+    private final Long indemnisationId;
+    private final BigDecimal indemnisationMontant;
+    private final Instant indemnisationDateCreation;
+    private final Instant indemnisationDatePaiement;
+    private final StatutIndemnisation indemnisationStatut;
+    private final String indemnisationPaymentReference;
+}
@@ -0,0 +1,50 @@
+package tn.esprit.agroprotect.microassurance.dto.request;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * DTO pour appliquer une transition à un lot de sinistres.
+ * Les sinistres sont désignés soit par {@code ids}, soit par des critères de
+ * recherche (seuls ceux au statut requis par la transition sont alors retenus).
+ */
+@Data
+public class BulkSinistreTransitionRequest {
+
+    @Size(max = 10000, message = "Un lot ne peut pas dépasser 10000 sinistres")
+    private List<Long> ids;
+
+    // Critères, utilisés lorsque ids est vide
+    private TypeSinistre typeSinistre;
+    private Long contratAssuranceId;
+    private Long createdByUserId;
+    private Instant dateFrom;
+    private Instant dateTo;
+
+    // Validation : taux appliqué à tous les sinistres du lot (optionnel)
+    @DecimalMin(value = "0.0", message = "Le taux de remboursement doit être positif")
+    @DecimalMax(value = "1.0", message = "Le taux de remboursement ne peut pas dépasser 100%")
+    @Digits(integer = 1, fraction = 2, message = "Le taux de remboursement doit être un pourcentage avec au maximum 2 décimales")
+    private BigDecimal tauxRemboursement;
+
+    // Refus : motif obligatoire
+    @Size(max = 500, message = "Le motif de refus ne peut pas dépasser 500 caractères")
+    private String motifRefus;
+
+    public boolean hasIds() {
+        return ids != null && !ids.isEmpty();
+    }
+
+    public boolean hasCriteria() {
+        return typeSinistre != null || contratAssuranceId != null || createdByUserId != null
+                || dateFrom != null || dateTo != null;
+    }
+}
@@ -0,0 +1,16 @@
+package tn.esprit.agroprotect.microassurance.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * DTO pour lancer une campagne de paiement des indemnisations en attente
+ */
+@Data
+public class CreatePaymentRunRequest {
+
+    @Min(value = 1, message = "Une campagne compte au moins une partition")
+    @Max(value = 64, message = "Une campagne ne peut pas dépasser 64 partitions")
+    private Integer partitions;
+}
@@ -25,4 +25,17 @@ public class CreateSinistreRequest {
     @DecimalMin(value = "0.0", inclusive = false, message = "L'estimation de perte doit être positive")
     @Digits(integer = 13, fraction = 2, message = "L'estimation de perte doit avoir au maximum 13 chiffres avant la virgule et 2 après")
     private BigDecimal estimationPerte;
-}
\ No newline at end of file
+
+    @DecimalMin(value = "-90.0", message = "La latitude doit être comprise entre -90 et 90")
+    @DecimalMax(value = "90.0", message = "La latitude doit être comprise entre -90 et 90")
+    private Double latitude;
+
+    @DecimalMin(value = "-180.0", message = "La longitude doit être comprise entre -180 et 180")
+    @DecimalMax(value = "180.0", message = "La longitude doit être comprise entre -180 et 180")
+    private Double longitude;
+
+    @AssertTrue(message = "La latitude et la longitude doivent être renseignées ensemble")
+    private boolean isLocalisationComplete() {
+        return (latitude == null) == (longitude == null);
+    }
+}
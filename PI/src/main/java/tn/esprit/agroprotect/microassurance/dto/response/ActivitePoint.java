@@ -0,0 +1,26 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Point d'une série d'activité : sinistres d'un type passés à un statut pendant l'intervalle
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivitePoint {
+
+    private Instant debut;
+    private TypeSinistre typeSinistre;
+    private StatutSinistre statut;
+    private long nbSinistres;
+    // Estimation de perte cumulée des sinistres comptés
+    private BigDecimal montant;
+}
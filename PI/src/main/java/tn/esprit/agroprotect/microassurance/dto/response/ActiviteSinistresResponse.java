@@ -0,0 +1,21 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.Granularite;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO de réponse de la série temporelle d'activité des sinistres.
+ * Seuls les intervalles non vides figurent dans {@code points}, triés par début, type et statut.
+ */
+@Data
+public class ActiviteSinistresResponse {
+
+    private Granularite granularite;
+    private Instant from;
+    private Instant to;
+    private List<ActivitePoint> points = new ArrayList<>();
+}
@@ -0,0 +1,19 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.esprit.agroprotect.microassurance.enums.ResultatTransition;
+
+/**
+ * Résultat d'une transition de masse pour un sinistre
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransitionItemResult {
+
+    private Long id;
+    private ResultatTransition resultat;
+    private String message;
+}
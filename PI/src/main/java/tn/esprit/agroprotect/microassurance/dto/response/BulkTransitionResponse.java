@@ -0,0 +1,25 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.TransitionSinistre;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO de réponse d'une transition de masse.
+ * En flux NDJSON, une réponse partielle est émise par lot traité
+ * ({@code items} ne contient alors que les résultats du lot), puis une
+ * dernière ligne avec {@code termine = true}.
+ */
+@Data
+public class BulkTransitionResponse {
+
+    private TransitionSinistre transition;
+    private int total;
+    private int traites;
+    private int appliques;
+    private int echecs;
+    private boolean termine;
+    private List<BulkTransitionItemResult> items = new ArrayList<>();
+}
@@ -0,0 +1,27 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Sinistres d'une cellule geohash : nombre, estimation cumulée et barycentre
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeoCluster {
+
+    private String cellule;
+    private long nbSinistres;
+    private BigDecimal estimationPerteTotale;
+    private double latitude;
+    private double longitude;
+    // Emprise de la cellule
+    private double sud;
+    private double ouest;
+    private double nord;
+    private double est;
+}
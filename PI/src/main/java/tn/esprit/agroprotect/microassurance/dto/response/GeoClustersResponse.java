@@ -0,0 +1,17 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO de réponse du regroupement des sinistres d'une zone par cellule geohash.
+ * Seules les cellules contenant des sinistres figurent dans {@code clusters}, triées par cellule.
+ */
+@Data
+public class GeoClustersResponse {
+
+    private int precision;
+    private List<GeoCluster> clusters = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ligne rejetée lors d'un import de sinistres
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowError {
+
+    // Numéro de ligne dans le fichier (l'en-tête CSV est la ligne 1)
+    private long ligne;
+    private String message;
+}
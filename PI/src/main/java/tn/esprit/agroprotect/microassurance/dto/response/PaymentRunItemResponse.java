@@ -0,0 +1,24 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRunItem;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * DTO de réponse d'une ligne de campagne de paiement
+ */
+@Data
+public class PaymentRunItemResponse {
+
+    private Long id;
+    private Long indemnisationId;
+    private Integer partitionNo;
+    private BigDecimal montant;
+    private StatutPaymentRunItem statut;
+    private String idempotencyKey;
+    private String paymentReference;
+    private String errorMessage;
+    private Instant processedAt;
+}
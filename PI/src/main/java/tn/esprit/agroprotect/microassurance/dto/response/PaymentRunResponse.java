@@ -0,0 +1,31 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRun;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * DTO de réponse d'une campagne de paiement, avec son avancement
+ */
+@Data
+public class PaymentRunResponse {
+
+    private Long id;
+    private StatutPaymentRun statut;
+    private Integer partitionCount;
+    private Integer totalItems;
+    private BigDecimal totalAmount;
+    private long paidCount;
+    private BigDecimal paidAmount;
+    private long failedCount;
+    private long pendingCount;
+    private Long createdByUserId;
+    private Instant startedAt;
+    private Instant completedAt;
+
+    // Débit : paiements par seconde depuis le lancement
+    private long elapsedSeconds;
+    private double paidPerSecond;
+}
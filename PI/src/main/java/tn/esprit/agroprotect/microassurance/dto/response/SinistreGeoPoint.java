@@ -0,0 +1,29 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Sinistre localisé, pour l'affichage sur une carte
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SinistreGeoPoint {
+
+    private Long id;
+    private TypeSinistre typeSinistre;
+    private StatutSinistre statut;
+    private Instant dateDeclaration;
+    private BigDecimal estimationPerte;
+    private double latitude;
+    private double longitude;
+    // Distance au centre d'une recherche par rayon, nulle sinon
+    private Double distanceKm;
+}
@@ -0,0 +1,25 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.FormatFichier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO de réponse d'un import de sinistres : totaux et rapport des lignes rejetées.
+ * Le rapport est limité aux premières erreurs ({@code erreursTronquees} l'indique) ;
+ * {@code limiteAtteinte} signale un fichier dont les lignes au-delà de la limite n'ont pas été lues.
+ */
+@Data
+public class SinistreImportResponse {
+
+    private FormatFichier format;
+    private long lignes;
+    private long importes;
+    private long rejetes;
+    private boolean erreursTronquees;
+    private boolean limiteAtteinte;
+    private long dureeMs;
+    private List<ImportRowError> erreurs = new ArrayList<>();
+}
@@ -23,6 +23,13 @@ public class SinistreResponse {
     private BigDecimal tauxRemboursement;
     private BigDecimal estimationPerte;
     private Long createdByUserId;
+    private Double latitude;
+    private Double longitude;
+    private String geohash;
+    private Long doublonPresumeId;
+    private Long expertAssigneId;
+    private Instant assignationExpiration;
+    private Boolean hasIndemnisation;
     private Instant createdAt;
     private Instant updatedAt;
     private Long version;
@@ -0,0 +1,29 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO de réponse des statistiques de sinistres, lues dans les agrégats.
+ * Les totaux portent sur la sélection ; {@code parType} les détaille par type de sinistre
+ * (ses éléments ont {@code typeSinistre} renseigné et {@code parType} vide).
+ */
+@Data
+public class SinistreStatsResponse {
+
+    private TypeSinistre typeSinistre;
+    private long nbSinistres;
+    private long nbDeclares;
+    private long nbEnEvaluation;
+    private long nbValides;
+    private long nbRefuses;
+    private BigDecimal estimationPerteTotale = BigDecimal.ZERO;
+    private long nbIndemnisationsPayees;
+    private BigDecimal montantPaye = BigDecimal.ZERO;
+    private long nbIndemnisationsAnnulees;
+    private List<SinistreStatsResponse> parType = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package tn.esprit.agroprotect.microassurance.dto.response;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO de réponse d'une recherche géographique de sinistres.
+ * {@code tronque} indique que la zone contient plus de sinistres que la limite demandée.
+ */
+@Data
+public class SinistresGeoResponse {
+
+    private List<SinistreGeoPoint> sinistres = new ArrayList<>();
+    private boolean tronque;
+}
@@ -0,0 +1,44 @@
+package tn.esprit.agroprotect.microassurance.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Point de reprise d'un traitement par lots, un par tâche et par partition.
+ * {@code lastId} est le dernier identifiant traité de la passe en cours
+ * (remis à zéro à la fin de chaque passe).
+ */
+@Entity
+@Table(name = "batch_checkpoints")
+@Data
+@NoArgsConstructor
+public class BatchCheckpoint {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(nullable = false)
+    private Long lastId = 0L;
+
+    @Column(nullable = false)
+    private Long processedCount = 0L;
+
+    private Instant passStartedAt;
+
+    private Instant lastPassCompletedAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    public BatchCheckpoint(String name) {
+        this.name = name;
+        this.updatedAt = Instant.now();
+    }
+}
@@ -6,6 +6,7 @@ import lombok.EqualsAndHashCode;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import tn.esprit.agroprotect.common.pagination.CountInvalidationListener;
 import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
 
 import java.math.BigDecimal;
@@ -17,10 +18,10 @@ import java.time.Instant;
 @Entity
 @Table(name = "indemnisations", indexes = {
     @Index(name = "idx_sinistre_id", columnList = "sinistreId", unique = true),
-    @Index(name = "idx_statut_indemnisation", columnList = "statut"),
+    @Index(name = "idx_indemnisation_statut_date", columnList = "statut, dateCreation"),
     @Index(name = "idx_date_creation_indemnisation", columnList = "dateCreation")
 })
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, CountInvalidationListener.class})
 @Data
 @EqualsAndHashCode(callSuper = false)
 public class Indemnisation {
@@ -48,6 +49,8 @@ public class Indemnisation {
     @Column(length = 100)
     private String paymentReference;
 
+    // Clé du paiement par campagne (payrun-<campagne>-<indemnisation>) ; l'en-tête
+    // Idempotency-Key d'un paiement unitaire est conservé dans idempotency_keys
     @Column(length = 50)
     private String idempotencyKey;
 
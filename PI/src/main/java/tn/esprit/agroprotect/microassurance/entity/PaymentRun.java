@@ -0,0 +1,61 @@
+package tn.esprit.agroprotect.microassurance.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRun;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Entité représentant une campagne de paiement : instantané des indemnisations
+ * en attente, réparties en partitions traitées en parallèle
+ */
+@Entity
+@Table(name = "payment_runs", indexes = {
+    @Index(name = "idx_payment_run_statut", columnList = "statut")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class PaymentRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private StatutPaymentRun statut = StatutPaymentRun.EN_COURS;
+
+    @Column(nullable = false)
+    private Integer partitionCount;
+
+    @Column(nullable = false)
+    private Integer totalItems = 0;
+
+    @Column(nullable = false, precision = 17, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private Long createdByUserId;
+
+    private Instant startedAt;
+
+    private Instant completedAt;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @LastModifiedDate
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    @Version
+    private Long version;
+}
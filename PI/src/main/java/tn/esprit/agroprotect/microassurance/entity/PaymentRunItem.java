@@ -0,0 +1,57 @@
+package tn.esprit.agroprotect.microassurance.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRunItem;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Indemnisation retenue dans une campagne de paiement.
+ * Son statut sert de point de reprise : seules les lignes EN_ATTENTE sont (re)traitées.
+ */
+@Entity
+@Table(name = "payment_run_items",
+    uniqueConstraints = @UniqueConstraint(name = "uk_payment_run_item", columnNames = {"paymentRunId", "indemnisationId"}),
+    indexes = {
+        @Index(name = "idx_payment_run_item_partition", columnList = "paymentRunId, partitionNo, statut"),
+        @Index(name = "idx_payment_run_item_indemnisation", columnList = "indemnisationId, statut")
+    })
+@Data
+public class PaymentRunItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long paymentRunId;
+
+    @Column(nullable = false)
+    private Long indemnisationId;
+
+    @Column(nullable = false)
+    private Integer partitionNo;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal montant;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatutPaymentRunItem statut = StatutPaymentRunItem.EN_ATTENTE;
+
+    @Column(nullable = false, length = 50)
+    private String idempotencyKey;
+
+    @Column(length = 100)
+    private String paymentReference;
+
+    @Column(length = 255)
+    private String errorMessage;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant processedAt;
+}
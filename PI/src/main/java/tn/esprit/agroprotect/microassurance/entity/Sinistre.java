@@ -3,10 +3,14 @@ package tn.esprit.agroprotect.microassurance.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import tn.esprit.agroprotect.common.geo.GeoHash;
+import tn.esprit.agroprotect.common.pagination.CountInvalidationListener;
 import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TransitionSinistre;
 import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
 
 import java.math.BigDecimal;
@@ -17,12 +21,19 @@ import java.time.Instant;
  */
 @Entity
 @Table(name = "sinistres", indexes = {
-    @Index(name = "idx_contrat_assurance", columnList = "contratAssuranceId"),
-    @Index(name = "idx_created_by_user", columnList = "createdByUserId"),
-    @Index(name = "idx_statut", columnList = "statut"),
-    @Index(name = "idx_date_declaration", columnList = "dateDeclaration")
+    // Index composites alignés sur les recherches (filtre d'égalité puis tri/plage sur la date)
+    @Index(name = "idx_sinistre_owner_date", columnList = "createdByUserId, dateDeclaration"),
+    @Index(name = "idx_sinistre_statut_date", columnList = "statut, dateDeclaration"),
+    @Index(name = "idx_sinistre_contrat_statut", columnList = "contratAssuranceId, statut"),
+    @Index(name = "idx_date_declaration", columnList = "dateDeclaration"),
+    // Sinistres validés en attente d'indemnisation (IndemnisationGenerationJob)
+    @Index(name = "idx_sinistre_a_indemniser", columnList = "statut, hasIndemnisation"),
+    // Recherches géographiques : plages de préfixes de cellule (voir GeoHash)
+    @Index(name = "idx_sinistre_geohash", columnList = "geohash"),
+    // Réservations d'un expert dans la file d'évaluation
+    @Index(name = "idx_sinistre_expert_assignation", columnList = "expertAssigneId, assignationExpiration")
 })
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, CountInvalidationListener.class})
 @Data
 @EqualsAndHashCode(callSuper = false)
 public class Sinistre {
@@ -60,8 +71,43 @@ public class Sinistre {
     @Column(nullable = false)
     private Long createdByUserId;
 
-    @OneToOne(mappedBy = "sinistre", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    private Indemnisation indemnisation;
+    /**
+     * Localisation facultative (degrés WGS 84), indexée par sa cellule geohash pleine précision
+     */
+    @Column
+    private Double latitude;
+
+    @Column
+    private Double longitude;
+
+    @Column(length = GeoHash.MAX_PRECISION)
+    private String geohash;
+
+    /**
+     * Sinistre antérieur du même utilisateur et du même contrat dont la description est
+     * presque identique, relevé à la déclaration (voir SinistreDoublonIndex)
+     */
+    @Column
+    private Long doublonPresumeId;
+
+    /**
+     * Expert chargé du sinistre : réservé dans la file d'évaluation jusqu'à
+     * {@code assignationExpiration}, ou définitivement (échéance nulle) une fois l'évaluation commencée
+     */
+    @Column
+    private Long expertAssigneId;
+
+    @Column
+    private Instant assignationExpiration;
+
+    /**
+     * Indicateur dénormalisé : une indemnisation référence ce sinistre.
+     * Remplace l'association inverse Indemnisation, que Hibernate chargeait
+     * pour chaque sinistre lu (côté non propriétaire non proxifiable).
+     */
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private Boolean hasIndemnisation = false;
 
     @CreatedDate
     @Column(nullable = false, updatable = false)
@@ -78,31 +124,50 @@ public class Sinistre {
         this.dateDeclaration = Instant.now();
     }
 
+    /**
+     * Localise le sinistre (ou efface sa localisation) et recalcule sa cellule
+     */
+    public void localiser(Double latitude, Double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.geohash = latitude != null && longitude != null
+                ? GeoHash.encode(latitude, longitude, GeoHash.MAX_PRECISION)
+                : null;
+    }
+
+    /**
+     * Vérifie si le sinistre est réservé par un autre expert dans la file d'évaluation
+     */
+    public boolean isReservedByOther(Long expertId, Instant now) {
+        return assignationExpiration != null && assignationExpiration.isAfter(now)
+                && !expertAssigneId.equals(expertId);
+    }
+
     /**
      * Vérifie si le sinistre peut être validé
      */
     public boolean canBeValidated() {
-        return statut == StatutSinistre.EN_EVALUATION;
+        return TransitionSinistre.VALIDATION.isAllowedFrom(statut);
     }
 
     /**
      * Vérifie si le sinistre peut être refusé
      */
     public boolean canBeRefused() {
-        return statut == StatutSinistre.EN_EVALUATION;
+        return TransitionSinistre.REFUS.isAllowedFrom(statut);
     }
 
     /**
      * Vérifie si le sinistre peut passer en évaluation
      */
     public boolean canStartEvaluation() {
-        return statut == StatutSinistre.DECLARE;
+        return TransitionSinistre.MISE_EN_EVALUATION.isAllowedFrom(statut);
     }
 
     /**
      * Vérifie si une indemnisation peut être créée pour ce sinistre
      */
     public boolean canCreateIndemnisation() {
-        return statut == StatutSinistre.VALIDE && indemnisation == null;
+        return statut == StatutSinistre.VALIDE && !Boolean.TRUE.equals(hasIndemnisation);
     }
 }
\ No newline at end of file
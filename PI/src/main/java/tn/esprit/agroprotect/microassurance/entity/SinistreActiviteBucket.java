@@ -0,0 +1,50 @@
+package tn.esprit.agroprotect.microassurance.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.Granularite;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Intervalle de la série temporelle d'activité des sinistres : nombre de sinistres passés
+ * au statut donné pendant l'intervalle, et leur estimation de perte cumulée.
+ * Les intervalles d'une minute sont regroupés en heures puis en jours en vieillissant ;
+ * chaque événement n'est compté que dans un seul intervalle.
+ */
+@Entity
+@Table(name = "sinistre_activite_buckets",
+    uniqueConstraints = @UniqueConstraint(name = "uk_sinistre_activite_bucket",
+            columnNames = {"granularite", "debut", "typeSinistre", "statut"}),
+    indexes = @Index(name = "idx_sinistre_activite_debut", columnList = "debut"))
+@Data
+public class SinistreActiviteBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularite granularite;
+
+    @Column(nullable = false)
+    private Instant debut;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TypeSinistre typeSinistre;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatutSinistre statut;
+
+    @Column(nullable = false)
+    private Long nbEvenements = 0L;
+
+    @Column(nullable = false, precision = 17, scale = 2)
+    private BigDecimal montant = BigDecimal.ZERO;
+}
@@ -0,0 +1,72 @@
+package tn.esprit.agroprotect.microassurance.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Agrégats des sinistres par utilisateur, contrat, type et jour de déclaration (UTC).
+ * Tenus à jour dans la transaction de chaque changement d'état : les compteurs de statut
+ * sont ceux du statut actuel, les montants ceux des indemnisations payées.
+ * {@code contratAssuranceId} vaut 0 pour les sinistres sans contrat.
+ */
+@Entity
+@Table(name = "sinistre_rollups",
+    uniqueConstraints = @UniqueConstraint(name = "uk_sinistre_rollup",
+            columnNames = {"createdByUserId", "contratAssuranceId", "typeSinistre", "jour"}),
+    indexes = {
+        @Index(name = "idx_sinistre_rollup_contrat", columnList = "contratAssuranceId, jour"),
+        @Index(name = "idx_sinistre_rollup_type", columnList = "typeSinistre, jour"),
+        @Index(name = "idx_sinistre_rollup_jour", columnList = "jour")
+    })
+@Data
+public class SinistreRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long createdByUserId;
+
+    @Column(nullable = false)
+    private Long contratAssuranceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TypeSinistre typeSinistre;
+
+    @Column(nullable = false)
+    private LocalDate jour;
+
+    @Column(nullable = false)
+    private Long nbDeclares = 0L;
+
+    @Column(nullable = false)
+    private Long nbEnEvaluation = 0L;
+
+    @Column(nullable = false)
+    private Long nbValides = 0L;
+
+    @Column(nullable = false)
+    private Long nbRefuses = 0L;
+
+    @Column(nullable = false, precision = 17, scale = 2)
+    private BigDecimal estimationPerteTotale = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private Long nbIndemnisationsPayees = 0L;
+
+    @Column(nullable = false, precision = 17, scale = 2)
+    private BigDecimal montantPaye = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private Long nbIndemnisationsAnnulees = 0L;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,19 @@
+package tn.esprit.agroprotect.microassurance.enums;
+
+/**
+ * Formats de fichier des imports et exports en masse
+ */
+public enum FormatFichier {
+    CSV("CSV avec ligne d'en-tête (séparateur virgule ou point-virgule en import)"),
+    NDJSON("Un objet JSON par ligne");
+
+    private final String description;
+
+    FormatFichier(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,47 @@
+package tn.esprit.agroprotect.microassurance.enums;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Granularités des statistiques d'activité, en UTC (semaines ISO, commençant le lundi)
+ */
+public enum Granularite {
+    MINUTE("Minute", Duration.ofMinutes(1)),
+    HOUR("Heure", Duration.ofHours(1)),
+    DAY("Jour", Duration.ofDays(1)),
+    WEEK("Semaine", Duration.ofDays(7));
+
+    private final String description;
+    private final Duration duree;
+
+    Granularite(String description, Duration duree) {
+        this.description = description;
+        this.duree = duree;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Duration getDuree() {
+        return duree;
+    }
+
+    /**
+     * Début de l'intervalle contenant l'instant donné
+     */
+    public Instant truncate(Instant instant) {
+        return switch (this) {
+            case MINUTE -> instant.truncatedTo(ChronoUnit.MINUTES);
+            case HOUR -> instant.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> instant.truncatedTo(ChronoUnit.DAYS);
+            case WEEK -> instant.atOffset(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS)
+                    .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toInstant();
+        };
+    }
+}
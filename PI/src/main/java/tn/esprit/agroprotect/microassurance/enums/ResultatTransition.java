@@ -0,0 +1,21 @@
+package tn.esprit.agroprotect.microassurance.enums;
+
+/**
+ * Résultat d'une transition appliquée à un sinistre dans un traitement de masse
+ */
+public enum ResultatTransition {
+    APPLIQUE("Appliqué"),
+    INTROUVABLE("Sinistre introuvable"),
+    STATUT_INVALIDE("Statut incompatible avec la transition"),
+    CONFLIT("Modifié par un autre utilisateur pendant le traitement");
+
+    private final String description;
+
+    ResultatTransition(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,21 @@
+package tn.esprit.agroprotect.microassurance.enums;
+
+/**
+ * Statut d'une campagne de paiement
+ */
+public enum StatutPaymentRun {
+    EN_COURS("En cours"),
+    TERMINE("Terminé"),
+    TERMINE_AVEC_ECHECS("Terminé avec des échecs"),
+    INTERROMPU("Interrompu, à reprendre");
+
+    private final String description;
+
+    StatutPaymentRun(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
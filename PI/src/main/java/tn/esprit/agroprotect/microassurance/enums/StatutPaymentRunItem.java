@@ -0,0 +1,20 @@
+package tn.esprit.agroprotect.microassurance.enums;
+
+/**
+ * Statut d'une indemnisation dans une campagne de paiement
+ */
+public enum StatutPaymentRunItem {
+    EN_ATTENTE("En attente"),
+    PAYE("Payé"),
+    ECHEC("Échec");
+
+    private final String description;
+
+    StatutPaymentRunItem(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
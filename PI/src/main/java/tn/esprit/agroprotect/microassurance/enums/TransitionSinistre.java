@@ -0,0 +1,51 @@
+package tn.esprit.agroprotect.microassurance.enums;
+
+/**
+ * Transition de workflow d'un sinistre, avec le statut requis et le statut obtenu
+ */
+public enum TransitionSinistre {
+    MISE_EN_EVALUATION("start-evaluation", StatutSinistre.DECLARE, StatutSinistre.EN_EVALUATION),
+    VALIDATION("validate", StatutSinistre.EN_EVALUATION, StatutSinistre.VALIDE),
+    REFUS("refuse", StatutSinistre.EN_EVALUATION, StatutSinistre.REFUSE);
+
+    private final String action;
+    private final StatutSinistre statutSource;
+    private final StatutSinistre statutCible;
+
+    TransitionSinistre(String action, StatutSinistre statutSource, StatutSinistre statutCible) {
+        this.action = action;
+        this.statutSource = statutSource;
+        this.statutCible = statutCible;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public StatutSinistre getStatutSource() {
+        return statutSource;
+    }
+
+    public StatutSinistre getStatutCible() {
+        return statutCible;
+    }
+
+    /**
+     * Vérifie si la transition est permise depuis le statut donné
+     */
+    public boolean isAllowedFrom(StatutSinistre statut) {
+        return statut == statutSource;
+    }
+
+    /**
+     * Retrouve la transition à partir de son action d'URL (ex. "validate"), null si inconnue
+     */
+    public static TransitionSinistre fromAction(String action) {
+        for (TransitionSinistre transition : values()) {
+            if (transition.action.equals(action)) {
+                return transition;
+            }
+        }
+        return null;
+    }
+}
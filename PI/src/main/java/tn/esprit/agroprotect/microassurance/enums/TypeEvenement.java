@@ -0,0 +1,36 @@
+package tn.esprit.agroprotect.microassurance.enums;
+
+/**
+ * Événements du cycle de vie des sinistres et indemnisations, publiés par l'outbox
+ */
+public enum TypeEvenement {
+    SINISTRE_DECLARE("Sinistre déclaré"),
+    SINISTRE_EN_EVALUATION("Évaluation du sinistre commencée"),
+    SINISTRE_VALIDE("Sinistre validé"),
+    SINISTRE_REFUSE("Sinistre refusé"),
+    INDEMNISATION_CREEE("Indemnisation créée"),
+    INDEMNISATION_PAYEE("Indemnisation payée"),
+    INDEMNISATION_ANNULEE("Indemnisation annulée");
+
+    private final String description;
+
+    TypeEvenement(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Événement d'un sinistre passé au statut donné
+     */
+    public static TypeEvenement pour(StatutSinistre statut) {
+        return switch (statut) {
+            case DECLARE -> SINISTRE_DECLARE;
+            case EN_EVALUATION -> SINISTRE_EN_EVALUATION;
+            case VALIDE -> SINISTRE_VALIDE;
+            case REFUSE -> SINISTRE_REFUSE;
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package tn.esprit.agroprotect.microassurance.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tn.esprit.agroprotect.microassurance.entity.BatchCheckpoint;
+
+import java.util.Optional;
+
+/**
+ * Repository pour les points de reprise des traitements par lots
+ */
+@Repository
+public interface BatchCheckpointRepository extends JpaRepository<BatchCheckpoint, String> {
+
+    /**
+     * Lit un point de reprise en le verrouillant jusqu'à la fin de la transaction
+     * (une seule instance traite une partition à la fois)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM BatchCheckpoint c WHERE c.name = :name")
+    Optional<BatchCheckpoint> findForUpdate(@Param("name") String name);
+}
@@ -0,0 +1,41 @@
+package tn.esprit.agroprotect.microassurance.repository;
+
+import jakarta.persistence.criteria.Path;
+import tn.esprit.agroprotect.common.pagination.SliceQuery;
+import tn.esprit.agroprotect.microassurance.dto.projection.IndemnisationView;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+
+/**
+ * Projections de lecture des indemnisations.
+ * Le sinistre est lu par la même jointure que les filtres sur le propriétaire,
+ * sans initialiser l'association paresseuse.
+ */
+public final class IndemnisationProjections {
+
+    private IndemnisationProjections() {
+    }
+
+    public static SliceQuery.Projection<Indemnisation, IndemnisationView> view() {
+        return (root, cb) -> {
+            Path<Sinistre> sinistre = root.get("sinistre");
+            return cb.construct(IndemnisationView.class,
+                    root.get("id"),
+                    root.get("montant"),
+                    root.get("dateCreation"),
+                    root.get("datePaiement"),
+                    root.get("statut"),
+                    root.get("paymentReference"),
+                    root.get("createdAt"),
+                    root.get("updatedAt"),
+                    root.get("version"),
+                    sinistre.get("id"),
+                    sinistre.get("typeSinistre"),
+                    sinistre.get("dateDeclaration"),
+                    sinistre.get("description"),
+                    sinistre.get("contratAssuranceId"),
+                    sinistre.get("statut"),
+                    sinistre.get("createdByUserId"));
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package tn.esprit.agroprotect.microassurance.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
+
+import java.time.Instant;
+
+/**
+ * Spécifications de recherche des indemnisations.
+ * Seuls les filtres renseignés produisent un prédicat.
+ */
+public final class IndemnisationSpecifications {
+
+    private IndemnisationSpecifications() {
+    }
+
+    public static Specification<Indemnisation> hasId(Long id) {
+        return (root, query, cb) -> cb.equal(root.get("id"), id);
+    }
+
+    public static Specification<Indemnisation> withFilters(
+            StatutIndemnisation statut,
+            Long sinistreId,
+            Long createdByUserId,
+            Instant dateFrom,
+            Instant dateTo) {
+        return Specification.allOf(
+                statut == null ? null : (root, query, cb) -> cb.equal(root.get("statut"), statut),
+                sinistreId == null ? null
+                        : (root, query, cb) -> cb.equal(root.get("sinistre").get("id"), sinistreId),
+                createdByUserId == null ? null
+                        : (root, query, cb) -> cb.equal(root.get("sinistre").get("createdByUserId"), createdByUserId),
+                dateFrom == null ? null
+                        : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dateCreation"), dateFrom),
+                dateTo == null ? null
+                        : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("dateCreation"), dateTo));
+    }
+}
@@ -0,0 +1,48 @@
+package tn.esprit.agroprotect.microassurance.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tn.esprit.agroprotect.microassurance.entity.PaymentRunItem;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRunItem;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository pour les lignes des campagnes de paiement
+ */
+@Repository
+public interface PaymentRunItemRepository extends JpaRepository<PaymentRunItem, Long> {
+
+    /**
+     * Lignes d'une campagne par statut (ex. échecs à examiner)
+     */
+    Page<PaymentRunItem> findByPaymentRunIdAndStatut(Long paymentRunId, StatutPaymentRunItem statut, Pageable pageable);
+
+    /**
+     * Lignes encore à traiter d'une campagne, toutes partitions confondues
+     */
+    @Query("SELECT DISTINCT p.partitionNo FROM PaymentRunItem p " +
+           "WHERE p.paymentRunId = :runId AND p.statut = 'EN_ATTENTE'")
+    List<Integer> findPendingPartitions(@Param("runId") Long runId);
+
+    /**
+     * Agrégats d'avancement d'une campagne, par statut de ligne
+     */
+    @Query("SELECT p.statut AS statut, COUNT(p) AS itemCount, COALESCE(SUM(p.montant), 0) AS amount, " +
+           "MAX(p.processedAt) AS lastProcessedAt " +
+           "FROM PaymentRunItem p WHERE p.paymentRunId = :runId GROUP BY p.statut")
+    List<StatutTotals> summarize(@Param("runId") Long runId);
+
+    interface StatutTotals {
+        StatutPaymentRunItem getStatut();
+        Long getItemCount();
+        BigDecimal getAmount();
+        Instant getLastProcessedAt();
+    }
+}
@@ -0,0 +1,12 @@
+package tn.esprit.agroprotect.microassurance.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tn.esprit.agroprotect.microassurance.entity.PaymentRun;
+
+/**
+ * Repository pour les campagnes de paiement
+ */
+@Repository
+public interface PaymentRunRepository extends JpaRepository<PaymentRun, Long> {
+}
@@ -0,0 +1,61 @@
+package tn.esprit.agroprotect.microassurance.repository;
+
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.JpaEntityJoin;
+import org.hibernate.query.criteria.JpaRoot;
+import org.hibernate.query.sqm.tree.SqmJoinType;
+import tn.esprit.agroprotect.common.pagination.SliceQuery;
+import tn.esprit.agroprotect.microassurance.dto.projection.SinistreView;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+
+/**
+ * Projections de lecture des sinistres.
+ * L'indemnisation est rattachée par jointure externe sur le côté propriétaire
+ * ({@code Indemnisation.sinistre}) : une page de sinistres coûte une seule requête.
+ */
+public final class SinistreProjections {
+
+    private SinistreProjections() {
+    }
+
+    public static SliceQuery.Projection<Sinistre, SinistreView> view() {
+        return (root, cb) -> {
+            JpaEntityJoin<Indemnisation> indemnisation = joinIndemnisation(root);
+            indemnisation.on(cb.equal(indemnisation.get("sinistre"), root));
+            return cb.construct(SinistreView.class,
+                    root.get("id"),
+                    root.get("typeSinistre"),
+                    root.get("dateDeclaration"),
+                    root.get("description"),
+                    root.get("contratAssuranceId"),
+                    root.get("statut"),
+                    root.get("motifRefus"),
+                    root.get("tauxRemboursement"),
+                    root.get("estimationPerte"),
+                    root.get("createdByUserId"),
+                    root.get("latitude"),
+                    root.get("longitude"),
+                    root.get("geohash"),
+                    root.get("doublonPresumeId"),
+                    root.get("expertAssigneId"),
+                    root.get("assignationExpiration"),
+                    root.get("hasIndemnisation"),
+                    root.get("createdAt"),
+                    root.get("updatedAt"),
+                    root.get("version"),
+                    indemnisation.get("id"),
+                    indemnisation.get("montant"),
+                    indemnisation.get("dateCreation"),
+                    indemnisation.get("datePaiement"),
+                    indemnisation.get("statut"),
+                    indemnisation.get("paymentReference"));
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JpaEntityJoin<Indemnisation> joinIndemnisation(Root<Sinistre> root) {
+        // Jointure d'entité sans association côté Sinistre (extension Hibernate)
+        return ((JpaRoot<Sinistre>) root).join(Indemnisation.class, SqmJoinType.LEFT);
+    }
+}
@@ -0,0 +1,12 @@
+package tn.esprit.agroprotect.microassurance.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tn.esprit.agroprotect.microassurance.entity.SinistreRollup;
+
+/**
+ * Repository pour les agrégats de sinistres
+ */
+@Repository
+public interface SinistreRollupRepository extends JpaRepository<SinistreRollup, Long> {
+}
@@ -0,0 +1,68 @@
+package tn.esprit.agroprotect.microassurance.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Spécifications de recherche des sinistres.
+ * Seuls les filtres renseignés produisent un prédicat, contrairement aux
+ * clauses {@code (:x IS NULL OR ...)} qui empêchent l'usage des index.
+ */
+public final class SinistreSpecifications {
+
+    private SinistreSpecifications() {
+    }
+
+    public static Specification<Sinistre> hasId(Long id) {
+        return (root, query, cb) -> cb.equal(root.get("id"), id);
+    }
+
+    public static Specification<Sinistre> hasIdIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    /**
+     * Sinistres déclarés réservés par l'expert, réservation en cours à {@code now}
+     */
+    public static Specification<Sinistre> reservedBy(Long expertId, Instant now) {
+        return (root, query, cb) -> cb.and(
+                cb.equal(root.get("expertAssigneId"), expertId),
+                cb.equal(root.get("statut"), StatutSinistre.DECLARE),
+                cb.greaterThan(root.get("assignationExpiration"), now));
+    }
+
+    public static Specification<Sinistre> withFilters(
+            StatutSinistre statut,
+            TypeSinistre typeSinistre,
+            Long contratAssuranceId,
+            Long createdByUserId,
+            Instant dateFrom,
+            Instant dateTo) {
+        return Specification.allOf(
+                equal("statut", statut),
+                equal("typeSinistre", typeSinistre),
+                equal("contratAssuranceId", contratAssuranceId),
+                equal("createdByUserId", createdByUserId),
+                declaredFrom(dateFrom),
+                declaredTo(dateTo));
+    }
+
+    private static Specification<Sinistre> equal(String attribute, Object value) {
+        return value == null ? null : (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    private static Specification<Sinistre> declaredFrom(Instant dateFrom) {
+        return dateFrom == null ? null
+                : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dateDeclaration"), dateFrom);
+    }
+
+    private static Specification<Sinistre> declaredTo(Instant dateTo) {
+        return dateTo == null ? null
+                : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("dateDeclaration"), dateTo);
+    }
+}
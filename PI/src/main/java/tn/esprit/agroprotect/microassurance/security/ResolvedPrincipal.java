@@ -0,0 +1,117 @@
+package tn.esprit.agroprotect.microassurance.security;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Principal résolu une seule fois par requête : ID utilisateur, UUID,
+ * masque de rôles et capacités précalculées.
+ * Les vérifications d'autorisation se réduisent à des tests de bits.
+ */
+public final class ResolvedPrincipal {
+
+    public static final int ROLE_ADMIN = 1;
+    public static final int ROLE_EXPERT = 1 << 1;
+    public static final int ROLE_AGRICULTEUR = 1 << 2;
+    public static final int ROLE_FARMER = 1 << 3;
+    public static final int ROLE_INSURER = 1 << 4;
+    public static final int ROLE_INVESTOR = 1 << 5;
+    public static final int ROLE_WORKER = 1 << 6;
+    public static final int ROLE_USER = 1 << 7;
+
+    private static final Map<String, Integer> ROLE_BITS = Map.of(
+            "ADMIN", ROLE_ADMIN,
+            "EXPERT", ROLE_EXPERT,
+            "AGRICULTEUR", ROLE_AGRICULTEUR,
+            "FARMER", ROLE_FARMER,
+            "INSURER", ROLE_INSURER,
+            "INVESTOR", ROLE_INVESTOR,
+            "WORKER", ROLE_WORKER,
+            "USER", ROLE_USER);
+
+    private static final int CAN_VIEW_ALL_SINISTRES = ROLE_ADMIN | ROLE_EXPERT;
+    private static final int CAN_MODIFY_SINISTRE_STATUS = ROLE_ADMIN | ROLE_EXPERT;
+    private static final int CAN_IMPORT_SINISTRES = ROLE_ADMIN | ROLE_AGRICULTEUR | ROLE_FARMER;
+    private static final int CAN_CREATE_INDEMNISATION = ROLE_ADMIN;
+    private static final int CAN_PROCESS_PAYMENTS = ROLE_ADMIN;
+
+    private final Long userId;
+    private final String userUuid;
+    private final int roleMask;
+
+    private ResolvedPrincipal(Long userId, String userUuid, int roleMask) {
+        this.userId = userId;
+        this.userUuid = userUuid;
+        this.roleMask = roleMask;
+    }
+
+    /**
+     * Construit le principal à partir des noms de rôles (avec ou sans préfixe ROLE_).
+     * Les rôles inconnus du module sont ignorés.
+     */
+    public static ResolvedPrincipal of(Long userId, String userUuid, Collection<String> roleNames) {
+        int mask = 0;
+        for (String roleName : roleNames) {
+            String name = roleName.startsWith("ROLE_") ? roleName.substring(5) : roleName;
+            mask |= ROLE_BITS.getOrDefault(name, 0);
+        }
+        return new ResolvedPrincipal(userId, userUuid, mask);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUserUuid() {
+        return userUuid;
+    }
+
+    public int getRoleMask() {
+        return roleMask;
+    }
+
+    public boolean hasRole(String role) {
+        Integer bit = ROLE_BITS.get(role);
+        return bit != null && (roleMask & bit) != 0;
+    }
+
+    public boolean isAdmin() {
+        return (roleMask & ROLE_ADMIN) != 0;
+    }
+
+    public boolean isExpert() {
+        return (roleMask & ROLE_EXPERT) != 0;
+    }
+
+    public boolean isAgriculteur() {
+        return (roleMask & ROLE_AGRICULTEUR) != 0;
+    }
+
+    public boolean canViewAllSinistres() {
+        return (roleMask & CAN_VIEW_ALL_SINISTRES) != 0;
+    }
+
+    public boolean canModifySinistreStatus() {
+        return (roleMask & CAN_MODIFY_SINISTRE_STATUS) != 0;
+    }
+
+    public boolean canImportSinistres() {
+        return (roleMask & CAN_IMPORT_SINISTRES) != 0;
+    }
+
+    public boolean canCreateIndemnisation() {
+        return (roleMask & CAN_CREATE_INDEMNISATION) != 0;
+    }
+
+    public boolean canProcessPayments() {
+        return (roleMask & CAN_PROCESS_PAYMENTS) != 0;
+    }
+
+    public boolean isOwnerOf(Long createdByUserId) {
+        return userId.equals(createdByUserId);
+    }
+
+    public boolean canViewSinistre(Long createdByUserId) {
+        return canViewAllSinistres() || isOwnerOf(createdByUserId);
+    }
+}
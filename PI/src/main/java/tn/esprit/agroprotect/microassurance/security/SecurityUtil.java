@@ -6,134 +6,154 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
- * Utilitaire pour extraire les informations de sécurité du contexte
+ * Utilitaire pour extraire les informations de sécurité du contexte.
+ * Le principal est résolu une seule fois par requête puis conservé comme
+ * attribut de la requête ; les méthodes de vérification lisent ce snapshot.
  */
 @Component
 @RequiredArgsConstructor
 public class SecurityUtil {
 
+    private static final String PRINCIPAL_ATTRIBUTE = ResolvedPrincipal.class.getName();
+
     private final UserLookupService userLookupService;
 
     /**
-     * Récupère l'ID de l'utilisateur depuis le token JWT
-     * Extracts UUID from JWT subject claim and resolves it to a database user ID
+     * Récupère le principal de la requête courante, résolu au premier appel.
+     * Hors requête HTTP (tâches planifiées...), le principal est résolu à chaque appel.
      */
-    public Long getCurrentUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        // If no authentication (testing), return a test user ID
-        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
-            return 1L;  // TEMPORARY: Test user ID
+    public ResolvedPrincipal getCurrentPrincipal() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return resolvePrincipal();
         }
-        
-        // Get user UUID from 'sub' claim (subject)
-        String userUuid = jwt.getSubject();
-        
-        if (userUuid == null || userUuid.isEmpty()) {
-            return 1L;  // TEMPORARY: Fallback test user ID
+
+        ResolvedPrincipal principal = (ResolvedPrincipal) attributes.getAttribute(
+                PRINCIPAL_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (principal == null) {
+            principal = resolvePrincipal();
+            attributes.setAttribute(PRINCIPAL_ATTRIBUTE, principal, RequestAttributes.SCOPE_REQUEST);
         }
-        
-        // Use UserLookupService to resolve UUID to database ID
-        return userLookupService.getUserIdByUuid(userUuid);
+        return principal;
     }
 
     /**
-     * Récupère l'UUID de l'utilisateur depuis le token JWT
+     * Récupère l'ID de l'utilisateur depuis le token JWT
+     * Extracts UUID from JWT subject claim and resolves it to a database user ID
      */
-    public String getCurrentUserUuid() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
-            return null;
-        }
-        
-        return jwt.getSubject();
+    public Long getCurrentUserId() {
+        return getCurrentPrincipal().getUserId();
     }
 
     /**
-     * Récupère les rôles de l'utilisateur depuis le token JWT
+     * Récupère l'UUID de l'utilisateur depuis le token JWT
      */
-    public Set<String> getCurrentUserRoles() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        return authentication.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .map(role -> role.replace("ROLE_", ""))
-                .collect(Collectors.toSet());
+    public String getCurrentUserUuid() {
+        return getCurrentPrincipal().getUserUuid();
     }
 
     /**
      * Vérifie si l'utilisateur actuel a un rôle spécifique
      */
     public boolean hasRole(String role) {
-        return getCurrentUserRoles().contains(role);
+        return getCurrentPrincipal().hasRole(role);
     }
 
     /**
      * Vérifie si l'utilisateur actuel est un administrateur
      */
     public boolean isAdmin() {
-        return hasRole("ADMIN");
+        return getCurrentPrincipal().isAdmin();
     }
 
     /**
      * Vérifie si l'utilisateur actuel est un expert
      */
     public boolean isExpert() {
-        return hasRole("EXPERT");
+        return getCurrentPrincipal().isExpert();
     }
 
     /**
      * Vérifie si l'utilisateur actuel est un agriculteur
      */
     public boolean isAgriculteur() {
-        return hasRole("AGRICULTEUR");
+        return getCurrentPrincipal().isAgriculteur();
     }
 
     /**
      * Vérifie si l'utilisateur actuel peut voir tous les sinistres
      */
     public boolean canViewAllSinistres() {
-        return isAdmin() || isExpert();
+        return getCurrentPrincipal().canViewAllSinistres();
     }
 
     /**
      * Vérifie si l'utilisateur actuel peut modifier le statut des sinistres
      */
     public boolean canModifySinistreStatus() {
-        return isAdmin() || isExpert();
+        return getCurrentPrincipal().canModifySinistreStatus();
     }
 
     /**
      * Vérifie si l'utilisateur actuel peut créer des indemnisations
      */
     public boolean canCreateIndemnisation() {
-        return isAdmin();
+        return getCurrentPrincipal().canCreateIndemnisation();
     }
 
     /**
      * Vérifie si l'utilisateur actuel peut effectuer des paiements
      */
     public boolean canProcessPayments() {
-        return isAdmin();
+        return getCurrentPrincipal().canProcessPayments();
     }
 
     /**
      * Vérifie si l'utilisateur actuel est le propriétaire d'un sinistre
      */
     public boolean isOwnerOf(Long createdByUserId) {
-        return getCurrentUserId().equals(createdByUserId);
+        return getCurrentPrincipal().isOwnerOf(createdByUserId);
     }
 
     /**
      * Vérifie si l'utilisateur actuel peut voir un sinistre spécifique
      */
     public boolean canViewSinistre(Long createdByUserId) {
-        return canViewAllSinistres() || isOwnerOf(createdByUserId);
+        return getCurrentPrincipal().canViewSinistre(createdByUserId);
+    }
+
+    private ResolvedPrincipal resolvePrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        // If no authentication (testing), use a test user ID
+        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            return ResolvedPrincipal.of(1L, null, authorityNames(authentication));  // TEMPORARY: Test user ID
+        }
+
+        // Get user UUID from 'sub' claim (subject)
+        String userUuid = jwt.getSubject();
+        Long userId = userUuid == null || userUuid.isEmpty()
+                ? 1L  // TEMPORARY: Fallback test user ID
+                : userLookupService.getUserIdByUuid(userUuid);
+
+        return ResolvedPrincipal.of(userId, userUuid, authorityNames(authentication));
+    }
+
+    private List<String> authorityNames(Authentication authentication) {
+        if (authentication == null) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>(authentication.getAuthorities().size());
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            names.add(authority.getAuthority());
+        }
+        return names;
     }
-}
\ No newline at end of file
+}
@@ -1,31 +1,56 @@
 package tn.esprit.agroprotect.microassurance.security;
 
-import lombok.RequiredArgsConstructor;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.agroprotect.identity.repository.UserRepository;
+import tn.esprit.agroprotect.microassurance.exception.ForbiddenException;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 /**
- * Service to lookup user information from the identity microservice
- * This bridges the microassurance service with the identity service
+ * Résolution UUID utilisateur -> ID base de données via le UserRepository d'identity.
+ * Cache borné (taille + TTL) et concurrent ; les chargements concurrents d'une
+ * même clé sont fusionnés (un seul aller-retour base par UUID). Les UUID inconnus
+ * ne sont pas mis en cache : un compte créé ensuite est résolu immédiatement.
+ * La résolution groupée charge tous les UUID absents du cache en une seule requête IN.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class UserLookupService {
 
-    private final RestTemplate restTemplate;
-    
-    // Simple in-memory cache for user UUID -> ID mapping
-    private final Map<String, Long> userIdCache = new HashMap<>();
+    private final UserRepository userRepository;
+    private final LoadingCache<String, Long> userIdCache;
+
+    public UserLookupService(UserRepository userRepository,
+            @Value("${microassurance.user-lookup.max-size:50000}") long maxSize,
+            @Value("${microassurance.user-lookup.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.userIdCache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Long load(String uuid) throws UnknownUserException {
+                        return userRepository.findActiveIdByUuid(uuid).orElseThrow(UnknownUserException::new);
+                    }
+                });
+    }
 
     /**
-     * Get user ID from user UUID by calling the identity service
-     * FIXME: This is a temporary implementation using cached/test values
-     * In production, should implement proper caching with TTL
+     * Récupère l'ID utilisateur à partir de son UUID
      */
     public Long getUserIdByUuid(String userUuid) {
         if (userUuid == null || userUuid.isEmpty()) {
@@ -33,34 +58,87 @@ public class UserLookupService {
             return 1L;  // Test fallback
         }
 
-        // Check cache first
-        if (userIdCache.containsKey(userUuid)) {
+        try {
             return userIdCache.get(userUuid);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnknownUserException) {
+                throw new ForbiddenException("Utilisateur inconnu ou supprimé");
+            }
+            log.error("Failed to lookup user ID for UUID: {}", userUuid, e.getCause());
+            throw new IllegalStateException("Résolution de l'utilisateur impossible", e.getCause());
+        } catch (UncheckedExecutionException e) {
+            log.error("Failed to lookup user ID for UUID: {}", userUuid, e.getCause());
+            throw new IllegalStateException("Résolution de l'utilisateur impossible", e.getCause());
         }
+    }
 
-        try {
-            // In production: call the identity service to resolve UUID to ID
-            // For now, use a simple mapping
-            // TODO: Implement proper call to /v1/admin/users/{uuid}/internal
-            log.debug("User UUID: {} not in cache, would call identity service", userUuid);
-            
-            // Temporary: Generate a simple ID from UUID hash
-            long userId = Math.abs(userUuid.hashCode()) % 1000000L;
-            if (userId == 0) userId = 1L;
-            
-            userIdCache.put(userUuid, userId);
-            return userId;
-            
-        } catch (Exception e) {
-            log.error("Failed to lookup user ID for UUID: {}", userUuid, e);
-            return 1L;  // Fallback
+    /**
+     * Résout plusieurs UUID ; les UUID inconnus ou supprimés sont absents de la map retournée
+     */
+    public Map<String, Long> getUserIdsByUuids(Collection<String> userUuids) {
+        Set<String> keys = new HashSet<>(userUuids);
+        keys.removeIf(uuid -> uuid == null || uuid.isEmpty());
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, Long> result = new HashMap<>(userIdCache.getAllPresent(keys));
+        keys.removeAll(result.keySet());
+        if (!keys.isEmpty()) {
+            Map<String, Long> loaded = loadAll(keys);
+            userIdCache.putAll(loaded);
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    /**
+     * Retire un UUID du cache (suppression de compte...), à la validation de la
+     * transaction en cours (immédiatement sans transaction)
+     */
+    public void evict(String userUuid) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userIdCache.invalidate(userUuid);
+                }
+            });
+        } else {
+            userIdCache.invalidate(userUuid);
         }
     }
 
     /**
-     * Clear the cache (useful for testing)
+     * Vide le cache (utile pour les tests)
      */
     public void clearCache() {
-        userIdCache.clear();
+        userIdCache.invalidateAll();
+    }
+
+    /**
+     * Une seule requête pour tous les UUID absents du cache ; seuls les utilisateurs actifs sont retournés
+     */
+    private Map<String, Long> loadAll(Collection<String> uuids) {
+        Map<String, Long> result = new HashMap<>();
+        try {
+            for (UserRepository.UuidAndId row : userRepository.findActiveIdsByUuidIn(uuids)) {
+                result.put(row.getUuid(), row.getId());
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to lookup user IDs for {} UUIDs", uuids.size(), e);
+            throw new IllegalStateException("Résolution des utilisateurs impossible", e);
+        }
+        return result;
+    }
+
+    /**
+     * UUID sans utilisateur actif ; levée par le chargeur pour ne rien mettre en cache
+     */
+    private static class UnknownUserException extends Exception {
+
+        UnknownUserException() {
+            super(null, null, false, false);
+        }
     }
 }
@@ -0,0 +1,53 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import tn.esprit.agroprotect.common.outbox.OutboxWriter;
+import tn.esprit.agroprotect.microassurance.dto.event.EvenementIndemnisation;
+import tn.esprit.agroprotect.microassurance.dto.event.EvenementSinistre;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeEvenement;
+
+import java.util.List;
+
+/**
+ * Écrit les événements du cycle de vie dans l'outbox, dans la transaction du changement
+ */
+@Service
+@RequiredArgsConstructor
+public class EvenementService {
+
+    public static final String SINISTRE = "Sinistre";
+    public static final String INDEMNISATION = "Indemnisation";
+
+    private final OutboxWriter outboxWriter;
+
+    /**
+     * Déclaration ou changement de statut d'un sinistre ; l'événement suit le nouveau statut
+     */
+    public void sinistre(Sinistre sinistre, StatutSinistre statutPrecedent) {
+        outboxWriter.append(List.of(sinistre(EvenementSinistre.of(sinistre, statutPrecedent))));
+    }
+
+    public void indemnisation(TypeEvenement type, Indemnisation indemnisation) {
+        outboxWriter.append(List.of(indemnisation(type, EvenementIndemnisation.of(indemnisation))));
+    }
+
+    /**
+     * Événements d'un traitement en masse, écrits en un batch
+     */
+    public void publish(List<OutboxWriter.Event> evenements) {
+        outboxWriter.append(evenements);
+    }
+
+    public static OutboxWriter.Event sinistre(EvenementSinistre evenement) {
+        return new OutboxWriter.Event(SINISTRE, evenement.getSinistreId(),
+                TypeEvenement.pour(evenement.getStatut()).name(), evenement);
+    }
+
+    public static OutboxWriter.Event indemnisation(TypeEvenement type, EvenementIndemnisation evenement) {
+        return new OutboxWriter.Event(INDEMNISATION, evenement.getIndemnisationId(), type.name(), evenement);
+    }
+}
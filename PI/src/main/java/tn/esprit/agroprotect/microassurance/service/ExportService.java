@@ -0,0 +1,165 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.agroprotect.common.csv.CsvWriter;
+import tn.esprit.agroprotect.common.pagination.SliceQuery;
+import tn.esprit.agroprotect.microassurance.dto.mapper.IndemnisationMapper;
+import tn.esprit.agroprotect.microassurance.dto.mapper.SinistreMapper;
+import tn.esprit.agroprotect.microassurance.dto.projection.IndemnisationView;
+import tn.esprit.agroprotect.microassurance.dto.projection.SinistreView;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.FormatFichier;
+import tn.esprit.agroprotect.microassurance.repository.IndemnisationProjections;
+import tn.esprit.agroprotect.microassurance.repository.SinistreProjections;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Service d'export des sinistres et indemnisations pour les rapports réglementaires.
+ *
+ * Les lignes sont lues par un curseur en avant seulement (par ordre d'ID, {@code fetch-size}
+ * lignes par aller-retour) et écrites au fil de l'eau dans la réponse : une seule connexion
+ * et une mémoire constante quel que soit le nombre de lignes, sans OFFSET ni COUNT.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] SINISTRE_COLUMNS = {
+            "id", "typeSinistre", "dateDeclaration", "description", "contratAssuranceId", "statut",
+            "motifRefus", "tauxRemboursement", "estimationPerte", "createdByUserId", "latitude", "longitude",
+            "doublonPresumeId", "hasIndemnisation", "indemnisationId", "indemnisationMontant", "indemnisationStatut",
+            "indemnisationDatePaiement", "createdAt", "updatedAt"};
+
+    private static final String[] INDEMNISATION_COLUMNS = {
+            "id", "sinistreId", "montant", "statut", "dateCreation", "datePaiement", "paymentReference",
+            "sinistreTypeSinistre", "sinistreDateDeclaration", "sinistreContratAssuranceId", "sinistreStatut",
+            "sinistreCreatedByUserId", "createdAt", "updatedAt"};
+
+    private final SliceQuery sliceQuery;
+    private final SinistreMapper sinistreMapper;
+    private final IndemnisationMapper indemnisationMapper;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public ExportService(SliceQuery sliceQuery,
+            SinistreMapper sinistreMapper,
+            IndemnisationMapper indemnisationMapper,
+            ObjectMapper objectMapper,
+            @Value("${microassurance.export.fetch-size:1000}") int fetchSize) {
+        this.sliceQuery = sliceQuery;
+        this.sinistreMapper = sinistreMapper;
+        this.indemnisationMapper = indemnisationMapper;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Écrit les sinistres sélectionnés dans le flux ; renvoie le nombre de lignes
+     */
+    @Transactional(readOnly = true)
+    public long exportSinistres(Specification<Sinistre> spec, FormatFichier format, OutputStream out) throws IOException {
+        RowWriter<SinistreView> writer = format == FormatFichier.CSV
+                ? csvWriter(out, SINISTRE_COLUMNS, view -> new Object[]{
+                        view.getId(), view.getTypeSinistre(), view.getDateDeclaration(), view.getDescription(),
+                        view.getContratAssuranceId(), view.getStatut(), view.getMotifRefus(),
+                        view.getTauxRemboursement(), view.getEstimationPerte(), view.getCreatedByUserId(),
+                        view.getLatitude(), view.getLongitude(), view.getDoublonPresumeId(),
+                        view.getHasIndemnisation(), view.getIndemnisationId(), view.getIndemnisationMontant(),
+                        view.getIndemnisationStatut(), view.getIndemnisationDatePaiement(),
+                        view.getCreatedAt(), view.getUpdatedAt()})
+                : ndjsonWriter(out, sinistreMapper::toResponse);
+
+        long count = sliceQuery.scroll(Sinistre.class, spec, Sort.by("id"), fetchSize,
+                SinistreView.class, SinistreProjections.view(), writer::write);
+        writer.flush();
+        log.info("Export {} de {} sinistres", format, count);
+        return count;
+    }
+
+    /**
+     * Écrit les indemnisations sélectionnées dans le flux ; renvoie le nombre de lignes
+     */
+    @Transactional(readOnly = true)
+    public long exportIndemnisations(Specification<Indemnisation> spec, FormatFichier format, OutputStream out)
+            throws IOException {
+        RowWriter<IndemnisationView> writer = format == FormatFichier.CSV
+                ? csvWriter(out, INDEMNISATION_COLUMNS, view -> new Object[]{
+                        view.getId(), view.getSinistreId(), view.getMontant(), view.getStatut(),
+                        view.getDateCreation(), view.getDatePaiement(), view.getPaymentReference(),
+                        view.getSinistreTypeSinistre(), view.getSinistreDateDeclaration(),
+                        view.getSinistreContratAssuranceId(), view.getSinistreStatut(),
+                        view.getSinistreCreatedByUserId(), view.getCreatedAt(), view.getUpdatedAt()})
+                : ndjsonWriter(out, indemnisationMapper::toResponse);
+
+        long count = sliceQuery.scroll(Indemnisation.class, spec, Sort.by("id"), fetchSize,
+                IndemnisationView.class, IndemnisationProjections.view(), writer::write);
+        writer.flush();
+        log.info("Export {} de {} indemnisations", format, count);
+        return count;
+    }
+
+    private <V> RowWriter<V> csvWriter(OutputStream out, String[] columns, Function<V, Object[]> fields)
+            throws IOException {
+        Writer buffered = new OutputStreamWriter(new BufferedOutputStream(out, BUFFER_SIZE), StandardCharsets.UTF_8);
+        CsvWriter csv = new CsvWriter(buffered, ',');
+        csv.write((Object[]) columns);
+        return new RowWriter<>() {
+            @Override
+            public void write(V view) {
+                try {
+                    csv.write(fields.apply(view));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                csv.flush();
+            }
+        };
+    }
+
+    private <V> RowWriter<V> ndjsonWriter(OutputStream out, Function<V, ?> toResponse) {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        return new RowWriter<>() {
+            @Override
+            public void write(V view) {
+                try {
+                    buffered.write(objectMapper.writeValueAsBytes(toResponse.apply(view)));
+                    buffered.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                buffered.flush();
+            }
+        };
+    }
+
+    private interface RowWriter<V> {
+        void write(V view);
+
+        void flush() throws IOException;
+    }
+}
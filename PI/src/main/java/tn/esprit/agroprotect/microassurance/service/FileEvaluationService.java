@@ -0,0 +1,166 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.agroprotect.common.pagination.SliceQuery;
+import tn.esprit.agroprotect.microassurance.dto.mapper.SinistreMapper;
+import tn.esprit.agroprotect.microassurance.dto.projection.SinistreView;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistreResponse;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.exception.BadRequestException;
+import tn.esprit.agroprotect.microassurance.exception.ConflictException;
+import tn.esprit.agroprotect.microassurance.exception.ForbiddenException;
+import tn.esprit.agroprotect.microassurance.repository.SinistreProjections;
+import tn.esprit.agroprotect.microassurance.repository.SinistreSpecifications;
+import tn.esprit.agroprotect.microassurance.security.ResolvedPrincipal;
+import tn.esprit.agroprotect.microassurance.security.SecurityUtil;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File d'évaluation des sinistres déclarés, partagée par les experts.
+ *
+ * Un expert réserve les N sinistres déclarés les plus anciens qui ne sont pas réservés
+ * (ou dont la réservation a expiré) : la sélection {@code FOR UPDATE SKIP LOCKED} saute
+ * les lignes en cours de réservation par un autre expert au lieu de les attendre, si bien
+ * que des réservations simultanées obtiennent des sinistres distincts sans attente ni
+ * conflit de version. La réservation expire après {@code lease-duration} sauf prolongation ;
+ * le sinistre redevient alors disponible. Commencer l'évaluation la rend définitive.
+ */
+@Service
+@Slf4j
+public class FileEvaluationService {
+
+    private static final String RESERVATION_SQL = "UPDATE sinistres SET expert_assigne_id = ?, "
+            + "assignation_expiration = ?, version = version + 1, updated_at = ? WHERE id = ?";
+
+    // Réservation en cours ou expirée mais non reprise : l'expert est toujours assigné
+    private static final String DETENUE = " WHERE id = ? AND statut = 'DECLARE' AND assignation_expiration IS NOT NULL";
+
+    // Réservations en cours listées au plus pour un expert
+    private static final int MAX_RESERVATIONS = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SliceQuery sliceQuery;
+    private final SinistreMapper sinistreMapper;
+    private final SecurityUtil securityUtil;
+    private final Duration leaseDuration;
+    private final int maxClaim;
+
+    public FileEvaluationService(JdbcTemplate jdbcTemplate,
+            SliceQuery sliceQuery,
+            SinistreMapper sinistreMapper,
+            SecurityUtil securityUtil,
+            @Value("${microassurance.evaluation-queue.lease-duration:PT15M}") Duration leaseDuration,
+            @Value("${microassurance.evaluation-queue.max-claim:50}") int maxClaim) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sliceQuery = sliceQuery;
+        this.sinistreMapper = sinistreMapper;
+        this.securityUtil = securityUtil;
+        this.leaseDuration = leaseDuration;
+        this.maxClaim = maxClaim;
+    }
+
+    /**
+     * Réserve pour l'expert courant jusqu'à {@code count} sinistres déclarés disponibles, les plus anciens d'abord
+     */
+    @Transactional
+    public List<SinistreResponse> claim(int count, TypeSinistre typeSinistre) {
+        ResolvedPrincipal principal = checkExpert();
+        if (count < 1 || count > maxClaim) {
+            throw new BadRequestException("Le nombre de sinistres à réserver doit être compris entre 1 et " + maxClaim);
+        }
+        Instant now = Instant.now();
+        Timestamp maintenant = Timestamp.from(now);
+
+        StringBuilder sql = new StringBuilder("SELECT id FROM sinistres WHERE statut = ? "
+                + "AND (assignation_expiration IS NULL OR assignation_expiration <= ?)");
+        List<Object> args = new ArrayList<>(List.of(StatutSinistre.DECLARE.name(), maintenant));
+        if (typeSinistre != null) {
+            sql.append(" AND type_sinistre = ?");
+            args.add(typeSinistre.name());
+        }
+        sql.append(" ORDER BY date_declaration, id LIMIT ? FOR UPDATE SKIP LOCKED");
+        args.add(count);
+        List<Long> ids = jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Timestamp expiration = Timestamp.from(now.plus(leaseDuration));
+        jdbcTemplate.batchUpdate(RESERVATION_SQL, ids.stream()
+                .map(id -> new Object[]{principal.getUserId(), expiration, maintenant, id})
+                .toList());
+        log.info("{} sinistre(s) réservé(s) par l'expert {} jusqu'à {}", ids.size(), principal.getUserId(),
+                expiration.toInstant());
+        return find(SinistreSpecifications.hasIdIn(ids), ids.size());
+    }
+
+    /**
+     * Sinistres réservés par l'expert courant, réservation en cours
+     */
+    @Transactional(readOnly = true)
+    public List<SinistreResponse> getReservations() {
+        ResolvedPrincipal principal = checkExpert();
+        return find(SinistreSpecifications.reservedBy(principal.getUserId(), Instant.now()), MAX_RESERVATIONS);
+    }
+
+    /**
+     * Prolonge la réservation d'un sinistre, tant qu'aucun autre expert ne l'a reprise
+     */
+    @Transactional
+    public SinistreResponse renew(Long id) {
+        ResolvedPrincipal principal = checkExpert();
+        Instant now = Instant.now();
+        int updated = jdbcTemplate.update("UPDATE sinistres SET assignation_expiration = ?, version = version + 1, "
+                        + "updated_at = ?" + DETENUE + " AND expert_assigne_id = ?",
+                Timestamp.from(now.plus(leaseDuration)), Timestamp.from(now), id, principal.getUserId());
+        if (updated == 0) {
+            throw new ConflictException("Le sinistre " + id + " n'est plus réservé par vous");
+        }
+        return find(SinistreSpecifications.hasId(id), 1).get(0);
+    }
+
+    /**
+     * Rend un sinistre à la file ; un administrateur peut libérer la réservation de tout expert
+     */
+    @Transactional
+    public void release(Long id) {
+        ResolvedPrincipal principal = checkExpert();
+        String sql = "UPDATE sinistres SET expert_assigne_id = NULL, assignation_expiration = NULL, "
+                + "version = version + 1, updated_at = ?" + DETENUE;
+        int updated = principal.isAdmin()
+                ? jdbcTemplate.update(sql, Timestamp.from(Instant.now()), id)
+                : jdbcTemplate.update(sql + " AND expert_assigne_id = ?", Timestamp.from(Instant.now()), id,
+                        principal.getUserId());
+        if (updated == 0) {
+            throw new ConflictException("Le sinistre " + id + " n'est plus réservé par vous");
+        }
+        log.info("Réservation du sinistre {} libérée par l'utilisateur {}", id, principal.getUserId());
+    }
+
+    private List<SinistreResponse> find(Specification<Sinistre> spec, int limit) {
+        List<SinistreView> views = sliceQuery.list(Sinistre.class, spec, Sort.by("dateDeclaration", "id"),
+                limit, SinistreView.class, SinistreProjections.view());
+        return views.stream().map(sinistreMapper::toResponse).toList();
+    }
+
+    private ResolvedPrincipal checkExpert() {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canModifySinistreStatus()) {
+            throw new ForbiddenException("Vous n'avez pas l'autorisation d'évaluer les sinistres");
+        }
+        return principal;
+    }
+}
@@ -4,8 +4,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.agroprotect.common.id.SnowflakeIdGenerator;
+import tn.esprit.agroprotect.common.pagination.CountStrategy;
+import tn.esprit.agroprotect.common.pagination.CursorPage;
+import tn.esprit.agroprotect.common.pagination.Keyset;
+import tn.esprit.agroprotect.common.pagination.SliceQuery;
+import tn.esprit.agroprotect.microassurance.dto.projection.IndemnisationView;
 import tn.esprit.agroprotect.microassurance.dto.request.CreateIndemnisationRequest;
 import tn.esprit.agroprotect.microassurance.dto.request.PayIndemnisationRequest;
 import tn.esprit.agroprotect.microassurance.dto.response.IndemnisationResponse;
@@ -13,16 +23,24 @@ import tn.esprit.agroprotect.microassurance.dto.mapper.IndemnisationMapper;
 import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
 import tn.esprit.agroprotect.microassurance.entity.Sinistre;
 import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
+import tn.esprit.agroprotect.microassurance.enums.TypeEvenement;
+import tn.esprit.agroprotect.microassurance.exception.BadRequestException;
 import tn.esprit.agroprotect.microassurance.exception.ConflictException;
 import tn.esprit.agroprotect.microassurance.exception.ForbiddenException;
 import tn.esprit.agroprotect.microassurance.exception.NotFoundException;
+import tn.esprit.agroprotect.microassurance.repository.IndemnisationProjections;
 import tn.esprit.agroprotect.microassurance.repository.IndemnisationRepository;
+import tn.esprit.agroprotect.microassurance.repository.IndemnisationSpecifications;
 import tn.esprit.agroprotect.microassurance.repository.SinistreRepository;
+import tn.esprit.agroprotect.microassurance.security.ResolvedPrincipal;
 import tn.esprit.agroprotect.microassurance.security.SecurityUtil;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.Instant;
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Service pour la gestion des indemnisations
@@ -33,16 +51,27 @@ import java.util.Optional;
 @Transactional
 public class IndemnisationService {
 
+    /**
+     * Champs de tri non nuls utilisables comme clé de pagination par curseur
+     */
+    private static final Set<String> CURSOR_SORT_FIELDS = Set.of("dateCreation", "montant", "createdAt", "id");
+
     private final IndemnisationRepository indemnisationRepository;
     private final SinistreRepository sinistreRepository;
     private final IndemnisationMapper indemnisationMapper;
     private final SecurityUtil securityUtil;
+    private final CountStrategy countStrategy;
+    private final SliceQuery sliceQuery;
+    private final SinistreRollupService sinistreRollupService;
+    private final EvenementService evenementService;
+    private final SnowflakeIdGenerator idGenerator;
 
     /**
      * Crée une nouvelle indemnisation pour un sinistre
      */
     public IndemnisationResponse createIndemnisation(Long sinistreId, CreateIndemnisationRequest request) {
-        if (!securityUtil.canCreateIndemnisation()) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canCreateIndemnisation()) {
             throw new ForbiddenException("Vous n'avez pas l'autorisation de créer des indemnisations");
         }
 
@@ -68,9 +97,11 @@ public class IndemnisationService {
         indemnisation.setStatut(StatutIndemnisation.EN_ATTENTE);
 
         Indemnisation savedIndemnisation = indemnisationRepository.save(indemnisation);
+        sinistre.setHasIndemnisation(true);
+        evenementService.indemnisation(TypeEvenement.INDEMNISATION_CREEE, savedIndemnisation);
 
         log.info("Indemnisation créée avec l'ID {} pour le sinistre {} par l'utilisateur {}", 
-                savedIndemnisation.getId(), sinistreId, securityUtil.getCurrentUserId());
+                savedIndemnisation.getId(), sinistreId, principal.getUserId());
 
         return indemnisationMapper.toResponse(savedIndemnisation);
     }
@@ -80,11 +111,10 @@ public class IndemnisationService {
      */
     @Transactional(readOnly = true)
     public IndemnisationResponse getIndemnisationById(Long id) {
-        Indemnisation indemnisation = findIndemnisationById(id);
+        IndemnisationView indemnisation = findIndemnisationViewById(id);
         
         // Vérification des permissions
-        if (!securityUtil.canViewAllSinistres() && 
-            !securityUtil.isOwnerOf(indemnisation.getSinistre().getCreatedByUserId())) {
+        if (!securityUtil.getCurrentPrincipal().canViewSinistre(indemnisation.getSinistreCreatedByUserId())) {
             throw new ForbiddenException("Vous n'avez pas l'autorisation de voir cette indemnisation");
         }
 
@@ -103,41 +133,88 @@ public class IndemnisationService {
             Instant dateTo,
             Pageable pageable) {
 
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
         Long filterUserId = null;
         
         // Si l'utilisateur n'est pas admin/expert, il ne voit que ses propres indemnisations
-        if (!securityUtil.canViewAllSinistres()) {
-            filterUserId = securityUtil.getCurrentUserId();
+        if (!principal.canViewAllSinistres()) {
+            filterUserId = principal.getUserId();
         } else if (createdByUserId != null) {
             filterUserId = createdByUserId;
         }
 
-        Page<Indemnisation> indemnisations = indemnisationRepository.findWithFilters(
-                statut,
-                sinistreId,
-                filterUserId,
-                dateFrom,
-                dateTo,
-                pageable);
+        Specification<Indemnisation> spec = IndemnisationSpecifications.withFilters(
+                statut, sinistreId, filterUserId, dateFrom, dateTo);
+        Slice<IndemnisationView> indemnisations = sliceQuery.find(Indemnisation.class, spec, pageable,
+                IndemnisationView.class, IndemnisationProjections.view());
+
+        // Total via CountStrategy : dernière page, cache par filtres, comptage exact ou estimation
+        return countStrategy.page(
+                indemnisations.map(indemnisationMapper::toResponse),
+                pageable,
+                Indemnisation.class,
+                spec,
+                Arrays.asList(statut, sinistreId, filterUserId, dateFrom, dateTo));
+    }
 
-        return indemnisations.map(indemnisationMapper::toResponse);
+    /**
+     * Sélection d'un export, avec les mêmes règles de visibilité que la recherche.
+     * Sans transaction : le flux de l'export ouvre la sienne dans un autre thread
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Specification<Indemnisation> exportFilter(
+            StatutIndemnisation statut,
+            Long sinistreId,
+            Long createdByUserId,
+            Instant dateFrom,
+            Instant dateTo) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        Long filterUserId = principal.canViewAllSinistres() ? createdByUserId : principal.getUserId();
+        return IndemnisationSpecifications.withFilters(statut, sinistreId, filterUserId, dateFrom, dateTo);
     }
 
     /**
-     * Effectue le paiement d'une indemnisation
+     * Recherche des indemnisations paginée par curseur (keyset), sans comptage total
      */
-    public IndemnisationResponse payIndemnisation(Long id, PayIndemnisationRequest request, String idempotencyKey) {
-        if (!securityUtil.canProcessPayments()) {
-            throw new ForbiddenException("Vous n'avez pas l'autorisation d'effectuer des paiements");
+    @Transactional(readOnly = true)
+    public CursorPage<IndemnisationResponse> scrollIndemnisations(
+            StatutIndemnisation statut,
+            Long sinistreId,
+            Long createdByUserId,
+            Instant dateFrom,
+            Instant dateTo,
+            String sortField,
+            Sort.Direction direction,
+            String cursor,
+            int size) {
+
+        if (!CURSOR_SORT_FIELDS.contains(sortField)) {
+            throw new BadRequestException("Critère de tri non supporté en pagination par curseur: " + sortField);
         }
 
-        // Vérification de l'idempotence
-        if (idempotencyKey != null) {
-            Optional<Indemnisation> existingIndemnisation = indemnisationRepository.findByIdempotencyKey(idempotencyKey);
-            if (existingIndemnisation.isPresent()) {
-                log.info("Requête idempotente détectée pour la clé: {}", idempotencyKey);
-                return indemnisationMapper.toResponse(existingIndemnisation.get());
-            }
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        Long filterUserId = principal.canViewAllSinistres() ? createdByUserId : principal.getUserId();
+
+        Keyset<Indemnisation> keyset = Keyset.of(sortField, direction);
+        Specification<Indemnisation> spec = IndemnisationSpecifications.withFilters(
+                statut, sinistreId, filterUserId, dateFrom, dateTo)
+                .and(keyset.after(cursor));
+
+        int pageSize = Keyset.clampSize(size);
+        List<IndemnisationView> rows = sliceQuery.list(Indemnisation.class, spec, keyset.sort(), pageSize + 1,
+                IndemnisationView.class, IndemnisationProjections.view());
+
+        return keyset.page(rows, pageSize).map(indemnisationMapper::toResponse);
+    }
+
+    /**
+     * Effectue le paiement d'une indemnisation ; l'en-tête Idempotency-Key est traité par
+     * {@link tn.esprit.agroprotect.common.idempotency.Idempotent} sur le contrôleur
+     */
+    public IndemnisationResponse payIndemnisation(Long id, PayIndemnisationRequest request) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canProcessPayments()) {
+            throw new ForbiddenException("Vous n'avez pas l'autorisation d'effectuer des paiements");
         }
 
         Indemnisation indemnisation = findIndemnisationById(id);
@@ -149,18 +226,17 @@ public class IndemnisationService {
         // Effectuer le paiement
         String paymentRef = request.getPaymentReference();
         if (paymentRef == null || paymentRef.trim().isEmpty()) {
-            paymentRef = generatePaymentReference(indemnisation);
+            paymentRef = generatePaymentReference();
         }
 
         indemnisation.markAsPaid(paymentRef);
-        if (idempotencyKey != null) {
-            indemnisation.setIdempotencyKey(idempotencyKey);
-        }
 
         Indemnisation savedIndemnisation = indemnisationRepository.save(indemnisation);
+        sinistreRollupService.paiement(savedIndemnisation);
+        evenementService.indemnisation(TypeEvenement.INDEMNISATION_PAYEE, savedIndemnisation);
 
         log.info("Indemnisation {} payée par l'utilisateur {} avec la référence: {}", 
-                id, securityUtil.getCurrentUserId(), paymentRef);
+                id, principal.getUserId(), paymentRef);
 
         return indemnisationMapper.toResponse(savedIndemnisation);
     }
@@ -169,7 +245,8 @@ public class IndemnisationService {
      * Annule une indemnisation
      */
     public IndemnisationResponse cancelIndemnisation(Long id) {
-        if (!securityUtil.canProcessPayments()) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canProcessPayments()) {
             throw new ForbiddenException("Vous n'avez pas l'autorisation d'annuler des indemnisations");
         }
 
@@ -181,8 +258,10 @@ public class IndemnisationService {
 
         indemnisation.cancel();
         Indemnisation savedIndemnisation = indemnisationRepository.save(indemnisation);
+        sinistreRollupService.annulation(savedIndemnisation);
+        evenementService.indemnisation(TypeEvenement.INDEMNISATION_ANNULEE, savedIndemnisation);
 
-        log.info("Indemnisation {} annulée par l'utilisateur {}", id, securityUtil.getCurrentUserId());
+        log.info("Indemnisation {} annulée par l'utilisateur {}", id, principal.getUserId());
 
         return indemnisationMapper.toResponse(savedIndemnisation);
     }
@@ -191,21 +270,26 @@ public class IndemnisationService {
      * Calcule le montant d'indemnisation basé sur l'estimation de perte et le taux de remboursement
      */
     private BigDecimal calculateIndemnisationAmount(Sinistre sinistre) {
-        BigDecimal estimationPerte = sinistre.getEstimationPerte();
-        BigDecimal tauxRemboursement = sinistre.getTauxRemboursement();
+        return calculateIndemnisationAmount(sinistre.getEstimationPerte(), sinistre.getTauxRemboursement());
+    }
 
+    /**
+     * Montant d'indemnisation (estimation de perte × taux de remboursement), arrondi au centime ;
+     * null si l'une des deux valeurs manque. Partagé avec la génération planifiée.
+     */
+    public static BigDecimal calculateIndemnisationAmount(BigDecimal estimationPerte, BigDecimal tauxRemboursement) {
         if (estimationPerte != null && tauxRemboursement != null) {
-            return estimationPerte.multiply(tauxRemboursement);
+            return estimationPerte.multiply(tauxRemboursement).setScale(2, RoundingMode.HALF_UP);
         }
 
         return null;
     }
 
     /**
-     * Génère une référence de paiement automatique
+     * Génère une référence de paiement automatique, unique et ordonnée dans le temps
      */
-    private String generatePaymentReference(Indemnisation indemnisation) {
-        return String.format("PAY-%d-%d", indemnisation.getSinistre().getId(), System.currentTimeMillis() % 100000);
+    private String generatePaymentReference() {
+        return idGenerator.nextReference("PAY");
     }
 
     /**
@@ -216,6 +300,17 @@ public class IndemnisationService {
                 .orElseThrow(() -> new NotFoundException("Sinistre non trouvé avec l'ID: " + id));
     }
 
+    /**
+     * Lit la projection d'une indemnisation (avec son sinistre) ou lève une exception
+     */
+    private IndemnisationView findIndemnisationViewById(Long id) {
+        return sliceQuery.list(Indemnisation.class, IndemnisationSpecifications.hasId(id), Sort.unsorted(), 1,
+                        IndemnisationView.class, IndemnisationProjections.view())
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Indemnisation non trouvée avec l'ID: " + id));
+    }
+
     /**
      * Trouve une indemnisation par son ID ou lève une exception
      */
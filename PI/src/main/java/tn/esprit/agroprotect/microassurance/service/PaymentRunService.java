@@ -0,0 +1,374 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.common.id.SnowflakeIdGenerator;
+import tn.esprit.agroprotect.common.outbox.OutboxWriter;
+import tn.esprit.agroprotect.common.pagination.CountStrategy;
+import tn.esprit.agroprotect.microassurance.dto.event.EvenementIndemnisation;
+import tn.esprit.agroprotect.microassurance.dto.mapper.PaymentRunMapper;
+import tn.esprit.agroprotect.microassurance.dto.request.CreatePaymentRunRequest;
+import tn.esprit.agroprotect.microassurance.dto.response.PaymentRunItemResponse;
+import tn.esprit.agroprotect.microassurance.dto.response.PaymentRunResponse;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.entity.PaymentRun;
+import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRun;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRunItem;
+import tn.esprit.agroprotect.microassurance.enums.TypeEvenement;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.exception.ConflictException;
+import tn.esprit.agroprotect.microassurance.exception.ForbiddenException;
+import tn.esprit.agroprotect.microassurance.exception.NotFoundException;
+import tn.esprit.agroprotect.microassurance.repository.PaymentRunItemRepository;
+import tn.esprit.agroprotect.microassurance.repository.PaymentRunRepository;
+import tn.esprit.agroprotect.microassurance.security.ResolvedPrincipal;
+import tn.esprit.agroprotect.microassurance.security.SecurityUtil;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service des campagnes de paiement.
+ *
+ * Une campagne fige la liste des indemnisations EN_ATTENTE (une ligne par indemnisation,
+ * répartie en partitions par {@code MOD(id, partitions)}), puis chaque partition est payée
+ * en parallèle, par lots transactionnels : mise à jour conditionnelle de l'indemnisation
+ * ({@code statut = 'EN_ATTENTE'}) et de la ligne dans la même transaction. Le statut des
+ * lignes sert de point de reprise ; une campagne interrompue se reprend là où elle s'est arrêtée.
+ * La clé d'idempotence de chaque paiement est dérivée de la campagne et de l'indemnisation.
+ *
+ * Hypothèse mono-nœud : {@code activeRuns} n'empêche un double lancement qu'au sein de cette
+ * JVM. La reprise doit être envoyée au nœud qui possède la campagne (ou après son arrêt) :
+ * sur un autre nœud, les mêmes partitions seraient traitées deux fois en parallèle. La mise à
+ * jour conditionnelle évite tout double paiement, pas le travail en double ni la double clôture.
+ */
+@Service
+@Slf4j
+public class PaymentRunService implements DisposableBean {
+
+    private final PaymentRunRepository paymentRunRepository;
+    private final PaymentRunItemRepository paymentRunItemRepository;
+    private final PaymentRunMapper paymentRunMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CountStrategy countStrategy;
+    private final SecurityUtil securityUtil;
+    private final SinistreRollupService sinistreRollupService;
+    private final EvenementService evenementService;
+    private final SnowflakeIdGenerator idGenerator;
+    private final int defaultPartitions;
+    private final int chunkSize;
+    private final ExecutorService executor;
+    private final Set<Long> activeRuns = ConcurrentHashMap.newKeySet();
+
+    public PaymentRunService(PaymentRunRepository paymentRunRepository,
+            PaymentRunItemRepository paymentRunItemRepository,
+            PaymentRunMapper paymentRunMapper,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            CountStrategy countStrategy,
+            SecurityUtil securityUtil,
+            SinistreRollupService sinistreRollupService,
+            EvenementService evenementService,
+            SnowflakeIdGenerator idGenerator,
+            @Value("${microassurance.payment-run.default-partitions:4}") int defaultPartitions,
+            @Value("${microassurance.payment-run.parallelism:4}") int parallelism,
+            @Value("${microassurance.payment-run.chunk-size:200}") int chunkSize) {
+        this.paymentRunRepository = paymentRunRepository;
+        this.paymentRunItemRepository = paymentRunItemRepository;
+        this.paymentRunMapper = paymentRunMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.countStrategy = countStrategy;
+        this.securityUtil = securityUtil;
+        this.sinistreRollupService = sinistreRollupService;
+        this.evenementService = evenementService;
+        this.idGenerator = idGenerator;
+        this.defaultPartitions = defaultPartitions;
+        this.chunkSize = chunkSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "payment-run-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Fige les indemnisations en attente dans une nouvelle campagne et lance son traitement
+     */
+    public PaymentRunResponse createRun(CreatePaymentRunRequest request) {
+        ResolvedPrincipal principal = requirePaymentRights();
+        int partitions = request.getPartitions() != null ? request.getPartitions() : defaultPartitions;
+
+        PaymentRun run = transactionTemplate.execute(status -> snapshot(partitions, principal.getUserId()));
+        log.info("Campagne de paiement {} créée par l'utilisateur {}: {} indemnisation(s), {} partition(s)",
+                run.getId(), principal.getUserId(), run.getTotalItems(), partitions);
+
+        if (run.getTotalItems() == 0) {
+            complete(run.getId(), null);
+        } else {
+            launch(run.getId());
+        }
+        return buildResponse(paymentRunRepository.findById(run.getId()).orElseThrow());
+    }
+
+    /**
+     * Reprend les lignes encore en attente d'une campagne interrompue
+     */
+    public PaymentRunResponse resumeRun(Long id) {
+        requirePaymentRights();
+        PaymentRun run = findRunById(id);
+        if (run.getStatut() == StatutPaymentRun.TERMINE || run.getStatut() == StatutPaymentRun.TERMINE_AVEC_ECHECS) {
+            throw new ConflictException("Cette campagne est terminée. Statut actuel: " + run.getStatut());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            PaymentRun current = findRunById(id);
+            current.setStatut(StatutPaymentRun.EN_COURS);
+            current.setCompletedAt(null);
+        });
+        launch(id);
+        return buildResponse(findRunById(id));
+    }
+
+    /**
+     * Avancement d'une campagne : totaux par statut et débit
+     */
+    public PaymentRunResponse getRun(Long id) {
+        requirePaymentRights();
+        return buildResponse(findRunById(id));
+    }
+
+    /**
+     * Lignes d'une campagne par statut (ex. ECHEC pour examiner les échecs)
+     */
+    public Page<PaymentRunItemResponse> getRunItems(Long id, StatutPaymentRunItem statut, Pageable pageable) {
+        requirePaymentRights();
+        findRunById(id);
+        return paymentRunItemRepository.findByPaymentRunIdAndStatut(id, statut, pageable)
+                .map(paymentRunMapper::toItemResponse);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private PaymentRun snapshot(int partitions, Long userId) {
+        PaymentRun run = new PaymentRun();
+        run.setPartitionCount(partitions);
+        run.setCreatedByUserId(userId);
+        run.setStartedAt(Instant.now());
+        run = paymentRunRepository.saveAndFlush(run);
+
+        // Une indemnisation ne figure que dans une seule campagne non terminée
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update(
+                "INSERT INTO payment_run_items "
+                        + "(payment_run_id, indemnisation_id, partition_no, montant, statut, idempotency_key, created_at) "
+                        + "SELECT ?, i.id, MOD(i.id, ?), i.montant, ?, CONCAT(?, i.id), ? FROM indemnisations i "
+                        + "WHERE i.statut = ? AND NOT EXISTS (SELECT 1 FROM payment_run_items p "
+                        + "WHERE p.indemnisation_id = i.id AND p.statut = ?)",
+                run.getId(), partitions, StatutPaymentRunItem.EN_ATTENTE.name(), idempotencyKeyPrefix(run.getId()), now,
+                StatutIndemnisation.EN_ATTENTE.name(), StatutPaymentRunItem.EN_ATTENTE.name());
+
+        Map<String, Object> totals = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS item_count, COALESCE(SUM(montant), 0) AS amount FROM payment_run_items "
+                        + "WHERE payment_run_id = ?",
+                run.getId());
+        run.setTotalItems(((Number) totals.get("item_count")).intValue());
+        run.setTotalAmount(new BigDecimal(totals.get("amount").toString()));
+        return run;
+    }
+
+    /**
+     * Lance une tâche par partition ayant des lignes en attente ; la dernière clôture la campagne
+     */
+    private void launch(Long runId) {
+        if (!activeRuns.add(runId)) {
+            throw new ConflictException("Cette campagne est déjà en cours de traitement");
+        }
+        List<Integer> partitions = paymentRunItemRepository.findPendingPartitions(runId);
+        CompletableFuture<?>[] tasks = partitions.stream()
+                .map(partition -> CompletableFuture.runAsync(() -> processPartition(runId, partition), executor))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(tasks).whenComplete((ignored, error) -> {
+            try {
+                complete(runId, error);
+            } finally {
+                activeRuns.remove(runId);
+            }
+        });
+    }
+
+    private void processPartition(Long runId, int partition) {
+        int processed;
+        do {
+            processed = transactionTemplate.execute(status -> processChunk(runId, partition));
+            // Écritures JDBC : invalider les totaux mis en cache
+            countStrategy.invalidate(Indemnisation.class);
+        } while (processed == chunkSize);
+    }
+
+    /**
+     * Paie le lot suivant de la partition ; renvoie le nombre de lignes traitées
+     */
+    private int processChunk(Long runId, int partition) {
+        List<PendingItem> items = jdbcTemplate.query(
+                "SELECT p.id, p.indemnisation_id, p.idempotency_key, i.montant, i.sinistre_id, s.created_by_user_id, "
+                        + "s.contrat_assurance_id, s.type_sinistre, s.date_declaration FROM payment_run_items p "
+                        + "JOIN indemnisations i ON i.id = p.indemnisation_id JOIN sinistres s ON s.id = i.sinistre_id "
+                        + "WHERE p.payment_run_id = ? AND p.partition_no = ? AND p.statut = ? ORDER BY p.id LIMIT ?",
+                (rs, rowNum) -> new PendingItem(rs.getLong("id"), rs.getLong("indemnisation_id"),
+                        rs.getString("idempotency_key"), rs.getBigDecimal("montant"), rs.getLong("sinistre_id"),
+                        SinistreRollupService.Cle.of(rs.getLong("created_by_user_id"),
+                                rs.getObject("contrat_assurance_id", Long.class),
+                                TypeSinistre.valueOf(rs.getString("type_sinistre")),
+                                rs.getTimestamp("date_declaration").toInstant())),
+                runId, partition, StatutPaymentRunItem.EN_ATTENTE.name(), chunkSize);
+        if (items.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> payArgs = new ArrayList<>(items.size());
+        String[] references = new String[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            PendingItem item = items.get(i);
+            references[i] = idGenerator.nextReference("PAY");
+            payArgs.add(new Object[]{StatutIndemnisation.PAYE.name(), now, references[i],
+                    item.idempotencyKey(), now, item.indemnisationId(), StatutIndemnisation.EN_ATTENTE.name()});
+        }
+        int[] paid = jdbcTemplate.batchUpdate(
+                "UPDATE indemnisations SET statut = ?, date_paiement = ?, payment_reference = ?, idempotency_key = ?, "
+                        + "version = version + 1, updated_at = ? WHERE id = ? AND statut = ?",
+                payArgs);
+
+        List<Object[]> itemArgs = new ArrayList<>(items.size());
+        SinistreRollupService.Variations variations = new SinistreRollupService.Variations();
+        List<OutboxWriter.Event> evenements = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            PendingItem item = items.get(i);
+            boolean success = paid[i] > 0 || paid[i] == Statement.SUCCESS_NO_INFO;
+            if (success) {
+                variations.paiement(item.cle(), item.montant());
+                evenements.add(EvenementService.indemnisation(TypeEvenement.INDEMNISATION_PAYEE,
+                        EvenementIndemnisation.of(item.indemnisationId(), item.sinistreId(), item.montant(),
+                                StatutIndemnisation.PAYE, references[i])));
+            }
+            itemArgs.add(success
+                    ? new Object[]{StatutPaymentRunItem.PAYE.name(), references[i], null, now, item.id(),
+                            StatutPaymentRunItem.EN_ATTENTE.name()}
+                    : new Object[]{StatutPaymentRunItem.ECHEC.name(), null,
+                            "L'indemnisation n'est plus en attente de paiement", now, item.id(),
+                            StatutPaymentRunItem.EN_ATTENTE.name()});
+        }
+        jdbcTemplate.batchUpdate(
+                "UPDATE payment_run_items SET statut = ?, payment_reference = ?, error_message = ?, processed_at = ? "
+                        + "WHERE id = ? AND statut = ?",
+                itemArgs);
+        sinistreRollupService.apply(variations);
+        evenementService.publish(evenements);
+        return items.size();
+    }
+
+    /**
+     * Clôture la campagne d'après le statut de ses lignes
+     */
+    private void complete(Long runId, Throwable error) {
+        if (error != null) {
+            log.error("Campagne de paiement {} interrompue: {}", runId, error.getMessage(), error);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            PaymentRun run = findRunById(runId);
+            Map<StatutPaymentRunItem, Long> counts = new ConcurrentHashMap<>();
+            for (PaymentRunItemRepository.StatutTotals totals : paymentRunItemRepository.summarize(runId)) {
+                counts.put(totals.getStatut(), totals.getItemCount());
+            }
+            if (counts.getOrDefault(StatutPaymentRunItem.EN_ATTENTE, 0L) > 0) {
+                run.setStatut(StatutPaymentRun.INTERROMPU);
+                return;
+            }
+            run.setStatut(counts.getOrDefault(StatutPaymentRunItem.ECHEC, 0L) > 0
+                    ? StatutPaymentRun.TERMINE_AVEC_ECHECS
+                    : StatutPaymentRun.TERMINE);
+            run.setCompletedAt(Instant.now());
+            log.info("Campagne de paiement {} terminée: {} payée(s), {} échec(s)", runId,
+                    counts.getOrDefault(StatutPaymentRunItem.PAYE, 0L),
+                    counts.getOrDefault(StatutPaymentRunItem.ECHEC, 0L));
+        });
+    }
+
+    private PaymentRunResponse buildResponse(PaymentRun run) {
+        PaymentRunResponse response = paymentRunMapper.toResponse(run);
+        response.setPaidAmount(BigDecimal.ZERO);
+        Instant lastProcessedAt = null;
+        for (PaymentRunItemRepository.StatutTotals totals : paymentRunItemRepository.summarize(run.getId())) {
+            switch (totals.getStatut()) {
+                case PAYE -> {
+                    response.setPaidCount(totals.getItemCount());
+                    response.setPaidAmount(totals.getAmount());
+                }
+                case ECHEC -> response.setFailedCount(totals.getItemCount());
+                case EN_ATTENTE -> response.setPendingCount(totals.getItemCount());
+            }
+            if (totals.getLastProcessedAt() != null
+                    && (lastProcessedAt == null || totals.getLastProcessedAt().isAfter(lastProcessedAt))) {
+                lastProcessedAt = totals.getLastProcessedAt();
+            }
+        }
+
+        Instant end = run.getCompletedAt() != null ? run.getCompletedAt()
+                : run.getStatut() == StatutPaymentRun.EN_COURS ? Instant.now() : lastProcessedAt;
+        if (run.getStartedAt() != null && end != null) {
+            Duration elapsed = Duration.between(run.getStartedAt(), end);
+            response.setElapsedSeconds(elapsed.toSeconds());
+            long millis = Math.max(elapsed.toMillis(), 1);
+            response.setPaidPerSecond(response.getPaidCount() * 1000.0 / millis);
+        }
+        return response;
+    }
+
+    private ResolvedPrincipal requirePaymentRights() {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canProcessPayments()) {
+            throw new ForbiddenException("Vous n'avez pas l'autorisation d'effectuer des paiements");
+        }
+        return principal;
+    }
+
+    private PaymentRun findRunById(Long id) {
+        return paymentRunRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Campagne de paiement non trouvée avec l'ID: " + id));
+    }
+
+    private static String idempotencyKeyPrefix(Long runId) {
+        return "payrun-" + runId + "-";
+    }
+
+    private record PendingItem(long id, long indemnisationId, String idempotencyKey, BigDecimal montant,
+            long sinistreId, SinistreRollupService.Cle cle) {
+    }
+}
@@ -0,0 +1,258 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.microassurance.dto.response.ActivitePoint;
+import tn.esprit.agroprotect.microassurance.dto.response.ActiviteSinistresResponse;
+import tn.esprit.agroprotect.microassurance.enums.Granularite;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.exception.BadRequestException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Série temporelle de l'activité des sinistres (changements de statut par type).
+ *
+ * Les événements validés sont cumulés en mémoire par minute puis écrits toutes les
+ * {@code flush-interval} : les transactions métier ne se disputent pas les lignes des
+ * intervalles courants. En vieillissant, les minutes sont regroupées en heures, puis
+ * les heures en jours ; les requêtes lisent ces intervalles pré-agrégés, jamais les sinistres.
+ */
+@Service
+@Slf4j
+public class SinistreActiviteService implements DisposableBean {
+
+    private static final String UPDATE_SQL = "UPDATE sinistre_activite_buckets SET nb_evenements = nb_evenements + ?, "
+            + "montant = montant + ? WHERE granularite = ? AND debut = ? AND type_sinistre = ? AND statut = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO sinistre_activite_buckets "
+            + "(nb_evenements, montant, granularite, debut, type_sinistre, statut) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final Comparator<Intervalle> ORDRE = Comparator.comparing(Intervalle::debut)
+            .thenComparing(Intervalle::typeSinistre)
+            .thenComparing(Intervalle::statut);
+
+    // Intervalles couverts par défaut, et au plus, par une requête
+    private static final int DEFAULT_INTERVALLES = 30;
+    private static final long MAX_INTERVALLES = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration minuteRetention;
+    private final Duration hourRetention;
+    private Map<Intervalle, Totaux> buffer = new HashMap<>();
+
+    public SinistreActiviteService(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${microassurance.activite.minute-retention:PT2H}") Duration minuteRetention,
+            @Value("${microassurance.activite.hour-retention:P7D}") Duration hourRetention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minuteRetention = minuteRetention;
+        this.hourRetention = hourRetention;
+    }
+
+    /**
+     * Passage d'un sinistre d'un type à un statut ; {@code montant} est son estimation de perte
+     */
+    public record Evenement(TypeSinistre typeSinistre, StatutSinistre statut, BigDecimal montant) {
+    }
+
+    private record Intervalle(Instant debut, TypeSinistre typeSinistre, StatutSinistre statut) {
+    }
+
+    private static final class Totaux {
+        private long nbEvenements;
+        private BigDecimal montant = BigDecimal.ZERO;
+
+        private void add(long nb, BigDecimal valeur) {
+            nbEvenements += nb;
+            montant = montant.add(valeur);
+        }
+    }
+
+    /**
+     * Enregistre les événements à la validation de la transaction en cours (immédiatement sans transaction)
+     */
+    public void record(List<Evenement> evenements) {
+        if (evenements.isEmpty()) {
+            return;
+        }
+        Instant minute = Granularite.MINUTE.truncate(Instant.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    buffer(minute, evenements);
+                }
+            });
+        } else {
+            buffer(minute, evenements);
+        }
+    }
+
+    /**
+     * Écrit les intervalles d'une minute cumulés en mémoire
+     */
+    @Scheduled(fixedDelayString = "${microassurance.activite.flush-interval:PT2S}")
+    public void flush() {
+        Map<Intervalle, Totaux> pending;
+        synchronized (this) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            pending = buffer;
+            buffer = new HashMap<>();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> increment(Granularite.MINUTE, pending));
+        } catch (RuntimeException e) {
+            // Réintégrés au tampon pour la prochaine écriture
+            log.warn("Écriture de l'activité des sinistres différée: {}", e.getMessage());
+            synchronized (this) {
+                pending.forEach((intervalle, totaux) -> buffer.computeIfAbsent(intervalle, k -> new Totaux())
+                        .add(totaux.nbEvenements, totaux.montant));
+            }
+        }
+    }
+
+    /**
+     * Regroupe les minutes anciennes en heures, et les heures anciennes en jours
+     */
+    @Scheduled(initialDelayString = "${microassurance.activite.compaction-interval:PT5M}",
+            fixedDelayString = "${microassurance.activite.compaction-interval:PT5M}")
+    public void compact() {
+        Instant now = Instant.now();
+        int minutes = compact(Granularite.MINUTE, Granularite.HOUR, Granularite.HOUR.truncate(now.minus(minuteRetention)));
+        int heures = compact(Granularite.HOUR, Granularite.DAY, Granularite.DAY.truncate(now.minus(hourRetention)));
+        if (minutes > 0 || heures > 0) {
+            log.info("Activité des sinistres regroupée: {} intervalle(s) minute, {} intervalle(s) heure", minutes, heures);
+        }
+    }
+
+    /**
+     * Série d'activité sur [from, to[, par intervalle de la granularité demandée.
+     * La résolution est limitée par la rétention : au-delà, les heures ou les jours
+     * regroupés sont rapportés au début de leur propre intervalle.
+     */
+    public ActiviteSinistresResponse getActivite(Granularite granularite, Instant from, Instant to,
+            TypeSinistre typeSinistre) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = granularite.truncate(from != null
+                ? from
+                : end.minus(granularite.getDuree().multipliedBy(DEFAULT_INTERVALLES)));
+        if (!start.isBefore(end)) {
+            throw new BadRequestException("La date de début doit précéder la date de fin");
+        }
+        if (Duration.between(start, end).dividedBy(granularite.getDuree()) > MAX_INTERVALLES) {
+            throw new BadRequestException("Période trop longue pour la granularité " + granularite
+                    + " (maximum " + MAX_INTERVALLES + " intervalles)");
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT debut, type_sinistre, statut, nb_evenements, montant "
+                + "FROM sinistre_activite_buckets WHERE debut >= ? AND debut < ?");
+        List<Object> args = new ArrayList<>(List.of(Timestamp.from(start), Timestamp.from(end)));
+        if (typeSinistre != null) {
+            sql.append(" AND type_sinistre = ?");
+            args.add(typeSinistre.name());
+        }
+        Map<Intervalle, Totaux> series = new TreeMap<>(ORDRE);
+        jdbcTemplate.query(sql.toString(), rs -> {
+            Intervalle intervalle = new Intervalle(granularite.truncate(rs.getTimestamp("debut").toInstant()),
+                    TypeSinistre.valueOf(rs.getString("type_sinistre")), StatutSinistre.valueOf(rs.getString("statut")));
+            series.computeIfAbsent(intervalle, k -> new Totaux())
+                    .add(rs.getLong("nb_evenements"), rs.getBigDecimal("montant"));
+        }, args.toArray());
+
+        ActiviteSinistresResponse response = new ActiviteSinistresResponse();
+        response.setGranularite(granularite);
+        response.setFrom(start);
+        response.setTo(end);
+        series.forEach((intervalle, totaux) -> response.getPoints().add(new ActivitePoint(intervalle.debut(),
+                intervalle.typeSinistre(), intervalle.statut(), totaux.nbEvenements, totaux.montant)));
+        return response;
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    private synchronized void buffer(Instant minute, List<Evenement> evenements) {
+        for (Evenement evenement : evenements) {
+            buffer.computeIfAbsent(new Intervalle(minute, evenement.typeSinistre(), evenement.statut()), k -> new Totaux())
+                    .add(1, evenement.montant() != null ? evenement.montant() : BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Déplace les intervalles {@code source} antérieurs à {@code cutoff} dans leurs intervalles {@code cible}.
+     * Les lignes source sont verrouillées : une compaction concurrente (autre instance) les trouve supprimées.
+     */
+    private int compact(Granularite source, Granularite cible, Instant cutoff) {
+        return transactionTemplate.execute(status -> {
+            Map<Intervalle, Totaux> regroupes = new HashMap<>();
+            int[] lignes = {0};
+            jdbcTemplate.query("SELECT debut, type_sinistre, statut, nb_evenements, montant "
+                            + "FROM sinistre_activite_buckets WHERE granularite = ? AND debut < ? FOR UPDATE",
+                    rs -> {
+                        lignes[0]++;
+                        Intervalle intervalle = new Intervalle(cible.truncate(rs.getTimestamp("debut").toInstant()),
+                                TypeSinistre.valueOf(rs.getString("type_sinistre")),
+                                StatutSinistre.valueOf(rs.getString("statut")));
+                        regroupes.computeIfAbsent(intervalle, k -> new Totaux())
+                                .add(rs.getLong("nb_evenements"), rs.getBigDecimal("montant"));
+                    },
+                    source.name(), Timestamp.from(cutoff));
+            if (lignes[0] == 0) {
+                return 0;
+            }
+            increment(cible, regroupes);
+            jdbcTemplate.update("DELETE FROM sinistre_activite_buckets WHERE granularite = ? AND debut < ?",
+                    source.name(), Timestamp.from(cutoff));
+            return lignes[0];
+        });
+    }
+
+    /**
+     * Ajoute les totaux aux intervalles existants, par ordre de clé, et crée les intervalles manquants
+     */
+    private void increment(Granularite granularite, Map<Intervalle, Totaux> totaux) {
+        List<Object[]> args = new ArrayList<>(totaux.size());
+        Map<Intervalle, Totaux> ordered = new TreeMap<>(ORDRE);
+        ordered.putAll(totaux);
+        ordered.forEach((intervalle, t) -> args.add(new Object[]{t.nbEvenements, t.montant, granularite.name(),
+                Timestamp.from(intervalle.debut()), intervalle.typeSinistre().name(), intervalle.statut().name()}));
+
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, args.get(i));
+                } catch (DuplicateKeyException e) {
+                    // Intervalle créé entre-temps par une autre instance
+                    jdbcTemplate.update(UPDATE_SQL, args.get(i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.common.pagination.CountStrategy;
+import tn.esprit.agroprotect.common.outbox.OutboxWriter;
+import tn.esprit.agroprotect.common.pagination.SliceQuery;
+import tn.esprit.agroprotect.microassurance.dto.event.EvenementSinistre;
+import tn.esprit.agroprotect.microassurance.dto.request.BulkSinistreTransitionRequest;
+import tn.esprit.agroprotect.microassurance.dto.response.BulkTransitionItemResult;
+import tn.esprit.agroprotect.microassurance.dto.response.BulkTransitionResponse;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.ResultatTransition;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TransitionSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.exception.BadRequestException;
+import tn.esprit.agroprotect.microassurance.exception.ForbiddenException;
+import tn.esprit.agroprotect.microassurance.repository.SinistreSpecifications;
+import tn.esprit.agroprotect.microassurance.security.ResolvedPrincipal;
+import tn.esprit.agroprotect.microassurance.security.SecurityUtil;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Service des transitions de masse sur les sinistres (catastrophes : inondation, sécheresse...).
+ *
+ * Les règles sont celles des transitions unitaires ({@link TransitionSinistre}).
+ * Chaque lot est traité dans sa propre transaction : lecture du statut et de la
+ * version des sinistres en une requête, puis mise à jour JDBC en batch conditionnée
+ * par la version (verrou optimiste équivalent à {@code @Version}).
+ * Comme la mise en évaluation unitaire, celle de masse laisse de côté les sinistres
+ * réservés par un autre expert dans la file d'évaluation.
+ */
+@Service
+@Slf4j
+public class SinistreBulkService {
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SliceQuery sliceQuery;
+    private final CountStrategy countStrategy;
+    private final SecurityUtil securityUtil;
+    private final SinistreRollupService sinistreRollupService;
+    private final EvenementService evenementService;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public SinistreBulkService(NamedParameterJdbcTemplate namedJdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            SliceQuery sliceQuery,
+            CountStrategy countStrategy,
+            SecurityUtil securityUtil,
+            SinistreRollupService sinistreRollupService,
+            EvenementService evenementService,
+            @Value("${microassurance.bulk.chunk-size:500}") int chunkSize,
+            @Value("${microassurance.bulk.max-items:10000}") int maxItems) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.jdbcTemplate = namedJdbcTemplate.getJdbcTemplate();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sliceQuery = sliceQuery;
+        this.countStrategy = countStrategy;
+        this.securityUtil = securityUtil;
+        this.sinistreRollupService = sinistreRollupService;
+        this.evenementService = evenementService;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Lot prêt à être exécuté : droits vérifiés et sinistres ciblés résolus
+     */
+    public record Plan(TransitionSinistre transition, List<Long> ids, BigDecimal tauxRemboursement,
+            String motifRefus, Long userId) {
+    }
+
+    /**
+     * Vérifie les droits et résout les sinistres ciblés, dans le thread de la requête
+     */
+    @Transactional(readOnly = true)
+    public Plan plan(TransitionSinistre transition, BulkSinistreTransitionRequest request) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canModifySinistreStatus()) {
+            throw new ForbiddenException("Vous n'avez pas l'autorisation de modifier le statut des sinistres");
+        }
+        if (transition == TransitionSinistre.REFUS
+                && (request.getMotifRefus() == null || request.getMotifRefus().isBlank())) {
+            throw new BadRequestException("Le motif de refus est obligatoire");
+        }
+
+        List<Long> ids;
+        if (request.hasIds()) {
+            ids = List.copyOf(new LinkedHashSet<>(request.getIds().stream().filter(Objects::nonNull).toList()));
+        } else if (request.hasCriteria()) {
+            // Seuls les sinistres au statut requis par la transition sont retenus
+            Specification<Sinistre> spec = SinistreSpecifications.withFilters(
+                    transition.getStatutSource(),
+                    request.getTypeSinistre(),
+                    request.getContratAssuranceId(),
+                    request.getCreatedByUserId(),
+                    request.getDateFrom(),
+                    request.getDateTo());
+            ids = sliceQuery.list(Sinistre.class, spec, Sort.by("id"), maxItems + 1,
+                    Long.class, (root, cb) -> root.<Long>get("id"));
+        } else {
+            throw new BadRequestException("Indiquez des identifiants de sinistres ou au moins un critère de recherche");
+        }
+
+        if (ids.size() > maxItems) {
+            throw new BadRequestException("Le lot dépasse " + maxItems + " sinistres, affinez les critères");
+        }
+        return new Plan(transition, ids, request.getTauxRemboursement(), request.getMotifRefus(), principal.getUserId());
+    }
+
+    /**
+     * Applique la transition lot par lot et publie une réponse partielle après chaque lot,
+     * puis une réponse finale ({@code termine = true}) sans items
+     */
+    public void execute(Plan plan, Consumer<BulkTransitionResponse> progress) {
+        int traites = 0;
+        int appliques = 0;
+        for (List<Long> chunk : Lists.partition(plan.ids(), chunkSize)) {
+            List<BulkTransitionItemResult> results = transactionTemplate.execute(status -> applyChunk(plan, chunk));
+            // Écriture JDBC : les listeners JPA ne voient pas ces mises à jour
+            countStrategy.invalidate(Sinistre.class);
+
+            traites += results.size();
+            appliques += (int) results.stream().filter(r -> r.getResultat() == ResultatTransition.APPLIQUE).count();
+            progress.accept(response(plan, traites, appliques, false, results));
+        }
+
+        log.info("Transition {} appliquée à {}/{} sinistres par l'utilisateur {}",
+                plan.transition(), appliques, plan.ids().size(), plan.userId());
+        progress.accept(response(plan, traites, appliques, true, List.of()));
+    }
+
+    /**
+     * Exécute le lot et regroupe tous les résultats dans une seule réponse
+     */
+    public BulkTransitionResponse apply(TransitionSinistre transition, BulkSinistreTransitionRequest request) {
+        Plan plan = plan(transition, request);
+        List<BulkTransitionItemResult> items = new ArrayList<>(plan.ids().size());
+        AtomicReference<BulkTransitionResponse> summary = new AtomicReference<>();
+        execute(plan, progress -> {
+            if (progress.isTermine()) {
+                summary.set(progress);
+            } else {
+                items.addAll(progress.getItems());
+            }
+        });
+        summary.get().setItems(items);
+        return summary.get();
+    }
+
+    private List<BulkTransitionItemResult> applyChunk(Plan plan, List<Long> chunk) {
+        TransitionSinistre transition = plan.transition();
+        Map<Long, EtatSinistre> etats = loadEtats(chunk);
+        Map<Long, BulkTransitionItemResult> results = new HashMap<>();
+        List<Long> candidates = new ArrayList<>();
+        List<Object[]> batchArgs = new ArrayList<>();
+        Instant instant = Instant.now();
+        Timestamp now = Timestamp.from(instant);
+
+        for (Long id : chunk) {
+            EtatSinistre etat = etats.get(id);
+            if (etat == null) {
+                results.put(id, result(id, ResultatTransition.INTROUVABLE, null));
+            } else if (!transition.isAllowedFrom(etat.statut())) {
+                results.put(id, result(id, ResultatTransition.STATUT_INVALIDE, "Statut actuel: " + etat.statut()));
+            } else if (transition == TransitionSinistre.MISE_EN_EVALUATION
+                    && etat.isReservedByOther(plan.userId(), instant)) {
+                results.put(id, result(id, ResultatTransition.CONFLIT,
+                        "Réservé par un autre expert jusqu'à " + etat.assignationExpiration()));
+            } else {
+                candidates.add(id);
+                batchArgs.add(updateArgs(plan, now, etat));
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(updateSql(plan), batchArgs);
+            SinistreRollupService.Variations variations = new SinistreRollupService.Variations();
+            List<OutboxWriter.Event> evenements = new ArrayList<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                Long id = candidates.get(i);
+                boolean updated = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+                if (updated) {
+                    EtatSinistre etat = etats.get(id);
+                    variations.transition(etat.cle(), etat.statut(), transition.getStatutCible(),
+                            etat.estimationPerte());
+                    evenements.add(EvenementService.sinistre(evenement(plan, etat)));
+                }
+                results.put(id, updated
+                        ? result(id, ResultatTransition.APPLIQUE, "Statut: " + transition.getStatutCible())
+                        : result(id, ResultatTransition.CONFLIT, null));
+            }
+            sinistreRollupService.apply(variations);
+            evenementService.publish(evenements);
+        }
+
+        List<BulkTransitionItemResult> ordered = new ArrayList<>(chunk.size());
+        for (Long id : chunk) {
+            ordered.add(results.get(id));
+        }
+        return ordered;
+    }
+
+    private Map<Long, EtatSinistre> loadEtats(List<Long> ids) {
+        Map<Long, EtatSinistre> etats = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, statut, version, created_by_user_id, contrat_assurance_id, type_sinistre, "
+                        + "date_declaration, estimation_perte, taux_remboursement, expert_assigne_id, assignation_expiration "
+                        + "FROM sinistres WHERE id IN (:ids)",
+                Map.of("ids", ids),
+                rs -> {
+                    long id = rs.getLong("id");
+                    SinistreRollupService.Cle cle = SinistreRollupService.Cle.of(rs.getLong("created_by_user_id"),
+                            rs.getObject("contrat_assurance_id", Long.class),
+                            TypeSinistre.valueOf(rs.getString("type_sinistre")),
+                            rs.getTimestamp("date_declaration").toInstant());
+                    Timestamp expiration = rs.getTimestamp("assignation_expiration");
+                    etats.put(id, new EtatSinistre(id, StatutSinistre.valueOf(rs.getString("statut")), rs.getLong("version"),
+                            cle, rs.getBigDecimal("estimation_perte"), rs.getBigDecimal("taux_remboursement"),
+                            rs.getObject("expert_assigne_id", Long.class),
+                            expiration != null ? expiration.toInstant() : null));
+                });
+        return etats;
+    }
+
+    /**
+     * Requête de mise à jour conditionnée par l'ID, la version et le statut source ;
+     * la version écarte aussi un sinistre réservé entre la lecture et la mise à jour
+     */
+    private String updateSql(Plan plan) {
+        String set = switch (plan.transition()) {
+            // Réservation éventuelle convertie en assignation définitive
+            case MISE_EN_EVALUATION -> "statut = ?, expert_assigne_id = ?, assignation_expiration = NULL";
+            case VALIDATION -> plan.tauxRemboursement() != null
+                    ? "statut = ?, motif_refus = NULL, taux_remboursement = ?"
+                    : "statut = ?, motif_refus = NULL";
+            case REFUS -> "statut = ?, motif_refus = ?, taux_remboursement = NULL";
+        };
+        return "UPDATE sinistres SET " + set + ", version = version + 1, updated_at = ? "
+                + "WHERE id = ? AND version = ? AND statut = ?";
+    }
+
+    private Object[] updateArgs(Plan plan, Timestamp now, EtatSinistre etat) {
+        List<Object> args = new ArrayList<>(7);
+        args.add(plan.transition().getStatutCible().name());
+        if (plan.transition() == TransitionSinistre.MISE_EN_EVALUATION) {
+            args.add(plan.userId());
+        } else if (plan.transition() == TransitionSinistre.VALIDATION && plan.tauxRemboursement() != null) {
+            args.add(plan.tauxRemboursement());
+        } else if (plan.transition() == TransitionSinistre.REFUS) {
+            args.add(plan.motifRefus());
+        }
+        args.add(now);
+        args.add(etat.id());
+        args.add(etat.version());
+        args.add(etat.statut().name());
+        return args.toArray();
+    }
+
+    /**
+     * Événement d'un sinistre passé au statut cible, d'après son état lu et les paramètres du lot
+     */
+    private static EvenementSinistre evenement(Plan plan, EtatSinistre etat) {
+        TransitionSinistre transition = plan.transition();
+        EvenementSinistre evenement = new EvenementSinistre();
+        evenement.setSinistreId(etat.id());
+        evenement.setTypeSinistre(etat.cle().typeSinistre());
+        evenement.setStatut(transition.getStatutCible());
+        evenement.setStatutPrecedent(etat.statut());
+        evenement.setContratAssuranceId(etat.cle().contratAssuranceId() != 0 ? etat.cle().contratAssuranceId() : null);
+        evenement.setCreatedByUserId(etat.cle().createdByUserId());
+        evenement.setEstimationPerte(etat.estimationPerte());
+        evenement.setTauxRemboursement(switch (transition) {
+            case MISE_EN_EVALUATION -> etat.tauxRemboursement();
+            case VALIDATION -> plan.tauxRemboursement() != null ? plan.tauxRemboursement() : etat.tauxRemboursement();
+            case REFUS -> null;
+        });
+        evenement.setMotifRefus(transition == TransitionSinistre.REFUS ? plan.motifRefus() : null);
+        evenement.setSurvenuLe(Instant.now());
+        return evenement;
+    }
+
+    private BulkTransitionResponse response(Plan plan, int traites, int appliques, boolean termine,
+            List<BulkTransitionItemResult> items) {
+        BulkTransitionResponse response = new BulkTransitionResponse();
+        response.setTransition(plan.transition());
+        response.setTotal(plan.ids().size());
+        response.setTraites(traites);
+        response.setAppliques(appliques);
+        response.setEchecs(traites - appliques);
+        response.setTermine(termine);
+        response.setItems(items);
+        return response;
+    }
+
+    private static BulkTransitionItemResult result(Long id, ResultatTransition resultat, String message) {
+        return new BulkTransitionItemResult(id, resultat, message != null ? message : resultat.getDescription());
+    }
+
+    private record EtatSinistre(long id, StatutSinistre statut, long version, SinistreRollupService.Cle cle,
+            BigDecimal estimationPerte, BigDecimal tauxRemboursement, Long expertAssigneId,
+            Instant assignationExpiration) {
+
+        boolean isReservedByOther(Long expertId, Instant now) {
+            return assignationExpiration != null && assignationExpiration.isAfter(now)
+                    && !expertId.equals(expertAssigneId);
+        }
+    }
+}
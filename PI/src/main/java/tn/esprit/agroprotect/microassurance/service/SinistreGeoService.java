@@ -0,0 +1,263 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.agroprotect.common.geo.BoundingBox;
+import tn.esprit.agroprotect.common.geo.GeoHash;
+import tn.esprit.agroprotect.common.pagination.SliceQuery;
+import tn.esprit.agroprotect.microassurance.dto.response.GeoCluster;
+import tn.esprit.agroprotect.microassurance.dto.response.GeoClustersResponse;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistreGeoPoint;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistresGeoResponse;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.exception.BadRequestException;
+import tn.esprit.agroprotect.microassurance.security.ResolvedPrincipal;
+import tn.esprit.agroprotect.microassurance.security.SecurityUtil;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Recherches géographiques de sinistres (rectangle, rayon, regroupement par cellule).
+ *
+ * La zone est couverte par au plus {@link #MAX_CELLULES} cellules geohash, fusionnées en
+ * plages contiguës : la base ne lit que ces plages de l'index {@code idx_sinistre_geohash},
+ * puis le filtre exact sur les coordonnées écarte les sinistres des cellules en bordure.
+ */
+@Service
+@RequiredArgsConstructor
+public class SinistreGeoService {
+
+    private static final String POINT_COLUMNS = "id, type_sinistre, statut, date_declaration, estimation_perte, "
+            + "latitude, longitude";
+
+    private static final int MAX_CELLULES = 32;
+    private static final int MAX_CLUSTERS = 10000;
+    // Cellules visées par défaut pour un regroupement
+    private static final int DEFAULT_CLUSTERS = 256;
+    private static final int DEFAULT_LIMIT = 500;
+    private static final int MAX_LIMIT = 5000;
+    private static final double MAX_RAYON_KM = 2000;
+    // Lignes par aller-retour pour le parcours d'un rayon, hors MySQL
+    private static final int FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SliceQuery sliceQuery;
+    private final SecurityUtil securityUtil;
+
+    /**
+     * Filtres communs aux recherches géographiques
+     */
+    public record Filtres(TypeSinistre typeSinistre, StatutSinistre statut, Instant from, Instant to) {
+    }
+
+    /**
+     * Sinistres situés dans un rectangle, par ordre de cellule
+     */
+    @Transactional(readOnly = true)
+    public SinistresGeoResponse findInBoundingBox(double sud, double ouest, double nord, double est,
+            Filtres filtres, Integer limit) {
+        BoundingBox zone = zone(sud, ouest, nord, est);
+        int max = limit(limit);
+
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT " + POINT_COLUMNS + " FROM sinistres" + where(zone, filtres, args)
+                + " ORDER BY geohash LIMIT ?";
+        args.add(max + 1);
+        List<SinistreGeoPoint> points = jdbcTemplate.query(sql, (rs, i) -> point(rs, null), args.toArray());
+
+        SinistresGeoResponse response = new SinistresGeoResponse();
+        response.setTronque(points.size() > max);
+        response.setSinistres(points.size() > max ? new ArrayList<>(points.subList(0, max)) : points);
+        return response;
+    }
+
+    /**
+     * Sinistres situés à moins de {@code rayonKm} d'un point, du plus proche au plus éloigné
+     */
+    @Transactional(readOnly = true)
+    public SinistresGeoResponse findInRadius(double latitude, double longitude, double rayonKm,
+            Filtres filtres, Integer limit) {
+        if (!(rayonKm > 0 && rayonKm <= MAX_RAYON_KM)) {
+            throw new BadRequestException("Le rayon doit être compris entre 0 et " + MAX_RAYON_KM + " km");
+        }
+        checkCoordonnees(latitude, longitude);
+        BoundingBox zone = BoundingBox.around(latitude, longitude, rayonKm);
+        int max = limit(limit);
+
+        // Les plus proches, dans un tas borné dont la tête est le plus éloigné retenu
+        PriorityQueue<SinistreGeoPoint> proches = new PriorityQueue<>(
+                Comparator.comparing(SinistreGeoPoint::getDistanceKm).reversed());
+        long[] trouves = {0};
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT " + POINT_COLUMNS + " FROM sinistres" + where(zone, filtres, args);
+        // Parcours en flux : sans fetch size, MySQL chargerait tout le rectangle en mémoire
+        int fetchSize = sliceQuery.streamingFetchSize(FETCH_SIZE);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(args.toArray()).setValues(statement);
+            return statement;
+        }, rs -> {
+            double distance = BoundingBox.distanceKm(latitude, longitude,
+                    rs.getDouble("latitude"), rs.getDouble("longitude"));
+            if (distance > rayonKm) {
+                return;
+            }
+            trouves[0]++;
+            if (proches.size() < max) {
+                proches.add(point(rs, distance));
+            } else if (distance < proches.peek().getDistanceKm()) {
+                proches.poll();
+                proches.add(point(rs, distance));
+            }
+        });
+
+        SinistresGeoResponse response = new SinistresGeoResponse();
+        response.getSinistres().addAll(proches);
+        response.getSinistres().sort(Comparator.comparing(SinistreGeoPoint::getDistanceKm));
+        response.setTronque(trouves[0] > max);
+        return response;
+    }
+
+    /**
+     * Nombre de sinistres d'un rectangle par cellule geohash de la précision demandée
+     * (par défaut, celle qui découpe la zone en environ {@link #DEFAULT_CLUSTERS} cellules)
+     */
+    @Transactional(readOnly = true)
+    public GeoClustersResponse clusters(double sud, double ouest, double nord, double est,
+            Integer precision, Filtres filtres) {
+        BoundingBox zone = zone(sud, ouest, nord, est);
+        int p = precision != null ? precision : GeoHash.precisionFor(zone, DEFAULT_CLUSTERS);
+        if (p < 1 || p > GeoHash.MAX_PRECISION) {
+            throw new BadRequestException("La précision doit être comprise entre 1 et " + GeoHash.MAX_PRECISION);
+        }
+        if (GeoHash.cellCount(zone, p) > MAX_CLUSTERS) {
+            throw new BadRequestException("Précision " + p + " trop fine pour cette zone (maximum "
+                    + MAX_CLUSTERS + " cellules)");
+        }
+
+        // Précision validée : littéral identique dans SELECT et GROUP BY
+        String cellule = "SUBSTRING(geohash, 1, " + p + ")";
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT " + cellule + " AS cellule, COUNT(*) AS nb, SUM(estimation_perte) AS montant, "
+                + "AVG(latitude) AS latitude, AVG(longitude) AS longitude FROM sinistres"
+                + where(zone, filtres, args) + " GROUP BY " + cellule + " ORDER BY cellule";
+
+        GeoClustersResponse response = new GeoClustersResponse();
+        response.setPrecision(p);
+        jdbcTemplate.query(sql, rs -> {
+            String hash = rs.getString("cellule");
+            BigDecimal montant = rs.getBigDecimal("montant");
+            BoundingBox emprise = GeoHash.bounds(hash);
+            response.getClusters().add(new GeoCluster(hash, rs.getLong("nb"),
+                    montant != null ? montant : BigDecimal.ZERO,
+                    rs.getDouble("latitude"), rs.getDouble("longitude"),
+                    emprise.south(), emprise.west(), emprise.north(), emprise.east()));
+        }, args.toArray());
+        return response;
+    }
+
+    /**
+     * Clause WHERE : plages de cellules couvrant la zone, coordonnées, visibilité et filtres
+     */
+    private String where(BoundingBox zone, Filtres filtres, List<Object> args) {
+        StringBuilder sql = new StringBuilder(" WHERE (");
+        List<GeoHash.Range> plages = GeoHash.ranges(GeoHash.cover(zone, GeoHash.precisionFor(zone, MAX_CELLULES)));
+        for (int i = 0; i < plages.size(); i++) {
+            GeoHash.Range plage = plages.get(i);
+            sql.append(i > 0 ? " OR " : "").append("(geohash >= ?");
+            args.add(plage.from());
+            if (plage.to() != null) {
+                sql.append(" AND geohash < ?");
+                args.add(plage.to());
+            }
+            sql.append(')');
+        }
+        sql.append(") AND latitude BETWEEN ? AND ?");
+        args.add(zone.south());
+        args.add(zone.north());
+        sql.append(zone.crossesAntimeridian()
+                ? " AND (longitude >= ? OR longitude <= ?)"
+                : " AND longitude BETWEEN ? AND ?");
+        args.add(zone.west());
+        args.add(zone.east());
+
+        // Si l'utilisateur n'est pas admin/expert, il ne voit que ses propres sinistres
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canViewAllSinistres()) {
+            sql.append(" AND created_by_user_id = ?");
+            args.add(principal.getUserId());
+        }
+        if (filtres.typeSinistre() != null) {
+            sql.append(" AND type_sinistre = ?");
+            args.add(filtres.typeSinistre().name());
+        }
+        if (filtres.statut() != null) {
+            sql.append(" AND statut = ?");
+            args.add(filtres.statut().name());
+        }
+        if (filtres.from() != null) {
+            sql.append(" AND date_declaration >= ?");
+            args.add(Timestamp.from(filtres.from()));
+        }
+        if (filtres.to() != null) {
+            sql.append(" AND date_declaration <= ?");
+            args.add(Timestamp.from(filtres.to()));
+        }
+        return sql.toString();
+    }
+
+    private static SinistreGeoPoint point(ResultSet rs, Double distanceKm) throws SQLException {
+        return new SinistreGeoPoint(rs.getLong("id"),
+                TypeSinistre.valueOf(rs.getString("type_sinistre")),
+                StatutSinistre.valueOf(rs.getString("statut")),
+                rs.getTimestamp("date_declaration").toInstant(),
+                rs.getBigDecimal("estimation_perte"),
+                rs.getDouble("latitude"),
+                rs.getDouble("longitude"),
+                distanceKm);
+    }
+
+    private static BoundingBox zone(double sud, double ouest, double nord, double est) {
+        checkCoordonnees(sud, ouest);
+        checkCoordonnees(nord, est);
+        if (sud > nord) {
+            throw new BadRequestException("La latitude sud doit être inférieure ou égale à la latitude nord");
+        }
+        // ouest > est : zone à cheval sur l'antiméridien
+        return new BoundingBox(sud, ouest, nord, est);
+    }
+
+    private static void checkCoordonnees(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new BadRequestException("La latitude doit être comprise entre -90 et 90");
+        }
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new BadRequestException("La longitude doit être comprise entre -180 et 180");
+        }
+    }
+
+    private static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("La limite doit être comprise entre 1 et " + MAX_LIMIT);
+        }
+        return limit;
+    }
+}
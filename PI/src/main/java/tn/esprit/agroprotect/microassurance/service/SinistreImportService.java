@@ -0,0 +1,389 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.common.csv.CsvReader;
+import tn.esprit.agroprotect.common.outbox.OutboxWriter;
+import tn.esprit.agroprotect.common.pagination.CountStrategy;
+import tn.esprit.agroprotect.microassurance.doublon.SinistreDoublonIndex;
+import tn.esprit.agroprotect.microassurance.dto.event.EvenementSinistre;
+import tn.esprit.agroprotect.microassurance.dto.mapper.SinistreMapper;
+import tn.esprit.agroprotect.microassurance.dto.request.CreateSinistreRequest;
+import tn.esprit.agroprotect.microassurance.dto.response.ImportRowError;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistreImportResponse;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.FormatFichier;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.exception.BadRequestException;
+import tn.esprit.agroprotect.microassurance.exception.ForbiddenException;
+import tn.esprit.agroprotect.microassurance.security.ResolvedPrincipal;
+import tn.esprit.agroprotect.microassurance.security.SecurityUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service d'import de sinistres en masse (déclarations collectées hors ligne par les coopératives).
+ *
+ * Le fichier est lu ligne à ligne ; chaque ligne est validée selon les règles de
+ * {@link CreateSinistreRequest}, convertie par {@link SinistreMapper}, puis insérée par lots
+ * JDBC, chaque lot dans sa propre transaction. Seul le lot courant est en mémoire et la
+ * lecture n'avance qu'après l'écriture du lot : le débit d'envoi suit celui de la base.
+ * Au-delà de {@code max-items} lignes, la lecture s'arrête : les lots déjà écrits sont
+ * conservés et le rapport l'indique.
+ */
+@Service
+@Slf4j
+public class SinistreImportService {
+
+    private static final String INSERT_SQL = "INSERT INTO sinistres (type_sinistre, date_declaration, description, "
+            + "contrat_assurance_id, statut, estimation_perte, created_by_user_id, latitude, longitude, geohash, "
+            + "doublon_presume_id, has_indemnisation, created_at, updated_at, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE, ?, ?, 0)";
+
+    // Longueur maximale de la ligne d'en-tête CSV, lue avant d'être relue par le CsvReader
+    private static final int MAX_HEADER_LENGTH = 8192;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final SinistreMapper sinistreMapper;
+    private final ObjectMapper objectMapper;
+    private final CountStrategy countStrategy;
+    private final SecurityUtil securityUtil;
+    private final SinistreRollupService sinistreRollupService;
+    private final EvenementService evenementService;
+    private final SinistreDoublonIndex sinistreDoublonIndex;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final int maxItems;
+
+    public SinistreImportService(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            Validator validator,
+            SinistreMapper sinistreMapper,
+            ObjectMapper objectMapper,
+            CountStrategy countStrategy,
+            SecurityUtil securityUtil,
+            SinistreRollupService sinistreRollupService,
+            EvenementService evenementService,
+            SinistreDoublonIndex sinistreDoublonIndex,
+            @Value("${microassurance.import.chunk-size:1000}") int chunkSize,
+            @Value("${microassurance.import.max-errors:1000}") int maxErrors,
+            @Value("${microassurance.import.max-items:100000}") int maxItems) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.sinistreMapper = sinistreMapper;
+        this.objectMapper = objectMapper;
+        this.countStrategy = countStrategy;
+        this.securityUtil = securityUtil;
+        this.sinistreRollupService = sinistreRollupService;
+        this.evenementService = evenementService;
+        this.sinistreDoublonIndex = sinistreDoublonIndex;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Importe les sinistres du flux pour le compte de l'utilisateur courant
+     */
+    public SinistreImportResponse importSinistres(InputStream input, FormatFichier format) throws IOException {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canImportSinistres()) {
+            throw new ForbiddenException("Vous n'avez pas l'autorisation d'importer des sinistres");
+        }
+        Long userId = principal.getUserId();
+        long start = System.nanoTime();
+        SinistreImportResponse report = new SinistreImportResponse();
+        report.setFormat(format);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowSource source = format == FormatFichier.CSV ? csvSource(reader) : ndjsonSource(reader);
+        List<Sinistre> chunk = new ArrayList<>(chunkSize);
+        Row row;
+        while ((row = nextRow(source, report)) != null) {
+            if (report.getLignes() == maxItems) {
+                report.setLimiteAtteinte(true);
+                break;
+            }
+            report.setLignes(report.getLignes() + 1);
+            String erreur = row.erreur() != null ? row.erreur() : validate(row.request());
+            if (erreur != null) {
+                reject(report, row.ligne(), erreur);
+                continue;
+            }
+
+            Sinistre sinistre = sinistreMapper.toEntity(row.request());
+            sinistre.setCreatedByUserId(userId);
+            sinistre.setStatut(StatutSinistre.DECLARE);
+            chunk.add(sinistre);
+            if (chunk.size() == chunkSize) {
+                insert(chunk);
+                report.setImportes(report.getImportes() + chunk.size());
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insert(chunk);
+            report.setImportes(report.getImportes() + chunk.size());
+        }
+
+        report.setDureeMs((System.nanoTime() - start) / 1_000_000);
+        log.info("Import {} de sinistres par l'utilisateur {}: {} importé(s), {} rejeté(s) en {} ms",
+                format, userId, report.getImportes(), report.getRejetes(), report.getDureeMs());
+        return report;
+    }
+
+    private void insert(List<Sinistre> chunk) {
+        Instant instant = Instant.now();
+        Timestamp now = Timestamp.from(instant);
+        SinistreRollupService.Variations variations = new SinistreRollupService.Variations();
+        for (Sinistre sinistre : chunk) {
+            sinistre.setDateDeclaration(instant);
+            // Comparés aux sinistres déjà enregistrés ; ceux du lot sont indexés à sa validation
+            SinistreDoublonIndex.Doublon doublon = sinistreDoublonIndex.findDoublon(sinistre);
+            if (doublon != null) {
+                sinistre.setDoublonPresumeId(doublon.sinistreId());
+            }
+            variations.declaration(SinistreRollupService.Cle.of(sinistre), sinistre.getEstimationPerte());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Sinistre sinistre = chunk.get(i);
+                            ps.setString(1, sinistre.getTypeSinistre().name());
+                            ps.setTimestamp(2, now);
+                            ps.setString(3, sinistre.getDescription());
+                            ps.setObject(4, sinistre.getContratAssuranceId());
+                            ps.setString(5, sinistre.getStatut().name());
+                            ps.setBigDecimal(6, sinistre.getEstimationPerte());
+                            ps.setLong(7, sinistre.getCreatedByUserId());
+                            ps.setObject(8, sinistre.getLatitude());
+                            ps.setObject(9, sinistre.getLongitude());
+                            ps.setString(10, sinistre.getGeohash());
+                            ps.setObject(11, sinistre.getDoublonPresumeId());
+                            ps.setTimestamp(12, now);
+                            ps.setTimestamp(13, now);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    }, keys);
+            sinistreRollupService.apply(variations);
+
+            // IDs générés, dans l'ordre des lignes insérées, pour les événements de déclaration
+            List<Map<String, Object>> ids = keys.getKeyList();
+            List<OutboxWriter.Event> evenements = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Sinistre sinistre = chunk.get(i);
+                sinistre.setId(((Number) ids.get(i).values().iterator().next()).longValue());
+                sinistreDoublonIndex.register(sinistre);
+                evenements.add(EvenementService.sinistre(EvenementSinistre.of(sinistre, null)));
+            }
+            evenementService.publish(evenements);
+        });
+        // Écriture JDBC : invalider les totaux mis en cache
+        countStrategy.invalidate(Sinistre.class);
+    }
+
+    /**
+     * Ligne suivante ; une erreur de lecture (CSV mal formé, flux coupé) est rapportée et arrête l'import
+     */
+    private Row nextRow(RowSource source, SinistreImportResponse report) {
+        try {
+            return source.next();
+        } catch (IOException e) {
+            reject(report, report.getLignes() + 1, "Lecture interrompue: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String validate(CreateSinistreRequest request) {
+        Set<ConstraintViolation<CreateSinistreRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void reject(SinistreImportResponse report, long ligne, String message) {
+        report.setRejetes(report.getRejetes() + 1);
+        if (report.getErreurs().size() < maxErrors) {
+            report.getErreurs().add(new ImportRowError(ligne, message));
+        } else {
+            report.setErreursTronquees(true);
+        }
+    }
+
+    private RowSource ndjsonSource(BufferedReader reader) {
+        long[] ligne = {0};
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                ligne[0]++;
+            } while (line != null && line.isBlank());
+            if (line == null) {
+                return null;
+            }
+            try {
+                return new Row(ligne[0], objectMapper.readValue(line, CreateSinistreRequest.class), null);
+            } catch (JsonProcessingException e) {
+                return new Row(ligne[0], null, "JSON invalide: " + e.getOriginalMessage());
+            }
+        };
+    }
+
+    private RowSource csvSource(BufferedReader reader) throws IOException {
+        // L'en-tête détermine le séparateur et l'ordre des colonnes
+        String headerLine = peekHeaderLine(reader);
+        CsvReader csv = new CsvReader(reader, CsvReader.detectDelimiter(headerLine));
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = csv.next();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(normalize(header.get(i)), i);
+        }
+        if (!columns.containsKey("typesinistre") || !columns.containsKey("description")) {
+            throw new BadRequestException(
+                    "Colonnes obligatoires manquantes : typeSinistre et description (colonnes lues: " + header + ")");
+        }
+
+        return () -> {
+            List<String> record = csv.next();
+            return record == null ? null : toRow(csv.getRecordLine(), record, columns);
+        };
+    }
+
+    /**
+     * Première ligne du flux, sans la consommer
+     */
+    private static String peekHeaderLine(BufferedReader reader) throws IOException {
+        reader.mark(MAX_HEADER_LENGTH + 1);
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n' && c != '\r') {
+            if (line.length() == MAX_HEADER_LENGTH) {
+                throw new BadRequestException("L'en-tête CSV dépasse " + MAX_HEADER_LENGTH + " caractères");
+            }
+            line.append((char) c);
+        }
+        if (c == -1 && line.isEmpty()) {
+            throw new BadRequestException("Le fichier CSV est vide");
+        }
+        reader.reset();
+        return line.toString();
+    }
+
+    private Row toRow(long ligne, List<String> record, Map<String, Integer> columns) {
+        CreateSinistreRequest request = new CreateSinistreRequest();
+        List<String> erreurs = new ArrayList<>();
+
+        String type = cell(record, columns, "typesinistre");
+        if (type != null) {
+            try {
+                request.setTypeSinistre(TypeSinistre.valueOf(type.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                erreurs.add("Type de sinistre inconnu: " + type);
+            }
+        }
+        request.setDescription(cell(record, columns, "description"));
+
+        String contrat = cell(record, columns, "contratassuranceid");
+        if (contrat != null) {
+            try {
+                request.setContratAssuranceId(Long.parseLong(contrat));
+            } catch (NumberFormatException e) {
+                erreurs.add("ID de contrat d'assurance invalide: " + contrat);
+            }
+        }
+
+        String estimation = cell(record, columns, "estimationperte");
+        if (estimation != null) {
+            try {
+                // Virgule décimale acceptée (tableurs en français)
+                request.setEstimationPerte(new BigDecimal(estimation.replace(',', '.')));
+            } catch (NumberFormatException e) {
+                erreurs.add("Estimation de perte invalide: " + estimation);
+            }
+        }
+
+        request.setLatitude(coordonnee(record, columns, "latitude", erreurs));
+        request.setLongitude(coordonnee(record, columns, "longitude", erreurs));
+
+        return new Row(ligne, request, erreurs.isEmpty() ? null : String.join("; ", erreurs));
+    }
+
+    private static Double coordonnee(List<String> record, Map<String, Integer> columns, String column,
+            List<String> erreurs) {
+        String value = cell(record, columns, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            erreurs.add("Coordonnée invalide (" + column + "): " + value);
+            return null;
+        }
+    }
+
+    private static String cell(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String normalize(String column) {
+        // BOM éventuel des exports de tableur, casse et séparateurs ignorés
+        return column.replace("\uFEFF", "").replace("_", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        Row next() throws IOException;
+    }
+
+    private record Row(long ligne, CreateSinistreRequest request, String erreur) {
+    }
+}
@@ -0,0 +1,374 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.microassurance.dto.response.SinistreStatsResponse;
+import tn.esprit.agroprotect.microassurance.entity.Indemnisation;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.entity.SinistreRollup;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.repository.SinistreRollupRepository;
+import tn.esprit.agroprotect.microassurance.security.ResolvedPrincipal;
+import tn.esprit.agroprotect.microassurance.security.SecurityUtil;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service des agrégats de sinistres ({@link SinistreRollup}).
+ *
+ * Chaque changement d'état applique ses variations aux lignes d'agrégat concernées dans
+ * la transaction qui le porte : mise à jour incrémentale, ou insertion à la première
+ * variation d'une clé. Les statistiques sont ensuite lues dans les agrégats, sans
+ * parcourir les sinistres ni les indemnisations.
+ */
+@Service
+@Slf4j
+public class SinistreRollupService {
+
+    private static final String UPDATE_SQL = "UPDATE sinistre_rollups SET nb_declares = nb_declares + ?, "
+            + "nb_en_evaluation = nb_en_evaluation + ?, nb_valides = nb_valides + ?, nb_refuses = nb_refuses + ?, "
+            + "estimation_perte_totale = estimation_perte_totale + ?, "
+            + "nb_indemnisations_payees = nb_indemnisations_payees + ?, montant_paye = montant_paye + ?, "
+            + "nb_indemnisations_annulees = nb_indemnisations_annulees + ?, updated_at = ? "
+            + "WHERE created_by_user_id = ? AND contrat_assurance_id = ? AND type_sinistre = ? AND jour = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO sinistre_rollups (nb_declares, nb_en_evaluation, "
+            + "nb_valides, nb_refuses, estimation_perte_totale, nb_indemnisations_payees, montant_paye, "
+            + "nb_indemnisations_annulees, updated_at, created_by_user_id, contrat_assurance_id, type_sinistre, jour) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String REBUILD_SQL = "INSERT INTO sinistre_rollups (created_by_user_id, "
+            + "contrat_assurance_id, type_sinistre, jour, nb_declares, nb_en_evaluation, nb_valides, nb_refuses, "
+            + "estimation_perte_totale, nb_indemnisations_payees, montant_paye, nb_indemnisations_annulees, updated_at) "
+            + "SELECT s.created_by_user_id, COALESCE(s.contrat_assurance_id, 0), s.type_sinistre, "
+            + "CAST(s.date_declaration AS DATE), "
+            + "SUM(CASE WHEN s.statut = 'DECLARE' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN s.statut = 'EN_EVALUATION' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN s.statut = 'VALIDE' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN s.statut = 'REFUSE' THEN 1 ELSE 0 END), "
+            + "COALESCE(SUM(s.estimation_perte), 0), "
+            + "SUM(CASE WHEN i.statut = 'PAYE' THEN 1 ELSE 0 END), "
+            + "COALESCE(SUM(CASE WHEN i.statut = 'PAYE' THEN i.montant END), 0), "
+            + "SUM(CASE WHEN i.statut = 'ANNULE' THEN 1 ELSE 0 END), ? "
+            + "FROM sinistres s LEFT JOIN indemnisations i ON i.sinistre_id = s.id "
+            + "GROUP BY s.created_by_user_id, COALESCE(s.contrat_assurance_id, 0), s.type_sinistre, "
+            + "CAST(s.date_declaration AS DATE)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SinistreRollupRepository sinistreRollupRepository;
+    private final SecurityUtil securityUtil;
+    private final SinistreActiviteService sinistreActiviteService;
+
+    public SinistreRollupService(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            SinistreRollupRepository sinistreRollupRepository,
+            SecurityUtil securityUtil,
+            SinistreActiviteService sinistreActiviteService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sinistreRollupRepository = sinistreRollupRepository;
+        this.securityUtil = securityUtil;
+        this.sinistreActiviteService = sinistreActiviteService;
+    }
+
+    /**
+     * Clé d'agrégat d'un sinistre : utilisateur, contrat (0 sans contrat), type, jour de déclaration
+     */
+    public record Cle(Long createdByUserId, Long contratAssuranceId, TypeSinistre typeSinistre, LocalDate jour) {
+
+        private static final Comparator<Cle> ORDRE = Comparator.comparing(Cle::createdByUserId)
+                .thenComparing(Cle::contratAssuranceId)
+                .thenComparing(Cle::typeSinistre)
+                .thenComparing(Cle::jour);
+
+        public static Cle of(Long createdByUserId, Long contratAssuranceId, TypeSinistre typeSinistre,
+                Instant dateDeclaration) {
+            return new Cle(createdByUserId, contratAssuranceId != null ? contratAssuranceId : 0L, typeSinistre,
+                    LocalDate.ofInstant(dateDeclaration, ZoneOffset.UTC));
+        }
+
+        public static Cle of(Sinistre sinistre) {
+            return of(sinistre.getCreatedByUserId(), sinistre.getContratAssuranceId(), sinistre.getTypeSinistre(),
+                    sinistre.getDateDeclaration());
+        }
+    }
+
+    /**
+     * Variations accumulées par clé, appliquées en une fois par {@link #apply(Variations)}.
+     * Les changements de statut alimentent aussi la série d'activité ({@link SinistreActiviteService}).
+     */
+    public static final class Variations {
+
+        private final Map<Cle, long[]> compteurs = new TreeMap<>(Cle.ORDRE);
+        private final Map<Cle, BigDecimal[]> montants = new TreeMap<>(Cle.ORDRE);
+        private final List<SinistreActiviteService.Evenement> evenements = new ArrayList<>();
+
+        private static final int DECLARES = 0;
+        private static final int EN_EVALUATION = 1;
+        private static final int VALIDES = 2;
+        private static final int REFUSES = 3;
+        private static final int PAYEES = 4;
+        private static final int ANNULEES = 5;
+        private static final int ESTIMATION = 0;
+        private static final int MONTANT_PAYE = 1;
+
+        public Variations declaration(Cle cle, BigDecimal estimationPerte) {
+            compteurs(cle)[DECLARES]++;
+            if (estimationPerte != null) {
+                montants(cle)[ESTIMATION] = montants(cle)[ESTIMATION].add(estimationPerte);
+            }
+            evenements.add(new SinistreActiviteService.Evenement(cle.typeSinistre(), StatutSinistre.DECLARE,
+                    estimationPerte));
+            return this;
+        }
+
+        public Variations transition(Cle cle, StatutSinistre source, StatutSinistre cible,
+                BigDecimal estimationPerte) {
+            compteurs(cle)[index(source)]--;
+            compteurs(cle)[index(cible)]++;
+            evenements.add(new SinistreActiviteService.Evenement(cle.typeSinistre(), cible, estimationPerte));
+            return this;
+        }
+
+        public Variations paiement(Cle cle, BigDecimal montant) {
+            compteurs(cle)[PAYEES]++;
+            montants(cle)[MONTANT_PAYE] = montants(cle)[MONTANT_PAYE].add(montant);
+            return this;
+        }
+
+        public Variations annulation(Cle cle) {
+            compteurs(cle)[ANNULEES]++;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return compteurs.isEmpty();
+        }
+
+        private long[] compteurs(Cle cle) {
+            montants(cle);
+            return compteurs.computeIfAbsent(cle, k -> new long[6]);
+        }
+
+        private BigDecimal[] montants(Cle cle) {
+            return montants.computeIfAbsent(cle, k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+        }
+
+        private static int index(StatutSinistre statut) {
+            return switch (statut) {
+                case DECLARE -> DECLARES;
+                case EN_EVALUATION -> EN_EVALUATION;
+                case VALIDE -> VALIDES;
+                case REFUSE -> REFUSES;
+            };
+        }
+    }
+
+    public void declaration(Sinistre sinistre) {
+        apply(new Variations().declaration(Cle.of(sinistre), sinistre.getEstimationPerte()));
+    }
+
+    public void transition(Sinistre sinistre, StatutSinistre source) {
+        apply(new Variations().transition(Cle.of(sinistre), source, sinistre.getStatut(),
+                sinistre.getEstimationPerte()));
+    }
+
+    public void paiement(Indemnisation indemnisation) {
+        apply(new Variations().paiement(Cle.of(indemnisation.getSinistre()), indemnisation.getMontant()));
+    }
+
+    public void annulation(Indemnisation indemnisation) {
+        apply(new Variations().annulation(Cle.of(indemnisation.getSinistre())));
+    }
+
+    /**
+     * Applique les variations dans la transaction de l'appelant, par ordre de clé
+     * (ordre de verrouillage stable entre transactions concurrentes)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Variations variations) {
+        if (variations.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Cle> cles = new ArrayList<>(variations.compteurs.keySet());
+        List<Object[]> args = new ArrayList<>(cles.size());
+        for (Cle cle : cles) {
+            args.add(args(variations, cle, now));
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+        for (int i = 0; i < cles.size(); i++) {
+            if (counts[i] == 0) {
+                insert(args.get(i));
+            }
+        }
+        sinistreActiviteService.record(variations.evenements);
+    }
+
+    /**
+     * Statistiques lues dans les agrégats ; un utilisateur sans droit de lecture global
+     * ne voit que ses propres sinistres. Sans filtre, la somme porte sur une ligne par
+     * utilisateur, contrat, type et jour (de l'ordre d'une ligne par sinistre)
+     */
+    @Transactional(readOnly = true)
+    public SinistreStatsResponse getStats(Long createdByUserId, Long contratAssuranceId, TypeSinistre typeSinistre,
+            LocalDate dateFrom, LocalDate dateTo) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        Long filterUserId = principal.canViewAllSinistres() ? createdByUserId : principal.getUserId();
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<SinistreRollup> root = query.from(SinistreRollup.class);
+        List<Predicate> predicates = new ArrayList<>();
+        if (filterUserId != null) {
+            predicates.add(cb.equal(root.get("createdByUserId"), filterUserId));
+        }
+        if (contratAssuranceId != null) {
+            predicates.add(cb.equal(root.get("contratAssuranceId"), contratAssuranceId));
+        }
+        if (typeSinistre != null) {
+            predicates.add(cb.equal(root.get("typeSinistre"), typeSinistre));
+        }
+        if (dateFrom != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("jour"), dateFrom));
+        }
+        if (dateTo != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("jour"), dateTo));
+        }
+
+        Expression<TypeSinistre> type = root.get("typeSinistre");
+        query.multiselect(type,
+                cb.sum(root.<Long>get("nbDeclares")),
+                cb.sum(root.<Long>get("nbEnEvaluation")),
+                cb.sum(root.<Long>get("nbValides")),
+                cb.sum(root.<Long>get("nbRefuses")),
+                cb.sum(root.<BigDecimal>get("estimationPerteTotale")),
+                cb.sum(root.<Long>get("nbIndemnisationsPayees")),
+                cb.sum(root.<BigDecimal>get("montantPaye")),
+                cb.sum(root.<Long>get("nbIndemnisationsAnnulees")))
+                .where(predicates.toArray(Predicate[]::new))
+                .groupBy(type)
+                .orderBy(cb.asc(type));
+
+        SinistreStatsResponse total = new SinistreStatsResponse();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            SinistreStatsResponse parType = new SinistreStatsResponse();
+            parType.setTypeSinistre(row.get(0, TypeSinistre.class));
+            parType.setNbDeclares(longValue(row.get(1)));
+            parType.setNbEnEvaluation(longValue(row.get(2)));
+            parType.setNbValides(longValue(row.get(3)));
+            parType.setNbRefuses(longValue(row.get(4)));
+            parType.setEstimationPerteTotale(amount(row.get(5)));
+            parType.setNbIndemnisationsPayees(longValue(row.get(6)));
+            parType.setMontantPaye(amount(row.get(7)));
+            parType.setNbIndemnisationsAnnulees(longValue(row.get(8)));
+            parType.setNbSinistres(parType.getNbDeclares() + parType.getNbEnEvaluation()
+                    + parType.getNbValides() + parType.getNbRefuses());
+            add(total, parType);
+            total.getParType().add(parType);
+        }
+        return total;
+    }
+
+    /**
+     * Recalcule tous les agrégats depuis les sinistres et indemnisations.
+     * À lancer hors activité : les écritures concurrentes au recalcul peuvent être perdues.
+     */
+    public int rebuild() {
+        int rows = recompute();
+        log.info("Agrégats de sinistres recalculés par l'utilisateur {}: {} ligne(s)",
+                securityUtil.getCurrentUserId(), rows);
+        return rows;
+    }
+
+    /**
+     * Initialise les agrégats au premier démarrage sur une base existante
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (sinistreRollupRepository.count() == 0
+                && jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sinistres", Long.class) > 0) {
+            log.info("Agrégats de sinistres initialisés: {} ligne(s)", recompute());
+        }
+    }
+
+    private int recompute() {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM sinistre_rollups");
+            return jdbcTemplate.update(REBUILD_SQL, Timestamp.from(Instant.now()));
+        });
+    }
+
+    private void insert(Object[] args) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, args);
+        } catch (DuplicateKeyException e) {
+            // Clé créée par une transaction concurrente entre-temps : mise à jour
+            jdbcTemplate.update(UPDATE_SQL, args);
+        }
+    }
+
+    private static Object[] args(Variations variations, Cle cle, Timestamp now) {
+        long[] compteurs = variations.compteurs.get(cle);
+        BigDecimal[] montants = variations.montants.get(cle);
+        return new Object[]{
+                compteurs[Variations.DECLARES], compteurs[Variations.EN_EVALUATION],
+                compteurs[Variations.VALIDES], compteurs[Variations.REFUSES],
+                montants[Variations.ESTIMATION],
+                compteurs[Variations.PAYEES], montants[Variations.MONTANT_PAYE],
+                compteurs[Variations.ANNULEES], now,
+                cle.createdByUserId(), cle.contratAssuranceId(), cle.typeSinistre().name(), Date.valueOf(cle.jour())};
+    }
+
+    private static void add(SinistreStatsResponse total, SinistreStatsResponse part) {
+        total.setNbSinistres(total.getNbSinistres() + part.getNbSinistres());
+        total.setNbDeclares(total.getNbDeclares() + part.getNbDeclares());
+        total.setNbEnEvaluation(total.getNbEnEvaluation() + part.getNbEnEvaluation());
+        total.setNbValides(total.getNbValides() + part.getNbValides());
+        total.setNbRefuses(total.getNbRefuses() + part.getNbRefuses());
+        total.setEstimationPerteTotale(total.getEstimationPerteTotale().add(part.getEstimationPerteTotale()));
+        total.setNbIndemnisationsPayees(total.getNbIndemnisationsPayees() + part.getNbIndemnisationsPayees());
+        total.setMontantPaye(total.getMontantPaye().add(part.getMontantPaye()));
+        total.setNbIndemnisationsAnnulees(total.getNbIndemnisationsAnnulees() + part.getNbIndemnisationsAnnulees());
+    }
+
+    private static long longValue(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private static BigDecimal amount(Object value) {
+        return value == null ? BigDecimal.ZERO : (BigDecimal) value;
+    }
+}
@@ -4,8 +4,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.agroprotect.common.pagination.CountStrategy;
+import tn.esprit.agroprotect.common.pagination.CursorPage;
+import tn.esprit.agroprotect.common.pagination.Keyset;
+import tn.esprit.agroprotect.common.pagination.SliceQuery;
+import tn.esprit.agroprotect.microassurance.doublon.SinistreDoublonIndex;
+import tn.esprit.agroprotect.microassurance.dto.projection.SinistreView;
 import tn.esprit.agroprotect.microassurance.dto.request.CreateSinistreRequest;
 import tn.esprit.agroprotect.microassurance.dto.request.RefuseSinistreRequest;
 import tn.esprit.agroprotect.microassurance.dto.request.ValidateSinistreRequest;
@@ -14,14 +24,21 @@ import tn.esprit.agroprotect.microassurance.dto.mapper.SinistreMapper;
 import tn.esprit.agroprotect.microassurance.entity.Sinistre;
 import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
 import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.exception.BadRequestException;
 import tn.esprit.agroprotect.microassurance.exception.ConflictException;
 import tn.esprit.agroprotect.microassurance.exception.ForbiddenException;
 import tn.esprit.agroprotect.microassurance.exception.NotFoundException;
+import tn.esprit.agroprotect.microassurance.repository.SinistreProjections;
 import tn.esprit.agroprotect.microassurance.repository.SinistreRepository;
+import tn.esprit.agroprotect.microassurance.repository.SinistreSpecifications;
+import tn.esprit.agroprotect.microassurance.security.ResolvedPrincipal;
 import tn.esprit.agroprotect.microassurance.security.SecurityUtil;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Service pour la gestion des sinistres
@@ -32,23 +49,45 @@ import java.time.Instant;
 @Transactional
 public class SinistreService {
 
+    /**
+     * Champs de tri non nuls utilisables comme clé de pagination par curseur
+     */
+    private static final Set<String> CURSOR_SORT_FIELDS = Set.of("dateDeclaration", "createdAt", "id");
+
     private final SinistreRepository sinistreRepository;
     private final SinistreMapper sinistreMapper;
     private final SecurityUtil securityUtil;
+    private final CountStrategy countStrategy;
+    private final SliceQuery sliceQuery;
+    private final SinistreRollupService sinistreRollupService;
+    private final EvenementService evenementService;
+    private final SinistreDoublonIndex sinistreDoublonIndex;
 
     /**
      * Crée un nouveau sinistre
      */
     public SinistreResponse createSinistre(CreateSinistreRequest request) {
-        Long userId = securityUtil.getCurrentUserId();
+        Long userId = securityUtil.getCurrentPrincipal().getUserId();
 
         Sinistre sinistre = sinistreMapper.toEntity(request);
         sinistre.setDateDeclaration(Instant.now());  // Explicitly set date
         sinistre.setCreatedByUserId(userId);
         sinistre.setStatut(StatutSinistre.DECLARE);
 
+        SinistreDoublonIndex.Doublon doublon = sinistreDoublonIndex.findDoublon(sinistre);
+        if (doublon != null) {
+            sinistre.setDoublonPresumeId(doublon.sinistreId());
+        }
+
         Sinistre savedSinistre = sinistreRepository.save(sinistre);
+        sinistreRollupService.declaration(savedSinistre);
+        evenementService.sinistre(savedSinistre, null);
+        sinistreDoublonIndex.register(savedSinistre);
         log.info("Sinistre créé avec l'ID: {}", savedSinistre.getId());
+        if (doublon != null) {
+            log.warn("Sinistre {} signalé comme doublon présumé du sinistre {} (similarité {})",
+                    savedSinistre.getId(), doublon.sinistreId(), doublon.similarite());
+        }
 
         return sinistreMapper.toResponse(savedSinistre);
     }
@@ -58,10 +97,10 @@ public class SinistreService {
      */
     @Transactional(readOnly = true)
     public SinistreResponse getSinistreById(Long id) {
-        Sinistre sinistre = findSinistreById(id);
+        SinistreView sinistre = findSinistreViewById(id);
         
         // Vérification des permissions
-        if (!securityUtil.canViewSinistre(sinistre.getCreatedByUserId())) {
+        if (!securityUtil.getCurrentPrincipal().canViewSinistre(sinistre.getCreatedByUserId())) {
             throw new ForbiddenException("Vous n'avez pas l'autorisation de voir ce sinistre");
         }
 
@@ -81,32 +120,89 @@ public class SinistreService {
             Instant dateTo,
             Pageable pageable) {
 
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
         Long filterUserId = null;
         
         // Si l'utilisateur n'est pas admin/expert, il ne voit que ses propres sinistres
-        if (!securityUtil.canViewAllSinistres()) {
-            filterUserId = securityUtil.getCurrentUserId();
+        if (!principal.canViewAllSinistres()) {
+            filterUserId = principal.getUserId();
         } else if (createdByUserId != null) {
             filterUserId = createdByUserId;
         }
 
-        Page<Sinistre> sinistres = sinistreRepository.findWithFilters(
-                statut,
-                typeSinistre,
-                contratAssuranceId,
-                filterUserId,
-                dateFrom,
-                dateTo,
-                pageable);
+        Specification<Sinistre> spec = SinistreSpecifications.withFilters(
+                statut, typeSinistre, contratAssuranceId, filterUserId, dateFrom, dateTo);
+        Slice<SinistreView> sinistres = sliceQuery.find(Sinistre.class, spec, pageable,
+                SinistreView.class, SinistreProjections.view());
+
+        // Total via CountStrategy : dernière page, cache par filtres, comptage exact ou estimation
+        return countStrategy.page(
+                sinistres.map(sinistreMapper::toResponse),
+                pageable,
+                Sinistre.class,
+                spec,
+                Arrays.asList(statut, typeSinistre, contratAssuranceId, filterUserId, dateFrom, dateTo));
+    }
+
+    /**
+     * Sélection d'un export, avec les mêmes règles de visibilité que la recherche.
+     * Sans transaction : le flux de l'export ouvre la sienne dans un autre thread
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Specification<Sinistre> exportFilter(
+            StatutSinistre statut,
+            TypeSinistre typeSinistre,
+            Long contratAssuranceId,
+            Long createdByUserId,
+            Instant dateFrom,
+            Instant dateTo) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        Long filterUserId = principal.canViewAllSinistres() ? createdByUserId : principal.getUserId();
+        return SinistreSpecifications.withFilters(
+                statut, typeSinistre, contratAssuranceId, filterUserId, dateFrom, dateTo);
+    }
+
+    /**
+     * Recherche des sinistres paginée par curseur (keyset), sans comptage total
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<SinistreResponse> scrollSinistres(
+            StatutSinistre statut,
+            TypeSinistre typeSinistre,
+            Long contratAssuranceId,
+            Long createdByUserId,
+            Instant dateFrom,
+            Instant dateTo,
+            String sortField,
+            Sort.Direction direction,
+            String cursor,
+            int size) {
+
+        if (!CURSOR_SORT_FIELDS.contains(sortField)) {
+            throw new BadRequestException("Critère de tri non supporté en pagination par curseur: " + sortField);
+        }
+
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        Long filterUserId = principal.canViewAllSinistres() ? createdByUserId : principal.getUserId();
+
+        Keyset<Sinistre> keyset = Keyset.of(sortField, direction);
+        Specification<Sinistre> spec = SinistreSpecifications.withFilters(
+                statut, typeSinistre, contratAssuranceId, filterUserId, dateFrom, dateTo)
+                .and(keyset.after(cursor));
+
+        int pageSize = Keyset.clampSize(size);
+        List<SinistreView> rows = sliceQuery.list(Sinistre.class, spec, keyset.sort(), pageSize + 1,
+                SinistreView.class, SinistreProjections.view());
 
-        return sinistres.map(sinistreMapper::toResponse);
+        return keyset.page(rows, pageSize).map(sinistreMapper::toResponse);
     }
 
     /**
      * Commence l'évaluation d'un sinistre
      */
     public SinistreResponse startEvaluation(Long id) {
-        if (!securityUtil.canModifySinistreStatus()) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canModifySinistreStatus()) {
             throw new ForbiddenException("Vous n'avez pas l'autorisation de modifier le statut des sinistres");
         }
 
@@ -115,11 +211,20 @@ public class SinistreService {
         if (!sinistre.canStartEvaluation()) {
             throw new ConflictException("Ce sinistre ne peut pas être mis en évaluation. Statut actuel: " + sinistre.getStatut());
         }
+        if (sinistre.isReservedByOther(principal.getUserId(), Instant.now())) {
+            throw new ConflictException("Ce sinistre est réservé par un autre expert jusqu'à " + sinistre.getAssignationExpiration());
+        }
 
+        StatutSinistre statutPrecedent = sinistre.getStatut();
         sinistre.setStatut(StatutSinistre.EN_EVALUATION);
+        // Réservation éventuelle convertie en assignation définitive
+        sinistre.setExpertAssigneId(principal.getUserId());
+        sinistre.setAssignationExpiration(null);
         Sinistre savedSinistre = sinistreRepository.save(sinistre);
+        sinistreRollupService.transition(savedSinistre, statutPrecedent);
+        evenementService.sinistre(savedSinistre, statutPrecedent);
 
-        log.info("Sinistre {} mis en évaluation par l'utilisateur {}", id, securityUtil.getCurrentUserId());
+        log.info("Sinistre {} mis en évaluation par l'utilisateur {}", id, principal.getUserId());
 
         return sinistreMapper.toResponse(savedSinistre);
     }
@@ -128,7 +233,8 @@ public class SinistreService {
      * Valide un sinistre
      */
     public SinistreResponse validateSinistre(Long id, ValidateSinistreRequest request) {
-        if (!securityUtil.canModifySinistreStatus()) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canModifySinistreStatus()) {
             throw new ForbiddenException("Vous n'avez pas l'autorisation de valider les sinistres");
         }
 
@@ -138,6 +244,7 @@ public class SinistreService {
             throw new ConflictException("Ce sinistre ne peut pas être validé. Statut actuel: " + sinistre.getStatut());
         }
 
+        StatutSinistre statutPrecedent = sinistre.getStatut();
         sinistre.setStatut(StatutSinistre.VALIDE);
         sinistre.setMotifRefus(null); // Clear any previous refusal reason
         
@@ -146,8 +253,10 @@ public class SinistreService {
         }
 
         Sinistre savedSinistre = sinistreRepository.save(sinistre);
+        sinistreRollupService.transition(savedSinistre, statutPrecedent);
+        evenementService.sinistre(savedSinistre, statutPrecedent);
 
-        log.info("Sinistre {} validé par l'utilisateur {}", id, securityUtil.getCurrentUserId());
+        log.info("Sinistre {} validé par l'utilisateur {}", id, principal.getUserId());
 
         return sinistreMapper.toResponse(savedSinistre);
     }
@@ -156,7 +265,8 @@ public class SinistreService {
      * Refuse un sinistre
      */
     public SinistreResponse refuseSinistre(Long id, RefuseSinistreRequest request) {
-        if (!securityUtil.canModifySinistreStatus()) {
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        if (!principal.canModifySinistreStatus()) {
             throw new ForbiddenException("Vous n'avez pas l'autorisation de refuser les sinistres");
         }
 
@@ -166,18 +276,32 @@ public class SinistreService {
             throw new ConflictException("Ce sinistre ne peut pas être refusé. Statut actuel: " + sinistre.getStatut());
         }
 
+        StatutSinistre statutPrecedent = sinistre.getStatut();
         sinistre.setStatut(StatutSinistre.REFUSE);
         sinistre.setMotifRefus(request.getMotifRefus());
         sinistre.setTauxRemboursement(null); // Clear reimbursement rate
 
         Sinistre savedSinistre = sinistreRepository.save(sinistre);
+        sinistreRollupService.transition(savedSinistre, statutPrecedent);
+        evenementService.sinistre(savedSinistre, statutPrecedent);
 
         log.info("Sinistre {} refusé par l'utilisateur {} avec le motif: {}", 
-                id, securityUtil.getCurrentUserId(), request.getMotifRefus());
+                id, principal.getUserId(), request.getMotifRefus());
 
         return sinistreMapper.toResponse(savedSinistre);
     }
 
+    /**
+     * Lit la projection d'un sinistre (avec son indemnisation) ou lève une exception
+     */
+    private SinistreView findSinistreViewById(Long id) {
+        return sliceQuery.list(Sinistre.class, SinistreSpecifications.hasId(id), Sort.unsorted(), 1,
+                        SinistreView.class, SinistreProjections.view())
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Sinistre non trouvé avec l'ID: " + id));
+    }
+
     /**
      * Trouve un sinistre par son ID ou lève une exception
      */
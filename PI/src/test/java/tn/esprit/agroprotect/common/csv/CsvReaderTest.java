@@ -0,0 +1,68 @@
+package tn.esprit.agroprotect.common.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainRecordsWithLfAndCrlf() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b,c\r\n1,2,3\n4,,6"), ',');
+
+        assertThat(reader.next()).containsExactly("a", "b", "c");
+        assertThat(reader.next()).containsExactly("1", "2", "3");
+        assertThat(reader.next()).containsExactly("4", "", "6");
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void readsQuotedFieldsWithEscapedQuotesDelimitersAndLineBreaks() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "\"Crue; parcelle \"\"nord\"\"\";\"ligne 1\r\nligne 2\";fin\n"), ';');
+
+        assertThat(reader.next()).containsExactly("Crue; parcelle \"nord\"", "ligne 1\r\nligne 2", "fin");
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void skipsBlankLinesAndTracksRecordLines() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("h\n\n\"a\nb\"\r\n\r\nc\n"), ',');
+        List<Long> lines = new ArrayList<>();
+        while (reader.next() != null) {
+            lines.add(reader.getRecordLine());
+        }
+
+        assertThat(lines).containsExactly(1L, 3L, 6L);
+    }
+
+    @Test
+    void keepsEmptyTrailingField() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,\n"), ',');
+
+        assertThat(reader.next()).containsExactly("a", "");
+    }
+
+    @Test
+    void rejectsUnterminatedQuotedField() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("ok\n\"jamais fermé\n"), ',');
+        reader.next();
+
+        assertThatThrownBy(reader::next)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("line 2");
+    }
+
+    @Test
+    void detectsDelimiterFromHeader() {
+        assertThat(CsvReader.detectDelimiter("typeSinistre;description")).isEqualTo(';');
+        assertThat(CsvReader.detectDelimiter("typeSinistre,description")).isEqualTo(',');
+        assertThat(CsvReader.detectDelimiter("typeSinistre")).isEqualTo(',');
+    }
+}
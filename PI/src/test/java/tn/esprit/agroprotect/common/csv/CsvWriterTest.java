@@ -0,0 +1,47 @@
+package tn.esprit.agroprotect.common.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvWriterTest {
+
+    @Test
+    void quotesFieldsOnlyWhenNeeded() throws IOException {
+        assertThat(write(',', "plain", "a,b", "say \"hi\"", "two\nlines", null, 42))
+                .isEqualTo("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",,42\r\n");
+    }
+
+    @Test
+    void prefixesTextThatSpreadsheetsWouldEvaluate() throws IOException {
+        assertThat(write(';', "=SUM(A1:A9)", "+33", "-1", "@cmd", "\tx", "\rx", "a=b"))
+                .isEqualTo("'=SUM(A1:A9);'+33;'-1;'@cmd;'\tx;\"'\rx\";a=b\r\n");
+    }
+
+    @Test
+    void writesNegativeNumbersAsIs() throws IOException {
+        assertThat(write(',', new BigDecimal("-12.50"), -3)).isEqualTo("-12.50,-3\r\n");
+    }
+
+    @Test
+    void roundTripsThroughReader() throws IOException {
+        String[] fields = {"Grêle; \"forte\"", "ligne 1\r\nligne 2", "", "fin"};
+        CsvReader reader = new CsvReader(new StringReader(write(';', (Object[]) fields)), ';');
+
+        assertThat(reader.next()).containsExactly(fields);
+        assertThat(reader.next()).isNull();
+    }
+
+    private static String write(char delimiter, Object... fields) throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out, delimiter);
+        writer.write(fields);
+        writer.flush();
+        return out.toString();
+    }
+}
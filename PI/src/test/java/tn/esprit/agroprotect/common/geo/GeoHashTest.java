@@ -0,0 +1,89 @@
+package tn.esprit.agroprotect.common.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeoHashTest {
+
+    @Test
+    void encodesKnownPoints() {
+        assertThat(GeoHash.encode(57.64911, 10.40744, 11)).isEqualTo("u4pruydqqvj");
+        assertThat(GeoHash.encode(42.605, -5.603, 5)).isEqualTo("ezs42");
+        assertThat(GeoHash.encode(-90, -180, 3)).isEqualTo("000");
+        assertThat(GeoHash.encode(90, 180, 3)).isEqualTo("zzz");
+    }
+
+    @Test
+    void boundsContainTheEncodedPointAndMatchThePrecision() {
+        String hash = GeoHash.encode(36.8065, 10.1815, 5);
+        BoundingBox cell = GeoHash.bounds(hash);
+
+        assertThat(cell.contains(36.8065, 10.1815)).isTrue();
+        assertThat(cell.east() - cell.west()).isEqualTo(360.0 / (1 << 13));
+        assertThat(cell.north() - cell.south()).isEqualTo(180.0 / (1 << 12));
+        assertThatThrownBy(() -> GeoHash.bounds("a")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void successorIsTheNextPrefixInHashOrder() {
+        assertThat(GeoHash.successor("s")).isEqualTo("t");
+        assertThat(GeoHash.successor("9")).isEqualTo("b");
+        assertThat(GeoHash.successor("snz")).isEqualTo("sp");
+        assertThat(GeoHash.successor("zz")).isNull();
+    }
+
+    @Test
+    void rangesMergeConsecutiveCells() {
+        assertThat(GeoHash.ranges(List.of("s0", "s1", "s2", "s5", "sz", "t0")))
+                .containsExactly(new GeoHash.Range("s0", "s3"), new GeoHash.Range("s5", "s6"),
+                        new GeoHash.Range("sz", "t1"));
+        assertThat(GeoHash.ranges(List.of("szz", "t00", "t01"))).containsExactly(new GeoHash.Range("szz", "t02"));
+        assertThat(GeoHash.ranges(List.of("zy", "zz"))).containsExactly(new GeoHash.Range("zy", null));
+        assertThat(GeoHash.ranges(List.of())).isEmpty();
+    }
+
+    @Test
+    void coverHasOneCellPerCountedCellAndEveryPointOfTheBoxFallsInARange() {
+        assertCovers(new BoundingBox(33.0, 7.5, 37.5, 11.6), 32);
+        assertCovers(BoundingBox.around(36.8, 10.18, 25), 32);
+        // Across the antimeridian: cells on both sides
+        assertCovers(new BoundingBox(-20, 175, -15, -178), 32);
+    }
+
+    @Test
+    void precisionForKeepsTheCoverWithinTheLimit() {
+        BoundingBox tunisia = new BoundingBox(30.2, 7.5, 37.6, 11.6);
+        int precision = GeoHash.precisionFor(tunisia, 32);
+
+        assertThat(GeoHash.cellCount(tunisia, precision)).isLessThanOrEqualTo(32);
+        assertThat(GeoHash.cellCount(tunisia, precision + 1)).isGreaterThan(32);
+        assertThat(GeoHash.precisionFor(new BoundingBox(-90, -180, 90, 180), 4)).isEqualTo(1);
+    }
+
+    private static void assertCovers(BoundingBox box, int maxCells) {
+        int precision = GeoHash.precisionFor(box, maxCells);
+        List<String> cells = GeoHash.cover(box, precision);
+        List<GeoHash.Range> ranges = GeoHash.ranges(cells);
+
+        assertThat(cells).hasSize((int) GeoHash.cellCount(box, precision)).isSorted();
+        assertThat(ranges.size()).isLessThanOrEqualTo(cells.size());
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            double latitude = box.south() + random.nextDouble() * (box.north() - box.south());
+            double width = box.crossesAntimeridian() ? box.east() + 360 - box.west() : box.east() - box.west();
+            double longitude = box.west() + random.nextDouble() * width;
+            if (longitude > 180) {
+                longitude -= 360;
+            }
+            String hash = GeoHash.encode(latitude, longitude, GeoHash.MAX_PRECISION);
+            assertThat(ranges).as("point %s,%s (%s)", latitude, longitude, hash)
+                    .anyMatch(r -> hash.compareTo(r.from()) >= 0 && (r.to() == null || hash.compareTo(r.to()) < 0));
+        }
+    }
+}
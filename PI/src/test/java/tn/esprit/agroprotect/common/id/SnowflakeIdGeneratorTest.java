@@ -0,0 +1,130 @@
+package tn.esprit.agroprotect.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long START = Instant.parse("2025-06-01T12:00:00Z").toEpochMilli();
+    private static final long SEQUENCE = 1L << 12;
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    @Test
+    void encodesTimeNodeAndSequence() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, Duration.ofSeconds(5), clock::get);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertThat(SnowflakeIdGenerator.timestampOf(first)).isEqualTo(Instant.ofEpochMilli(START));
+        assertThat((first >>> 12) & 1023).isEqualTo(5);
+        assertThat(first & (SEQUENCE - 1)).isZero();
+        assertThat(second).isEqualTo(first + 1);
+    }
+
+    @Test
+    void sequenceOverflowMovesToTheNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0, Duration.ofSeconds(5), clock::get);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < SEQUENCE + 1; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(SnowflakeIdGenerator.timestampOf(ids.get((int) SEQUENCE - 1))).isEqualTo(Instant.ofEpochMilli(START));
+        // Clock unchanged: the 4097th id is issued on the logical next millisecond
+        assertThat(SnowflakeIdGenerator.timestampOf(ids.get((int) SEQUENCE))).isEqualTo(Instant.ofEpochMilli(START + 1));
+
+        // Once the wall clock passes the logical one, ids follow the wall clock again
+        clock.set(START + 10);
+        assertThat(SnowflakeIdGenerator.timestampOf(generator.nextId())).isEqualTo(Instant.ofEpochMilli(START + 10));
+    }
+
+    @Test
+    void clockStepBackKeepsIdsIncreasingWithinTheAllowedDrift() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0, Duration.ofMillis(100), clock::get);
+        long before = generator.nextId();
+
+        clock.set(START - 50);
+        long after = generator.nextId();
+
+        assertThat(after).isGreaterThan(before);
+        assertThat(SnowflakeIdGenerator.timestampOf(after)).isEqualTo(Instant.ofEpochMilli(START));
+    }
+
+    @Test
+    void clockStepBackBeyondTheAllowedDriftFails() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0, Duration.ofMillis(100), clock::get);
+        generator.nextId();
+
+        clock.set(START - 1000);
+
+        assertThatThrownBy(generator::nextId)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("behind");
+    }
+
+    @Test
+    void sequenceOverflowBeyondTheAllowedDriftFails() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0, Duration.ZERO, clock::get);
+        for (int i = 0; i < SEQUENCE; i++) {
+            generator.nextId();
+        }
+
+        assertThatThrownBy(generator::nextId).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void concurrentCallersGetUniqueIds() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, Duration.ofSeconds(5));
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(ids).hasSize(80_000);
+    }
+
+    @Test
+    void rejectsNodeIdsOutOfRange() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(1024, Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1, Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void referencesSortLikeTheirIds() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0, Duration.ofSeconds(5), clock::get);
+        String first = generator.nextReference("PAY");
+        clock.addAndGet(1);
+        String second = generator.nextReference("PAY");
+
+        assertThat(first).startsWith("PAY-").hasSize(4 + 13);
+        assertThat(first).isLessThan(second);
+        assertThat(SnowflakeIdGenerator.encode(0)).isEqualTo("0000000000000");
+        assertThat(SnowflakeIdGenerator.encode(-1)).isEqualTo("FZZZZZZZZZZZZ");
+    }
+}
@@ -0,0 +1,91 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class IdempotencyInterceptorTest extends IntegrationTest {
+
+    private static final String OWNER = "idempotency-interceptor-test";
+
+    private final long userId = newUserId();
+    private long indemnisationId;
+
+    @BeforeEach
+    void setUp() {
+        long sinistreId = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.VALIDE, "Grêle", Instant.now());
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO indemnisations (sinistre_id, montant, date_creation, statut, created_at, "
+                + "updated_at, version) VALUES (?, 100, ?, 'EN_ATTENTE', ?, ?, 0)", sinistreId, now, now, now);
+        indemnisationId = jdbcTemplate.queryForObject("SELECT id FROM indemnisations WHERE sinistre_id = ?",
+                Long.class, sinistreId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE owner = ?", OWNER);
+        jdbcTemplate.update("DELETE FROM indemnisations WHERE id = ?", indemnisationId);
+        jdbcTemplate.update("DELETE FROM sinistres WHERE created_by_user_id = ?", userId);
+    }
+
+    @Test
+    void replayReturnsTheStoredStatusAndBody() throws Exception {
+        // Plus long que l'ancienne colonne indemnisations.idempotency_key (50)
+        String key = "k".repeat(80);
+
+        MvcResult first = mockMvc.perform(pay(key))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyInterceptor.REPLAYED_HEADER))
+                .andReturn();
+        MvcResult replay = mockMvc.perform(pay(key))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyInterceptor.REPLAYED_HEADER, "true"))
+                .andReturn();
+
+        assertThat(replay.getResponse().getContentAsString()).isEqualTo(first.getResponse().getContentAsString());
+        assertThat(jdbcTemplate.queryForObject("SELECT statut FROM indemnisations WHERE id = ?",
+                String.class, indemnisationId)).isEqualTo("PAYE");
+    }
+
+    @Test
+    void sameKeyWithOtherArgumentsIsRejected() throws Exception {
+        String key = "reuse-" + indemnisationId;
+        mockMvc.perform(pay(key)).andExpect(status().isOk());
+
+        mockMvc.perform(pay(key).content("{\"paymentReference\":\"AUTRE\"}"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void keyLongerThanTheLimitIsABadRequest() throws Exception {
+        mockMvc.perform(pay("k".repeat(101))).andExpect(status().isBadRequest());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT statut FROM indemnisations WHERE id = ?",
+                String.class, indemnisationId)).isEqualTo("EN_ATTENTE");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_keys WHERE owner = ?",
+                Integer.class, OWNER)).isZero();
+    }
+
+    private MockHttpServletRequestBuilder pay(String key) {
+        return patch("/v1/microassurance/indemnisations/" + indemnisationId + "/pay")
+                .with(user(OWNER).roles("ADMIN"))
+                .header("Idempotency-Key", key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}");
+    }
+}
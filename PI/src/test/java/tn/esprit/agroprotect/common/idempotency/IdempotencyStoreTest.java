@@ -0,0 +1,103 @@
+package tn.esprit.agroprotect.common.idempotency;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTest extends IntegrationTest {
+
+    private static final String OWNER = "idempotency-test";
+    private static final String SCOPE = "IdempotencyStoreTest";
+    private static final String HASH = "0".repeat(64);
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final String key = UUID.randomUUID().toString();
+    private IdempotencyStore store;
+
+    @AfterEach
+    void tearDown() {
+        store.destroy();
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE owner = ?", OWNER);
+    }
+
+    @Test
+    void requestThatLostItsLeaseCannotCompleteOrRelease() {
+        store = store(Duration.ofMillis(100), Duration.ofSeconds(5));
+        IdempotencyStore.Claim first = store.claim(OWNER, SCOPE, key, HASH);
+
+        // No renewal: the lease lapses and a retry takes the key over
+        IdempotencyStore.Claim second = store.claim(OWNER, SCOPE, key, HASH);
+        assertThat(second.recordId()).isEqualTo(first.recordId());
+        assertThat(second.fencingToken()).isGreaterThan(first.fencingToken());
+
+        assertThatThrownBy(() -> complete(first, "{\"stale\":true}"))
+                .isInstanceOfSatisfying(IdempotencyException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+        store.release(first);
+
+        complete(second, "{\"ok\":true}");
+        IdempotencyStore.Claim replay = store.claim(OWNER, SCOPE, key, HASH);
+        assertThat(replay.isReplay()).isTrue();
+        assertThat(replay.replay().getResponseBody()).isEqualTo("{\"ok\":true}");
+    }
+
+    @Test
+    void renewedLeaseIsNotTakenOver() throws InterruptedException {
+        store = store(Duration.ofMillis(300), Duration.ofSeconds(1));
+        IdempotencyStore.Claim claim = store.claim(OWNER, SCOPE, key, HASH);
+
+        try (IdempotencyStore.Renewal renewal = store.keepAlive(claim)) {
+            // Waits well past the initial lease, then gives up
+            assertThatThrownBy(() -> store.claim(OWNER, SCOPE, key, HASH))
+                    .isInstanceOfSatisfying(IdempotencyException.class,
+                            e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+            complete(claim, "{\"ok\":true}");
+        }
+        assertThat(store.claim(OWNER, SCOPE, key, HASH).isReplay()).isTrue();
+    }
+
+    @Test
+    void releasedKeyCanBeClaimedAgain() {
+        store = store(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        IdempotencyStore.Claim claim = store.claim(OWNER, SCOPE, key, HASH);
+
+        store.release(claim);
+
+        IdempotencyStore.Claim retry = store.claim(OWNER, SCOPE, key, HASH);
+        assertThat(retry.isReplay()).isFalse();
+        assertThat(retry.recordId()).isNotEqualTo(claim.recordId());
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() {
+        store = store(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        store.claim(OWNER, SCOPE, key, HASH);
+
+        assertThatThrownBy(() -> store.claim(OWNER, SCOPE, key, "1".repeat(64)))
+                .isInstanceOfSatisfying(IdempotencyException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+    }
+
+    private IdempotencyStore store(Duration lease, Duration waitTimeout) {
+        return new IdempotencyStore(repository, transactionManager, Duration.ofHours(1), lease, waitTimeout);
+    }
+
+    private void complete(IdempotencyStore.Claim claim, String body) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> store.complete(claim, 200, body));
+    }
+}
@@ -0,0 +1,84 @@
+package tn.esprit.agroprotect.common.outbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboxRelayTest extends IntegrationTest {
+
+    private static final String AGGREGATE = "OutboxRelayTest";
+
+    @Autowired
+    private OutboxWriter outboxWriter;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private InMemoryOutboxSink sink;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE aggregate_type = ?", AGGREGATE);
+    }
+
+    @Test
+    void relaysCommittedEventsInIdOrderAndMarksThemPublished() {
+        long aggregateId = newUserId();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> outboxWriter.append(List.of(
+                new OutboxWriter.Event(AGGREGATE, aggregateId, "CREATED", Map.of("n", 1)),
+                new OutboxWriter.Event(AGGREGATE, aggregateId, "UPDATED", Map.of("n", 2)))));
+
+        outboxRelay.relay();
+
+        List<OutboxMessage> received = sink.getMessages().stream()
+                .filter(m -> m.aggregateType().equals(AGGREGATE) && m.aggregateId() == aggregateId)
+                .toList();
+        assertThat(received).extracting(OutboxMessage::eventType).containsExactly("CREATED", "UPDATED");
+        assertThat(received).extracting(OutboxMessage::payload).containsExactly("{\"n\":1}", "{\"n\":2}");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE aggregate_type = ? "
+                + "AND aggregate_id = ? AND published_at IS NULL", Integer.class, AGGREGATE, aggregateId)).isZero();
+    }
+
+    @Test
+    void rolledBackChangesLeaveNoEvent() {
+        long aggregateId = newUserId();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outboxWriter.append(AGGREGATE, aggregateId, "CREATED", Map.of());
+            status.setRollbackOnly();
+        });
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE aggregate_type = ? "
+                + "AND aggregate_id = ?", Integer.class, AGGREGATE, aggregateId)).isZero();
+    }
+
+    @Test
+    void enabledRelayRequiresASink() {
+        assertThatThrownBy(() -> relay(true, true))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("OutboxSink");
+        assertThatCode(() -> relay(true, false)).doesNotThrowAnyException();
+        assertThatCode(() -> relay(false, true)).doesNotThrowAnyException();
+    }
+
+    private OutboxRelay relay(boolean outboxEnabled, boolean relayEnabled) {
+        return new OutboxRelay(jdbcTemplate, transactionManager,
+                new DefaultListableBeanFactory().getBeanProvider(OutboxSink.class),
+                outboxEnabled, relayEnabled, 500, Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofDays(7));
+    }
+}
@@ -0,0 +1,119 @@
+package tn.esprit.agroprotect.common.pagination;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountStrategyTest extends IntegrationTest {
+
+    private static final int THRESHOLD = 5;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CountStrategy countStrategy;
+    private long userId;
+    private Specification<Sinistre> spec;
+
+    @BeforeEach
+    void setUp() {
+        countStrategy = new CountStrategy(transactionManager, THRESHOLD, Duration.ofMinutes(1), 100);
+        ReflectionTestUtils.setField(countStrategy, "entityManager", entityManager);
+        userId = newUserId();
+        spec = (root, query, cb) -> cb.equal(root.get("createdByUserId"), userId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        countStrategy.destroy();
+        jdbcTemplate.update("DELETE FROM sinistres WHERE created_by_user_id = ?", userId);
+    }
+
+    @Test
+    void lastPageIsCountedFromItsContent() {
+        insert(3);
+
+        CountedPage<Integer> page = page(PageRequest.of(1, 2), 1, false);
+
+        assertThat(page.getCountType()).isEqualTo(CountType.EXACT);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void smallResultIsCountedExactly() {
+        insert(THRESHOLD);
+
+        CountedPage<Integer> page = page(PageRequest.of(0, 2), 2, true);
+
+        assertThat(page.getCountType()).isEqualTo(CountType.EXACT);
+        assertThat(page.getTotalElements()).isEqualTo(THRESHOLD);
+    }
+
+    @Test
+    void largeResultReportsLowerBoundThenCachedExactCount() throws InterruptedException {
+        insert(12);
+
+        CountedPage<Integer> first = page(PageRequest.of(0, 2), 2, true);
+        assertThat(first.getCountType()).isEqualTo(CountType.AT_LEAST);
+        assertThat(first.getTotalElements()).isEqualTo(THRESHOLD + 1).isLessThanOrEqualTo(12);
+
+        CountedPage<Integer> next = awaitCached();
+        assertThat(next.getTotalElements()).isEqualTo(12);
+    }
+
+    @Test
+    void invalidationDropsCachedCount() throws InterruptedException {
+        insert(12);
+        page(PageRequest.of(0, 2), 2, true);
+        awaitCached();
+
+        countStrategy.invalidate(Sinistre.class);
+
+        assertThat(page(PageRequest.of(0, 2), 2, true).getCountType()).isEqualTo(CountType.AT_LEAST);
+    }
+
+    private CountedPage<Integer> awaitCached() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        CountedPage<Integer> page;
+        do {
+            Thread.sleep(20);
+            page = page(PageRequest.of(0, 2), 2, true);
+        } while (page.getCountType() != CountType.CACHED && System.currentTimeMillis() < deadline);
+        assertThat(page.getCountType()).isEqualTo(CountType.CACHED);
+        return page;
+    }
+
+    private CountedPage<Integer> page(Pageable pageable, int size, boolean hasNext) {
+        List<Integer> content = Collections.nCopies(size, 0);
+        return countStrategy.page(new SliceImpl<>(content, pageable, hasNext), pageable, Sinistre.class, spec,
+                List.of(userId));
+    }
+
+    private void insert(int count) {
+        for (int i = 0; i < count; i++) {
+            insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "Sinistre " + i, Instant.now());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package tn.esprit.agroprotect.common.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetTest {
+
+    @Getter
+    @AllArgsConstructor
+    public static class Row {
+        private Long id;
+        private Instant createdAt;
+    }
+
+    @Test
+    void tokenRoundTripKeepsSeparatorsInLastPart() {
+        String token = Keyset.encodeToken("name", "ASC", "12", "a|b|c");
+
+        assertThat(token).doesNotContain("=", "+", "/");
+        assertThat(Keyset.decodeToken(token, 4)).containsExactly("name", "ASC", "12", "a|b|c");
+    }
+
+    @Test
+    void decodeRejectsMalformedTokens() {
+        assertThatThrownBy(() -> Keyset.decodeToken("not base64!", 4)).isInstanceOf(InvalidCursorException.class);
+        String shortToken = Keyset.encodeToken("name", "ASC");
+        assertThatThrownBy(() -> Keyset.decodeToken(shortToken, 4)).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> Keyset.parseId("abc")).isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void pageEmitsCursorOfLastRowWhenAnotherPageExists() {
+        Keyset<Row> keyset = Keyset.of("createdAt", Sort.Direction.DESC);
+        Instant t = Instant.parse("2026-01-01T00:00:00Z");
+        List<Row> rows = List.of(new Row(3L, t), new Row(2L, t), new Row(1L, t.minusSeconds(1)));
+
+        CursorPage<Row> page = keyset.page(rows, 2);
+
+        assertThat(page.content()).extracting(Row::getId).containsExactly(3L, 2L);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(Keyset.decodeToken(page.nextCursor(), 4))
+                .containsExactly("createdAt", "DESC", "2", t.toString());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        Keyset<Row> keyset = Keyset.of("id", Sort.Direction.ASC);
+        CursorPage<Row> page = keyset.page(List.of(new Row(1L, Instant.EPOCH)), 2);
+
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void cursorIsBoundToItsSortOrder() {
+        String cursor = Keyset.encodeToken("createdAt", "DESC", "2", Instant.EPOCH.toString());
+
+        assertThat(Keyset.<Row>of("createdAt", Sort.Direction.DESC).after(cursor)).isNotNull();
+        assertThatThrownBy(() -> Keyset.<Row>of("createdAt", Sort.Direction.ASC).after(cursor))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> Keyset.<Row>of("id", Sort.Direction.DESC).after(cursor))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void sortUsesIdAsTieBreaker() {
+        assertThat(Keyset.of("createdAt", Sort.Direction.DESC).sort())
+                .isEqualTo(Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+        assertThat(Keyset.of("id", Sort.Direction.ASC).sort()).isEqualTo(Sort.by(Sort.Direction.ASC, "id"));
+    }
+
+    @Test
+    void clampSizeBoundsRequestedSize() {
+        assertThat(Keyset.clampSize(0)).isEqualTo(1);
+        assertThat(Keyset.clampSize(20)).isEqualTo(20);
+        assertThat(Keyset.clampSize(10_000)).isEqualTo(Keyset.MAX_SIZE);
+    }
+}
@@ -0,0 +1,83 @@
+package tn.esprit.agroprotect.common.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MinHashTest {
+
+    private final MinHash minHash = new MinHash(16, 4);
+
+    @Test
+    void ignoresCaseAccentsAndPunctuation() {
+        long[] a = minHash.signature("Grêle sur la parcelle nord, blé détruit !");
+        long[] b = minHash.signature("GRELE sur la parcelle nord - ble detruit");
+
+        assertThat(MinHash.similarity(a, b)).isEqualTo(1.0);
+        assertThat(minHash.bandKeys(7, a)).isEqualTo(minHash.bandKeys(7, b));
+    }
+
+    @Test
+    void estimatesJaccardSimilarityOfShingles() {
+        String a = "inondation de la parcelle sud apres les pluies du week end recolte de tomates perdue";
+        String b = "inondation de la parcelle sud apres les fortes pluies du week end recolte de tomates perdue";
+
+        double estimate = MinHash.similarity(minHash.signature(a), minHash.signature(b));
+
+        assertThat(estimate).isCloseTo(jaccard(a, b), within(0.15));
+        assertThat(estimate).isGreaterThan(0.7);
+    }
+
+    @Test
+    void unrelatedTextsAreDissimilar() {
+        double similarity = MinHash.similarity(
+                minHash.signature("mildiou sur les vignes du coteau est"),
+                minHash.signature("incendie du hangar et du materiel agricole"));
+
+        assertThat(similarity).isLessThan(0.2);
+    }
+
+    @Test
+    void saltSeparatesBandKeys() {
+        long[] signature = minHash.signature("sécheresse prolongée, oliviers touchés");
+        long[] first = minHash.bandKeys(1, signature);
+        long[] second = minHash.bandKeys(2, signature);
+
+        for (int band = 0; band < first.length; band++) {
+            assertThat(first[band]).isNotEqualTo(second[band]);
+        }
+    }
+
+    @Test
+    void shortAndEmptyTextsHaveSignatures() {
+        assertThat(minHash.signature("blé")).hasSize(64);
+        assertThat(MinHash.similarity(minHash.signature(""), minHash.signature(null))).isEqualTo(1.0);
+    }
+
+    @Test
+    void rejectsEmptyBanding() {
+        assertThatThrownBy(() -> new MinHash(0, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double jaccard(String a, String b) {
+        Set<String> left = shingles(a);
+        Set<String> right = shingles(b);
+        Set<String> union = new HashSet<>(left);
+        union.addAll(right);
+        left.retainAll(right);
+        return (double) left.size() / union.size();
+    }
+
+    private static Set<String> shingles(String text) {
+        Set<String> shingles = new HashSet<>();
+        for (int i = 0; i + 4 <= text.length(); i++) {
+            shingles.add(text.substring(i, i + 4));
+        }
+        return shingles;
+    }
+}
@@ -0,0 +1,179 @@
+package tn.esprit.agroprotect.identity.config;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import tn.esprit.agroprotect.identity.store.RedisKeyValueStore;
+import tn.esprit.agroprotect.identity.store.RedisNearCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the cluster configuration against six local redis-server processes
+ * (three masters, three replicas). Skipped when redis-server or redis-cli
+ * is not on the PATH.
+ */
+class RedisClusterTest {
+
+    private static final int FIRST_PORT = 7100;
+    private static final int NODES = 6;
+
+    private static final List<Process> processes = new ArrayList<>();
+    private static Path workDir;
+
+    @BeforeAll
+    static void startCluster() throws Exception {
+        assumeTrue(onPath("redis-server") && onPath("redis-cli"), "redis-server/redis-cli not installed");
+
+        workDir = Files.createTempDirectory("redis-cluster");
+        List<String> createArgs = new ArrayList<>(List.of("redis-cli", "--cluster", "create"));
+        for (int i = 0; i < NODES; i++) {
+            int port = FIRST_PORT + i;
+            processes.add(new ProcessBuilder("redis-server", "--port", String.valueOf(port),
+                    "--cluster-enabled", "yes", "--cluster-config-file", "nodes-" + port + ".conf",
+                    "--appendonly", "no", "--save", "")
+                    .directory(workDir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(workDir.resolve("redis-" + port + ".log").toFile())
+                    .start());
+            createArgs.add("127.0.0.1:" + port);
+        }
+        for (int i = 0; i < NODES; i++) {
+            awaitOutput("PONG", "redis-cli", "-p", String.valueOf(FIRST_PORT + i), "ping");
+        }
+        createArgs.addAll(List.of("--cluster-replicas", "1", "--cluster-yes"));
+        assertThat(run(createArgs.toArray(String[]::new))).isZero();
+        for (int i = 0; i < NODES; i++) {
+            awaitOutput("cluster_state:ok", "redis-cli", "-p", String.valueOf(FIRST_PORT + i), "cluster", "info");
+        }
+    }
+
+    @AfterAll
+    static void stopCluster() throws IOException {
+        processes.forEach(Process::destroy);
+        if (workDir != null) {
+            try (Stream<Path> files = Files.walk(workDir)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    void storeOperationsFollowSlotOwners() {
+        LettuceConnectionFactory factory = connectionFactory("upstream");
+        try {
+            RedisKeyValueStore store = new RedisKeyValueStore(new StringRedisTemplate(factory),
+                    new DefaultListableBeanFactory().getBeanProvider(RedisNearCache.class));
+            // Enough phones to land on every master
+            for (int i = 0; i < 50; i++) {
+                String phone = "+216200000" + String.format("%02d", i);
+                String otpKey = "otp:{" + phone + "}:LOGIN";
+                String attemptsKey = "otp_attempts:{" + phone + "}:LOGIN";
+
+                store.set(otpKey, "hash-" + i, Duration.ofMinutes(5));
+                assertThat(store.get(otpKey)).isEqualTo("hash-" + i);
+                assertThat(store.increment(attemptsKey)).isEqualTo(1);
+                assertThat(store.increment(attemptsKey)).isEqualTo(2);
+                assertThat(store.compareAndDelete(otpKey, "other")).isFalse();
+                assertThat(store.compareAndDelete(otpKey, "hash-" + i)).isTrue();
+                assertThat(store.get(otpKey)).isNull();
+                assertThat(store.delete(attemptsKey)).isTrue();
+            }
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    @Test
+    void multiKeyScriptRunsOnHashTaggedOtpKeys() {
+        LettuceConnectionFactory factory = connectionFactory("upstream");
+        try {
+            StringRedisTemplate template = new StringRedisTemplate(factory);
+            String phone = "+21698765432";
+            List<String> keys = List.of("otp:{" + phone + "}:RESET", "otp_attempts:{" + phone + "}:RESET");
+            template.opsForValue().set(keys.get(0), "hash");
+            template.opsForValue().set(keys.get(1), "3");
+
+            // Would fail with CROSSSLOT if the keys were not on the same slot
+            Long removed = template.execute(new DefaultRedisScript<>(
+                    "return redis.call('del', KEYS[1], KEYS[2])", Long.class), keys);
+            assertThat(removed).isEqualTo(2);
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    @Test
+    void replicaReadSettingsConnect() {
+        for (String readFrom : List.of("replicaPreferred", "REPLICA_PREFERRED", "lowestLatency")) {
+            LettuceConnectionFactory factory = connectionFactory(readFrom);
+            try {
+                new StringRedisTemplate(factory).opsForValue().set("read-from:{check}", readFrom);
+                assertThat(factory.getClusterConnection().ping()).isEqualTo("PONG");
+            } finally {
+                factory.destroy();
+            }
+        }
+    }
+
+    private static LettuceConnectionFactory connectionFactory(String readFrom) {
+        RedisConfig config = new RedisConfig();
+        ReflectionTestUtils.setField(config, "redisHost", "127.0.0.1");
+        ReflectionTestUtils.setField(config, "redisPort", FIRST_PORT);
+        ReflectionTestUtils.setField(config, "redisPassword", "");
+        ReflectionTestUtils.setField(config, "commandTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(config, "clusterNodes",
+                List.of("127.0.0.1:" + FIRST_PORT, "127.0.0.1:" + (FIRST_PORT + 1)));
+        ReflectionTestUtils.setField(config, "maxRedirects", 3);
+        ReflectionTestUtils.setField(config, "topologyRefreshPeriod", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "adaptiveTopologyRefresh", true);
+        ReflectionTestUtils.setField(config, "readFrom", readFrom);
+        LettuceConnectionFactory factory = config.redisConnectionFactory();
+        factory.afterPropertiesSet();
+        return factory;
+    }
+
+    private static boolean onPath(String command) {
+        String path = System.getenv("PATH");
+        return path != null && Stream.of(path.split(File.pathSeparator))
+                .anyMatch(dir -> Files.isExecutable(Path.of(dir, command)));
+    }
+
+    private static int run(String... command) throws Exception {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        assertThat(process.waitFor(30, TimeUnit.SECONDS)).isTrue();
+        return process.exitValue();
+    }
+
+    private static void awaitOutput(String expected, String... command) throws Exception {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (System.currentTimeMillis() < deadline) {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes());
+            process.waitFor();
+            if (output.contains(expected)) {
+                return;
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("Timed out waiting for '" + expected + "' from " + String.join(" ", command));
+    }
+}
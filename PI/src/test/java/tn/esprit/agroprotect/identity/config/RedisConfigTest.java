@@ -0,0 +1,33 @@
+package tn.esprit.agroprotect.identity.config;
+
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.cluster.SlotHash;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RedisConfigTest {
+
+    @Test
+    void parseReadFromAcceptsLettuceAndEnumStyleNames() {
+        assertThat(RedisConfig.parseReadFrom("upstream")).isEqualTo(ReadFrom.UPSTREAM);
+        assertThat(RedisConfig.parseReadFrom("replicaPreferred")).isEqualTo(ReadFrom.REPLICA_PREFERRED);
+        assertThat(RedisConfig.parseReadFrom("REPLICA_PREFERRED")).isEqualTo(ReadFrom.REPLICA_PREFERRED);
+        assertThat(RedisConfig.parseReadFrom(" LOWEST_LATENCY ")).isEqualTo(ReadFrom.LOWEST_LATENCY);
+    }
+
+    @Test
+    void parseReadFromRejectsUnknownNames() {
+        assertThatThrownBy(() -> RedisConfig.parseReadFrom("closest"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void otpKeysOfAPhoneShareASlot() {
+        String phone = "+21620123456";
+        int slot = SlotHash.getSlot("otp:{" + phone + "}:LOGIN");
+        assertThat(SlotHash.getSlot("otp_attempts:{" + phone + "}:LOGIN")).isEqualTo(slot);
+        assertThat(SlotHash.getSlot("otp_rate:{" + phone + "}")).isEqualTo(slot);
+    }
+}
@@ -0,0 +1,75 @@
+package tn.esprit.agroprotect.identity.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tn.esprit.agroprotect.identity.entity.UserStatus;
+import tn.esprit.agroprotect.identity.repository.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class UserSearchIndexTest {
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserSearchIndex(mock(UserRepository.class));
+        index.upsert(1, null, "Sami", "Ben", null, UserStatus.ACTIVE);
+        index.upsert(2, null, "Amal", "Benali", null, UserStatus.ACTIVE);
+        index.upsert(3, null, "Youssef", "Aben", null, UserStatus.PENDING);
+        index.upsert(4, null, "Nour", "Benz", null, UserStatus.ACTIVE);
+    }
+
+    @Test
+    void ranksExactThenPrefixThenSubstring() {
+        UserSearchIndex.Result result = index.search("Ben", null, 0, 10);
+        // Ties broken by descending user id
+        assertThat(result.userIds()).containsExactly(1L, 4L, 2L, 3L);
+        assertThat(result.total()).isEqualTo(4);
+
+        UserSearchIndex.Result page = index.search("ben", null, 1, 2);
+        assertThat(page.userIds()).containsExactly(4L, 2L);
+        assertThat(page.total()).isEqualTo(4);
+
+        assertThat(index.search("ben", UserStatus.ACTIVE, 0, 10).userIds()).containsExactly(1L, 4L, 2L);
+    }
+
+    @Test
+    void seekContinuesAfterTheLastMatch() {
+        assertThat(index.seek("ben", null, null, 2)).containsExactly(
+                new UserSearchIndex.Match(1, 3), new UserSearchIndex.Match(4, 2));
+        assertThat(index.seek("ben", null, new UserSearchIndex.Match(4, 2), 2)).containsExactly(
+                new UserSearchIndex.Match(2, 2), new UserSearchIndex.Match(3, 1));
+        assertThat(index.seek("ben", null, new UserSearchIndex.Match(3, 1), 2)).isEmpty();
+    }
+
+    @Test
+    void shortQueriesMatchWithoutTrigrams() {
+        assertThat(index.search("be", null, 0, 10).userIds()).containsExactly(4L, 2L, 1L, 3L);
+        assertThat(index.search("z", null, 0, 10).userIds()).containsExactly(4L);
+    }
+
+    @Test
+    void upsertReplacesTheIndexedFields() {
+        index.upsert(2, "amal@test.tn", "Amal", "Trabelsi", null, UserStatus.ACTIVE);
+
+        assertThat(index.search("benali", null, 0, 10).userIds()).isEmpty();
+        assertThat(index.search("trabelsi", null, 0, 10).userIds()).containsExactly(2L);
+        assertThat(index.search("amal@test.tn", null, 0, 10).userIds()).containsExactly(2L);
+
+        index.upsert(2, "amal@test.tn", "Amal", "Trabelsi", null, UserStatus.LOCKED);
+        assertThat(index.search("trabelsi", UserStatus.ACTIVE, 0, 10).userIds()).isEmpty();
+        assertThat(index.search("trabelsi", UserStatus.LOCKED, 0, 10).userIds()).containsExactly(2L);
+    }
+
+    @Test
+    void removeDropsTheUser() {
+        index.remove(4);
+        index.remove(99);
+
+        assertThat(index.search("ben", null, 0, 10).userIds()).containsExactly(1L, 2L, 3L);
+        assertThat(index.search("benz", null, 0, 10).total()).isZero();
+        assertThat(index.search("z", null, 0, 10).userIds()).isEmpty();
+    }
+}
@@ -0,0 +1,77 @@
+package tn.esprit.agroprotect.identity.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import tn.esprit.agroprotect.identity.entity.Permission;
+import tn.esprit.agroprotect.identity.entity.Role;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RbacSnapshotTest {
+
+    // More than 64 permissions, so role bitsets span two words
+    private static final List<Permission> PERMISSIONS = IntStream.range(0, 70)
+            .mapToObj(i -> Permission.builder().id((long) i).name(String.format("perm:%02d", i)).build())
+            .toList();
+
+    private final Role admin = role(1L, "ADMIN", IntStream.range(0, 70));
+    private final Role expert = role(2L, "EXPERT", IntStream.of(3, 64, 69));
+    private final Role agriculteur = role(3L, "AGRICULTEUR", IntStream.of(3, 5));
+    private final Role empty = role(4L, "EMPTY", IntStream.empty());
+    private final RbacSnapshot snapshot = RbacSnapshot.of(List.of(admin, expert, agriculteur, empty));
+
+    @Test
+    void mapsRoleIdsToNames() {
+        assertThat(snapshot.roleCount()).isEqualTo(4);
+        assertThat(snapshot.roleId("EXPERT")).contains(2L);
+        assertThat(snapshot.roleId("UNKNOWN")).isEmpty();
+        assertThat(snapshot.roleNames(List.of(2L, 3L, 99L))).containsExactlyInAnyOrder("EXPERT", "AGRICULTEUR");
+    }
+
+    @Test
+    void unionsPermissionBitsAcrossRoles() {
+        assertThat(snapshot.permissionNames(List.of(2L))).containsExactlyInAnyOrder("perm:03", "perm:64", "perm:69");
+        assertThat(snapshot.permissionNames(List.of(2L, 3L)))
+                .containsExactlyInAnyOrder("perm:03", "perm:05", "perm:64", "perm:69");
+        assertThat(snapshot.permissionNames(List.of(1L))).hasSize(70);
+        assertThat(snapshot.permissionNames(List.of(4L, 99L))).isEmpty();
+
+        assertThat(snapshot.hasPermission(List.of(3L), "perm:05")).isTrue();
+        assertThat(snapshot.hasPermission(List.of(3L), "perm:64")).isFalse();
+        assertThat(snapshot.hasPermission(List.of(3L, 2L), "perm:64")).isTrue();
+        assertThat(snapshot.hasPermission(List.of(1L), "perm:unknown")).isFalse();
+    }
+
+    @Test
+    void authoritiesMatchTheRolePermissions() {
+        for (Role role : List.of(admin, expert, agriculteur, empty)) {
+            Set<String> expected = new HashSet<>();
+            expected.add("ROLE_" + role.getName());
+            role.getPermissions().forEach(permission -> expected.add(permission.getName()));
+
+            assertThat(names(snapshot.authorities(List.of(role.getId())))).isEqualTo(expected);
+        }
+
+        List<GrantedAuthority> merged = snapshot.authorities(List.of(2L, 3L));
+        assertThat(merged).doesNotHaveDuplicates();
+        assertThat(names(merged)).containsExactlyInAnyOrder("ROLE_EXPERT", "ROLE_AGRICULTEUR",
+                "perm:03", "perm:05", "perm:64", "perm:69");
+        assertThat(snapshot.authorities(List.of(99L))).isEmpty();
+    }
+
+    private static Role role(long id, String name, IntStream permissionIndexes) {
+        return Role.builder().id(id).name(name)
+                .permissions(permissionIndexes.mapToObj(PERMISSIONS::get).collect(Collectors.toSet()))
+                .build();
+    }
+
+    private static Set<String> names(List<GrantedAuthority> authorities) {
+        return authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,112 @@
+package tn.esprit.agroprotect.identity.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import tn.esprit.agroprotect.common.pagination.CursorPage;
+import tn.esprit.agroprotect.identity.dto.response.UserProfileResponse;
+import tn.esprit.agroprotect.identity.entity.BiometricData;
+import tn.esprit.agroprotect.identity.entity.User;
+import tn.esprit.agroprotect.identity.entity.UserStatus;
+import tn.esprit.agroprotect.identity.repository.BiometricDataRepository;
+import tn.esprit.agroprotect.identity.repository.UserRepository;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserServiceTest extends IntegrationTest {
+
+    private static final int PAGE = 20;
+    private static final String LAST_NAME = "Listingcount";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BiometricDataRepository biometricDataRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<BiometricData> biometrics = new ArrayList<>();
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < PAGE; i++) {
+            User user = userRepository.save(User.builder()
+                    .email("listing-" + i + "-" + newUserId() + "@test.tn")
+                    .firstName("User" + i)
+                    .lastName(LAST_NAME)
+                    .status(UserStatus.ACTIVE)
+                    .build());
+            users.add(user);
+            biometrics.add(biometricDataRepository.save(BiometricData.builder()
+                    .user(user)
+                    .embeddingEncrypted(new byte[] {1})
+                    .encryptionIv("iv")
+                    .encryptionTag("tag")
+                    .build()));
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        biometricDataRepository.deleteAll(biometrics);
+        userRepository.deleteAll(users);
+    }
+
+    @Test
+    void searchPageDoesNotLoadBiometricData() {
+        Page<UserProfileResponse> ranked = userService.searchUsers(null, LAST_NAME.toLowerCase(),
+                PageRequest.of(0, PAGE), false);
+        assertThat(ranked.getContent()).hasSize(PAGE);
+        assertQueriesAtMost(2);
+
+        Page<UserProfileResponse> filtered = userService.searchUsers(UserStatus.ACTIVE, null,
+                PageRequest.of(0, PAGE, Sort.by(Sort.Direction.DESC, "id")), false);
+        assertThat(filtered.getContent()).hasSize(PAGE);
+        // Page, role ids, and the count unless it is cached
+        assertQueriesAtMost(3);
+    }
+
+    @Test
+    void scrollPageDoesNotLoadBiometricData() {
+        CursorPage<UserProfileResponse> ranked = userService.scrollUsers(null, LAST_NAME.toLowerCase(),
+                "createdAt", Sort.Direction.DESC, null, PAGE, false);
+        assertThat(ranked.content()).hasSize(PAGE);
+        assertQueriesAtMost(2);
+
+        CursorPage<UserProfileResponse> keyset = userService.scrollUsers(UserStatus.ACTIVE, null,
+                "id", Sort.Direction.DESC, null, PAGE, false);
+        assertThat(keyset.content()).hasSize(PAGE);
+        assertQueriesAtMost(2);
+    }
+
+    /**
+     * A constant number of statements for the whole page, none of them on biometric_data
+     */
+    private void assertQueriesAtMost(long expected) {
+        assertThat(statistics.getEntityStatistics(BiometricData.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(expected);
+        statistics.clear();
+    }
+}
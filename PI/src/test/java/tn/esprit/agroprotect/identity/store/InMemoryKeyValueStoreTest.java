@@ -0,0 +1,124 @@
+package tn.esprit.agroprotect.identity.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryKeyValueStoreTest {
+
+    private final InMemoryKeyValueStore store = new InMemoryKeyValueStore(10, 64);
+
+    @AfterEach
+    void tearDown() {
+        store.destroy();
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        int threads = 8;
+        int perThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        seen.add(store.increment("counter"));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every increment returned a distinct value and none was lost
+        assertThat(seen).hasSize(threads * perThread);
+        assertThat(store.get("counter")).isEqualTo(Long.toString(threads * perThread));
+    }
+
+    @Test
+    void incrementKeepsTheExistingExpiry() throws Exception {
+        assertThat(store.increment("attempts")).isEqualTo(1);
+        assertThat(store.expire("attempts", Duration.ofMillis(50))).isTrue();
+        assertThat(store.increment("attempts")).isEqualTo(2);
+
+        Thread.sleep(80);
+        assertThat(store.get("attempts")).isNull();
+        // An expired counter starts over
+        assertThat(store.increment("attempts")).isEqualTo(1);
+    }
+
+    @Test
+    void incrementRejectsNonIntegerValues() {
+        store.set("otp", "abc", Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> store.increment("otp")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void expiredEntriesAreHiddenThenReclaimed() throws Exception {
+        store.set("short", "v", Duration.ofMillis(30));
+        store.set("long", "v", Duration.ofMinutes(1));
+        assertThat(store.get("short")).isEqualTo("v");
+
+        Thread.sleep(60);
+        assertThat(store.get("short")).isNull();
+        assertThat(store.delete("short")).isFalse();
+        assertThat(store.expire("short", Duration.ofMinutes(1))).isFalse();
+        assertThat(store.get("long")).isEqualTo("v");
+
+        // Never read again: the timing wheel removes it in the background
+        store.set("unread", "v", Duration.ofMillis(30));
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (store.size() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void setResetsAnEarlierExpiry() throws Exception {
+        store.set("key", "old", Duration.ofMillis(30));
+        store.set("key", "new", Duration.ofMinutes(1));
+
+        Thread.sleep(60);
+        assertThat(store.get("key")).isEqualTo("new");
+    }
+
+    @Test
+    void compareAndDeleteOnlyRemovesTheExpectedValue() throws Exception {
+        store.set("lock", "owner-1", Duration.ofMinutes(1));
+
+        assertThat(store.compareAndDelete("lock", "owner-2")).isFalse();
+        assertThat(store.get("lock")).isEqualTo("owner-1");
+        assertThat(store.compareAndDelete("lock", "owner-1")).isTrue();
+        assertThat(store.get("lock")).isNull();
+        assertThat(store.compareAndDelete("lock", "owner-1")).isFalse();
+
+        // An expired value no longer matches
+        store.set("lock", "owner-1", Duration.ofMillis(30));
+        Thread.sleep(60);
+        assertThat(store.compareAndDelete("lock", "owner-1")).isFalse();
+    }
+}
@@ -0,0 +1,162 @@
+package tn.esprit.agroprotect.identity.store;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import tn.esprit.agroprotect.identity.config.RedisConfig;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisNearCacheTest {
+
+    // Nothing listens there: connection attempts are refused at once
+    private static final int CLOSED_PORT = 1;
+    private static final int SERVER_PORT = 7200;
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            // Durations in @Value fields need Boot's conversion service
+            .withInitializer(context -> context.getBeanFactory()
+                    .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withUserConfiguration(RedisConfig.class)
+            .withPropertyValues("spring.data.redis.host=127.0.0.1", "spring.data.redis.port=" + CLOSED_PORT);
+
+    @Test
+    void nearCacheBeanFollowsTheEnabledFlag() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(RedisNearCache.class));
+        contextRunner.withPropertyValues("redis.near-cache.enabled=false")
+                .run(context -> assertThat(context).doesNotHaveBean(RedisNearCache.class));
+        contextRunner.withPropertyValues("redis.near-cache.enabled=true")
+                .run(context -> assertThat(context).hasSingleBean(RedisNearCache.class));
+    }
+
+    @Test
+    void nearCacheIsRejectedInClusterMode() {
+        contextRunner.withPropertyValues("redis.near-cache.enabled=true",
+                        "spring.data.redis.cluster.nodes=127.0.0.1:7100")
+                .run(context -> assertThat(context).hasFailed()
+                        .getFailure().hasRootCauseInstanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    void unreachableServerDisablesTheNearCache() {
+        try (RedisNearCache nearCache = nearCache(CLOSED_PORT)) {
+            assertThat(nearCache.handles("otp_rate:{+21620123456}")).isFalse();
+            assertThat(nearCache.get("otp_rate:{+21620123456}", () -> "3")).isEqualTo("3");
+            assertThat(nearCache.size()).isZero();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void storeReadsHandledPrefixesThroughTheNearCacheAndEvictsOnWrite() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(values);
+        RedisNearCache nearCache = mock(RedisNearCache.class);
+        when(nearCache.handles(anyString())).thenAnswer(call -> call.<String>getArgument(0).startsWith("otp_rate:"));
+        when(nearCache.get(anyString(), any())).thenReturn("2");
+        ObjectProvider<RedisNearCache> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(nearCache);
+        RedisKeyValueStore store = new RedisKeyValueStore(template, provider);
+
+        assertThat(store.get("otp_rate:{+21620123456}")).isEqualTo("2");
+        verify(values, never()).get("otp_rate:{+21620123456}");
+        store.get("otp:{+21620123456}:LOGIN");
+        verify(values).get("otp:{+21620123456}:LOGIN");
+
+        store.increment("otp_rate:{+21620123456}");
+        verify(nearCache).evict("otp_rate:{+21620123456}");
+    }
+
+    /**
+     * Needs a local redis-server (6+ for RESP3 tracking); skipped otherwise.
+     */
+    @Test
+    void trackedReadsAreInvalidatedAndAbsentKeysAreNotCached() throws Exception {
+        assumeTrue(onPath("redis-server"), "redis-server not installed");
+        Path workDir = Files.createTempDirectory("redis-near-cache");
+        Process server = new ProcessBuilder("redis-server", "--port", String.valueOf(SERVER_PORT),
+                "--appendonly", "no", "--save", "")
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve("redis.log").toFile())
+                .start();
+        RedisClient writerClient = RedisClient.create(RedisURI.create("127.0.0.1", SERVER_PORT));
+        try {
+            StatefulRedisConnection<String, String> writer = awaitConnection(writerClient);
+            try (RedisNearCache nearCache = nearCache(SERVER_PORT)) {
+                String key = "otp_rate:{+21620123456}";
+                assertThat(nearCache.handles(key)).isTrue();
+                assertThat(nearCache.handles("otp:{+21620123456}:LOGIN")).isFalse();
+
+                assertThat(nearCache.get(key, () -> "fallback")).isNull();
+                assertThat(nearCache.size()).isZero();
+
+                writer.sync().set(key, "1");
+                assertThat(nearCache.get(key, () -> "fallback")).isEqualTo("1");
+                assertThat(nearCache.size()).isEqualTo(1);
+
+                // Written by another client: the server push drops the local copy
+                writer.sync().incr(key);
+                long deadline = System.currentTimeMillis() + 2_000;
+                while (nearCache.size() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20);
+                }
+                assertThat(nearCache.get(key, () -> "fallback")).isEqualTo("2");
+            }
+        } finally {
+            writerClient.shutdown();
+            server.destroy();
+            server.waitFor(5, TimeUnit.SECONDS);
+            Files.deleteIfExists(workDir.resolve("redis.log"));
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    private static RedisNearCache nearCache(int port) {
+        return new RedisNearCache(RedisURI.create("127.0.0.1", port), List.of("otp_rate:", "otp_attempts:"),
+                100, Duration.ofMinutes(1));
+    }
+
+    private static StatefulRedisConnection<String, String> awaitConnection(RedisClient client)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            try {
+                return client.connect();
+            } catch (RuntimeException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private static boolean onPath(String command) {
+        String path = System.getenv("PATH");
+        return path != null && Stream.of(path.split(File.pathSeparator))
+                .anyMatch(dir -> Files.isExecutable(Path.of(dir, command)));
+    }
+}
@@ -0,0 +1,92 @@
+package tn.esprit.agroprotect.identity.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimingWheelTest {
+
+    private static final Duration TICK = Duration.ofMillis(5);
+
+    // Key -> nanoTime at which the callback ran
+    private final Map<String, Long> expired = new ConcurrentHashMap<>();
+    private final TimingWheel wheel = new TimingWheel(TICK, 8, (key, deadline) -> expired.put(key, System.nanoTime()));
+
+    @AfterEach
+    void stop() {
+        wheel.stop();
+    }
+
+    @Test
+    void expiresKeysAfterTheirDeadline() throws InterruptedException {
+        long now = System.nanoTime();
+        long soon = now + TimeUnit.MILLISECONDS.toNanos(20);
+        wheel.schedule("soon", soon);
+        wheel.schedule("past", now - TimeUnit.MILLISECONDS.toNanos(100));
+
+        awaitExpired("soon", "past");
+        assertThat(expired.get("soon")).isGreaterThanOrEqualTo(soon);
+    }
+
+    @Test
+    void keepsTimeoutsOfLaterRevolutionsInTheirBucket() throws InterruptedException {
+        // 8 buckets of 5 ms: a 500 ms deadline is several revolutions away
+        long now = System.nanoTime();
+        long late = now + TimeUnit.MILLISECONDS.toNanos(500);
+        wheel.schedule("late", late);
+        wheel.schedule("early", now + TimeUnit.MILLISECONDS.toNanos(10));
+
+        awaitExpired("early");
+        assertThat(expired).doesNotContainKey("late");
+
+        awaitExpired("late");
+        assertThat(expired.get("late")).isGreaterThanOrEqualTo(late);
+    }
+
+    @Test
+    void expiresEachScheduledTimeoutOnce() throws InterruptedException {
+        long now = System.nanoTime();
+        Map<String, Integer> calls = new ConcurrentHashMap<>();
+        TimingWheel counting = new TimingWheel(TICK, 4, (key, deadline) -> calls.merge(key, 1, Integer::sum));
+        try {
+            for (int i = 0; i < 1000; i++) {
+                counting.schedule("k" + i, now + TimeUnit.MILLISECONDS.toNanos(i % 60));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (calls.size() < 1000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            // Let a few more revolutions pass
+            Thread.sleep(50);
+            assertThat(calls).hasSize(1000);
+            assertThat(calls.values()).containsOnly(1);
+        } finally {
+            counting.stop();
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveTick() {
+        assertThatThrownBy(() -> new TimingWheel(Duration.ZERO, 8, (key, deadline) -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void awaitExpired(String... keys) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (expired.keySet().containsAll(List.of(keys))) {
+                return;
+            }
+            Thread.sleep(2);
+        }
+        assertThat(expired).containsKeys(keys);
+    }
+}
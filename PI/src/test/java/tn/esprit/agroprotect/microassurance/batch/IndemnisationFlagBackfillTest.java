@@ -0,0 +1,49 @@
+package tn.esprit.agroprotect.microassurance.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndemnisationFlagBackfillTest extends IntegrationTest {
+
+    @Autowired
+    private IndemnisationFlagBackfill backfill;
+
+    private final long userId = newUserId();
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM indemnisations WHERE sinistre_id IN "
+                + "(SELECT id FROM sinistres WHERE created_by_user_id = ?)", userId);
+        jdbcTemplate.update("DELETE FROM sinistres WHERE created_by_user_id = ?", userId);
+    }
+
+    @Test
+    void flagsOnlyClaimsWithAnIndemnisation() {
+        long indemnise = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.VALIDE, "Grêle", Instant.now());
+        long nonIndemnise = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.VALIDE, "Gel", Instant.now());
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO indemnisations (sinistre_id, montant, date_creation, statut, created_at, "
+                + "updated_at, version) VALUES (?, 100, ?, 'EN_ATTENTE', ?, ?, 0)", indemnise, now, now, now);
+
+        assertThat(backfill.backfill()).isEqualTo(1);
+        assertThat(hasIndemnisation(indemnise)).isTrue();
+        assertThat(hasIndemnisation(nonIndemnise)).isFalse();
+
+        // Idempotent
+        assertThat(backfill.backfill()).isZero();
+    }
+
+    private boolean hasIndemnisation(long sinistreId) {
+        return jdbcTemplate.queryForObject("SELECT has_indemnisation FROM sinistres WHERE id = ?",
+                Boolean.class, sinistreId);
+    }
+}
@@ -0,0 +1,62 @@
+package tn.esprit.agroprotect.microassurance.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndemnisationGenerationJobTest extends IntegrationTest {
+
+    @Autowired
+    private IndemnisationGenerationJob job;
+
+    private final long userId = newUserId();
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM indemnisations WHERE sinistre_id IN "
+                + "(SELECT id FROM sinistres WHERE created_by_user_id = ?)", userId);
+        jdbcTemplate.update("DELETE FROM sinistres WHERE created_by_user_id = ?", userId);
+    }
+
+    @Test
+    void generatesMissingIndemnisationsAndSkipsUnflaggedIndemnisedClaims() {
+        long valide = validatedClaim("Grêle sur les oliviers");
+        long ancien = validatedClaim("Inondation de la parcelle");
+        // Indemnisation antérieure à la colonne has_indemnisation, non marquée
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO indemnisations (sinistre_id, montant, date_creation, statut, created_at, "
+                + "updated_at, version) VALUES (?, 100, ?, 'EN_ATTENTE', ?, ?, 0)", ancien, now, now, now);
+
+        job.run();
+
+        assertThat(indemnisations(valide)).isEqualTo(1);
+        assertThat(montant(valide)).isEqualByComparingTo("600.00");
+        assertThat(indemnisations(ancien)).isEqualTo(1);
+        assertThat(montant(ancien)).isEqualByComparingTo("100");
+    }
+
+    private long validatedClaim(String description) {
+        long id = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.VALIDE, description, Instant.now());
+        jdbcTemplate.update("UPDATE sinistres SET estimation_perte = 1000, taux_remboursement = 0.6 WHERE id = ?", id);
+        return id;
+    }
+
+    private int indemnisations(long sinistreId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM indemnisations WHERE sinistre_id = ?",
+                Integer.class, sinistreId);
+    }
+
+    private BigDecimal montant(long sinistreId) {
+        return jdbcTemplate.queryForObject("SELECT montant FROM indemnisations WHERE sinistre_id = ?",
+                BigDecimal.class, sinistreId);
+    }
+}
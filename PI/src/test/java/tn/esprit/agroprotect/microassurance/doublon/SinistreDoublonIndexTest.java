@@ -0,0 +1,141 @@
+package tn.esprit.agroprotect.microassurance.doublon;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tn.esprit.agroprotect.microassurance.entity.Sinistre;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SinistreDoublonIndexTest {
+
+    private static final String DESCRIPTION = "Grêle violente sur la parcelle nord, 3 hectares de blé couchés";
+    private static final String RETOUCHEE = "Grêle violente sur la parcelle nord : 3 hectares de blé couchés.";
+
+    private final Instant now = Instant.now();
+    private SinistreDoublonIndex index;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        // Base vide : le chargement rend l'index prêt
+        index = new SinistreDoublonIndex(mock(JdbcTemplate.class), true, Duration.ofDays(30), 0.7, 100);
+        index.load();
+    }
+
+    @Test
+    void flagsRetouchedDescriptionOfSameUserAndContract() {
+        long original = register(10L, 5L, DESCRIPTION, now.minus(Duration.ofDays(2)));
+
+        SinistreDoublonIndex.Doublon doublon = index.findDoublon(sinistre(10L, 5L, RETOUCHEE, now));
+
+        assertThat(doublon).isNotNull();
+        assertThat(doublon.sinistreId()).isEqualTo(original);
+        assertThat(doublon.similarite()).isGreaterThanOrEqualTo(0.7);
+    }
+
+    @Test
+    void comparesOnlyWithinUserAndContract() {
+        register(10L, 5L, DESCRIPTION, now);
+
+        assertThat(index.findDoublon(sinistre(11L, 5L, RETOUCHEE, now))).isNull();
+        assertThat(index.findDoublon(sinistre(10L, 6L, RETOUCHEE, now))).isNull();
+        assertThat(index.findDoublon(sinistre(10L, null, RETOUCHEE, now))).isNull();
+    }
+
+    @Test
+    void ignoresDifferentDescriptionsAndClaimsOutsideTheWindow() {
+        register(10L, 5L, DESCRIPTION, now.minus(Duration.ofDays(40)));
+        register(10L, 5L, "Mildiou sur les vignes du coteau est", now);
+
+        assertThat(index.findDoublon(sinistre(10L, 5L, RETOUCHEE, now))).isNull();
+    }
+
+    @Test
+    void claimIsNotItsOwnDuplicate() {
+        Sinistre sinistre = sinistre(10L, 5L, DESCRIPTION, now);
+        sinistre.setId(nextId++);
+        index.register(sinistre);
+
+        assertThat(index.findDoublon(sinistre)).isNull();
+    }
+
+    @Test
+    void purgeRemovesClaimsOutsideTheWindow() {
+        register(10L, 5L, DESCRIPTION, now.minus(Duration.ofDays(31)));
+
+        index.purge();
+
+        // Dans la fenêtre du nouveau sinistre, mais retiré de l'index
+        assertThat(index.findDoublon(sinistre(10L, 5L, RETOUCHEE, now.minus(Duration.ofDays(30))))).isNull();
+    }
+
+    @Test
+    void manyNearIdenticalClaimsStillFlagTheLatest() {
+        long last = 0;
+        for (int i = 0; i < 2000; i++) {
+            last = register(10L, null, "Parcelle " + i + " touchée par l'orage du 12 mars", now);
+        }
+
+        SinistreDoublonIndex.Doublon doublon = index.findDoublon(
+                sinistre(10L, null, "Parcelle 1999 touchée par l'orage du 12 mars", now));
+
+        assertThat(doublon).isNotNull();
+        assertThat(doublon.sinistreId()).isEqualTo(last);
+        assertThat(doublon.similarite()).isEqualTo(1.0);
+    }
+
+    @Test
+    void lookupStaysBelowAMillisecondWithTwentyThousandClaims() {
+        for (int i = 0; i < 20_000; i++) {
+            register((long) (i % 2000), (long) (i % 7), "Sinistre " + i + " : grêle sur la parcelle " + (i % 50)
+                    + ", pertes estimées sur " + (i % 13) + " hectares", now);
+        }
+        Sinistre recherche = sinistre(42L, 0L, "Sinistre 42 : grêle sur la parcelle 42, pertes estimées sur 3 hectares",
+                now);
+        for (int i = 0; i < 1000; i++) {
+            index.findDoublon(recherche);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(index.findDoublon(recherche)).isNotNull();
+        }
+        double moyenneMs = (System.nanoTime() - start) / 1000 / 1_000_000.0;
+
+        assertThat(moyenneMs).isLessThan(1.0);
+    }
+
+    @Test
+    void notReadyOrDisabledIndexFlagsNothing() {
+        SinistreDoublonIndex notLoaded = new SinistreDoublonIndex(mock(JdbcTemplate.class), true,
+                Duration.ofDays(30), 0.7, 100);
+        assertThat(notLoaded.isReady()).isFalse();
+        assertThat(notLoaded.findDoublon(sinistre(10L, 5L, DESCRIPTION, now))).isNull();
+
+        SinistreDoublonIndex disabled = new SinistreDoublonIndex(mock(JdbcTemplate.class), false,
+                Duration.ofDays(30), 0.7, 100);
+        disabled.load();
+        assertThat(disabled.findDoublon(sinistre(10L, 5L, DESCRIPTION, now))).isNull();
+    }
+
+    private long register(Long userId, Long contratId, String description, Instant date) {
+        Sinistre sinistre = sinistre(userId, contratId, description, date);
+        sinistre.setId(nextId++);
+        index.register(sinistre);
+        return sinistre.getId();
+    }
+
+    private static Sinistre sinistre(Long userId, Long contratId, String description, Instant date) {
+        Sinistre sinistre = new Sinistre();
+        sinistre.setCreatedByUserId(userId);
+        sinistre.setContratAssuranceId(contratId);
+        sinistre.setDescription(description);
+        sinistre.setDateDeclaration(date);
+        return sinistre;
+    }
+}
@@ -0,0 +1,69 @@
+package tn.esprit.agroprotect.microassurance.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SecurityUtilTest {
+
+    private static final String UUID = "7f1c2d3e-0000-4000-8000-000000000042";
+
+    private final UserLookupService userLookupService = mock(UserLookupService.class);
+    private final SecurityUtil securityUtil = new SecurityUtil(userLookupService);
+
+    @BeforeEach
+    void setUp() {
+        when(userLookupService.getUserIdByUuid(UUID)).thenReturn(42L);
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").subject(UUID).build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt,
+                List.of(new SimpleGrantedAuthority("ROLE_EXPERT"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void principalIsResolvedOncePerRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        ResolvedPrincipal principal = securityUtil.getCurrentPrincipal();
+        assertThat(securityUtil.getCurrentUserId()).isEqualTo(42L);
+        assertThat(securityUtil.getCurrentUserUuid()).isEqualTo(UUID);
+        assertThat(securityUtil.isExpert()).isTrue();
+        assertThat(securityUtil.isAdmin()).isFalse();
+        assertThat(securityUtil.canViewSinistre(7L)).isTrue();
+        assertThat(securityUtil.getCurrentPrincipal()).isSameAs(principal);
+        verify(userLookupService, times(1)).getUserIdByUuid(UUID);
+
+        // Nouvelle requête : nouvelle résolution
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(securityUtil.getCurrentPrincipal()).isNotSameAs(principal);
+        verify(userLookupService, times(2)).getUserIdByUuid(UUID);
+    }
+
+    @Test
+    void principalIsResolvedOnEachCallOutsideARequest() {
+        securityUtil.getCurrentUserId();
+        securityUtil.getCurrentUserId();
+
+        verify(userLookupService, times(2)).getUserIdByUuid(UUID);
+    }
+}
@@ -0,0 +1,101 @@
+package tn.esprit.agroprotect.microassurance.security;
+
+import org.junit.jupiter.api.Test;
+import tn.esprit.agroprotect.identity.repository.UserRepository;
+import tn.esprit.agroprotect.microassurance.exception.ForbiddenException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserLookupServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserLookupService service = new UserLookupService(userRepository, 100, Duration.ofMinutes(10));
+
+    @Test
+    void cachesResolvedIds() {
+        when(userRepository.findActiveIdByUuid("u-1")).thenReturn(Optional.of(42L));
+
+        assertThat(service.getUserIdByUuid("u-1")).isEqualTo(42L);
+        assertThat(service.getUserIdByUuid("u-1")).isEqualTo(42L);
+        verify(userRepository, times(1)).findActiveIdByUuid("u-1");
+    }
+
+    @Test
+    void unknownUuidIsNotCached() {
+        when(userRepository.findActiveIdByUuid("u-2")).thenReturn(Optional.empty(), Optional.of(7L));
+
+        assertThatThrownBy(() -> service.getUserIdByUuid("u-2")).isInstanceOf(ForbiddenException.class);
+        assertThat(service.getUserIdByUuid("u-2")).isEqualTo(7L);
+    }
+
+    @Test
+    void evictedUuidIsResolvedAgain() {
+        when(userRepository.findActiveIdByUuid("u-3")).thenReturn(Optional.of(3L), Optional.empty());
+
+        assertThat(service.getUserIdByUuid("u-3")).isEqualTo(3L);
+        service.evict("u-3");
+        assertThatThrownBy(() -> service.getUserIdByUuid("u-3")).isInstanceOf(ForbiddenException.class);
+    }
+
+    @Test
+    void repositoryFailureIsNotReportedAsUnknownUser() {
+        when(userRepository.findActiveIdByUuid("u-4")).thenThrow(new IllegalStateException("db down"));
+
+        assertThatThrownBy(() -> service.getUserIdByUuid("u-4")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void bulkResolutionLoadsOnlyCacheMissesInOneQuery() {
+        when(userRepository.findActiveIdByUuid("u-5")).thenReturn(Optional.of(5L));
+        when(userRepository.findActiveIdsByUuidIn(anyCollection()))
+                .thenReturn(List.of(row("u-6", 6L), row("u-7", 7L)));
+        service.getUserIdByUuid("u-5");
+
+        Map<String, Long> ids = service.getUserIdsByUuids(Arrays.asList("u-5", "u-6", "u-7", "u-inconnu", "", null));
+
+        assertThat(ids).containsOnly(Map.entry("u-5", 5L), Map.entry("u-6", 6L), Map.entry("u-7", 7L));
+        verify(userRepository, times(1)).findActiveIdsByUuidIn(argThat(uuids ->
+                uuids.size() == 3 && uuids.containsAll(List.of("u-6", "u-7", "u-inconnu"))));
+
+        // Les UUID résolus sont en cache, les inconnus ne le sont pas
+        assertThat(service.getUserIdByUuid("u-6")).isEqualTo(6L);
+        verify(userRepository, never()).findActiveIdByUuid("u-6");
+        service.getUserIdsByUuids(List.of("u-6", "u-7", "u-inconnu"));
+        verify(userRepository).findActiveIdsByUuidIn(argThat(uuids -> uuids.equals(Set.of("u-inconnu"))));
+    }
+
+    @Test
+    void bulkResolutionWithoutUuidsSkipsTheQuery() {
+        assertThat(service.getUserIdsByUuids(Arrays.asList("", null))).isEmpty();
+        verify(userRepository, never()).findActiveIdsByUuidIn(anyCollection());
+    }
+
+    private static UserRepository.UuidAndId row(String uuid, long id) {
+        return new UserRepository.UuidAndId() {
+            @Override
+            public String getUuid() {
+                return uuid;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import tn.esprit.agroprotect.microassurance.enums.FormatFichier;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.repository.SinistreSpecifications;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportServiceTest extends IntegrationTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    private final long userId = newUserId();
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM sinistres WHERE created_by_user_id = ?", userId);
+    }
+
+    @Test
+    void exportsMatchingClaimsInIdOrderWithFormulasEscaped() throws Exception {
+        Instant now = Instant.now();
+        long premier = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "=HYPERLINK(\"x\")", now);
+        long second = insertSinistre(userId, TypeSinistre.MALADIE, StatutSinistre.DECLARE, "Mildiou", now);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = exportService.exportSinistres(
+                SinistreSpecifications.withFilters(null, null, null, userId, null, null), FormatFichier.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(count).isEqualTo(2);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("id,typeSinistre,dateDeclaration,description,");
+        assertThat(lines[1]).startsWith(premier + ",CLIMAT,").contains(",\"'=HYPERLINK(\"\"x\"\")\",");
+        assertThat(lines[2]).startsWith(second + ",MALADIE,").contains(",Mildiou,");
+    }
+}
@@ -0,0 +1,82 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class FileEvaluationServiceTest extends IntegrationTest {
+
+    private static final int REQUETES = 64;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final long userId = newUserId();
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM sinistres WHERE created_by_user_id = ?", userId);
+    }
+
+    @Test
+    void concurrentClaimsGetDistinctClaims() throws Exception {
+        // Plus anciens que tout autre sinistre déclaré : servis en premier
+        Set<Long> sinistres = new HashSet<>();
+        for (int i = 0; i < REQUETES * 2; i++) {
+            sinistres.add(insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "Sinistre " + i,
+                    Instant.parse("1990-01-01T00:00:00Z").plusSeconds(i)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(REQUETES);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<MvcResult>> reponses = new ArrayList<>();
+        try {
+            for (int i = 0; i < REQUETES; i++) {
+                reponses.add(executor.submit(() -> {
+                    depart.await();
+                    return mockMvc.perform(post("/v1/microassurance/evaluation-queue/claim")
+                            .with(user("expert").roles("EXPERT"))
+                            .param("count", "1")).andReturn();
+                }));
+            }
+            depart.countDown();
+
+            List<Long> reserves = new ArrayList<>();
+            for (Future<MvcResult> reponse : reponses) {
+                MvcResult result = reponse.get();
+                assertThat(result.getResponse().getStatus()).isEqualTo(200);
+                for (JsonNode sinistre : objectMapper.readTree(result.getResponse().getContentAsString())) {
+                    reserves.add(sinistre.get("id").asLong());
+                }
+            }
+            // H2 applique LIMIT avant de sauter les lignes verrouillées : une requête peut repartir
+            // sans sinistre, mais aucun sinistre n'est réservé deux fois
+            assertThat(reserves).isNotEmpty().doesNotHaveDuplicates();
+            assertThat(sinistres).containsAll(reserves);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sinistres WHERE created_by_user_id = ? "
+                    + "AND assignation_expiration IS NOT NULL", Integer.class, userId)).isEqualTo(reserves.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import tn.esprit.agroprotect.microassurance.enums.StatutIndemnisation;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRun;
+import tn.esprit.agroprotect.microassurance.enums.StatutPaymentRunItem;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PaymentRunServiceTest extends IntegrationTest {
+
+    private static final String RUNS = "/v1/microassurance/payment-runs";
+
+    private final long userId = newUserId();
+    private final List<Long> runIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (long runId : runIds) {
+            jdbcTemplate.update("DELETE FROM payment_run_items WHERE payment_run_id = ?", runId);
+            jdbcTemplate.update("DELETE FROM payment_runs WHERE id = ?", runId);
+        }
+        jdbcTemplate.update("DELETE FROM indemnisations WHERE sinistre_id IN "
+                + "(SELECT id FROM sinistres WHERE created_by_user_id = ?)", userId);
+        jdbcTemplate.update("DELETE FROM sinistre_rollups WHERE created_by_user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM sinistres WHERE created_by_user_id = ?", userId);
+    }
+
+    @Test
+    void snapshotThenPayEndsTermine() throws Exception {
+        List<Long> ids = List.of(insertIndemnisation(StatutIndemnisation.EN_ATTENTE, null),
+                insertIndemnisation(StatutIndemnisation.EN_ATTENTE, null),
+                insertIndemnisation(StatutIndemnisation.EN_ATTENTE, null));
+
+        String body = mockMvc.perform(post(RUNS)
+                        .with(user("admin").roles("ADMIN"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"partitions\":2}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.partitionCount").value(2))
+                .andReturn().getResponse().getContentAsString();
+        long runId = ((Number) JsonPath.read(body, "$.id")).longValue();
+        runIds.add(runId);
+
+        assertThat(awaitEnd(runId)).isEqualTo(StatutPaymentRun.TERMINE.name());
+        for (long id : ids) {
+            Map<String, Object> indemnisation = indemnisation(id);
+            Map<String, Object> item = item(runId, id);
+            assertThat(indemnisation.get("statut")).isEqualTo(StatutIndemnisation.PAYE.name());
+            assertThat(indemnisation.get("idempotency_key")).isEqualTo("payrun-" + runId + "-" + id);
+            assertThat(item.get("statut")).isEqualTo(StatutPaymentRunItem.PAYE.name());
+            assertThat(item.get("payment_reference")).isNotNull()
+                    .isEqualTo(indemnisation.get("payment_reference"));
+            assertThat(((Number) item.get("partition_no")).longValue()).isEqualTo(id % 2);
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT completed_at FROM payment_runs WHERE id = ?",
+                Timestamp.class, runId)).isNotNull();
+    }
+
+    @Test
+    void resumePaysPendingItemsOnceAndFailsCancelledOnes() throws Exception {
+        long dejaPayee = insertIndemnisation(StatutIndemnisation.PAYE, "PAY-RUN");
+        long enAttente = insertIndemnisation(StatutIndemnisation.EN_ATTENTE, null);
+        // Annulée, ou payée par une autre voie, pendant que la campagne était arrêtée
+        long annulee = insertIndemnisation(StatutIndemnisation.ANNULE, null);
+        long payeeAilleurs = insertIndemnisation(StatutIndemnisation.PAYE, "PAY-AUTRE");
+
+        long runId = insertInterruptedRun();
+        insertItem(runId, dejaPayee, StatutPaymentRunItem.PAYE, "PAY-RUN");
+        insertItem(runId, enAttente, StatutPaymentRunItem.EN_ATTENTE, null);
+        insertItem(runId, annulee, StatutPaymentRunItem.EN_ATTENTE, null);
+        insertItem(runId, payeeAilleurs, StatutPaymentRunItem.EN_ATTENTE, null);
+
+        // L'instantané ignore les indemnisations encore en attente dans une autre campagne
+        String body = mockMvc.perform(post(RUNS).with(user("admin").roles("ADMIN")))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        long emptyRunId = ((Number) JsonPath.read(body, "$.id")).longValue();
+        runIds.add(emptyRunId);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_run_items WHERE payment_run_id = ? "
+                + "AND indemnisation_id = ?", Integer.class, emptyRunId, enAttente)).isZero();
+
+        mockMvc.perform(post(RUNS + "/" + runId + "/resume").with(user("admin").roles("ADMIN")))
+                .andExpect(status().isAccepted());
+        assertThat(awaitEnd(runId)).isEqualTo(StatutPaymentRun.TERMINE_AVEC_ECHECS.name());
+
+        assertThat(item(runId, enAttente).get("statut")).isEqualTo(StatutPaymentRunItem.PAYE.name());
+        assertThat(indemnisation(enAttente).get("statut")).isEqualTo(StatutIndemnisation.PAYE.name());
+
+        assertThat(item(runId, annulee).get("statut")).isEqualTo(StatutPaymentRunItem.ECHEC.name());
+        assertThat(indemnisation(annulee).get("statut")).isEqualTo(StatutIndemnisation.ANNULE.name());
+
+        // Pas de second paiement : les références d'origine sont conservées
+        assertThat(item(runId, payeeAilleurs).get("statut")).isEqualTo(StatutPaymentRunItem.ECHEC.name());
+        assertThat(indemnisation(payeeAilleurs).get("payment_reference")).isEqualTo("PAY-AUTRE");
+        assertThat(item(runId, dejaPayee).get("payment_reference")).isEqualTo("PAY-RUN");
+        assertThat(indemnisation(dejaPayee).get("payment_reference")).isEqualTo("PAY-RUN");
+
+        // Une campagne terminée ne se reprend pas
+        mockMvc.perform(post(RUNS + "/" + runId + "/resume").with(user("admin").roles("ADMIN")))
+                .andExpect(status().isConflict());
+    }
+
+    private long insertIndemnisation(StatutIndemnisation statut, String paymentReference) {
+        long sinistreId = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.VALIDE, "Campagne",
+                Instant.now());
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO indemnisations (sinistre_id, montant, date_creation, statut, "
+                        + "payment_reference, created_at, updated_at, version) VALUES (?, 100, ?, ?, ?, ?, ?, 0)",
+                sinistreId, now, statut.name(), paymentReference, now, now);
+        return jdbcTemplate.queryForObject("SELECT id FROM indemnisations WHERE sinistre_id = ?",
+                Long.class, sinistreId);
+    }
+
+    private long insertInterruptedRun() {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO payment_runs (statut, partition_count, total_items, total_amount, "
+                        + "created_by_user_id, started_at, created_at, updated_at, version) "
+                        + "VALUES (?, 2, 4, 400, ?, ?, ?, ?, 0)",
+                StatutPaymentRun.INTERROMPU.name(), userId, now, now, now);
+        long runId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM payment_runs WHERE created_by_user_id = ?",
+                Long.class, userId);
+        runIds.add(runId);
+        return runId;
+    }
+
+    private void insertItem(long runId, long indemnisationId, StatutPaymentRunItem statut, String paymentReference) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO payment_run_items (payment_run_id, indemnisation_id, partition_no, montant, "
+                        + "statut, idempotency_key, payment_reference, created_at, processed_at) "
+                        + "VALUES (?, ?, ?, 100, ?, ?, ?, ?, ?)",
+                runId, indemnisationId, indemnisationId % 2, statut.name(),
+                "payrun-" + runId + "-" + indemnisationId, paymentReference, now,
+                statut == StatutPaymentRunItem.EN_ATTENTE ? null : now);
+    }
+
+    /**
+     * Attend la clôture de la campagne, traitée en arrière-plan
+     */
+    private String awaitEnd(long runId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        String statut;
+        do {
+            Thread.sleep(50);
+            statut = jdbcTemplate.queryForObject("SELECT statut FROM payment_runs WHERE id = ?",
+                    String.class, runId);
+        } while (StatutPaymentRun.EN_COURS.name().equals(statut) && System.currentTimeMillis() < deadline);
+        return statut;
+    }
+
+    private Map<String, Object> indemnisation(long id) {
+        return jdbcTemplate.queryForMap(
+                "SELECT statut, payment_reference, idempotency_key FROM indemnisations WHERE id = ?", id);
+    }
+
+    private Map<String, Object> item(long runId, long indemnisationId) {
+        return jdbcTemplate.queryForMap("SELECT statut, payment_reference, partition_no FROM payment_run_items "
+                + "WHERE payment_run_id = ? AND indemnisation_id = ?", runId, indemnisationId);
+    }
+}
@@ -0,0 +1,134 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.microassurance.dto.response.ActivitePoint;
+import tn.esprit.agroprotect.microassurance.dto.response.ActiviteSinistresResponse;
+import tn.esprit.agroprotect.microassurance.enums.Granularite;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SinistreActiviteServiceTest extends IntegrationTest {
+
+    // Types sans autre activité dans les tests
+    private static final TypeSinistre FLUSH = TypeSinistre.PARASITES;
+    private static final TypeSinistre COMPACTION = TypeSinistre.INCENDIE;
+
+    @Autowired
+    private SinistreActiviteService sinistreActiviteService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM sinistre_activite_buckets WHERE type_sinistre IN (?, ?)",
+                FLUSH.name(), COMPACTION.name());
+    }
+
+    @Test
+    void flushWritesCommittedEventsToMinuteBuckets() {
+        Instant from = Granularite.MINUTE.truncate(Instant.now());
+        sinistreActiviteService.record(List.of(
+                new SinistreActiviteService.Evenement(FLUSH, StatutSinistre.DECLARE, new BigDecimal("100")),
+                new SinistreActiviteService.Evenement(FLUSH, StatutSinistre.DECLARE, new BigDecimal("50")),
+                new SinistreActiviteService.Evenement(FLUSH, StatutSinistre.VALIDE, null)));
+        // Transaction annulée : rien n'est retenu
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            sinistreActiviteService.record(List.of(
+                    new SinistreActiviteService.Evenement(FLUSH, StatutSinistre.REFUSE, BigDecimal.TEN)));
+            status.setRollbackOnly();
+        });
+        sinistreActiviteService.flush();
+        sinistreActiviteService.flush();
+
+        List<ActivitePoint> points = sinistreActiviteService.getActivite(Granularite.MINUTE, from.minusSeconds(60),
+                Instant.now().plusSeconds(60), FLUSH).getPoints();
+        assertThat(points).extracting(ActivitePoint::getStatut)
+                .containsExactly(StatutSinistre.DECLARE, StatutSinistre.VALIDE);
+        assertThat(points.get(0).getNbSinistres()).isEqualTo(2);
+        assertThat(points.get(0).getMontant()).isEqualByComparingTo("150");
+        assertThat(points.get(1).getNbSinistres()).isEqualTo(1);
+        assertThat(points.get(1).getMontant()).isEqualByComparingTo("0");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sinistre_activite_buckets "
+                + "WHERE type_sinistre = ? AND granularite = 'MINUTE'", Integer.class, FLUSH.name())).isEqualTo(2);
+    }
+
+    @Test
+    void compactFoldsBucketsOnceAndKeepsTotals() {
+        // Minutes d'il y a trois jours, heures d'il y a dix jours (au-delà des rétentions par défaut)
+        Instant heure = Granularite.DAY.truncate(Instant.now().minus(Duration.ofDays(3))).plus(Duration.ofHours(10));
+        Instant jour = Granularite.DAY.truncate(Instant.now().minus(Duration.ofDays(10)));
+        insert(Granularite.MINUTE, heure.plus(Duration.ofMinutes(5)), StatutSinistre.DECLARE, 2, "200");
+        insert(Granularite.MINUTE, heure.plus(Duration.ofMinutes(40)), StatutSinistre.DECLARE, 1, "100");
+        insert(Granularite.MINUTE, heure.plus(Duration.ofMinutes(70)), StatutSinistre.DECLARE, 4, "400");
+        insert(Granularite.HOUR, jour.plus(Duration.ofHours(2)), StatutSinistre.VALIDE, 3, "30");
+        insert(Granularite.HOUR, jour.plus(Duration.ofHours(5)), StatutSinistre.VALIDE, 1, "10");
+        insert(Granularite.DAY, jour, StatutSinistre.VALIDE, 10, "100");
+
+        Instant from = jour;
+        Instant to = heure.plus(Duration.ofDays(1));
+        Map<Instant, Long> parJourAvant = totals(Granularite.DAY, from, to);
+        Map<Instant, Long> parHeureAvant = totals(Granularite.HOUR, heure, heure.plus(Duration.ofHours(2)));
+
+        sinistreActiviteService.compact();
+
+        assertThat(rows(Granularite.MINUTE)).isEmpty();
+        assertThat(rows(Granularite.HOUR)).containsExactly(
+                Map.entry(heure, 3L), Map.entry(heure.plus(Duration.ofHours(1)), 4L));
+        assertThat(rows(Granularite.DAY)).containsExactly(Map.entry(jour, 14L));
+        assertThat(jdbcTemplate.queryForObject("SELECT montant FROM sinistre_activite_buckets WHERE "
+                + "type_sinistre = ? AND granularite = 'DAY'", BigDecimal.class, COMPACTION.name()))
+                .isEqualByComparingTo("140");
+
+        // Une seconde compaction ne compte rien deux fois
+        sinistreActiviteService.compact();
+        assertThat(rows(Granularite.HOUR)).containsExactly(
+                Map.entry(heure, 3L), Map.entry(heure.plus(Duration.ofHours(1)), 4L));
+        assertThat(rows(Granularite.DAY)).containsExactly(Map.entry(jour, 14L));
+
+        assertThat(totals(Granularite.DAY, from, to)).isEqualTo(parJourAvant);
+        assertThat(totals(Granularite.HOUR, heure, heure.plus(Duration.ofHours(2)))).isEqualTo(parHeureAvant);
+        assertThat(parJourAvant).containsExactly(Map.entry(jour, 14L), Map.entry(Granularite.DAY.truncate(heure), 7L));
+    }
+
+    private void insert(Granularite granularite, Instant debut, StatutSinistre statut, long nb, String montant) {
+        jdbcTemplate.update("INSERT INTO sinistre_activite_buckets (nb_evenements, montant, granularite, debut, "
+                        + "type_sinistre, statut) VALUES (?, ?, ?, ?, ?, ?)",
+                nb, new BigDecimal(montant), granularite.name(), Timestamp.from(debut), COMPACTION.name(),
+                statut.name());
+    }
+
+    /**
+     * Nombre d'événements par début d'intervalle, toutes granularités stockées confondues
+     */
+    private Map<Instant, Long> totals(Granularite granularite, Instant from, Instant to) {
+        ActiviteSinistresResponse response = sinistreActiviteService.getActivite(granularite, from, to, COMPACTION);
+        Map<Instant, Long> totals = new TreeMap<>();
+        for (ActivitePoint point : response.getPoints()) {
+            totals.merge(point.getDebut(), point.getNbSinistres(), Long::sum);
+        }
+        return totals;
+    }
+
+    private List<Map.Entry<Instant, Long>> rows(Granularite granularite) {
+        return jdbcTemplate.query("SELECT debut, nb_evenements FROM sinistre_activite_buckets "
+                        + "WHERE type_sinistre = ? AND granularite = ? ORDER BY debut",
+                (rs, i) -> Map.entry(rs.getTimestamp("debut").toInstant(), rs.getLong("nb_evenements")),
+                COMPACTION.name(), granularite.name());
+    }
+}
@@ -0,0 +1,263 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import tn.esprit.agroprotect.common.pagination.CountStrategy;
+import tn.esprit.agroprotect.common.pagination.SliceQuery;
+import tn.esprit.agroprotect.microassurance.dto.request.BulkSinistreTransitionRequest;
+import tn.esprit.agroprotect.microassurance.dto.response.BulkTransitionItemResult;
+import tn.esprit.agroprotect.microassurance.dto.response.BulkTransitionResponse;
+import tn.esprit.agroprotect.microassurance.enums.ResultatTransition;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TransitionSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.microassurance.exception.BadRequestException;
+import tn.esprit.agroprotect.microassurance.security.SecurityUtil;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SinistreBulkServiceTest extends IntegrationTest {
+
+    // Utilisateur résolu pour un principal sans JWT
+    private static final long EXPERT_ID = 1L;
+    private static final long AUTRE_EXPERT_ID = 999_999L;
+
+    private static final String BULK = "/v1/microassurance/sinistres/bulk/";
+
+    private final long userId = newUserId();
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SliceQuery sliceQuery;
+
+    @Autowired
+    private CountStrategy countStrategy;
+
+    @Autowired
+    private SecurityUtil securityUtil;
+
+    @Autowired
+    private SinistreRollupService sinistreRollupService;
+
+    @Autowired
+    private EvenementService evenementService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM sinistre_rollups WHERE created_by_user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM sinistres WHERE created_by_user_id = ?", userId);
+    }
+
+    @Test
+    void startEvaluationSkipsClaimsReservedByAnotherExpert() throws Exception {
+        Instant now = Instant.now();
+        long libre = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "Libre", now);
+        long reserveParMoi = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "Réservé par moi", now);
+        long reserveParAutre = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "Réservé par un autre", now);
+        long reservationExpiree = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "Réservation expirée", now);
+        reserve(reserveParMoi, EXPERT_ID, now.plus(Duration.ofMinutes(10)));
+        reserve(reserveParAutre, AUTRE_EXPERT_ID, now.plus(Duration.ofMinutes(10)));
+        reserve(reservationExpiree, AUTRE_EXPERT_ID, now.minus(Duration.ofMinutes(1)));
+
+        mockMvc.perform(post("/v1/microassurance/sinistres/bulk/start-evaluation")
+                        .with(user("expert").roles("EXPERT"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[" + libre + "," + reserveParMoi + "," + reserveParAutre + ","
+                                + reservationExpiree + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.appliques").value(3))
+                .andExpect(jsonPath("$.items[0].resultat").value("APPLIQUE"))
+                .andExpect(jsonPath("$.items[1].resultat").value("APPLIQUE"))
+                .andExpect(jsonPath("$.items[2].resultat").value("CONFLIT"))
+                .andExpect(jsonPath("$.items[3].resultat").value("APPLIQUE"));
+
+        for (long id : new long[]{libre, reserveParMoi, reservationExpiree}) {
+            Map<String, Object> row = etat(id);
+            assertThat(row.get("statut")).isEqualTo(StatutSinistre.EN_EVALUATION.name());
+            assertThat(((Number) row.get("expert_assigne_id")).longValue()).isEqualTo(EXPERT_ID);
+            assertThat(row.get("assignation_expiration")).isNull();
+        }
+        Map<String, Object> row = etat(reserveParAutre);
+        assertThat(row.get("statut")).isEqualTo(StatutSinistre.DECLARE.name());
+        assertThat(((Number) row.get("expert_assigne_id")).longValue()).isEqualTo(AUTRE_EXPERT_ID);
+        assertThat(row.get("assignation_expiration")).isNotNull();
+    }
+
+    @Test
+    void validateReportsInvalidStatusAndUnknownIdsAndSetsTaux() throws Exception {
+        Instant now = Instant.now();
+        long enEvaluation = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.EN_EVALUATION, "À valider", now);
+        long declare = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "Pas encore évalué", now);
+        long inconnu = declare + 1_000_000;
+
+        mockMvc.perform(post(BULK + "validate")
+                        .with(user("expert").roles("EXPERT"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[" + enEvaluation + "," + declare + "," + inconnu
+                                + "],\"tauxRemboursement\":0.75}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.appliques").value(1))
+                .andExpect(jsonPath("$.echecs").value(2))
+                .andExpect(jsonPath("$.items[0].resultat").value("APPLIQUE"))
+                .andExpect(jsonPath("$.items[1].resultat").value("STATUT_INVALIDE"))
+                .andExpect(jsonPath("$.items[2].resultat").value("INTROUVABLE"));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT statut, taux_remboursement, version FROM sinistres WHERE id = ?", enEvaluation);
+        assertThat(row.get("statut")).isEqualTo(StatutSinistre.VALIDE.name());
+        assertThat((BigDecimal) row.get("taux_remboursement")).isEqualByComparingTo("0.75");
+        assertThat(((Number) row.get("version")).longValue()).isEqualTo(1);
+        assertThat(etat(declare).get("statut")).isEqualTo(StatutSinistre.DECLARE.name());
+    }
+
+    @Test
+    void refuseRequiresMotif() throws Exception {
+        long id = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.EN_EVALUATION, "À refuser", Instant.now());
+
+        mockMvc.perform(post(BULK + "refuse")
+                        .with(user("expert").roles("EXPERT"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[" + id + "],\"motifRefus\":\"  \"}"))
+                .andExpect(status().isBadRequest());
+        assertThat(etat(id).get("statut")).isEqualTo(StatutSinistre.EN_EVALUATION.name());
+
+        mockMvc.perform(post(BULK + "refuse")
+                        .with(user("expert").roles("EXPERT"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[" + id + "],\"motifRefus\":\"Hors contrat\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].resultat").value("APPLIQUE"));
+        assertThat(jdbcTemplate.queryForObject("SELECT motif_refus FROM sinistres WHERE id = ?", String.class, id))
+                .isEqualTo("Hors contrat");
+    }
+
+    @Test
+    void criteriaSelectionAboveMaxItemsIsRejected() {
+        Instant now = Instant.now();
+        for (int i = 0; i < 3; i++) {
+            insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.EN_EVALUATION, "Lot " + i, now);
+        }
+        BulkSinistreTransitionRequest request = new BulkSinistreTransitionRequest();
+        request.setCreatedByUserId(userId);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "expert", null, List.of(new SimpleGrantedAuthority("ROLE_EXPERT"))));
+
+        assertThatThrownBy(() -> service(namedJdbcTemplate, 2).plan(TransitionSinistre.VALIDATION, request))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("2 sinistres");
+        assertThat(service(namedJdbcTemplate, 3).plan(TransitionSinistre.VALIDATION, request).ids()).hasSize(3);
+    }
+
+    @Test
+    void versionChangedAfterReadIsReportedAsConflict() {
+        Instant now = Instant.now();
+        long modifie = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.EN_EVALUATION, "Modifié", now);
+        long intact = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.EN_EVALUATION, "Intact", now);
+
+        // Une transition unitaire concurrente passe entre la lecture des états et le batch
+        NamedParameterJdbcTemplate concurrent = new NamedParameterJdbcTemplate(jdbcTemplate) {
+            @Override
+            public void query(String sql, Map<String, ?> paramMap, RowCallbackHandler rch) {
+                super.query(sql, paramMap, rch);
+                getJdbcTemplate().update("UPDATE sinistres SET version = version + 1 WHERE id = ?", modifie);
+            }
+        };
+        SinistreBulkService.Plan plan = new SinistreBulkService.Plan(TransitionSinistre.VALIDATION,
+                List.of(modifie, intact), null, null, EXPERT_ID);
+        List<BulkTransitionResponse> progress = new ArrayList<>();
+        service(concurrent, 10).execute(plan, progress::add);
+
+        assertThat(progress.get(0).getItems()).extracting(BulkTransitionItemResult::getResultat)
+                .containsExactly(ResultatTransition.CONFLIT, ResultatTransition.APPLIQUE);
+        assertThat(progress.get(1).isTermine()).isTrue();
+        assertThat(progress.get(1).getAppliques()).isEqualTo(1);
+        assertThat(etat(modifie).get("statut")).isEqualTo(StatutSinistre.EN_EVALUATION.name());
+        assertThat(etat(intact).get("statut")).isEqualTo(StatutSinistre.VALIDE.name());
+    }
+
+    @Test
+    void ndjsonStreamsOneLinePerChunkThenTheFinalLine() throws Exception {
+        Instant now = Instant.now();
+        long premier = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "Premier", now);
+        long second = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.VALIDE, "Second", now);
+
+        MvcResult started = mockMvc.perform(post(BULK + "start-evaluation")
+                        .with(user("expert").roles("EXPERT"))
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[" + premier + "," + second + "]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode partiel = objectMapper.readTree(lines[0]);
+        assertThat(partiel.get("termine").asBoolean()).isFalse();
+        assertThat(partiel.get("traites").asInt()).isEqualTo(2);
+        assertThat(partiel.get("items")).hasSize(2);
+        assertThat(partiel.get("items").get(1).get("resultat").asText()).isEqualTo("STATUT_INVALIDE");
+        JsonNode fin = objectMapper.readTree(lines[1]);
+        assertThat(fin.get("termine").asBoolean()).isTrue();
+        assertThat(fin.get("appliques").asInt()).isEqualTo(1);
+        assertThat(fin.get("echecs").asInt()).isEqualTo(1);
+        assertThat(fin.get("items")).isEmpty();
+    }
+
+    private SinistreBulkService service(NamedParameterJdbcTemplate template, int maxItems) {
+        return new SinistreBulkService(template, transactionManager, sliceQuery, countStrategy, securityUtil,
+                sinistreRollupService, evenementService, 500, maxItems);
+    }
+
+    private void reserve(long id, long expertId, Instant expiration) {
+        jdbcTemplate.update("UPDATE sinistres SET expert_assigne_id = ?, assignation_expiration = ? WHERE id = ?",
+                expertId, Timestamp.from(expiration), id);
+    }
+
+    private Map<String, Object> etat(long id) {
+        return jdbcTemplate.queryForMap(
+                "SELECT statut, expert_assigne_id, assignation_expiration FROM sinistres WHERE id = ?", id);
+    }
+}
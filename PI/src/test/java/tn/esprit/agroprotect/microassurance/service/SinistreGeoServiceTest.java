@@ -0,0 +1,130 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tn.esprit.agroprotect.common.geo.GeoHash;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.lessThan;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SinistreGeoServiceTest extends IntegrationTest {
+
+    private static final String GEO = "/v1/microassurance/sinistres/geo/";
+
+    private final long userId = newUserId();
+    private long tunis;
+    private long ariana;
+    private long sousse;
+    private long fidjiEst;
+    private long fidjiOuest;
+
+    @BeforeEach
+    void setUp() {
+        tunis = localise(36.80, 10.18);
+        ariana = localise(36.86, 10.19);
+        sousse = localise(35.83, 10.64);
+        // Sfax : hors du rectangle de Tunis, compté dans les regroupements
+        localise(34.74, 10.76);
+        // De part et d'autre de l'antiméridien
+        fidjiEst = localise(-17.0, 179.5);
+        fidjiOuest = localise(-17.1, -179.8);
+        localise(-17.0, 170.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM sinistres WHERE created_by_user_id = ?", userId);
+    }
+
+    @Test
+    void boundingBoxKeepsOnlyClaimsInside() throws Exception {
+        perform(get(GEO + "bbox").param("sud", "35.5").param("ouest", "9.5").param("nord", "37.5")
+                .param("est", "11"))
+                .andExpect(jsonPath("$.tronque").value(false))
+                .andExpect(jsonPath("$.sinistres[*].id").value(containsInAnyOrder(
+                        (int) tunis, (int) ariana, (int) sousse)));
+
+        perform(get(GEO + "bbox").param("sud", "35.5").param("ouest", "9.5").param("nord", "37.5")
+                .param("est", "11").param("limit", "2"))
+                .andExpect(jsonPath("$.tronque").value(true))
+                .andExpect(jsonPath("$.sinistres.length()").value(2));
+    }
+
+    @Test
+    void boundingBoxAcrossTheAntimeridian() throws Exception {
+        perform(get(GEO + "bbox").param("sud", "-18").param("ouest", "179").param("nord", "-16")
+                .param("est", "-179"))
+                .andExpect(jsonPath("$.sinistres[*].id").value(containsInAnyOrder(
+                        (int) fidjiEst, (int) fidjiOuest)));
+    }
+
+    @Test
+    void radiusReturnsTheNearestFirst() throws Exception {
+        perform(get(GEO + "radius").param("latitude", "36.80").param("longitude", "10.18")
+                .param("rayonKm", "150"))
+                .andExpect(jsonPath("$.tronque").value(false))
+                .andExpect(jsonPath("$.sinistres[*].id").value(contains((int) tunis, (int) ariana, (int) sousse)))
+                .andExpect(jsonPath("$.sinistres[0].distanceKm").value(lessThan(0.001)));
+
+        perform(get(GEO + "radius").param("latitude", "36.80").param("longitude", "10.18")
+                .param("rayonKm", "150").param("limit", "2"))
+                .andExpect(jsonPath("$.tronque").value(true))
+                .andExpect(jsonPath("$.sinistres[*].id").value(contains((int) tunis, (int) ariana)));
+
+        perform(get(GEO + "radius").param("latitude", "-17.05").param("longitude", "179.9")
+                .param("rayonKm", "100"))
+                .andExpect(jsonPath("$.sinistres[*].id").value(contains((int) fidjiOuest, (int) fidjiEst)));
+    }
+
+    @Test
+    void clustersCountClaimsPerCell() throws Exception {
+        Map<String, Integer> attendus = new HashMap<>();
+        for (double[] point : new double[][]{{36.80, 10.18}, {36.86, 10.19}, {35.83, 10.64}, {34.74, 10.76}}) {
+            attendus.merge(GeoHash.encode(point[0], point[1], 3), 1, Integer::sum);
+        }
+
+        String body = perform(get(GEO + "clusters").param("sud", "34").param("ouest", "9.5").param("nord", "37.5")
+                .param("est", "11").param("precision", "3"))
+                .andExpect(jsonPath("$.precision").value(3))
+                .andReturn().getResponse().getContentAsString();
+
+        List<Map<String, Object>> clusters = JsonPath.read(body, "$.clusters");
+        Map<String, Integer> comptes = new HashMap<>();
+        for (Map<String, Object> cluster : clusters) {
+            comptes.put((String) cluster.get("cellule"), ((Number) cluster.get("nbSinistres")).intValue());
+            assertThat(((Number) cluster.get("estimationPerteTotale")).intValue())
+                    .isEqualTo(1000 * ((Number) cluster.get("nbSinistres")).intValue());
+        }
+        assertThat(comptes).isEqualTo(attendus);
+    }
+
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request.with(user("admin").roles("ADMIN"))).andExpect(status().isOk());
+    }
+
+    private long localise(double latitude, double longitude) {
+        long id = insertSinistre(userId, TypeSinistre.CLIMAT, StatutSinistre.DECLARE, "Localisé", Instant.now());
+        jdbcTemplate.update("UPDATE sinistres SET latitude = ?, longitude = ?, geohash = ?, estimation_perte = 1000 "
+                        + "WHERE id = ?",
+                latitude, longitude, GeoHash.encode(latitude, longitude, GeoHash.MAX_PRECISION), id);
+        return id;
+    }
+}
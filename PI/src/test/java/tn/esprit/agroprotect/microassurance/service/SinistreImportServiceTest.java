@@ -0,0 +1,138 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SinistreImportServiceTest extends IntegrationTest {
+
+    private static final String URL = "/v1/microassurance/sinistres/import";
+    private static final String HEADER = "typeSinistre;description;contratAssuranceId;estimationPerte;latitude;longitude\n";
+
+    @Autowired
+    private SinistreImportService sinistreImportService;
+
+    private long lastIdBefore;
+
+    @BeforeEach
+    void setUp() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM sinistres", Long.class);
+        lastIdBefore = max != null ? max : 0;
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(sinistreImportService, "maxItems", 100_000);
+        jdbcTemplate.update("DELETE FROM sinistres WHERE id > ?", lastIdBefore);
+    }
+
+    @Test
+    void importsValidRowsAndReportsRejectedOnes() throws Exception {
+        String csv = HEADER
+                + "CLIMAT;Grêle sur 3 ha de blé;;1200,50;36.8;10.18\n"
+                + "INCONNU;Type invalide;;;;\n"
+                + "SECHERESSE;;;;;\n"
+                + "INONDATION;\"Crue; parcelle \"\"nord\"\"\";;900;;\n";
+
+        mockMvc.perform(csv(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lignes").value(4))
+                .andExpect(jsonPath("$.importes").value(2))
+                .andExpect(jsonPath("$.rejetes").value(2))
+                .andExpect(jsonPath("$.erreurs[0].ligne").value(3))
+                .andExpect(jsonPath("$.erreurs[1].ligne").value(4))
+                .andExpect(jsonPath("$.limiteAtteinte").value(false));
+
+        assertThat(jdbcTemplate.queryForList("SELECT description FROM sinistres WHERE id > ? ORDER BY id",
+                String.class, lastIdBefore)).containsExactly("Grêle sur 3 ha de blé", "Crue; parcelle \"nord\"");
+    }
+
+    @Test
+    void importsNdjson() throws Exception {
+        String ndjson = "{\"typeSinistre\":\"MALADIE\",\"description\":\"Mildiou\"}\n"
+                + "\n"
+                + "{pas du json}\n";
+
+        mockMvc.perform(post(URL).with(user("agri").roles("AGRICULTEUR"))
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importes").value(1))
+                .andExpect(jsonPath("$.rejetes").value(1))
+                .andExpect(jsonPath("$.erreurs[0].ligne").value(3));
+    }
+
+    @Test
+    void stopsReadingAtTheRowLimit() throws Exception {
+        ReflectionTestUtils.setField(sinistreImportService, "maxItems", 3);
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 5; i++) {
+            csv.append("CLIMAT;Sinistre ").append(i).append(";;;;\n");
+        }
+
+        mockMvc.perform(csv(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lignes").value(3))
+                .andExpect(jsonPath("$.importes").value(3))
+                .andExpect(jsonPath("$.limiteAtteinte").value(true));
+    }
+
+    @Test
+    void rejectsOversizedHeader() throws Exception {
+        String csv = "typeSinistre;description;" + "x".repeat(10_000) + "\nCLIMAT;Grêle;\n";
+
+        mockMvc.perform(csv(csv)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rejectsEmptyFile() throws Exception {
+        mockMvc.perform(csv("")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rejectsRolesThatDoNotDeclareClaims() throws Exception {
+        mockMvc.perform(post(URL).with(user("investor").roles("INVESTOR"))
+                        .contentType("text/csv")
+                        .content(HEADER + "CLIMAT;Grêle;;;;\n"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void imports100kRowsInUnderAMinute() throws Exception {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 100_000; i++) {
+            csv.append(i % 2 == 0 ? "CLIMAT" : "INONDATION")
+                    .append(";Parcelle ").append(i).append(" touchée par l'orage du ").append(i % 28 + 1)
+                    .append(" mars;;").append(500 + i % 1000).append(",00;")
+                    .append(33 + (i % 400) / 100.0).append(';').append(8 + (i % 300) / 100.0).append('\n');
+        }
+
+        long start = System.nanoTime();
+        mockMvc.perform(csv(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importes").value(100_000))
+                .andExpect(jsonPath("$.rejetes").value(0));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMs).isLessThan(60_000);
+    }
+
+    private static MockHttpServletRequestBuilder csv(String content) {
+        return post(URL).with(user("admin").roles("ADMIN"))
+                .contentType("text/csv")
+                .content(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
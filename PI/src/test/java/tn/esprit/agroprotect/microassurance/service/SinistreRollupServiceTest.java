@@ -0,0 +1,160 @@
+package tn.esprit.agroprotect.microassurance.service;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+import tn.esprit.agroprotect.support.IntegrationTest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SinistreRollupServiceTest extends IntegrationTest {
+
+    private static final String SINISTRES = "/v1/microassurance/sinistres";
+    private static final String INDEMNISATIONS = "/v1/microassurance/indemnisations";
+
+    // Contrat propre au test : isole ses lignes d'agrégat
+    private final long contratId = newUserId();
+
+    @Autowired
+    private SinistreRollupService sinistreRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM indemnisations WHERE sinistre_id IN "
+                + "(SELECT id FROM sinistres WHERE contrat_assurance_id = ?)", contratId);
+        jdbcTemplate.update("DELETE FROM sinistres WHERE contrat_assurance_id = ?", contratId);
+        jdbcTemplate.update("DELETE FROM sinistre_rollups WHERE contrat_assurance_id = ?", contratId);
+    }
+
+    @Test
+    void incrementalRollupsMatchRebuild() throws Exception {
+        long paye = declare(TypeSinistre.CLIMAT);
+        startEvaluation(paye);
+        call(patch(SINISTRES + "/" + paye + "/validate").with(user("expert").roles("EXPERT"))
+                .contentType(MediaType.APPLICATION_JSON).content("{\"tauxRemboursement\":0.5}"));
+        call(patch(INDEMNISATIONS + "/" + indemnise(paye) + "/pay").with(user("admin").roles("ADMIN")));
+
+        long annule = declare(TypeSinistre.CLIMAT);
+        startEvaluation(annule);
+        call(patch(SINISTRES + "/" + annule + "/validate").with(user("expert").roles("EXPERT"))
+                .contentType(MediaType.APPLICATION_JSON).content("{\"tauxRemboursement\":0.2}"));
+        call(patch(INDEMNISATIONS + "/" + indemnise(annule) + "/cancel").with(user("admin").roles("ADMIN")));
+
+        long refuse = declare(TypeSinistre.MALADIE);
+        startEvaluation(refuse);
+        call(patch(SINISTRES + "/" + refuse + "/refuse").with(user("expert").roles("EXPERT"))
+                .contentType(MediaType.APPLICATION_JSON).content("{\"motifRefus\":\"Hors contrat\"}"));
+
+        declare(TypeSinistre.MALADIE);
+
+        List<Map<String, Object>> incremental = rollups();
+        assertThat(incremental).hasSize(2);
+        Map<String, Object> climat = incremental.get(0);
+        assertThat(climat.get("type_sinistre")).isEqualTo(TypeSinistre.CLIMAT.name());
+        assertThat(((Number) climat.get("nb_valides")).longValue()).isEqualTo(2);
+        assertThat(((Number) climat.get("nb_en_evaluation")).longValue()).isZero();
+        assertThat(((Number) climat.get("nb_indemnisations_payees")).longValue()).isEqualTo(1);
+        assertThat((BigDecimal) climat.get("montant_paye")).isEqualByComparingTo("500");
+        assertThat(((Number) climat.get("nb_indemnisations_annulees")).longValue()).isEqualTo(1);
+        Map<String, Object> maladie = incremental.get(1);
+        assertThat(((Number) maladie.get("nb_declares")).longValue()).isEqualTo(1);
+        assertThat(((Number) maladie.get("nb_refuses")).longValue()).isEqualTo(1);
+        assertThat((BigDecimal) maladie.get("estimation_perte_totale")).isEqualByComparingTo("2000");
+
+        call(post("/v1/microassurance/stats/rebuild").with(user("admin").roles("ADMIN")));
+        assertThat(rollups()).isEqualTo(incremental);
+    }
+
+    @Test
+    void concurrentFirstInsertFallsBackToUpdate() throws Exception {
+        SinistreRollupService.Cle cle = SinistreRollupService.Cle.of(newUserId(), contratId, TypeSinistre.CLIMAT,
+                Instant.now());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // La première transaction crée la ligne et reste ouverte
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            sinistreRollupService.apply(new SinistreRollupService.Variations()
+                    .paiement(cle, new BigDecimal("100")));
+            inserted.countDown();
+            await(release);
+        }));
+        assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // La seconde ne voit pas encore la ligne : son insertion attend la première, puis échoue
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(
+                status -> sinistreRollupService.apply(new SinistreRollupService.Variations()
+                        .paiement(cle, new BigDecimal("50")))));
+        Thread.sleep(300);
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT COUNT(*) AS nb, "
+                + "SUM(nb_indemnisations_payees) AS payees, SUM(montant_paye) AS montant FROM sinistre_rollups "
+                + "WHERE created_by_user_id = ? AND contrat_assurance_id = ?", cle.createdByUserId(), contratId);
+        assertThat(((Number) row.get("nb")).longValue()).isEqualTo(1);
+        assertThat(((Number) row.get("payees")).longValue()).isEqualTo(2);
+        assertThat((BigDecimal) row.get("montant")).isEqualByComparingTo("150");
+    }
+
+    private long declare(TypeSinistre type) throws Exception {
+        String body = call(post(SINISTRES).with(user("agriculteur").roles("AGRICULTEUR"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"typeSinistre\":\"" + type + "\",\"description\":\"Agrégats\",\"contratAssuranceId\":"
+                        + contratId + ",\"estimationPerte\":1000}"));
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+
+    private void startEvaluation(long id) throws Exception {
+        call(patch(SINISTRES + "/" + id + "/start-evaluation").with(user("expert").roles("EXPERT")));
+    }
+
+    private long indemnise(long sinistreId) throws Exception {
+        String body = call(post(SINISTRES + "/" + sinistreId + "/indemnisations").with(user("admin").roles("ADMIN")));
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+
+    private String call(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request)
+                .andExpect(status().is2xxSuccessful())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private List<Map<String, Object>> rollups() {
+        return jdbcTemplate.queryForList("SELECT created_by_user_id, type_sinistre, jour, nb_declares, "
+                + "nb_en_evaluation, nb_valides, nb_refuses, estimation_perte_totale, nb_indemnisations_payees, "
+                + "montant_paye, nb_indemnisations_annulees FROM sinistre_rollups WHERE contrat_assurance_id = ? "
+                + "ORDER BY type_sinistre, jour", contratId);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
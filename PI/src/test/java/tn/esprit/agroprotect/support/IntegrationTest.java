@@ -0,0 +1,61 @@
+package tn.esprit.agroprotect.support;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tn.esprit.agroprotect.AgroProtectApplication;
+import tn.esprit.agroprotect.identity.store.KeyValueStore;
+import tn.esprit.agroprotect.microassurance.enums.StatutSinistre;
+import tn.esprit.agroprotect.microassurance.enums.TypeSinistre;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base of the tests running the whole application on H2 (test profile, embedded
+ * key-value store). Every subclass shares one application context and database:
+ * tests isolate their rows with a user id of their own ({@link #newUserId()}).
+ */
+@SpringBootTest(classes = AgroProtectApplication.class, properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        "logging.level.org.springframework.security=WARN",
+        // Every MockMvc request comes from 127.0.0.1: the suite would share one per-IP quota
+        "security.rate-limit.requests-per-minute=1000000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", KeyValueStore.EMBEDDED_PROFILE})
+public abstract class IntegrationTest {
+
+    // Far above the ids of the users the application creates
+    private static final AtomicLong USER_IDS = new AtomicLong(1_000_000);
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    protected static long newUserId() {
+        return USER_IDS.incrementAndGet();
+    }
+
+    /**
+     * Insert a claim directly, bypassing the services
+     */
+    protected long insertSinistre(long userId, TypeSinistre type, StatutSinistre statut, String description,
+            Instant dateDeclaration) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO sinistres (type_sinistre, date_declaration, description, statut, "
+                        + "created_by_user_id, has_indemnisation, created_at, updated_at, version) "
+                        + "VALUES (?, ?, ?, ?, ?, FALSE, ?, ?, 0)",
+                type.name(), Timestamp.from(dateDeclaration), description, statut.name(), userId, now, now);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM sinistres WHERE created_by_user_id = ?",
+                Long.class, userId);
+    }
+}